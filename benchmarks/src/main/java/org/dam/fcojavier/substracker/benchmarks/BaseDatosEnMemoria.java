@@ -0,0 +1,83 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.dao.CobroDAO;
+import org.dam.fcojavier.substracker.dao.ParticipaDAO;
+import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
+import org.dam.fcojavier.substracker.dao.UsuarioDAO;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base de datos SQLite en memoria con los datos sintéticos de {@link Datos}, compartida por los
+ * benchmarks que pasan por los DAOs.
+ *
+ * Cada prueba (trial) crea una base de datos nueva en memoria compartida, la apunta con
+ * {@link ConnectionDB#setUrl(String)} (las migraciones crean el esquema) y la llena con los
+ * {@code createAll} de los DAOs: un titular con {@link #suscripciones} suscripciones, sus cobros
+ * mensuales desde la activación y un invitado en una de cada tres.
+ * Mientras dura la prueba se mantiene abierta una conexión propia para que SQLite no descarte
+ * la base de datos si el pool cierra las suyas.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+public class BaseDatosEnMemoria {
+
+    private static final AtomicInteger contador = new AtomicInteger();
+
+    /** Suscripciones del titular. */
+    @Param({"100", "1000", "10000"})
+    public int suscripciones;
+
+    /** ID del titular de los datos. */
+    int idTitular;
+    /** ID de una suscripción cualquiera del titular. */
+    int idSuscripcion;
+
+    private Connection ancla;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        String url = "jdbc:sqlite:file:bench" + contador.incrementAndGet() + "?mode=memory&cache=shared";
+        ancla = DriverManager.getConnection(url);
+        ConnectionDB.setTipo(ConnectionDB.DBType.SQLITE);
+        ConnectionDB.setUrl(url);
+
+        Random aleatorio = new Random(Datos.SEMILLA);
+        Usuario titular = new Usuario(0, "Bench", "Titular", "bench@substracker.test", "sin-password");
+        comprobar(new UsuarioDAO().create(titular), "usuario");
+        idTitular = titular.getId_usuario();
+
+        List<Suscripcion> lista = Datos.suscripciones(suscripciones, titular, aleatorio);
+        comprobar(new SuscripcionDAO().createAll(lista), "suscripciones");
+        idSuscripcion = lista.get(0).getIdSuscripcion();
+        comprobar(new CobroDAO().createAll(Datos.cobros(lista, aleatorio)), "cobros");
+        comprobar(new ParticipaDAO().createAll(Datos.participaciones(lista, aleatorio)), "participaciones");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        ConnectionDB.setUrl(null);
+        ancla.close();
+    }
+
+    private static void comprobar(boolean correcto, String que) {
+        // Los DAOs informan del error por consola y devuelven false: sin datos no hay medida válida
+        if (!correcto) throw new IllegalStateException("No se pudieron generar los datos: " + que);
+    }
+}
@@ -0,0 +1,41 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cálculo de costes del modelo: {@link Suscripcion#calcularGastoTotal} y
+ * {@link Suscripcion#calcularNumeroDePagos} sobre todas las suscripciones, como al recorrer la tabla.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculoCostesBenchmark {
+
+    @Benchmark
+    public long gastoTotal(SuscripcionesEnMemoria datos) {
+        long total = 0;
+        for (Suscripcion s : datos.lista) total += s.calcularGastoTotal(Datos.HOY);
+        return total;
+    }
+
+    @Benchmark
+    public long numeroDePagos(SuscripcionesEnMemoria datos) {
+        long total = 0;
+        for (Suscripcion s : datos.lista) total += s.calcularNumeroDePagos(Datos.HOY);
+        return total;
+    }
+}
@@ -0,0 +1,106 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.model.Cobro;
+import org.dam.fcojavier.substracker.model.Participa;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Datos sintéticos de los benchmarks.
+ *
+ * Se generan con una semilla fija, de modo que dos ejecuciones (antes y después de un cambio)
+ * miden exactamente los mismos datos.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+final class Datos {
+
+    /** Semilla de todos los generadores. */
+    static final long SEMILLA = 42L;
+    /** Fecha de referencia fija: los cálculos no dependen del día en que se ejecutan. */
+    static final LocalDate HOY = LocalDate.of(2025, 6, 15);
+
+    private static final String[] SERVICIOS = {
+            "Netflix", "Spotify", "Disney+", "HBO Max", "Amazon Prime", "Adobe Creative Cloud",
+            "Microsoft 365", "iCloud", "Gimnasio", "Seguro Moto", "Xbox Game Pass", "YouTube Premium"
+    };
+
+    private Datos() {
+    }
+
+    /**
+     * Suscripciones en memoria, sin ID ni relaciones cargadas.
+     *
+     * @param cantidad Número de suscripciones.
+     * @param titular Titular de todas ellas.
+     * @param aleatorio Generador (con semilla).
+     * @return Lista de suscripciones.
+     */
+    static List<Suscripcion> suscripciones(int cantidad, Usuario titular, Random aleatorio) {
+        List<Suscripcion> lista = new ArrayList<>(cantidad);
+        Ciclo[] ciclos = Ciclo.values();
+        Categoria[] categorias = Categoria.values();
+        for (int i = 0; i < cantidad; i++) {
+            LocalDate activacion = HOY.minusDays(aleatorio.nextInt(5 * 365));
+            Ciclo ciclo = ciclos[aleatorio.nextInt(ciclos.length)];
+            LocalDate renovacion = activacion;
+            while (renovacion.isBefore(HOY)) renovacion = renovacion.plusMonths(ciclo.getMeses());
+
+            Suscripcion s = new Suscripcion(0, SERVICIOS[i % SERVICIOS.length] + " " + i,
+                    199 + aleatorio.nextInt(15000), ciclo, categorias[aleatorio.nextInt(categorias.length)],
+                    activacion, renovacion, titular);
+            s.setActivo(aleatorio.nextInt(10) != 0);
+            lista.add(s);
+        }
+        return lista;
+    }
+
+    /**
+     * Un cobro por periodo de cada suscripción, desde su activación hasta {@link #HOY}.
+     *
+     * @param suscripciones Suscripciones ya guardadas (con ID).
+     * @param aleatorio Generador (con semilla).
+     * @return Lista de cobros.
+     */
+    static List<Cobro> cobros(List<Suscripcion> suscripciones, Random aleatorio) {
+        List<Cobro> lista = new ArrayList<>();
+        MetodoPago[] metodos = MetodoPago.values();
+        for (Suscripcion s : suscripciones) {
+            int meses = s.getCiclo().getMeses();
+            for (LocalDate fecha = s.getFechaActivacion(); fecha.isBefore(HOY); fecha = fecha.plusMonths(meses)) {
+                lista.add(new Cobro(0, fecha, metodos[aleatorio.nextInt(metodos.length)], 1, null, s));
+            }
+        }
+        return lista;
+    }
+
+    /**
+     * Un colaborador invitado en una de cada tres suscripciones, que paga una parte del precio.
+     *
+     * @param suscripciones Suscripciones ya guardadas (con ID).
+     * @param aleatorio Generador (con semilla).
+     * @return Lista de participaciones.
+     */
+    static List<Participa> participaciones(List<Suscripcion> suscripciones, Random aleatorio) {
+        List<Participa> lista = new ArrayList<>();
+        MetodoPago[] metodos = MetodoPago.values();
+        for (int i = 0; i < suscripciones.size(); i += 3) {
+            Suscripcion s = suscripciones.get(i);
+            LocalDate pagado = aleatorio.nextBoolean() ? HOY.minusDays(aleatorio.nextInt(90)) : null;
+            Participa p = new Participa("Invitado " + i, s.getPrecioCentimos() / (2 + aleatorio.nextInt(3)), s,
+                    metodos[aleatorio.nextInt(metodos.length)], pagado);
+            p.setPeriodos_cubiertos(1 + aleatorio.nextInt(3));
+            lista.add(p);
+        }
+        return lista;
+    }
+}
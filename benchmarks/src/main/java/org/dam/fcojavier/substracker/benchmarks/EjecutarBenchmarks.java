@@ -0,0 +1,31 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de {@code benchmarks.jar}.
+ *
+ * Acepta las mismas opciones que el lanzador de JMH (filtro de benchmarks, {@code -p suscripciones=1000},
+ * {@code -rf json}...) y añade siempre el perfilador de GC, para ver las asignaciones por operación
+ * ({@code gc.alloc.rate.norm}) junto a los tiempos.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public final class EjecutarBenchmarks {
+
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.controller.SuscripcionesController;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Filtro de la tabla de suscripciones ({@link SuscripcionesController#crearFiltro}): lo que cuesta
+ * cada pulsación en el buscador, es decir, crear el predicado y evaluarlo sobre todas las filas.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FiltroSuscripcionesBenchmark {
+
+    /** Texto del buscador (vacío: sin filtro de texto). */
+    @Param({"", "net", "Premium"})
+    public String texto;
+
+    /** Categoría seleccionada. */
+    @Param({"TODAS", "OCIO"})
+    public String categoria;
+
+    @Benchmark
+    public int filtrar(SuscripcionesEnMemoria datos) {
+        Predicate<Suscripcion> filtro = SuscripcionesController.crearFiltro(texto, categoria, "ACTIVAS");
+        int visibles = 0;
+        for (Suscripcion s : datos.lista) {
+            if (filtro.test(s)) visibles++;
+        }
+        return visibles;
+    }
+}
@@ -0,0 +1,51 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.controller.InformesController;
+import org.dam.fcojavier.substracker.dao.InformeDAO;
+import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pantalla de informes ({@code InformesController.procesarDatosFinancieros}): consultas agregadas,
+ * proyección de 12 meses y totales, medidos con {@link InformesController#calcularResumen}.
+ * Incluye la carga de las suscripciones del titular que necesita la proyección, con sus participantes
+ * y sin el historial de cobros ({@link SuscripcionDAO#findByTitularIdSinCobros}).
+ * {@link #cargaCompleta} mide aparte la carga con cobros ({@link SuscripcionDAO#findByTitularId}),
+ * la que hacía antes el informe.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InformesBenchmark {
+
+    private final InformeDAO informeDAO = new InformeDAO();
+    private final SuscripcionDAO suscripcionDAO = new SuscripcionDAO();
+
+    @Benchmark
+    public InformesController.ResumenFinanciero resumen(BaseDatosEnMemoria bd) {
+        return InformesController.calcularResumen(informeDAO, suscripcionDAO, bd.idTitular, Datos.HOY);
+    }
+
+    @Benchmark
+    public List<Suscripcion> cargaCompleta(BaseDatosEnMemoria bd) {
+        return suscripcionDAO.findByTitularId(bd.idTitular);
+    }
+}
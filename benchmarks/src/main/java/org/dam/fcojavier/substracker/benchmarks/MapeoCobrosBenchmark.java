@@ -0,0 +1,74 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.dao.CobroDAO;
+import org.dam.fcojavier.substracker.dao.CodecColumnas;
+import org.dam.fcojavier.substracker.model.Cobro;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de cobros: mapeo de filas a {@link Cobro} ({@code CobroDAO.obtenerCobro}) y
+ * decodificación de fechas ({@link CodecColumnas#getFecha}, sucesor de {@code parsearFechaSegura}).
+ *
+ * {@link #fechasSinCodec} recorre las mismas filas leyendo el entero en bruto: la diferencia con
+ * {@link #fechasConCodec} es el coste de la decodificación.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapeoCobrosBenchmark {
+
+    private static final String fechas_sql = "SELECT fecha_cobro FROM cobro";
+
+    private final CobroDAO cobroDAO = new CobroDAO();
+
+    @Benchmark
+    public List<Cobro> cobrosDelTitular(BaseDatosEnMemoria bd) {
+        return cobroDAO.findByUsuarioId(bd.idTitular);
+    }
+
+    @Benchmark
+    public List<Cobro> cobrosDeUnaSuscripcion(BaseDatosEnMemoria bd) {
+        return cobroDAO.findBySuscripcionId(bd.idSuscripcion);
+    }
+
+    @Benchmark
+    public void fechasConCodec(BaseDatosEnMemoria bd, Blackhole bh) throws SQLException {
+        try (Connection con = ConnectionDB.getConnectionLectura();
+             PreparedStatement pstm = con.prepareStatement(fechas_sql);
+             ResultSet rs = pstm.executeQuery()) {
+            while (rs.next()) bh.consume(CodecColumnas.getFecha(rs, "fecha_cobro"));
+        }
+    }
+
+    @Benchmark
+    public void fechasSinCodec(BaseDatosEnMemoria bd, Blackhole bh) throws SQLException {
+        try (Connection con = ConnectionDB.getConnectionLectura();
+             PreparedStatement pstm = con.prepareStatement(fechas_sql);
+             ResultSet rs = pstm.executeQuery()) {
+            while (rs.next()) bh.consume(rs.getLong("fecha_cobro"));
+        }
+    }
+}
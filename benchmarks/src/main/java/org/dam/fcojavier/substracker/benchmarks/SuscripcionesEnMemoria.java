@@ -0,0 +1,34 @@
+package org.dam.fcojavier.substracker.benchmarks;
+
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.Usuario;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Suscripciones sintéticas en memoria para los benchmarks que no pasan por la base de datos.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+public class SuscripcionesEnMemoria {
+
+    /** Número de suscripciones. */
+    @Param({"100", "1000", "10000"})
+    public int suscripciones;
+
+    List<Suscripcion> lista;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Usuario titular = new Usuario(1, "Bench", "Titular", "bench@substracker.test", "sin-password");
+        lista = Datos.suscripciones(suscripciones, titular, new Random(Datos.SEMILLA));
+    }
+}
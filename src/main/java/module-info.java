@@ -13,9 +13,12 @@ module org.dam.fcojavier.substracker {
     requires jbcrypt;
     requires java.sql;
     requires java.desktop;
+    requires java.management;
 
     opens org.dam.fcojavier.substracker to javafx.fxml;
     opens org.dam.fcojavier.substracker.controller to javafx.fxml;
     opens org.dam.fcojavier.substracker.model to javafx.base;
     exports org.dam.fcojavier.substracker;
+    // Interfaz MXBean de las métricas SQL, para que el servidor JMX pueda invocarla
+    exports org.dam.fcojavier.substracker.utils.connection to java.management;
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package org.dam.fcojavier.substracker;
+
+import org.dam.fcojavier.substracker.service.GeneradorDatos;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB.DBType;
+
+import java.time.LocalDate;
+
+/**
+ * Comando de pruebas de carga: llena la base de datos con datos sintéticos ({@link GeneradorDatos}).
+ *
+ * Uso: {@code GenerarDatos [mysql|sqlite] [usuarios] [suscripcionesPorUsuario] [anios] [semilla]}
+ * Por defecto MySQL (como la aplicación), 1000 usuarios, 8 suscripciones de media, 5 años y semilla 42.
+ * Por ejemplo, {@code GenerarDatos sqlite 40000 10 5} genera unos 10^7 cobros.
+ * Todos los usuarios tienen la contraseña {@value GeneradorDatos#PASSWORD}.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class GenerarDatos {
+
+    private static final String USO = "Uso: GenerarDatos [mysql|sqlite] [usuarios] [suscripcionesPorUsuario] [anios] [semilla]";
+
+    public static void main(String[] args) {
+        DBType tipo = DBType.MYSQL;
+        int usuarios = 1000;
+        int suscripciones = 8;
+        int anios = 5;
+        long semilla = 42;
+        try {
+            if (args.length > 0) tipo = DBType.valueOf(args[0].toUpperCase());
+            if (args.length > 1) usuarios = Integer.parseInt(args[1]);
+            if (args.length > 2) suscripciones = Integer.parseInt(args[2]);
+            if (args.length > 3) anios = Integer.parseInt(args[3]);
+            if (args.length > 4) semilla = Long.parseLong(args[4]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(USO);
+            System.exit(2);
+        }
+        if (usuarios <= 0 || suscripciones <= 0 || anios <= 0) {
+            System.err.println(USO);
+            System.exit(2);
+        }
+
+        ConnectionDB.setTipo(tipo);
+        if (!ConnectionDB.isDisponible()) {
+            System.exit(1);
+        }
+
+        long inicio = System.nanoTime();
+        GeneradorDatos.Totales totales;
+        try {
+            totales = new GeneradorDatos(semilla, LocalDate.now()).generar(usuarios, suscripciones, anios);
+        } catch (IllegalStateException e) {
+            System.err.println(e.getMessage());
+            ConnectionDB.closeConnection();
+            System.exit(1);
+            return;
+        }
+        ConnectionDB.closeConnection();
+
+        long segundos = (System.nanoTime() - inicio) / 1_000_000_000L;
+        System.out.println("Datos generados en " + tipo + " en " + segundos + " s: " + totales.usuarios() + " usuarios, "
+                + totales.suscripciones() + " suscripciones, " + totales.participaciones() + " colaboradores, "
+                + totales.cobros() + " cobros");
+    }
+}
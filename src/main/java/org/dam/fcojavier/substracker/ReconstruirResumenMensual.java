@@ -0,0 +1,41 @@
+package org.dam.fcojavier.substracker;
+
+import org.dam.fcojavier.substracker.dao.ResumenMensualDAO;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB.DBType;
+
+/**
+ * Comando de reparación: recalcula desde cero la tabla {@code resumen_mensual}.
+ *
+ * Normalmente la tabla se mantiene sola con cada escritura de los DAOs; este comando es para
+ * cuando se ha modificado la base de datos por fuera de la aplicación o se sospecha que el
+ * resumen no cuadra con los cobros.
+ *
+ * Uso: {@code ReconstruirResumenMensual [mysql|sqlite]} (por defecto MySQL, como la aplicación).
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class ReconstruirResumenMensual {
+
+    public static void main(String[] args) {
+        DBType tipo = DBType.MYSQL;
+        if (args.length > 0) {
+            try {
+                tipo = DBType.valueOf(args[0].toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Uso: ReconstruirResumenMensual [mysql|sqlite]");
+                System.exit(2);
+            }
+        }
+
+        ConnectionDB.setTipo(tipo);
+        boolean reconstruido = ConnectionDB.isDisponible() && new ResumenMensualDAO().reconstruir();
+        ConnectionDB.closeConnection();
+
+        if (!reconstruido) {
+            System.exit(1);
+        }
+        System.out.println("Resumen mensual reconstruido en " + tipo);
+    }
+}
@@ -6,6 +6,9 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
+import org.dam.fcojavier.substracker.service.PlanificadorRenovaciones;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
+import org.dam.fcojavier.substracker.service.ServicioSincronizacion;
 import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
 
 import java.awt.*;
@@ -58,6 +61,11 @@ public class SubsTrackerApp extends Application {
     public void stop() throws Exception {
         System.out.println("PARANDO APLICACIÓN...");
 
+        // Se espera a las operaciones en segundo plano (renovaciones y sincronización) antes de cerrar el pool
+        PlanificadorRenovaciones.detener();
+        ServicioSincronizacion.detener();
+        ServicioAsincrono.cerrar();
+
         // AQUÍ CERRAMOS LA CONEXIÓN
         try {
             ConnectionDB.closeConnection();
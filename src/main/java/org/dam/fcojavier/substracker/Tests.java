@@ -1,6 +1,8 @@
 package org.dam.fcojavier.substracker;
 
+import org.dam.fcojavier.substracker.dao.ResumenMensualDAO;
 import org.dam.fcojavier.substracker.utils.PasswordUtilidades;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
@@ -53,7 +55,7 @@ public class Tests {
             System.out.println("\n[2] Creando Suscripción...");
 
             netflix.setNombre("Netflix Test");
-            netflix.setPrecio(18.00);
+            netflix.setPrecioCentimos(1800);
             netflix.setCiclo(Ciclo.MENSUAL);
             netflix.setCategoria(Categoria.OCIO);
             netflix.setActivo(true);
@@ -70,7 +72,7 @@ public class Tests {
 
             participacion.setParticipante(amigo);
             participacion.setSuscripcion(netflix);
-            participacion.setCantidadApagar(9.00);
+            participacion.setCantidadApagarCentimos(900);
             participacion.setFecha_pagado(LocalDate.now());
             participacion.setMetodo_pago(MetodoPago.BIZUM);
             participacion.setDescripcion("Mitad de Netflix");
@@ -201,6 +203,15 @@ public class Tests {
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("🔥 Fallo al cargar datos.");
+            return;
+        }
+
+        // 6. El script no pasa por los DAOs: el resumen mensual (V4) se recalcula desde los datos cargados
+        ConnectionDB.setTipo(ConnectionDB.DBType.SQLITE);
+        if (new ResumenMensualDAO().reconstruir()) {
+            System.out.println("✅ Resumen mensual reconstruido.");
+        } else {
+            System.err.println("🔥 No se pudo reconstruir el resumen mensual.");
         }
     }
 }
@@ -6,11 +6,14 @@ import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
 import org.dam.fcojavier.substracker.utils.Dialogos;
 import org.dam.fcojavier.substracker.utils.PasswordUtilidades;
 import org.dam.fcojavier.substracker.utils.Validaciones;
 import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
 
+import java.sql.SQLException;
 import java.util.Optional;
 
 /**
@@ -25,7 +28,7 @@ import java.util.Optional;
  * Eliminación de cuenta (Zona de Peligro).
  *
  * @author Fco Javier García
- * @version 2.0
+ * @version 2.3
  */
 public class ConfigController {
     @FXML private TextField txtNombre;
@@ -49,7 +52,7 @@ public class ConfigController {
     private String emailOriginal;
 
     /**
-     * Constructor por defecto. Inicializa el DAO de usuarios.
+     * Constructor por defecto. Inicializa los DAOs.
      */
     public ConfigController() {
         this.usuarioDAO = new UsuarioDAO();
@@ -104,19 +107,22 @@ public class ConfigController {
         usuarioLogueado.setApellidos(apellidos);
         usuarioLogueado.setEmail(email);
 
-        if (usuarioDAO.update(usuarioLogueado)) {
-            Dialogos.mostrarInformacion("Guardado", "Datos de perfil actualizados.", stage);
+        btnGuardarDatos.setDisable(true);
+        ServicioAsincrono.ejecutar(() -> usuarioDAO.update(usuarioLogueado), actualizado -> {
+            if (actualizado) {
+                Dialogos.mostrarInformacion("Guardado", "Datos de perfil actualizados.", stage);
 
-            if (mainController != null) {
-                mainController.actualizarInfoUsuario(usuarioLogueado);
+                if (mainController != null) {
+                    mainController.actualizarInfoUsuario(usuarioLogueado);
+                }
+                nombreOriginal = nombre;
+                apellidoOriginal = apellidos;
+                emailOriginal = email;
+            } else {
+                Dialogos.mostrarError("Error", "No se pudo actualizar. Puede que el email ya exista.", stage);
             }
-            nombreOriginal = nombre;
-            apellidoOriginal = apellidos;
-            emailOriginal = email;
             comprobarCambiosDatos();
-        } else {
-            Dialogos.mostrarError("Error", "No se pudo actualizar. Puede que el email ya exista.", stage);
-        }
+        });
     }
 
     /**
@@ -146,16 +152,21 @@ public class ConfigController {
             return;
         }
 
-        String passEncriptada = PasswordUtilidades.hashPassword(nueva);
-        usuarioLogueado.setPassword(passEncriptada);
-
-        if (usuarioDAO.update(usuarioLogueado)) {
-            Dialogos.mostrarInformacion("Éxito", "Contraseña actualizada correctamente.", stage);
-            txtNuevaPass.clear();
-            txtConfirmPass.clear();
-        } else {
-            Dialogos.mostrarError("Error", "Error al cambiar la contraseña.", stage);
-        }
+        // El hash BCrypt también es costoso: se calcula en segundo plano junto con la escritura
+        btnActualizarPass.setDisable(true);
+        ServicioAsincrono.ejecutar(() -> {
+            usuarioLogueado.setPassword(PasswordUtilidades.hashPassword(nueva));
+            return usuarioDAO.update(usuarioLogueado);
+        }, actualizada -> {
+            if (actualizada) {
+                Dialogos.mostrarInformacion("Éxito", "Contraseña actualizada correctamente.", stage);
+                txtNuevaPass.clear();
+                txtConfirmPass.clear();
+            } else {
+                Dialogos.mostrarError("Error", "Error al cambiar la contraseña.", stage);
+            }
+            comprobarCambiosPass();
+        });
     }
 
     /**
@@ -163,6 +174,7 @@ public class ConfigController {
      *
      * Esta acción es irreversible y elimina en cascada todos los datos asociados
      * (suscripciones, cobros, etc.). Si tiene éxito, cierra la sesión.
+     * El borrado se confirma en una {@link Transaccion}.
      */
     @FXML
     private void eliminarCuenta() {
@@ -175,15 +187,35 @@ public class ConfigController {
                 stage);
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (usuarioDAO.delete(usuarioLogueado.getId_usuario())) {
-                Dialogos.mostrarInformacion("Adiós", "Tu cuenta ha sido eliminada.", stage);
-
-                if (mainController != null) {
-                    mainController.cerrarSesion(new ActionEvent(txtNombre, null));
+            ServicioAsincrono.ejecutar(this::borrarCuenta, borrada -> {
+                if (borrada) {
+                    Dialogos.mostrarInformacion("Adiós", "Tu cuenta ha sido eliminada.", stage);
+
+                    if (mainController != null) {
+                        mainController.cerrarSesion(new ActionEvent(txtNombre, null));
+                    }
+                } else {
+                    Dialogos.mostrarError("Error", "No se pudo eliminar la cuenta.", stage);
                 }
-            } else {
-                Dialogos.mostrarError("Error", "No se pudo eliminar la cuenta.", stage);
-            }
+            });
+        }
+    }
+
+    /**
+     * Borra la cuenta del usuario en una única transacción. Se ejecuta fuera del hilo de JavaFX.
+     *
+     * @return {@code true} si se confirmó.
+     */
+    private boolean borrarCuenta() {
+        try {
+            Transaccion.ejecutar(con -> {
+                Transaccion.exigir(usuarioDAO.delete(usuarioLogueado.getId_usuario()), "No se pudo borrar el usuario.");
+                return null;
+            });
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error eliminando cuenta: " + e.getMessage());
+            return false;
         }
     }
 
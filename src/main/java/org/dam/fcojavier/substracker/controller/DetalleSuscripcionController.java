@@ -6,7 +6,6 @@ import javafx.scene.Scene;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
-import org.dam.fcojavier.substracker.dao.ParticipaDAO;
 import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -17,11 +16,15 @@ import org.dam.fcojavier.substracker.model.Usuario;
 import org.dam.fcojavier.substracker.model.enums.Categoria;
 import org.dam.fcojavier.substracker.model.enums.Ciclo;
 import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.service.PlanificadorRenovaciones;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
 import org.dam.fcojavier.substracker.utils.Dialogos;
+import org.dam.fcojavier.substracker.utils.Dinero;
 import org.dam.fcojavier.substracker.utils.Validaciones;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,7 +38,7 @@ import java.util.Optional;
  * Eliminar la suscripción completa.
  *
  * @author Fco Javier García
- * @version 2.0 (Con estadísticas financieras)
+ * @version 2.3
  */
 public class DetalleSuscripcionController {
     @FXML private TextField txtNombre;
@@ -60,7 +63,6 @@ public class DetalleSuscripcionController {
     private Suscripcion suscripcionActual;
 
     private SuscripcionDAO suscripcionDAO;
-    private ParticipaDAO participaDAO;
 
     private boolean huboCambios = false;
     private boolean modoEdicion = false;
@@ -71,7 +73,6 @@ public class DetalleSuscripcionController {
      */
     public DetalleSuscripcionController() {
         this.suscripcionDAO = new SuscripcionDAO();
-        this.participaDAO = new ParticipaDAO();
     }
 
     /**
@@ -108,7 +109,7 @@ public class DetalleSuscripcionController {
         lblTituloDetalle.setText(suscripcion.getNombre());
 
         txtNombre.setText(suscripcion.getNombre());
-        txtPrecio.setText(String.valueOf(suscripcion.getPrecio()));
+        txtPrecio.setText(Dinero.texto(suscripcion.getPrecioCentimos()));
         comboCiclo.setValue(suscripcion.getCiclo());
         comboCategoria.setValue(suscripcion.getCategoria());
         dpFechaActivacion.setValue(suscripcion.getFechaActivacion());
@@ -116,7 +117,6 @@ public class DetalleSuscripcionController {
         chkActivo.setSelected(suscripcion.isActivo());
 
         actualizarEstiloEstado(suscripcion.isActivo());
-        actualizarEstadisticas();
         cargarParticipantes();
     }
 
@@ -137,41 +137,60 @@ public class DetalleSuscripcionController {
     /**
      * Carga la lista de colaboradores desde la base de datos y genera las tarjetas visuales.
      *
-     * Consulta al DAO y, si hay colaboradores, crea dinámicamente instancias de {@code itemColaborador.fxml}.
-     * Si no hay, muestra el panel de "Sin colaboradores".
+     * Se leen de la suscripción en la caché de {@link SuscripcionDAO}: si la lista ya estaba cargada
+     * (por ejemplo, al volver al detalle desde la tabla) no se consulta la base de datos. Cuando se
+     * guarda un colaborador, el DAO invalida la suscripción y la siguiente lectura trae datos nuevos.
      *
+     * La lectura se hace en segundo plano ({@link ServicioAsincrono}); al recibir la lista se
+     * actualizan las tarjetas y las estadísticas en el hilo de la interfaz.
      */
     private void cargarParticipantes() {
         if (suscripcionActual != null) {
-            List<Participa> lista = participaDAO.findBySuscripcionId(suscripcionActual.getIdSuscripcion());
+            int idSuscripcion = suscripcionActual.getIdSuscripcion();
+            ServicioAsincrono.ejecutar(() -> {
+                Suscripcion suscripcion = suscripcionDAO.findById(idSuscripcion);
+                return suscripcion != null ? new ArrayList<>(suscripcion.getParticipantes()) : new ArrayList<Participa>();
+            }, lista -> {
+                mostrarParticipantes(lista);
+                actualizarEstadisticas(lista);
+            });
+        }
+    }
 
-            if (lista.isEmpty()) {
-                scrollParticipantes.setVisible(false);
-                panelNoColaboradores.setVisible(true);
-            } else {
-                scrollParticipantes.setVisible(true);
-                panelNoColaboradores.setVisible(false);
+    /**
+     * Genera las tarjetas visuales de los colaboradores.
+     *
+     * Si hay colaboradores, crea dinámicamente instancias de {@code itemColaborador.fxml}.
+     * Si no hay, muestra el panel de "Sin colaboradores".
+     *
+     * @param lista Colaboradores de la suscripción.
+     */
+    private void mostrarParticipantes(List<Participa> lista) {
+        if (lista.isEmpty()) {
+            scrollParticipantes.setVisible(false);
+            panelNoColaboradores.setVisible(true);
+        } else {
+            scrollParticipantes.setVisible(true);
+            panelNoColaboradores.setVisible(false);
 
-                containerParticipantes.getChildren().clear();
+            containerParticipantes.getChildren().clear();
 
-                for (Participa p : lista) {
-                    try {
-                        FXMLLoader loader = new FXMLLoader(getClass().getResource("/org/dam/fcojavier/substracker/view/itemColaborador.fxml"));
-                        HBox tarjeta = loader.load();
+            for (Participa p : lista) {
+                try {
+                    FXMLLoader loader = new FXMLLoader(getClass().getResource("/org/dam/fcojavier/substracker/view/itemColaborador.fxml"));
+                    HBox tarjeta = loader.load();
 
-                        ItemColaboradorController itemController = loader.getController();
+                    ItemColaboradorController itemController = loader.getController();
 
-                        itemController.setDatos(p, suscripcionActual.getCiclo(), () -> {
-                            abrirModalEditarColaborador(p);
-                        });
+                    itemController.setDatos(p, suscripcionActual.getCiclo(), () -> {
+                        abrirModalEditarColaborador(p);
+                    });
 
-                        containerParticipantes.getChildren().add(tarjeta);
+                    containerParticipantes.getChildren().add(tarjeta);
 
-                    } catch (IOException e) { e.printStackTrace(); }
-                }
+                } catch (IOException e) { e.printStackTrace(); }
             }
         }
-        actualizarEstadisticas();
     }
 
     /**
@@ -212,28 +231,29 @@ public class DetalleSuscripcionController {
      * Calcula el coste total histórico del servicio (Bruto).
      * Suma todas las aportaciones REALES recibidas de colaboradores (teniendo en cuenta periodos pagados).
      * Resta las aportaciones al bruto para obtener el Gasto Neto del usuario.
+     *
+     * @param colaboradores Colaboradores de la suscripción, ya consultados por {@link #cargarParticipantes()}.
      */
-    private void actualizarEstadisticas() {
+    private void actualizarEstadisticas(List<Participa> colaboradores) {
         if (suscripcionActual != null) {
 
             long numPagosTranscurridos = suscripcionActual.calcularNumeroDePagos(LocalDate.now());
-            double precioTotalCiclo = suscripcionActual.getPrecio();
-            double historicoBruto = precioTotalCiclo * numPagosTranscurridos;
+            long precioTotalCiclo = suscripcionActual.getPrecioCentimos();
+            long historicoBruto = precioTotalCiclo * numPagosTranscurridos;
 
-            List<Participa> colaboradores = participaDAO.findBySuscripcionId(suscripcionActual.getIdSuscripcion());
-            double totalDineroRecibido = 0;
+            long totalDineroRecibido = 0;
 
             for (Participa p : colaboradores) {
                 if (p.getFecha_pagado() != null) {
-                    double aportePersona = p.getCantidadApagar() * p.getPeriodos_cubiertos();
+                    long aportePersona = p.getCantidadApagarCentimos() * p.getPeriodos_cubiertos();
                     totalDineroRecibido += aportePersona;
                 }
             }
 
-            double historicoNeto = historicoBruto - totalDineroRecibido;
+            long historicoNeto = historicoBruto - totalDineroRecibido;
 
-            lblGastoNeto.setText(String.format("%.2f €", historicoNeto));
-            lblGastoBruto.setText(String.format("%.2f €", historicoBruto));
+            lblGastoNeto.setText(Dinero.formatear(historicoNeto));
+            lblGastoBruto.setText(Dinero.formatear(historicoBruto));
 
             if (historicoNeto < 0) {
                 lblGastoNeto.setStyle("-fx-font-size: 38; -fx-font-weight: bold; -fx-text-fill: #2ecc71;");
@@ -293,28 +313,40 @@ public class DetalleSuscripcionController {
             return;
         }
 
+        long precio;
+        try {
+            precio = Dinero.parsear(precioStr);
+        } catch (NumberFormatException e) {
+            mostrarError("El precio debe ser un número válido.");
+            return;
+        }
+
         suscripcionActual.setActivo(chkActivo.isSelected());
-        double precio = Double.parseDouble(precioStr.replace(",", "."));
 
         suscripcionActual.setNombre(nombre);
-        suscripcionActual.setPrecio(precio);
+        suscripcionActual.setPrecioCentimos(precio);
         suscripcionActual.setCiclo(comboCiclo.getValue());
         suscripcionActual.setCategoria(comboCategoria.getValue());
         suscripcionActual.setFechaActivacion(dpFechaActivacion.getValue());
         suscripcionActual.setFechaRenovacion(dpFechaRenovacion.getValue());
 
-        if (suscripcionDAO.update(suscripcionActual)) {
-            System.out.println("Suscripción actualizada.");
-            huboCambios = true;
-
-            habilitarCampos(false);
-            btnEditarGuardar.setText("Editar");
-            btnEditarGuardar.setStyle("");
-            modoEdicion = false;
-            lblError.setVisible(false);
-        } else {
-            mostrarError("Error al actualizar en la base de datos.");
-        }
+        btnEditarGuardar.setDisable(true);
+        ServicioAsincrono.ejecutar(() -> suscripcionDAO.update(suscripcionActual), actualizada -> {
+            btnEditarGuardar.setDisable(false);
+            if (actualizada) {
+                System.out.println("Suscripción actualizada.");
+                huboCambios = true;
+                PlanificadorRenovaciones.recargar();
+
+                habilitarCampos(false);
+                btnEditarGuardar.setText("Editar");
+                btnEditarGuardar.setStyle("");
+                modoEdicion = false;
+                lblError.setVisible(false);
+            } else {
+                mostrarError("Error al actualizar en la base de datos.");
+            }
+        });
     }
 
     /**
@@ -335,11 +367,14 @@ public class DetalleSuscripcionController {
         );
 
         if (result.isPresent() && result.get() == ButtonType.OK) {
-            if (suscripcionDAO.delete(suscripcionActual.getIdSuscripcion())) {
-                volverAtras(event);
-            } else {
-                Dialogos.mostrarError("Error", "No se pudo eliminar la suscripción.", ventanaActual);
-            }
+            int idSuscripcion = suscripcionActual.getIdSuscripcion();
+            ServicioAsincrono.ejecutar(() -> suscripcionDAO.delete(idSuscripcion), eliminada -> {
+                if (eliminada) {
+                    volverAtras(event);
+                } else {
+                    Dialogos.mostrarError("Error", "No se pudo eliminar la suscripción.", ventanaActual);
+                }
+            });
         }
     }
 
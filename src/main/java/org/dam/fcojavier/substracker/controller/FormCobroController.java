@@ -2,14 +2,21 @@ package org.dam.fcojavier.substracker.controller;
 
 import org.dam.fcojavier.substracker.dao.CobroDAO;
 import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
+import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.model.Cobro;
 import org.dam.fcojavier.substracker.model.enums.MetodoPago;
 import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
+import org.dam.fcojavier.substracker.utils.Dinero;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.List;
 
 /**
  * Controlador para la ventana modal de registro de pagos (Cobros).
@@ -17,9 +24,11 @@ import java.time.LocalDate;
  * Esta clase permite al usuario titular registrar un pago realizado a una suscripción.
  * Además de guardar el registro histórico, contiene la lógica de negocio para
  * avanzar automáticamente la fecha de próxima renovación de la suscripción.
+ * Ambas escrituras se confirman juntas en una {@link Transaccion}. La fecha solo avanza si sigue siendo
+ * la que se mostró: si la renovación automática la ha avanzado mientras tanto, no se registra el pago.
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.4
  */
 public class FormCobroController {
     @FXML private Label lblNombreSuscripcion;
@@ -62,7 +71,7 @@ public class FormCobroController {
     public void setSuscripcion(Suscripcion sub) {
         this.suscripcionActual = sub;
         if (sub != null) {
-            lblNombreSuscripcion.setText(sub.getNombre() + " (" + sub.getPrecio() + " €)");
+            lblNombreSuscripcion.setText(sub.getNombre() + " (" + Dinero.formatear(sub.getPrecioCentimos()) + ")");
         }
     }
 
@@ -72,11 +81,16 @@ public class FormCobroController {
      * Realiza el proceso transaccional:
      * Valida la fecha.
      * Crea y guarda el objeto {@link Cobro} en el historial.
-     * Si el guardado es correcto, llama a {@link #actualizarFechaRenovacionSuscripcion()} para avanzar la fecha.
+     * Si el guardado es correcto, llama a {@link #actualizarFechaRenovacionSuscripcion(int)} para avanzar la fecha.
+     * Si cualquiera de los dos pasos falla no se guarda ninguno.
      * Cierra la ventana.
+     *
+     * La transacción se ejecuta en segundo plano ({@link ServicioAsincrono}) con el botón desactivado.
+     *
+     * @param event Evento del botón.
      */
     @FXML
-    private void guardar() {
+    private void guardar(ActionEvent event) {
         if (dpFecha.getValue() == null) {
             mostrarError("Selecciona una fecha.");
             return;
@@ -89,25 +103,46 @@ public class FormCobroController {
         nuevoCobro.setPeriodos_cubiertos(spinnerPeriodos.getValue());
         nuevoCobro.setDescripcion(txtDescripcion.getText());
 
-        if (cobroDAO.create(nuevoCobro)) {
-            actualizarFechaRenovacionSuscripcion();
-            guardadoExitoso = true;
-            cerrar();
-        } else {
-            mostrarError("Error al registrar el pago.");
-        }
+        int periodos = spinnerPeriodos.getValue();
+        LocalDate renovacionLeida = suscripcionActual.getFechaRenovacion();
+        Node boton = (Node) event.getSource();
+        boton.setDisable(true);
+        ServicioAsincrono.ejecutar(() -> {
+            try {
+                Transaccion.ejecutar(con -> {
+                    Transaccion.exigir(cobroDAO.create(nuevoCobro), "No se pudo registrar el cobro.");
+                    actualizarFechaRenovacionSuscripcion(renovacionLeida, periodos);
+                    return null;
+                });
+                return true;
+            } catch (SQLException e) {
+                System.out.println("Error registrando pago: " + e.getMessage());
+                return false;
+            }
+        }, guardado -> {
+            boton.setDisable(false);
+            if (guardado) {
+                guardadoExitoso = true;
+                cerrar();
+            } else {
+                mostrarError("Error al registrar el pago. Si la suscripción se ha renovado, vuelve a abrirla.");
+            }
+        });
     }
 
     /**
      * Lógica de negocio para actualizar la próxima fecha de pago.
      *
-     * Calcula la nueva fecha sumando los periodos pagados a la fecha de renovación actual,
+     * Calcula la nueva fecha sumando los periodos pagados a la fecha de renovación leída,
      * basándose en el ciclo de la suscripción (Mensual, Trimestral, Anual).
-     * Finalmente actualiza la suscripción en la base de datos.
+     * Finalmente la avanza en la base de datos con {@link SuscripcionDAO#avanzarRenovaciones},
+     * condicionada a que siga siendo la leída (igual que la renovación automática).
+     *
+     * @param viejaRenovacion Fecha de renovación que se mostró al abrir el formulario.
+     * @param periodos Periodos pagados.
+     * @throws SQLException Si no se pudo actualizar la suscripción o su fecha ha cambiado.
      */
-    private void actualizarFechaRenovacionSuscripcion() {
-        int periodos = spinnerPeriodos.getValue();
-        LocalDate viejaRenovacion = suscripcionActual.getFechaRenovacion();
+    private void actualizarFechaRenovacionSuscripcion(LocalDate viejaRenovacion, int periodos) throws SQLException {
         LocalDate nuevaRenovacion = viejaRenovacion; // Inicializar
 
         switch (suscripcionActual.getCiclo()) {
@@ -116,8 +151,8 @@ public class FormCobroController {
             case ANUAL: nuevaRenovacion = viejaRenovacion.plusYears(periodos); break;
         }
 
-        suscripcionActual.setFechaRenovacion(nuevaRenovacion);
-        suscripcionDAO.update(suscripcionActual);
+        Transaccion.exigir(suscripcionDAO.avanzarRenovaciones(List.of(suscripcionActual), List.of(viejaRenovacion), List.of(nuevaRenovacion)),
+                "No se pudo actualizar la renovación (puede haber cambiado desde que se abrió el formulario).");
         System.out.println("Suscripción renovada hasta: " + nuevaRenovacion);
     }
 
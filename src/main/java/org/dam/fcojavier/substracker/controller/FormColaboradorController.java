@@ -8,9 +8,14 @@ import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.model.enums.MetodoPago;
 import org.dam.fcojavier.substracker.model.Participa;
 import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
+import org.dam.fcojavier.substracker.utils.Dinero;
 import org.dam.fcojavier.substracker.utils.Validaciones;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
 
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
 
 /**
  * Controlador para la ventana modal de gestión de colaboradores (Participa).
@@ -22,10 +27,11 @@ import java.time.LocalDate;
  * Gestión de estado "Pagado" vs "Pendiente" mediante CheckBox.
  * Configuración de periodos cubiertos por el pago (adelantos).
  * Validación de importes y campos obligatorios.
- * Comunicación con {@link ParticipaDAO} para persistir los cambios.
+ * Comunicación con {@link ParticipaDAO} para persistir los cambios, cada guardado o borrado
+ * en una única {@link Transaccion} (la participación y su reflejo en el resumen mensual).
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.3
  */
 public class FormColaboradorController {
     @FXML private TextField txtNombre;
@@ -105,7 +111,7 @@ public class FormColaboradorController {
             txtNombre.setText(p.getNombreInvitado());
         }
 
-        txtImporte.setText(String.valueOf(p.getCantidadApagar()));
+        txtImporte.setText(Dinero.texto(p.getCantidadApagarCentimos()));
         txtDescripcion.setText(p.getDescripcion());
         comboMetodo.setValue(p.getMetodo_pago());
 
@@ -137,9 +143,9 @@ public class FormColaboradorController {
 
         if (!Validaciones.esTextoValido(nombre)) { mostrarError("Falta nombre"); return; }
 
-        double importe = 0;
+        long importe = 0;
         try {
-            importe = Double.parseDouble(importeStr.replace(",", "."));
+            importe = Dinero.parsear(importeStr);
         } catch (Exception e) {
             mostrarError("Importe mal");
             return;
@@ -153,22 +159,21 @@ public class FormColaboradorController {
             p.setDescripcion(descripcion);
             p.setPeriodos_cubiertos(periodos);
 
-            if (participaDAO.create(p)) exito();
-            else mostrarError("Error al crear.");
+            enTransaccion(() -> participaDAO.create(p), "Error al crear.");
 
         } else {
             if (participaEditando.getParticipante() == null) {
                 participaEditando.setNombreInvitado(nombre);
             }
 
-            participaEditando.setCantidadApagar(importe);
+            participaEditando.setCantidadApagarCentimos(importe);
             participaEditando.setDescripcion(descripcion);
             participaEditando.setMetodo_pago(comboMetodo.getValue());
             participaEditando.setFecha_pagado(fechaFinal);
             participaEditando.setPeriodos_cubiertos(periodos);
 
-            if (participaDAO.update(participaEditando)) exito();
-            else mostrarError("Error al actualizar.");
+            Participa editado = participaEditando;
+            enTransaccion(() -> participaDAO.update(editado), "Error al actualizar.");
         }
     }
 
@@ -187,15 +192,42 @@ public class FormColaboradorController {
     private void eliminar() {
         if (participaEditando == null) return;
 
-        if (participaDAO.delete(participaEditando.getIdParticipa())) {
-            exito();
-        } else {
-            mostrarError("No se pudo eliminar.");
-        }
+        int idParticipa = participaEditando.getIdParticipa();
+        enTransaccion(() -> participaDAO.delete(idParticipa), "No se pudo eliminar.");
     }
 
     // MÉTODOS PRIVADOS
 
+    /**
+     * Ejecuta la escritura en segundo plano como una unidad de trabajo: todas sus sentencias se
+     * confirman con un único commit, o no se confirma ninguna. Mientras tanto los botones quedan
+     * desactivados; al terminar se cierra la ventana o se muestra el error.
+     *
+     * @param escritura Llamada al DAO.
+     * @param error Mensaje si no se confirma.
+     */
+    private void enTransaccion(BooleanSupplier escritura, String error) {
+        btnGuardar.setDisable(true);
+        btnEliminar.setDisable(true);
+        ServicioAsincrono.ejecutar(() -> {
+            try {
+                Transaccion.ejecutar(con -> {
+                    Transaccion.exigir(escritura.getAsBoolean(), "La operación no se completó.");
+                    return null;
+                });
+                return true;
+            } catch (SQLException e) {
+                System.out.println("Error guardando colaborador: " + e.getMessage());
+                return false;
+            }
+        }, confirmada -> {
+            btnGuardar.setDisable(false);
+            btnEliminar.setDisable(false);
+            if (confirmada) exito();
+            else mostrarError(error);
+        });
+    }
+
     /**
      * Marca la operación como exitosa y cierra la ventana.
      * Esto permite a la ventana padre saber que debe refrescar la tabla.
@@ -3,12 +3,16 @@ package org.dam.fcojavier.substracker.controller;
 import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.model.enums.Categoria;
 import org.dam.fcojavier.substracker.model.enums.Ciclo;
 import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.service.PlanificadorRenovaciones;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
+import org.dam.fcojavier.substracker.utils.Dinero;
 import org.dam.fcojavier.substracker.utils.Validaciones;
 
 import java.time.LocalDate;
@@ -21,7 +25,7 @@ import java.time.LocalDate;
  * en la base de datos a través del DAO.
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.3
  */
 public class FormSuscripcionController {
     @FXML private TextField txtNombre;
@@ -83,7 +87,7 @@ public class FormSuscripcionController {
      * Valida campos obligatorios y formatos numéricos.
      * Valida la lógica de fechas (el pago no puede ser anterior a la activación).
      * Calcula la fecha de renovación.
-     * Instancia el objeto {@link Suscripcion} y llama al DAO.
+     * Instancia el objeto {@link Suscripcion} y llama al DAO en segundo plano ({@link ServicioAsincrono}).
      *
      * @param event Evento del botón.
      */
@@ -106,9 +110,9 @@ public class FormSuscripcionController {
             return;
         }
 
-        double precio = 0;
+        long precio = 0;
         try {
-            precio = Double.parseDouble(precioStr.replace(",", "."));
+            precio = Dinero.parsear(precioStr);
             if (!Validaciones.esPositivo(precio)) {
                 mostrarError("El precio debe ser mayor que 0.");
                 return;
@@ -140,13 +144,19 @@ public class FormSuscripcionController {
 
         Suscripcion nueva = new Suscripcion(0, nombre, precio, ciclo, categoria, fechaActivacion, fechaRenovacion, usuarioTitular);
 
-        if (suscripcionDAO.create(nueva)) {
-            System.out.println("Suscripción guardada: " + nueva.getNombre());
-            guardadoExitoso = true;
-            cerrarVentana();
-        } else {
-            mostrarError("Error al guardar en base de datos.");
-        }
+        Node boton = (Node) event.getSource();
+        boton.setDisable(true);
+        ServicioAsincrono.ejecutar(() -> suscripcionDAO.create(nueva), creada -> {
+            boton.setDisable(false);
+            if (creada) {
+                System.out.println("Suscripción guardada: " + nueva.getNombre());
+                guardadoExitoso = true;
+                PlanificadorRenovaciones.recargar();
+                cerrarVentana();
+            } else {
+                mostrarError("Error al guardar en base de datos.");
+            }
+        });
     }
 
     /**
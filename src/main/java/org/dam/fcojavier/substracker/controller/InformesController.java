@@ -6,27 +6,37 @@ import javafx.scene.chart.XYChart;
 import javafx.scene.layout.Region;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import org.dam.fcojavier.substracker.dao.ParticipaDAO;
+import org.dam.fcojavier.substracker.dao.HistorialCobros;
+import org.dam.fcojavier.substracker.dao.InformeDAO;
+import org.dam.fcojavier.substracker.dao.ResumenMensualDAO;
 import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import org.dam.fcojavier.substracker.model.enums.Ciclo;
-import org.dam.fcojavier.substracker.model.Participa;
+import org.dam.fcojavier.substracker.model.CalendarioPagos;
+import org.dam.fcojavier.substracker.model.GastoCategoria;
+import org.dam.fcojavier.substracker.model.GastoServicio;
+import org.dam.fcojavier.substracker.model.ResumenMensual;
 import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.dam.fcojavier.substracker.service.ProyeccionPagos;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
 import org.dam.fcojavier.substracker.utils.Dialogos;
+import org.dam.fcojavier.substracker.utils.Dinero;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Controlador de la vista de Informes y Estadísticas Financieras.
@@ -35,13 +45,17 @@ import java.util.stream.Collectors;
  * para generar una "foto fija" de la salud financiera del usuario.
  *
  * Funcionalidades clave:
- * Normalización de costes (todo se convierte a base mensual).
+ * Normalización de costes (todo se convierte a base mensual), calculada en SQL por {@link InformeDAO}.
  * Cálculo de KPIs (Gasto Neto, Ahorro por copagos, Proyección anual).
+ * La proyección anual es la suma de los cobros previstos en los próximos 12 meses ({@link ProyeccionPagos}):
+ * tiene en cuenta el ciclo y la fecha de renovación de cada suscripción y el periodo que cubren los colaboradores.
  * Visualización gráfica de gastos por categoría (BarChart).
  * Generación de ranking "Top 3" de servicios más costosos.
+ * Exportación a CSV, incluido el histórico mensual de la tabla {@code resumen_mensual} y los pagos
+ * registrados del último año, agregados sobre el {@link HistorialCobros} columnar del usuario.
  *
  * @author Tu Nombre
- * @version 2.0 (Refactorizado y Documentado)
+ * @version 2.8 (Proyección sin cargar el historial de cobros)
  */
 public class InformesController {
     @FXML private Label lblGastoMensual;
@@ -50,8 +64,14 @@ public class InformesController {
     @FXML private BarChart<String, Number> chartBarras;
     @FXML private VBox boxTopGastos;
 
+    /** Número de servicios del ranking. */
+    private static final int TAMANO_RANKING = 3;
+    /** Meses de la proyección de pagos. */
+    private static final int MESES_PROYECCION = 12;
+
     private SuscripcionDAO suscripcionDAO;
-    private ParticipaDAO participaDAO;
+    private InformeDAO informeDAO;
+    private ResumenMensualDAO resumenMensualDAO;
     private Usuario usuarioLogueado;
 
     /**
@@ -59,7 +79,8 @@ public class InformesController {
      */
     public InformesController() {
         this.suscripcionDAO = new SuscripcionDAO();
-        this.participaDAO = new ParticipaDAO();
+        this.informeDAO = new InformeDAO();
+        this.resumenMensualDAO = new ResumenMensualDAO();
     }
 
     /**
@@ -75,49 +96,49 @@ public class InformesController {
     /**
      * Motor de cálculo principal.
      *
-     * 1. Recupera todas las suscripciones activas.
-     * 2. Itera sobre ellas normalizando precios a base mensual.
-     * 3. Acumula los totales globales, por categoría y por servicio.
-     * 4. Delega la actualización de la interfaz a métodos específicos.
-     *
+     * Pide a {@link InformeDAO} los totales por categoría y el ranking de servicios: dos consultas
+     * agregadas, independientemente del número de suscripciones. Se ejecutan en segundo plano
+     * ({@link ServicioAsincrono}) y al terminar se actualiza la interfaz en el hilo de JavaFX.
+     * Los totales globales son la suma de las (como mucho cinco) filas por categoría.
      */
     private void procesarDatosFinancieros() {
-        List<Suscripcion> misSuscripciones = suscripcionDAO.findByTitularId(usuarioLogueado.getId_usuario());
-
-        double gastoMensualTotal = 0;
-        double ahorroMensualTotal = 0;
-
-        Map<String, Double> gastoPorCategoria = new HashMap<>();
-        Map<Suscripcion, Double> costesMensualesMap = new HashMap<>();
-
-        for (Suscripcion s : misSuscripciones) {
-            if (!s.isActivo()) continue; // Ignoramos las pausadas
-
-            double costeServicioMes = normalizarAMes(s.getPrecio(), s.getCiclo());
-
-            List<Participa> colaboradores = participaDAO.findBySuscripcionId(s.getIdSuscripcion());
-            double aporteColaboradoresMes = 0;
+        int idUsuario = usuarioLogueado.getId_usuario();
+        ServicioAsincrono.ejecutar(() -> calcularResumen(informeDAO, suscripcionDAO, idUsuario, LocalDate.now()), resumen -> {
+            actualizarKPIs(resumen.gastoMensualCentimos(), resumen.ahorroMensualCentimos(), resumen.proyeccionCentimos());
+            actualizarGraficoBarras(resumen.porCategoria());
 
-            for (Participa p : colaboradores) {
-                aporteColaboradoresMes += normalizarAMes(p.getCantidadApagar(), s.getCiclo());
-            }
-
-            double miGastoNetoMes = costeServicioMes - aporteColaboradoresMes;
-            if (miGastoNetoMes < 0) miGastoNetoMes = 0;
-
-            gastoMensualTotal += miGastoNetoMes;
-            ahorroMensualTotal += aporteColaboradoresMes;
-
-            String catNombre = s.getCategoria().name();
-            gastoPorCategoria.put(catNombre, gastoPorCategoria.getOrDefault(catNombre, 0.0) + miGastoNetoMes);
+            mostrarTop3(resumen.topServicios());
+        });
+    }
 
-            costesMensualesMap.put(s, miGastoNetoMes);
+    /**
+     * Cálculo de la pantalla sin tocar la interfaz: las consultas de {@link InformeDAO}, la proyección
+     * de pagos y los totales globales. Es lo que {@link #procesarDatosFinancieros()} ejecuta en segundo
+     * plano; es público para poder medirlo aparte (módulo {@code benchmarks}).
+     *
+     * @param informeDAO DAO de las consultas agregadas.
+     * @param suscripcionDAO DAO de las suscripciones a proyectar.
+     * @param idUsuario Titular del informe.
+     * @param hoy Inicio de la proyección.
+     * @return Datos listos para mostrar.
+     */
+    public static ResumenFinanciero calcularResumen(InformeDAO informeDAO, SuscripcionDAO suscripcionDAO,
+                                                    int idUsuario, LocalDate hoy) {
+        List<GastoCategoria> porCategoria = informeDAO.findGastoPorCategoria(idUsuario);
+        long gastoMensualTotal = 0;
+        long ahorroMensualTotal = 0;
+        for (GastoCategoria g : porCategoria) {
+            gastoMensualTotal += g.getGastoNetoCentimos();
+            ahorroMensualTotal += g.getAhorroCentimos();
         }
 
-        actualizarKPIs(gastoMensualTotal, ahorroMensualTotal);
-        actualizarGraficoBarras(gastoPorCategoria);
-
-        mostrarTop3(costesMensualesMap);
+        return new ResumenFinanciero(
+                porCategoria,
+                informeDAO.findTopServicios(idUsuario, TAMANO_RANKING),
+                gastoMensualTotal,
+                ahorroMensualTotal,
+                ProyeccionPagos.porMeses(suscripcionDAO.findByTitularIdSinCobros(idUsuario), hoy, MESES_PROYECCION)
+                        .getTotalNetoCentimos());
     }
 
     /**
@@ -125,29 +146,30 @@ public class InformesController {
      *
      * @param gastoMensual Gasto neto mensual total.
      * @param ahorroMensual Ahorro total por copagos.
+     * @param proyeccionCentimos Pagos netos previstos para los próximos 12 meses, en céntimos.
      */
-    private void actualizarKPIs(double gastoMensual, double ahorroMensual) {
-        lblGastoMensual.setText(String.format("%.2f €", gastoMensual));
-        lblAhorro.setText(String.format("%.2f €", ahorroMensual));
+    private void actualizarKPIs(long gastoMensual, long ahorroMensual, long proyeccionCentimos) {
+        lblGastoMensual.setText(Dinero.formatear(gastoMensual));
+        lblAhorro.setText(Dinero.formatear(ahorroMensual));
 
-        lblProyeccionAnual.setText(String.format("%.2f €", gastoMensual * 12));
+        lblProyeccionAnual.setText(Dinero.formatear(proyeccionCentimos));
     }
 
     /**
      * Genera y muestra el gráfico de barras por categoría.
      *
-     * @param gastoPorCategoria Mapa con los totales acumulados por categoría.
+     * @param gastoPorCategoria Totales agregados por categoría.
      */
-    private void actualizarGraficoBarras(Map<String, Double> gastoPorCategoria) {
+    private void actualizarGraficoBarras(List<GastoCategoria> gastoPorCategoria) {
         chartBarras.getData().clear();
         chartBarras.setAnimated(true); //Anmación suave al cargar
 
         XYChart.Series<String, Number> series = new XYChart.Series<>();
         series.setName("Gasto Mensual");
 
-        for (Map.Entry<String, Double> entry : gastoPorCategoria.entrySet()) {
-            if (entry.getValue() > 0) {
-                series.getData().add(new XYChart.Data<>(entry.getKey(), entry.getValue()));
+        for (GastoCategoria g : gastoPorCategoria) {
+            if (g.getGastoNetoCentimos() > 0) {
+                series.getData().add(new XYChart.Data<>(g.getCategoria().name(), Dinero.enUnidades(g.getGastoNetoCentimos())));
             }
         }
 
@@ -157,25 +179,19 @@ public class InformesController {
     /**
      * Genera la lista visual de los 3 servicios más costosos.
      *
-     * @param mapaCostes Mapa con el coste mensual de cada suscripción individual.
+     * @param top3 Servicios ya ordenados y limitados por la consulta.
      */
-    private void mostrarTop3(Map<Suscripcion, Double> mapaCostes) {
+    private void mostrarTop3(List<GastoServicio> top3) {
         boxTopGastos.getChildren().clear();
 
-        // Ordenar el mapa por valor descendente y coger los 3 primeros
-        List<Map.Entry<Suscripcion, Double>> top3 = mapaCostes.entrySet().stream()
-                .sorted((e1, e2) -> Double.compare(e2.getValue(), e1.getValue())) // Orden inverso
-                .limit(3)
-                .collect(Collectors.toList());
-
         if (top3.isEmpty()) {
             boxTopGastos.getChildren().add(new Label("No hay datos suficientes"));
             return;
         }
 
         int ranking = 1;
-        for (Map.Entry<Suscripcion, Double> entry : top3) {
-            crearFilaRanking(ranking++, entry.getKey(), entry.getValue());
+        for (GastoServicio servicio : top3) {
+            crearFilaRanking(ranking++, servicio);
         }
     }
 
@@ -184,44 +200,27 @@ public class InformesController {
      * Genera un HBox estilizado con el puesto, nombre y precio.
      *
      * @param ranking Posición (1, 2, 3).
-     * @param s Suscripción.
-     * @param costeMensual Coste calculado.
+     * @param servicio Servicio con su coste mensual neto.
      */
-    private void crearFilaRanking(int ranking, Suscripcion s, Double costeMensual) {
+    private void crearFilaRanking(int ranking, GastoServicio servicio) {
         HBox fila = new HBox();
         fila.setSpacing(10);
         fila.setStyle("-fx-padding: 10; -fx-background-color: rgba(0,0,0,0.1); -fx-background-radius: 5; -fx-alignment: CENTER_LEFT;");
 
 
-        Label lblNombre = new Label(s.getNombre());
+        Label lblNombre = new Label(servicio.getNombre());
         lblNombre.setStyle("-fx-text-fill: white; -fx-font-weight: bold; -fx-font-size: 14;");
 
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
-        Label lblPrecio = new Label(String.format("%.2f €/mes", costeMensual));
+        Label lblPrecio = new Label(Dinero.formatear(servicio.getGastoMensualNetoCentimos()) + "/mes");
         lblPrecio.setStyle("-fx-text-fill: -fx-text-muted;");
 
         fila.getChildren().addAll(lblNombre, spacer, lblPrecio);
         boxTopGastos.getChildren().add(fila);
     }
 
-    /**
-     * Utilidad matemática para normalizar precios a una base mensual.
-     *
-     * @param precio El importe original.
-     * @param ciclo La frecuencia de pago.
-     * @return El importe equivalente mensual.
-     */
-    private double normalizarAMes(double precio, Ciclo ciclo) {
-        switch (ciclo) {
-            case MENSUAL: return precio;
-            case TRIMESTRAL: return precio / 3.0;
-            case ANUAL: return precio / 12.0;
-            default: return precio;
-        }
-    }
-
     /**
      * Exporta los datos actuales a un archivo de texto CSV compatible con Excel.
      */
@@ -243,13 +242,39 @@ public class InformesController {
 
     /**
      * Lógica de escritura del archivo CSV.
-     * Estructura: Encabezados -> Resumen KPIs -> Tabla Detallada.
+     * Estructura: Encabezados -> Resumen KPIs -> Tabla Detallada -> Histórico Mensual -> Pagos Registrados
+     * -> Previsión de Pagos.
+     *
+     * Los textos de los KPIs se leen en el hilo de la interfaz; la consulta del detalle y la
+     * escritura del fichero se hacen en segundo plano.
      */
     private void guardarArchivo(File file) {
-        String SEPARADOR = ";";
-
         Stage stage = (Stage) lblGastoMensual.getScene().getWindow();
 
+        String gastoTotal = lblGastoMensual.getText().replace(" €", "");
+        String ahorroTotal = lblAhorro.getText().replace(" €", "").replace("+ ", "");
+        int idUsuario = usuarioLogueado.getId_usuario();
+
+        ServicioAsincrono.ejecutar(() -> {
+            escribirCSV(file, gastoTotal, ahorroTotal, suscripcionDAO.findByTitularIdSinCobros(idUsuario),
+                    resumenMensualDAO.findByUsuario(idUsuario), HistorialCobros.delUsuario(idUsuario));
+            return file;
+        }, guardado -> Dialogos.mostrarInformacion("Exportación Exitosa", "El archivo se ha guardado correctamente.", stage),
+           error -> {
+               error.printStackTrace();
+               Dialogos.mostrarError("Error de Exportación", "No se pudo guardar el archivo. Comprueba los permisos.", stage);
+           });
+    }
+
+    /**
+     * Escribe el informe en el fichero.
+     *
+     * @throws UncheckedIOException Si no se puede escribir el fichero.
+     */
+    private void escribirCSV(File file, String gastoTotal, String ahorroTotal, List<Suscripcion> lista,
+                             List<ResumenMensual> historico, HistorialCobros cobros) {
+        String SEPARADOR = ";";
+
         try (PrintWriter writer = new PrintWriter(file, StandardCharsets.UTF_8)) {
 
             writer.println("INFORME DE GASTOS - SUBTRACKER");
@@ -257,9 +282,6 @@ public class InformesController {
             writer.println();
 
             writer.println("RESUMEN MENSUAL");
-            String gastoTotal = lblGastoMensual.getText().replace(" €", "");
-            String ahorroTotal = lblAhorro.getText().replace(" €", "").replace("+ ", "");
-
             writer.println("Gasto Mensual Neto" + SEPARADOR + gastoTotal + " €");
             writer.println("Ahorro por Colaboradores" + SEPARADOR + ahorroTotal + " €");
             writer.println();
@@ -267,25 +289,85 @@ public class InformesController {
             writer.println("DETALLE DE SERVICIOS");
             writer.println("Servicio" + SEPARADOR + "Precio Original" + SEPARADOR + "Ciclo" + SEPARADOR + "Categoría" + SEPARADOR + "Estado");
 
-            List<Suscripcion> lista = suscripcionDAO.findByTitularId(usuarioLogueado.getId_usuario());
-
             for (Suscripcion s : lista) {
                 // Netflix;17.99;MENSUAL;OCIO;ACTIVA
                 StringBuilder linea = new StringBuilder();
                 linea.append(s.getNombre()).append(SEPARADOR);
-                linea.append(s.getPrecio()).append(" €").append(SEPARADOR);
+                linea.append(Dinero.formatear(s.getPrecioCentimos())).append(SEPARADOR);
                 linea.append(s.getCiclo()).append(SEPARADOR);
                 linea.append(s.getCategoria()).append(SEPARADOR);
                 linea.append(s.isActivo() ? "ACTIVA" : "PAUSADA");
 
                 writer.println(linea);
             }
+            writer.println();
+
+            writer.println("HISTORICO MENSUAL");
+            writer.println("Mes" + SEPARADOR + "Categoría" + SEPARADOR + "Bruto" + SEPARADOR + "Aportado" + SEPARADOR + "Neto");
+
+            for (ResumenMensual r : historico) {
+                // 2024-05;OCIO;35.98 €;12.00 €;23.98 €
+                writer.println(r.getMes() + SEPARADOR + r.getCategoria() + SEPARADOR +
+                        Dinero.formatear(r.getBrutoCentimos()) + SEPARADOR +
+                        Dinero.formatear(r.getAporteCentimos()) + SEPARADOR +
+                        Dinero.formatear(r.getNetoCentimos()));
+            }
+            writer.println();
+
+            writer.println("PAGOS REGISTRADOS (ULTIMOS " + MESES_PROYECCION + " MESES)");
+            writer.println("Mes" + SEPARADOR + "Pagado");
+
+            YearMonth primerMes = YearMonth.now().minusMonths(MESES_PROYECCION - 1);
+            long[] pagadoPorMes = cobros.sumaPorMes(primerMes, MESES_PROYECCION);
+            for (int i = 0; i < pagadoPorMes.length; i++) {
+                // 2024-05;35.98 €
+                writer.println(primerMes.plusMonths(i) + SEPARADOR + Dinero.formatear(pagadoPorMes[i]));
+            }
+            writer.println();
+
+            LocalDate desde = primerMes.atDay(1);
+            LocalDate hoy = LocalDate.now();
+            writer.println("Método de Pago" + SEPARADOR + "Pagado");
+            for (Map.Entry<MetodoPago, Long> e : cobros.sumaPorMetodo(desde, hoy).entrySet()) {
+                writer.println(e.getKey() + SEPARADOR + Dinero.formatear(e.getValue()));
+            }
+            writer.println();
+
+            Map<Integer, String> nombres = new HashMap<>();
+            for (Suscripcion s : lista) nombres.put(s.getIdSuscripcion(), s.getNombre());
+            writer.println("Servicio" + SEPARADOR + "Cobros" + SEPARADOR + "Pagado");
+            for (HistorialCobros.Total t : cobros.topSuscripciones(desde, hoy, TAMANO_RANKING)) {
+                writer.println(nombres.getOrDefault(t.idSuscripcion(), "#" + t.idSuscripcion()) + SEPARADOR +
+                        t.cobros() + SEPARADOR + Dinero.formatear(t.centimos()));
+            }
+            writer.println();
 
-            Dialogos.mostrarInformacion("Exportación Exitosa", "El archivo se ha guardado correctamente.", stage);
+            writer.println("PREVISION DE PAGOS");
+            writer.println("Mes" + SEPARADOR + "Cobros" + SEPARADOR + "Bruto" + SEPARADOR + "Cubierto" + SEPARADOR + "Neto");
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            Dialogos.mostrarError("Error de Exportación", "No se pudo guardar el archivo. Comprueba los permisos.", stage);
+            CalendarioPagos prevision = ProyeccionPagos.porMeses(lista, LocalDate.now(), MESES_PROYECCION);
+            for (int i = 0; i < prevision.getTamano(); i++) {
+                // 2025-03;4;45.96 €;6.00 €;39.96 €
+                writer.println(prevision.getMes(i) + SEPARADOR + prevision.getCobros(i) + SEPARADOR +
+                        Dinero.formatear(prevision.getBrutoCentimos(i)) + SEPARADOR +
+                        Dinero.formatear(prevision.getCubiertoCentimos(i)) + SEPARADOR +
+                        Dinero.formatear(prevision.getNetoCentimos(i)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
+
+    /**
+     * Resultados de las consultas en segundo plano que se trasladan a la interfaz.
+     *
+     * @param porCategoria Gasto mensual por categoría.
+     * @param topServicios Ranking de servicios más costosos.
+     * @param gastoMensualCentimos Gasto neto mensual total.
+     * @param ahorroMensualCentimos Ahorro mensual total por copagos.
+     * @param proyeccionCentimos Pagos netos previstos para los próximos 12 meses.
+     */
+    public record ResumenFinanciero(List<GastoCategoria> porCategoria, List<GastoServicio> topServicios,
+                                    long gastoMensualCentimos, long ahorroMensualCentimos, long proyeccionCentimos) {
+    }
 }
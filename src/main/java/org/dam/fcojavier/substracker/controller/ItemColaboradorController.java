@@ -5,6 +5,7 @@ import javafx.scene.control.Label;
 import javafx.scene.layout.HBox;
 import org.dam.fcojavier.substracker.model.enums.Ciclo;
 import org.dam.fcojavier.substracker.model.Participa;
+import org.dam.fcojavier.substracker.utils.Dinero;
 
 /**
  * Controlador para la vista de un ítem individual (Tarjeta) en la lista de colaboradores.
@@ -16,7 +17,7 @@ import org.dam.fcojavier.substracker.model.Participa;
  * Gestionar el evento de clic para permitir la edición del colaborador.
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.1
  */
 public class ItemColaboradorController {
     @FXML private HBox root;
@@ -48,7 +49,7 @@ public class ItemColaboradorController {
         }
         lblDescripcion.setText(desc);
 
-        lblImporte.setText(String.format("%.2f €", participa.getCantidadApagar()));
+        lblImporte.setText(Dinero.formatear(participa.getCantidadApagarCentimos()));
 
         boolean pagado = participa.isAlDia(cicloSuscripcion);
 
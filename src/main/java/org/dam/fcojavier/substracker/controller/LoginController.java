@@ -9,6 +9,9 @@ import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.dao.UsuarioDAO;
 import javafx.fxml.FXML;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.service.PlanificadorRenovaciones;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
+import org.dam.fcojavier.substracker.service.ServicioSincronizacion;
 import org.dam.fcojavier.substracker.utils.Dialogos;
 import org.dam.fcojavier.substracker.utils.PasswordUtilidades;
 import org.dam.fcojavier.substracker.utils.Validaciones;
@@ -28,7 +31,7 @@ import java.io.IOException;
  * Dirigir al usuario al Dashboard principal o al formulario de registro.
  *
  * @author Fco Javier García
- * @version 2.0
+ * @version 2.3
  */
 public class LoginController {
 
@@ -67,22 +70,14 @@ public class LoginController {
      *
      * Flujo de ejecución:
      *
-     * Configura la conexión a la BD seleccionada.
-     * Verifica que la conexión esté operativa.
      * Realiza validaciones de campos vacíos y formato de email.
+     * Configura la conexión a la BD seleccionada.
      * Delega la autenticación al método {@link #intentarLogin(String, String)}.
      *
      * @param event Evento del botón.
      */
     @FXML
     private void handleLogin(ActionEvent event) {
-        configurarConexionSeleccionada();
-
-        if (ConnectionDB.getConnection() == null) {
-            mostrarMensajeError("No se pudo conectar a la base de datos seleccionada.");
-            return;
-        }
-
         String email = txtEmail.getText();
         String password = txtPassword.getText();
 
@@ -111,39 +106,80 @@ public class LoginController {
             return;
         }
 
+        configurarConexionSeleccionada();
         intentarLogin(email, password);
     }
 
     /**
      * Realiza la búsqueda del usuario y la verificación de credenciales.
      *
+     * La comprobación de la conexión (que la primera vez crea el pool y aplica las migraciones),
+     * la consulta y la verificación del hash BCrypt se hacen en segundo plano
+     * ({@link ServicioAsincrono}); mientras tanto el botón queda deshabilitado.
+     *
      * @param email Email introducido.
      * @param password Contraseña en texto plano.
      */
     private void intentarLogin(String email, String password) {
-        Usuario usuarioEncontrado = usuarioDAO.findByEmail(email);
-
-        if (usuarioEncontrado != null) {
-            if (PasswordUtilidades.checkPassword(password, usuarioEncontrado.getPassword())) {
-                loginExitoso(usuarioEncontrado);
-            } else {
-                marcarCampoError(txtPassword);
-                mostrarMensajeError("Contraseña incorrecta.");
-                txtPassword.clear();
+        btnLogin.setDisable(true);
+
+        ServicioAsincrono.ejecutar(() -> autenticar(email, password), resultado -> {
+            btnLogin.setDisable(false);
+
+            switch (resultado.estado()) {
+                case CORRECTO -> loginExitoso(resultado.usuario());
+                case SIN_CONEXION -> mostrarMensajeError("No se pudo conectar a la base de datos seleccionada.");
+                case EMAIL_DESCONOCIDO -> {
+                    marcarCampoError(txtEmail);
+                    mostrarMensajeError("No existe ninguna cuenta con ese email.");
+                }
+                case PASSWORD_INCORRECTA -> {
+                    marcarCampoError(txtPassword);
+                    mostrarMensajeError("Contraseña incorrecta.");
+                    txtPassword.clear();
+                }
             }
-        } else {
-            marcarCampoError(txtEmail);
-            mostrarMensajeError("No existe ninguna cuenta con ese email.");
+        }, error -> {
+            btnLogin.setDisable(false);
+            mostrarMensajeError("Error inesperado al iniciar sesión.");
+            System.err.println("Error en el login: " + error.getMessage());
+        });
+    }
+
+    /**
+     * Comprueba las credenciales contra la base de datos. Se ejecuta fuera del hilo de JavaFX.
+     * Si el email no existe en local y la sincronización está habilitada, se sincroniza y se vuelve a buscar.
+     */
+    private ResultadoLogin autenticar(String email, String password) {
+        if (!ConnectionDB.isDisponible()) {
+            return new ResultadoLogin(EstadoLogin.SIN_CONEXION, null);
+        }
+
+        Usuario usuarioEncontrado = usuarioDAO.findByEmail(email);
+        if (usuarioEncontrado == null && ServicioSincronizacion.sincronizarAhora()) {
+            // La cuenta puede existir solo en la base de datos remota (primer uso en este equipo)
+            usuarioEncontrado = usuarioDAO.findByEmail(email);
+        }
+        if (usuarioEncontrado == null) {
+            return new ResultadoLogin(EstadoLogin.EMAIL_DESCONOCIDO, null);
         }
+        if (!PasswordUtilidades.checkPassword(password, usuarioEncontrado.getPassword())) {
+            return new ResultadoLogin(EstadoLogin.PASSWORD_INCORRECTA, null);
+        }
+        return new ResultadoLogin(EstadoLogin.CORRECTO, usuarioEncontrado);
     }
 
     /**
      * Transición a la pantalla principal (Dashboard) tras un login exitoso.
      * Configura la ventana principal con el tamaño adecuado y pasa el usuario logueado.
+     * Con SQLite, arranca la sincronización en segundo plano si está habilitada, y arranca la
+     * renovación automática de las suscripciones del usuario.
      *
      * @param usuario El usuario autenticado.
      */
     private void loginExitoso(Usuario usuario) {
+        ServicioSincronizacion.iniciar();
+        PlanificadorRenovaciones.iniciar(usuario);
         try {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/org/dam/fcojavier/substracker/view/mainView.fxml"));
             Parent root = loader.load();
@@ -224,4 +260,16 @@ public class LoginController {
         lblError.setText(mensaje);
         lblError.setVisible(true);
     }
+
+    /** Posibles resultados de la autenticación. */
+    private enum EstadoLogin { CORRECTO, SIN_CONEXION, EMAIL_DESCONOCIDO, PASSWORD_INCORRECTA }
+
+    /**
+     * Resultado de {@link #autenticar(String, String)}.
+     *
+     * @param estado Resultado de la comprobación.
+     * @param usuario Usuario autenticado, solo si el estado es {@code CORRECTO}.
+     */
+    private record ResultadoLogin(EstadoLogin estado, Usuario usuario) {
+    }
 }
@@ -11,6 +11,8 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.service.PlanificadorRenovaciones;
+import org.dam.fcojavier.substracker.service.ServicioSincronizacion;
 
 import java.io.IOException;
 
@@ -25,7 +27,7 @@ import java.io.IOException;
  * Gestionar el cierre de sesión y el retorno al Login.
  *
  * @author Fco Javier García
- * @version 2.0
+ * @version 2.2
  */
 public class MainController {
     @FXML private Label lblNombreUsuario;
@@ -79,7 +81,7 @@ public class MainController {
     }
 
     /**
-     * Cierra la sesión actual, limpia los datos y devuelve al usuario a la pantalla de Login.
+     * Cierra la sesión actual, detiene la sincronización y las renovaciones automáticas, limpia los datos y devuelve al usuario a la pantalla de Login.
      *
      * @param event Evento del botón (necesario para obtener el Stage).
      */
@@ -87,6 +89,8 @@ public class MainController {
     public void cerrarSesion(ActionEvent event) {
         try {
             this.usuarioLogueado = null;
+            ServicioSincronizacion.detener();
+            PlanificadorRenovaciones.detener();
 
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/org/dam/fcojavier/substracker/view/loginView.fxml"));
             Parent root = loader.load();
@@ -13,6 +13,7 @@ import javafx.scene.control.TextField;
 import javafx.stage.Stage;
 import javafx.scene.Node;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
 import org.dam.fcojavier.substracker.utils.Dialogos;
 import org.dam.fcojavier.substracker.utils.PasswordUtilidades;
 import org.dam.fcojavier.substracker.utils.Validaciones;
@@ -26,7 +27,7 @@ import java.io.IOException;
  * la seguridad de la contraseña y la unicidad del correo electrónico.
  *
  * @author Fco Javier García
- * @version 2.0
+ * @version 2.1
  */
 public class RegistroController {
 
@@ -37,6 +38,9 @@ public class RegistroController {
     @FXML private PasswordField txtConfirmPassword;
     @FXML private Label lblError;
 
+    /** Resultado del alta, calculado en segundo plano. */
+    private enum ResultadoRegistro { CREADO, EMAIL_REPETIDO, ERROR }
+
     private final UsuarioDAO usuarioDAO;
 
     /**
@@ -55,6 +59,7 @@ public class RegistroController {
      * Formato de email y longitud de contraseña.
      * Duplicidad de email en BD.
      * Persistencia.
+     * Las dos últimas (y el hash BCrypt) se hacen con {@link ServicioAsincrono}, fuera del hilo de JavaFX.
      */
     @FXML
     private void handleRegistro(ActionEvent event) {
@@ -115,21 +120,24 @@ public class RegistroController {
             return;
         }
 
-        if (usuarioDAO.findByEmail(email) != null) {
-            marcarCampoError(txtEmail);
-            mostrarError("Ese email ya está registrado en el sistema.");
-            return;
-        }
-
-        String passEncriptada = PasswordUtilidades.hashPassword(password);
-
-        Usuario nuevoUsuario = new Usuario(0, nombre, apellidos, email, passEncriptada);
-
-        if (usuarioDAO.create(nuevoUsuario)) {
-            irAlDashboard(nuevoUsuario);
-        } else {
-            mostrarError("Error al guardar en la base de datos.");
-        }
+        Node boton = (Node) event.getSource();
+        boton.setDisable(true);
+        Usuario nuevoUsuario = new Usuario(0, nombre, apellidos, email, null);
+        ServicioAsincrono.ejecutar(() -> {
+            if (usuarioDAO.findByEmail(email) != null) return ResultadoRegistro.EMAIL_REPETIDO;
+            nuevoUsuario.setPassword(PasswordUtilidades.hashPassword(password));
+            return usuarioDAO.create(nuevoUsuario) ? ResultadoRegistro.CREADO : ResultadoRegistro.ERROR;
+        }, resultado -> {
+            boton.setDisable(false);
+            switch (resultado) {
+                case CREADO -> irAlDashboard(nuevoUsuario);
+                case EMAIL_REPETIDO -> {
+                    marcarCampoError(txtEmail);
+                    mostrarError("Ese email ya está registrado en el sistema.");
+                }
+                default -> mostrarError("Error al guardar en la base de datos.");
+            }
+        });
     }
 
     /**
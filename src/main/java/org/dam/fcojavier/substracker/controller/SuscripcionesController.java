@@ -9,6 +9,7 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
@@ -19,19 +20,29 @@ import javafx.fxml.FXML;
 import javafx.scene.control.cell.PropertyValueFactory;
 import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.importer.ImportadorCobros;
+import org.dam.fcojavier.substracker.importer.ResultadoImportacion;
 import org.dam.fcojavier.substracker.model.enums.Categoria;
-
+import org.dam.fcojavier.substracker.model.enums.EstadoVencimiento;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.dam.fcojavier.substracker.service.PlanificadorRenovaciones;
+import org.dam.fcojavier.substracker.service.ServicioAsincrono;
+import org.dam.fcojavier.substracker.utils.Dialogos;
+import org.dam.fcojavier.substracker.utils.Dinero;
+
+import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Predicate;
 
 /**
  * Controlador de la vista principal de listado de suscripciones.
  *
  * Gestiona la tabla de datos, los filtros de búsqueda, la navegación al detalle
- * y las acciones rápidas (crear, pagar).
+ * y las acciones rápidas (crear, pagar, importar cobros desde un extracto bancario).
  *
  * Características principales:
  * Tabla responsiva con columnas personalizadas (Iconos, Colores, Botones).
@@ -39,12 +50,12 @@ import java.util.Map;
  * Sistema de caché de iconos para optimizar el rendimiento del renderizado.
  *
  * @author Fco Javier García
- * @version 2.0
+ * @version 2.9
  */
 public class SuscripcionesController {
     @FXML private TableView<Suscripcion> tablaSuscripciones;
     @FXML private TableColumn<Suscripcion, String> colNombre;
-    @FXML private TableColumn<Suscripcion, Double> colPrecio;
+    @FXML private TableColumn<Suscripcion, Long> colPrecio;
     @FXML private TableColumn<Suscripcion, LocalDate> colProximoPago;
     @FXML private TableColumn<Suscripcion, String> colColaboradores;
     @FXML private TextField txtBuscar;
@@ -54,6 +65,7 @@ public class SuscripcionesController {
 
     private Usuario usuarioLogueado;
     private final SuscripcionDAO suscripcionDAO;
+    private final ImportadorCobros importadorCobros;
     private MainController mainController;
 
     private ObservableList<Suscripcion> masterData = FXCollections.observableArrayList();
@@ -61,12 +73,16 @@ public class SuscripcionesController {
 
     private Map<Categoria, Image> iconosCategoria = new HashMap<>();
 
+    /** Fecha de referencia del semáforo de renovaciones; se actualiza en cada carga. */
+    private LocalDate hoy = LocalDate.now();
+
     /**
      * Constructor por defecto.
-     * Inicializa la instancia del DAO de suscripciones.
+     * Inicializa la instancia del DAO de suscripciones y el importador de extractos.
      */
     public SuscripcionesController() {
         this.suscripcionDAO = new SuscripcionDAO();
+        this.importadorCobros = new ImportadorCobros();
     }
 
     /**
@@ -99,7 +115,8 @@ public class SuscripcionesController {
      * Recibe los datos de sesión y configura el entorno.
      *
      * Este método es el punto de entrada desde el {@link MainController}.
-     * Carga las suscripciones del usuario desde la base de datos.
+     * Carga las suscripciones del usuario desde la base de datos y se registra en el
+     * {@link PlanificadorRenovaciones} para recargarlas cuando renueve alguna.
      *
      * @param usuario El usuario que ha iniciado sesión.
      * @param mainController Referencia al controlador principal para permitir la navegación.
@@ -107,6 +124,7 @@ public class SuscripcionesController {
     public void initData(Usuario usuario, MainController mainController) {
         this.usuarioLogueado = usuario;
         this.mainController = mainController;
+        PlanificadorRenovaciones.alRenovar(this::cargarSuscripciones);
         cargarSuscripciones();
     }
 
@@ -161,16 +179,16 @@ public class SuscripcionesController {
     /**
      * Configura la columna "Precio".
      *
-     * Formatea el valor numérico (Double) añadiendo el símbolo de euro y limitando a 2 decimales.
+     * Formatea el importe en céntimos (Long) con dos decimales y el símbolo de euro.
      */
     private void configurarColumnaPrecio() {
-        colPrecio.setCellValueFactory(new PropertyValueFactory<>("precio"));
+        colPrecio.setCellValueFactory(new PropertyValueFactory<>("precioCentimos"));
         colPrecio.setCellFactory(col -> new TableCell<>() {
             @Override
-            protected void updateItem(Double item, boolean empty) {
+            protected void updateItem(Long item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) setText(null);
-                else setText(String.format("%.2f €", item));
+                else setText(Dinero.formatear(item));
             }
         });
     }
@@ -184,6 +202,11 @@ public class SuscripcionesController {
      * Naranja (Urgente): Faltan 7 días o menos.
      * Blanco (Normal): Faltan más de 7 días.
      * Pendiente 1º Pago: Si la suscripción es nueva y aún no se ha pagado nunca.
+     *
+     * La clasificación es {@link EstadoVencimiento#de}, con la fecha de hoy tomada al cargar la lista
+     * (no en cada repintado). Se clasifica la fila ya cargada en lugar de consultar el
+     * {@code IndiceVencimientos}: la tabla muestra también las suscripciones pausadas, que el índice no
+     * contiene, y el estado de una fila solo depende de sus dos fechas.
      */
     private void configurarColumnaProximoPago() {
         colProximoPago.setCellValueFactory(new PropertyValueFactory<>("fechaRenovacion"));
@@ -196,28 +219,26 @@ public class SuscripcionesController {
                     setStyle("");
                 } else {
                     Suscripcion s = getTableView().getItems().get(getIndex());
-                    LocalDate fechaActivacion = s.getFechaActivacion();
-                    LocalDate hoy = LocalDate.now();
+                    String textoBase = fechaRenovacion.toString();
 
-                    boolean esPrimerPagoPendiente = fechaRenovacion.isEqual(fechaActivacion) && !fechaRenovacion.isAfter(hoy);
-
-                    if (esPrimerPagoPendiente) {
-                        setText("PENDIENTE (1º PAGO)");
-                        setStyle("-fx-text-fill: #ff6b6b; -fx-font-weight: bold; -fx-alignment: CENTER;");
-                    } else {
-                        long diasRestantes = ChronoUnit.DAYS.between(hoy, fechaRenovacion);
-                        String textoBase = fechaRenovacion.toString();
-
-                        if (diasRestantes < 0) {
+                    switch (EstadoVencimiento.de(fechaRenovacion, s.getFechaActivacion(), hoy)) {
+                        case PRIMER_PAGO_PENDIENTE -> {
+                            setText("PENDIENTE (1º PAGO)");
+                            setStyle("-fx-text-fill: #ff6b6b; -fx-font-weight: bold; -fx-alignment: CENTER;");
+                        }
+                        case VENCIDO -> {
                             setText(textoBase + " (VENCIDO)");
                             setStyle("-fx-text-fill: #e74c3c; -fx-font-weight: bold; -fx-alignment: CENTER;");
-                        } else if (diasRestantes == 0) {
+                        }
+                        case HOY -> {
                             setText("¡SE PAGA HOY!");
                             setStyle("-fx-text-fill: #f1c40f; -fx-font-weight: bold; -fx-font-size: 13px; -fx-alignment: CENTER;");
-                        } else if (diasRestantes <= 7) {
-                            setText(textoBase + " (" + diasRestantes + " días)");
+                        }
+                        case URGENTE -> {
+                            setText(textoBase + " (" + ChronoUnit.DAYS.between(hoy, fechaRenovacion) + " días)");
                             setStyle("-fx-text-fill: #f39c12; -fx-alignment: CENTER;");
-                        } else {
+                        }
+                        case NORMAL -> {
                             setText(textoBase);
                             setStyle("-fx-text-fill: -fx-text-light; -fx-alignment: CENTER;");
                         }
@@ -332,11 +353,23 @@ public class SuscripcionesController {
      *
      */
     private void aplicarFiltros() {
-        String textoBusqueda = txtBuscar.getText() != null ? txtBuscar.getText().toLowerCase() : "";
-        String catSeleccionada = filterCategoria.getValue();
-        String estadoSeleccionado = filterEstado.getValue();
+        filteredData.setPredicate(crearFiltro(txtBuscar.getText(), filterCategoria.getValue(), filterEstado.getValue()));
+    }
+
+    /**
+     * Construye el predicado de {@link #aplicarFiltros()} a partir de los valores de los filtros.
+     *
+     * Es estático y no depende de los controles para poder medirlo aparte (módulo {@code benchmarks}).
+     *
+     * @param texto Texto de búsqueda en el nombre (sin distinguir mayúsculas); {@code null} o vacío no filtra.
+     * @param catSeleccionada Nombre de la categoría, o {@code "TODAS"}.
+     * @param estadoSeleccionado {@code "ACTIVAS"}, {@code "PAUSADAS"} o {@code "TODOS"}.
+     * @return Predicado que cumplen las suscripciones a mostrar.
+     */
+    public static Predicate<Suscripcion> crearFiltro(String texto, String catSeleccionada, String estadoSeleccionado) {
+        String textoBusqueda = texto != null ? texto.toLowerCase() : "";
 
-        filteredData.setPredicate(suscripcion -> {
+        return suscripcion -> {
             if (!textoBusqueda.isEmpty()) {
                 if (!suscripcion.getNombre().toLowerCase().contains(textoBusqueda)) {
                     return false;
@@ -356,7 +389,7 @@ public class SuscripcionesController {
                 }
             }
             return true;
-        });
+        };
     }
 
     /**
@@ -380,12 +413,20 @@ public class SuscripcionesController {
 
     /**
      * Consulta la base de datos para obtener las suscripciones actualizadas del usuario.
-     * Actualiza la {@code masterData}, lo que refresca automáticamente la tabla.
+     *
+     * La consulta se hace en segundo plano ({@link ServicioAsincrono}); al terminar se reemplaza
+     * la {@code masterData} en el hilo de la interfaz, lo que refresca automáticamente la tabla.
+     * Se usa {@link SuscripcionDAO#findByTitularIdSinCobros}: trae ya los participantes, que la columna
+     * "Compartida" necesita para cada fila, y deja sin cargar el historial de cobros, que la tabla no usa.
      */
     private void cargarSuscripciones() {
         if (usuarioLogueado != null) {
-            masterData.clear();
-            masterData.addAll(suscripcionDAO.findByTitularId(usuarioLogueado.getId_usuario()));
+            int idUsuario = usuarioLogueado.getId_usuario();
+
+            ServicioAsincrono.ejecutar(() -> suscripcionDAO.findByTitularIdSinCobros(idUsuario), lista -> {
+                hoy = LocalDate.now();
+                masterData.setAll(lista);
+            });
         }
     }
 
@@ -400,6 +441,55 @@ public class SuscripcionesController {
         abrirModal("/org/dam/fcojavier/substracker/view/formSuscripcionView.fxml", "Nueva Suscripción", null);
     }
 
+    /**
+     * Importa los cobros de un extracto bancario (CSV u OFX) elegido por el usuario.
+     *
+     * La importación ({@link ImportadorCobros}) se ejecuta en segundo plano; al terminar se muestra
+     * el recuento y se recarga la tabla. El importador se reutiliza para no reconstruir su índice de
+     * nombres en cada extracto.
+     */
+    @FXML
+    private void handleImportarExtracto(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Importar Extracto Bancario");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Extractos (CSV, OFX)", "*.csv", "*.txt", "*.ofx", "*.qfx"),
+                new FileChooser.ExtensionFilter("Todos los archivos", "*.*"));
+
+        Stage stage = (Stage) tablaSuscripciones.getScene().getWindow();
+        File file = fileChooser.showOpenDialog(stage);
+        if (file == null || usuarioLogueado == null) return;
+
+        Usuario titular = usuarioLogueado;
+        ServicioAsincrono.ejecutar(() -> importadorCobros.importar(file.toPath(), titular, MetodoPago.TARJETA),
+                resultado -> {
+                    mostrarResultadoImportacion(resultado, stage);
+                    if (resultado.getImportados() > 0) cargarSuscripciones();
+                });
+    }
+
+    /**
+     * Muestra el recuento de una importación y algunos ejemplos de lo descartado.
+     */
+    private void mostrarResultadoImportacion(ResultadoImportacion resultado, Stage stage) {
+        StringBuilder texto = new StringBuilder();
+        texto.append("Cobros importados: ").append(resultado.getImportados()).append('\n');
+        texto.append("Ya registrados: ").append(resultado.getDuplicados()).append('\n');
+        texto.append("Cargos sin suscripción: ").append(resultado.getSinCoincidencia()).append('\n');
+        texto.append("Ingresos ignorados: ").append(resultado.getIngresos()).append('\n');
+        texto.append("Líneas no válidas: ").append(resultado.getErroneos()).append('\n');
+        if (!resultado.getEjemplosSinCoincidencia().isEmpty()) {
+            texto.append("\nSin suscripción (ejemplos):\n");
+            resultado.getEjemplosSinCoincidencia().forEach(e -> texto.append("  ").append(e).append('\n'));
+        }
+
+        if (resultado.getError() != null) {
+            Dialogos.mostrarError("Importación interrumpida", resultado.getError() + "\n\n" + texto, stage);
+        } else {
+            Dialogos.mostrarInformacion("Importación completada", texto.toString(), stage);
+        }
+    }
+
     /**
      * Maneja la acción de registrar un pago para una suscripción específica.
      *
@@ -1,20 +1,27 @@
 package org.dam.fcojavier.substracker.dao;
 
 import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
 import org.dam.fcojavier.substracker.interfaces.CrudDao;
 import org.dam.fcojavier.substracker.model.Cobro;
 import org.dam.fcojavier.substracker.model.Suscripcion;
-import org.dam.fcojavier.substracker.model.enums.Categoria;
-import org.dam.fcojavier.substracker.model.enums.Ciclo;
 import org.dam.fcojavier.substracker.model.enums.MetodoPago;
 
-import java.sql.Date;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Clase de Acceso a Datos (DAO) para la entidad {@link Cobro}.
@@ -28,9 +35,17 @@ import java.util.List;
  * sin necesidad de consultas adicionales.
  * Reportes Financieros: Incluye métodos específicos para filtrar por rangos de fechas,
  * esenciales para la generación de informes mensuales o anuales.
+ * Historiales grandes: las variantes {@code stream*} recorren los cobros sin cargarlos todos en
+ * memoria y las variantes {@code findPagina*} devuelven páginas por clave {@code (fecha_cobro, id_cobro)}.
+ * Caché: cada escritura invalida en la caché de {@link SuscripcionDAO} la suscripción afectada, y las
+ * filas leídas enlazan la instancia de esa caché en lugar de crear una copia de la suscripción.
+ * Resumen mensual: cada escritura actualiza {@code resumen_mensual} en su misma transacción
+ * (ver {@link ResumenMensualDAO}).
+ * Historial columnar: las altas se añaden al {@link HistorialCobros} del titular si está cargado;
+ * las modificaciones y borrados lo descartan.
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.7
  */
 public class CobroDAO implements CrudDao<Cobro> {
     private final String create_sql = "INSERT INTO cobro (id_suscripcion, fecha_cobro, metodo_pago, descripcion, periodos_cubiertos) VALUES (?, ?, ?, ?, ?)";
@@ -47,6 +62,31 @@ public class CobroDAO implements CrudDao<Cobro> {
     private final String find_by_suscripcion_id_sql = SELECT_BASE + "WHERE c.id_suscripcion = ?";
     private final String find_by_usuario_id_sql = SELECT_BASE + "WHERE s.id_titular = ?";
     private final String find_by_fechas_sql = SELECT_BASE + "WHERE c.fecha_cobro BETWEEN ? AND ?";
+    private final String ultimo_metodo_pago_sql = "SELECT metodo_pago FROM cobro WHERE id_suscripcion = ? AND metodo_pago IS NOT NULL " +
+            "ORDER BY fecha_cobro DESC, id_cobro DESC LIMIT 1";
+
+    // Recorridos ordenados por (fecha_cobro, id_cobro): streaming y paginación por clave (keyset)
+    private final String ORDEN = "ORDER BY c.fecha_cobro, c.id_cobro";
+    private final String TRAS_CLAVE = "(c.fecha_cobro > ? OR (c.fecha_cobro = ? AND c.id_cobro > ?)) ";
+    private final String stream_all_sql = SELECT_BASE + ORDEN;
+    private final String stream_by_usuario_id_sql = find_by_usuario_id_sql + " " + ORDEN;
+    private final String stream_by_fechas_sql = find_by_fechas_sql + " " + ORDEN;
+    private final String pagina_all_sql = SELECT_BASE + "WHERE " + TRAS_CLAVE + ORDEN + " LIMIT ?";
+    private final String pagina_by_usuario_id_sql = SELECT_BASE + "WHERE s.id_titular = ? AND " + TRAS_CLAVE + ORDEN + " LIMIT ?";
+    private final String pagina_by_fechas_sql = SELECT_BASE + "WHERE c.fecha_cobro BETWEEN ? AND ? AND " + TRAS_CLAVE + ORDEN + " LIMIT ?";
+    // Solo las columnas del historial columnar, sin construir objetos
+    private final String historial_by_usuario_id_sql =
+            "SELECT c.fecha_cobro, c.id_suscripcion, c.metodo_pago, c.periodos_cubiertos, s.precio " +
+                    "FROM cobro c INNER JOIN suscripcion s ON c.id_suscripcion = s.id_suscripcion " +
+                    "WHERE s.id_titular = ? " + ORDEN;
+
+    /**
+     * Asigna los parámetros de una consulta de lectura.
+     */
+    @FunctionalInterface
+    private interface Parametros {
+        void asignar(PreparedStatement pstm) throws SQLException;
+    }
 
     /**
      * Registra un nuevo cobro en la base de datos.
@@ -59,25 +99,15 @@ public class CobroDAO implements CrudDao<Cobro> {
      */
     @Override
     public boolean create(Cobro cobro) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(create_sql, PreparedStatement.RETURN_GENERATED_KEYS)){
-            pstm.setInt(1, cobro.getSuscripcion().getIdSuscripcion());
-            pstm.setDate(2, Date.valueOf(cobro.getFecha_cobro()));
-            pstm.setString(3, cobro.getMetodo_pago().name());
-            pstm.setString(4, cobro.getDescripcion());
-            pstm.setInt(5, cobro.getPeriodos_cubiertos());
-
-            if (pstm.executeUpdate() > 0){
-                ResultSet rs = pstm.getGeneratedKeys();
-                if(rs.next()){
-                    cobro.setId_cobro(rs.getInt(1));
-                }
-                return true;
-            }
-
-        }catch (SQLException e){
+        try {
+            insertar(List.of(cobro));
+            SuscripcionDAO.invalidarCache(cobro.getSuscripcion().getIdSuscripcion());
+            Transaccion.alConfirmar(() -> HistorialCobros.anotar(List.of(cobro)));
+            return true;
+        } catch (SQLException e) {
             System.out.println("Error creando cobro: " + e.getMessage());
+            return false;
         }
-        return false;
     }
 
     /**
@@ -89,7 +119,7 @@ public class CobroDAO implements CrudDao<Cobro> {
     @Override
     public Cobro findById(int id) {
         Cobro cobro = null;
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_id_sql)){
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_id_sql)){
             pstm.setInt(1, id);
             ResultSet rs = pstm.executeQuery();
             if(rs.next()){
@@ -109,7 +139,7 @@ public class CobroDAO implements CrudDao<Cobro> {
     @Override
     public List<Cobro> findAll() {
         List<Cobro> cobrosList = new ArrayList<>();
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_all_sql)) {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_all_sql)) {
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
                 cobrosList.add(obtenerCobro(rs));
@@ -128,16 +158,12 @@ public class CobroDAO implements CrudDao<Cobro> {
      */
     @Override
     public boolean update(Cobro cobro) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(update_sql)){
-            pstm.setInt(1, cobro.getSuscripcion().getIdSuscripcion());
-            pstm.setDate(2, Date.valueOf(cobro.getFecha_cobro()));
-            pstm.setString(3, cobro.getMetodo_pago().name());
-            pstm.setString(4, cobro.getDescripcion());
-            pstm.setInt(5, cobro.getPeriodos_cubiertos());
-            pstm.setInt(6, cobro.getId_cobro());
-
-            return pstm.executeUpdate() > 0;
-        }catch (SQLException e){
+        try {
+            boolean actualizado = actualizar(List.of(cobro)) > 0;
+            SuscripcionDAO.vaciarCache(); // Puede haber cambiado de suscripción
+            Transaccion.alConfirmar(HistorialCobros::invalidarTodos);
+            return actualizado;
+        } catch (SQLException e) {
             System.out.println("Error actualizando cobro: " + e.getMessage());
             return false;
         }
@@ -151,17 +177,103 @@ public class CobroDAO implements CrudDao<Cobro> {
      */
     @Override
     public boolean delete(int id) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(delete_sql)){
-            pstm.setInt(1, id);
-            return pstm.executeUpdate() > 0;
-        }catch (SQLException e){
+        try {
+            boolean eliminado = eliminar(List.of(id)) > 0;
+            SuscripcionDAO.vaciarCache();
+            Transaccion.alConfirmar(HistorialCobros::invalidarTodos);
+            return eliminado;
+        } catch (SQLException e) {
             System.out.println("Error eliminando cobro: " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Inserta varios cobros en una sola transacción (JDBC Batch).
+     *
+     * Si el lote se confirma, cada objeto queda con su ID generado.
+     * Si falla alguna fila, se deshace el lote completo.
+     *
+     * @param cobros Lista de objetos a guardar.
+     * @return {@code true} si se guardaron todos.
+     */
+    @Override
+    public boolean createAll(List<Cobro> cobros) {
+        try {
+            insertar(cobros);
+            for (Cobro cobro : cobros) SuscripcionDAO.invalidarCache(cobro.getSuscripcion().getIdSuscripcion());
+            Transaccion.alConfirmar(() -> HistorialCobros.anotar(cobros));
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error creando lote de cobros: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Actualiza varios cobros en una sola transacción (JDBC Batch).
+     *
+     * @param cobros Lista de objetos con los datos modificados.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean updateAll(List<Cobro> cobros) {
+        try {
+            actualizar(cobros);
+            SuscripcionDAO.vaciarCache();
+            Transaccion.alConfirmar(HistorialCobros::invalidarTodos);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error actualizando lote de cobros: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Elimina varios cobros por su ID en una sola transacción (JDBC Batch).
+     *
+     * @param ids Identificadores a borrar.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean deleteAll(List<Integer> ids) {
+        try {
+            eliminar(ids);
+            SuscripcionDAO.vaciarCache();
+            Transaccion.alConfirmar(HistorialCobros::invalidarTodos);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error eliminando lote de cobros: " + e.getMessage());
+            return false;
+        }
+    }
+
     // Métodos específicos de Cobro
 
+    /**
+     * Método de pago del último cobro (por fecha) de cada suscripción, sin cargar su historial:
+     * una consulta por suscripción que solo lee una fila.
+     *
+     * @param idsSuscripcion Suscripciones a consultar.
+     * @return Método de cada suscripción; las que no tienen cobros con método no aparecen.
+     */
+    public Map<Integer, MetodoPago> findUltimoMetodoPago(Collection<Integer> idsSuscripcion) {
+        Map<Integer, MetodoPago> metodos = new HashMap<>();
+        if (idsSuscripcion.isEmpty()) return metodos;
+
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(ultimo_metodo_pago_sql)) {
+            for (int id : idsSuscripcion) {
+                pstm.setInt(1, id);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    if (rs.next()) metodos.put(id, CodecColumnas.getMetodoPago(rs, "metodo_pago"));
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo el último método de pago: " + e.getMessage());
+        }
+        return metodos;
+    }
+
     /**
      * Obtiene el historial de pagos de una suscripción específica.
      *
@@ -170,7 +282,7 @@ public class CobroDAO implements CrudDao<Cobro> {
      */
     public List<Cobro> findBySuscripcionId(int suscripcionId) {
         List<Cobro> cobrosSuscripcion = new ArrayList<>();
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_suscripcion_id_sql)) {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_suscripcion_id_sql)) {
             pstm.setInt(1, suscripcionId);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
@@ -193,7 +305,7 @@ public class CobroDAO implements CrudDao<Cobro> {
      */
     public List<Cobro> findByUsuarioId(int usuarioId) {
         List<Cobro> cobrosSuscripcion = new ArrayList<>();
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_usuario_id_sql)) {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_usuario_id_sql)) {
             pstm.setInt(1, usuarioId);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
@@ -216,9 +328,9 @@ public class CobroDAO implements CrudDao<Cobro> {
      */
     public List<Cobro> findByFechas(LocalDate desde, LocalDate hasta) {
         List<Cobro> cobrosSuscripcion = new ArrayList<>();
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_fechas_sql)) {
-            pstm.setDate(1, Date.valueOf(desde));
-            pstm.setDate(2, Date.valueOf(hasta));
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_fechas_sql)) {
+            CodecColumnas.setFecha(pstm, 1, desde);
+            CodecColumnas.setFecha(pstm, 2, hasta);
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
                 cobrosSuscripcion.add(obtenerCobro(rs));
@@ -229,54 +341,285 @@ public class CobroDAO implements CrudDao<Cobro> {
         return cobrosSuscripcion;
     }
 
+    // Recorridos en streaming
+
+    /**
+     * Recorre todos los cobros del sistema, ordenados por fecha, sin cargarlos en memoria.
+     *
+     * El {@link Stream} mantiene prestada una conexión hasta que se cierra, así que debe
+     * usarse con try-with-resources. Las filas se leen del servidor en bloques de
+     * {@code db.fetchSize}.
+     *
+     * @return Stream perezoso de cobros (vacío si hubo un error al lanzar la consulta).
+     */
+    public Stream<Cobro> streamAll() {
+        return stream(stream_all_sql, pstm -> {});
+    }
+
+    /**
+     * Recorre los pagos de un usuario titular, ordenados por fecha, sin cargarlos en memoria.
+     * Debe cerrarse (try-with-resources).
+     *
+     * @param usuarioId ID del usuario titular.
+     * @return Stream perezoso de cobros.
+     */
+    public Stream<Cobro> streamByUsuarioId(int usuarioId) {
+        return stream(stream_by_usuario_id_sql, pstm -> pstm.setInt(1, usuarioId));
+    }
+
+    /**
+     * Recorre los cobros de un rango de fechas, ordenados por fecha, sin cargarlos en memoria.
+     * Debe cerrarse (try-with-resources).
+     *
+     * @param desde Fecha inicial (inclusiva).
+     * @param hasta Fecha final (inclusiva).
+     * @return Stream perezoso de cobros.
+     */
+    public Stream<Cobro> streamByFechas(LocalDate desde, LocalDate hasta) {
+        return stream(stream_by_fechas_sql, pstm -> {
+            CodecColumnas.setFecha(pstm, 1, desde);
+            CodecColumnas.setFecha(pstm, 2, hasta);
+        });
+    }
+
+    // Paginación por clave (keyset)
+
+    /**
+     * Devuelve la página de cobros siguiente a {@code ultimo}, en orden (fecha_cobro, id_cobro).
+     *
+     * A diferencia de OFFSET, el coste de cada página no crece con el número de página:
+     * la consulta continúa directamente desde la clave del último cobro visto usando el índice de fecha.
+     *
+     * @param ultimo Último cobro de la página anterior, o {@code null} para la primera.
+     * @param tamano Número máximo de cobros de la página.
+     * @return Página de cobros (vacía cuando no quedan más).
+     */
+    public List<Cobro> findPagina(Cobro ultimo, int tamano) {
+        return findPagina(pagina_all_sql, pstm -> asignarClave(pstm, 1, ultimo, tamano));
+    }
+
+    /**
+     * Página de los pagos de un usuario titular siguiente a {@code ultimo}.
+     *
+     * @param usuarioId ID del usuario titular.
+     * @param ultimo Último cobro de la página anterior, o {@code null} para la primera.
+     * @param tamano Número máximo de cobros de la página.
+     * @return Página de cobros.
+     */
+    public List<Cobro> findPaginaByUsuarioId(int usuarioId, Cobro ultimo, int tamano) {
+        return findPagina(pagina_by_usuario_id_sql, pstm -> {
+            pstm.setInt(1, usuarioId);
+            asignarClave(pstm, 2, ultimo, tamano);
+        });
+    }
+
+    /**
+     * Página de los cobros de un rango de fechas siguiente a {@code ultimo}.
+     *
+     * @param desde Fecha inicial (inclusiva).
+     * @param hasta Fecha final (inclusiva).
+     * @param ultimo Último cobro de la página anterior, o {@code null} para la primera.
+     * @param tamano Número máximo de cobros de la página.
+     * @return Página de cobros.
+     */
+    public List<Cobro> findPaginaByFechas(LocalDate desde, LocalDate hasta, Cobro ultimo, int tamano) {
+        return findPagina(pagina_by_fechas_sql, pstm -> {
+            CodecColumnas.setFecha(pstm, 1, desde);
+            CodecColumnas.setFecha(pstm, 2, hasta);
+            asignarClave(pstm, 3, ultimo, tamano);
+        });
+    }
+
+    /**
+     * Carga los cobros de un titular en un {@link HistorialCobros}, en orden de fecha.
+     * Lee solo las columnas que necesita, sin crear un {@link Cobro} por fila.
+     *
+     * @param usuarioId ID del titular.
+     * @param historial Historial vacío que se rellena.
+     */
+    void cargarHistorial(int usuarioId, HistorialCobros historial) throws SQLException {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(historial_by_usuario_id_sql)) {
+            pstm.setInt(1, usuarioId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    historial.anadir(rs.getInt(1), rs.getInt(2), rs.getLong(5), rs.getInt(4), rs.getInt(3));
+                }
+            }
+        }
+    }
+
     // Métodos privados auxiliares
 
+    /**
+     * Inserta los cobros y suma su contribución al resumen mensual en una transacción.
+     * Asigna a cada cobro su ID generado (vuelve a 0 si se deshace la transacción).
+     */
+    private void insertar(List<Cobro> cobros) throws SQLException {
+        if (cobros.isEmpty()) return;
+
+        List<Integer> ids = Transaccion.ejecutar(con -> {
+            List<Integer> claves = LoteJdbc.insertar(con, create_sql, cobros, this::asignarParametros);
+            ResumenMensualDAO.aplicarCobros(con, claves, 1);
+            return claves;
+        });
+        LoteJdbc.asignarClaves(cobros, ids, Cobro::setId_cobro);
+    }
+
+    /**
+     * Actualiza los cobros en una transacción: resta su contribución al resumen mensual,
+     * aplica el UPDATE y suma la nueva.
+     *
+     * @return Filas actualizadas.
+     */
+    private int actualizar(List<Cobro> cobros) throws SQLException {
+        if (cobros.isEmpty()) return 0;
+        List<Integer> ids = cobros.stream().map(Cobro::getId_cobro).toList();
+
+        return Transaccion.ejecutar(con -> {
+            ResumenMensualDAO.aplicarCobros(con, ids, -1);
+            int filas = LoteJdbc.ejecutar(con, update_sql, cobros, (pstm, cobro) -> {
+                asignarParametros(pstm, cobro);
+                pstm.setInt(6, cobro.getId_cobro());
+            });
+            ResumenMensualDAO.aplicarCobros(con, ids, 1);
+            return filas;
+        });
+    }
+
+    /**
+     * Borra los cobros en una transacción, restando antes su contribución al resumen mensual.
+     *
+     * @return Filas borradas.
+     */
+    private int eliminar(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return 0;
+
+        return Transaccion.ejecutar(con -> {
+            ResumenMensualDAO.aplicarCobros(con, ids, -1);
+            return LoteJdbc.ejecutar(con, delete_sql, ids, (pstm, id) -> pstm.setInt(1, id));
+        });
+    }
+
+    /**
+     * Lanza la consulta y devuelve un Stream que lee el ResultSet fila a fila.
+     * Al cerrar el Stream se cierran el ResultSet, la sentencia y se devuelve la conexión.
+     */
+    private Stream<Cobro> stream(String sql, Parametros parametros) {
+        Connection con = null;
+        PreparedStatement pstm = null;
+        try {
+            con = ConnectionDB.getConnectionLectura();
+            pstm = con.prepareStatement(sql);
+            pstm.setFetchSize(ConnectionDB.getTamanoFetch());
+            parametros.asignar(pstm);
+            ResultSet rs = pstm.executeQuery();
+
+            Spliterator<Cobro> filas = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Cobro> accion) {
+                    try {
+                        if (!rs.next()) return false;
+                        accion.accept(obtenerCobro(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Error leyendo cobros: " + e.getMessage(), e);
+                    }
+                }
+            };
+
+            Connection conexion = con;
+            PreparedStatement sentencia = pstm;
+            return StreamSupport.stream(filas, false).onClose(() -> cerrar(rs, sentencia, conexion));
+        } catch (SQLException e) {
+            System.out.println("Error abriendo stream de cobros: " + e.getMessage());
+            cerrar(null, pstm, con);
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Libera los recursos de un stream en orden inverso a su apertura.
+     */
+    private void cerrar(ResultSet rs, PreparedStatement pstm, Connection con) {
+        for (AutoCloseable recurso : new AutoCloseable[]{rs, pstm, con}) {
+            if (recurso == null) continue;
+            try {
+                recurso.close();
+            } catch (Exception e) {
+                System.out.println("Error cerrando stream de cobros: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Ejecuta una consulta de página y la materializa (como mucho {@code tamano} filas).
+     */
+    private List<Cobro> findPagina(String sql, Parametros parametros) {
+        List<Cobro> pagina = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(sql)) {
+            parametros.asignar(pstm);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                pagina.add(obtenerCobro(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo página de cobros: " + e.getMessage());
+        }
+        return pagina;
+    }
+
+    /**
+     * Asigna la clave de continuación (fecha, fecha, id) y el LIMIT a partir de la posición {@code inicio}.
+     * Para la primera página se usa una clave anterior a cualquier cobro.
+     */
+    private void asignarClave(PreparedStatement pstm, int inicio, Cobro ultimo, int tamano) throws SQLException {
+        long fecha = ultimo != null ? ultimo.getFecha_cobro().toEpochDay() : Long.MIN_VALUE;
+        int id = ultimo != null ? ultimo.getId_cobro() : Integer.MIN_VALUE;
+        pstm.setLong(inicio, fecha);
+        pstm.setLong(inicio + 1, fecha);
+        pstm.setInt(inicio + 2, id);
+        pstm.setInt(inicio + 3, tamano);
+    }
+
+    /**
+     * Asigna los parámetros comunes de INSERT y UPDATE (posiciones 1 a 5).
+     */
+    private void asignarParametros(PreparedStatement pstm, Cobro cobro) throws SQLException {
+        pstm.setInt(1, cobro.getSuscripcion().getIdSuscripcion());
+        CodecColumnas.setFecha(pstm, 2, cobro.getFecha_cobro());
+        CodecColumnas.setCodigo(pstm, 3, cobro.getMetodo_pago());
+        pstm.setString(4, cobro.getDescripcion());
+        pstm.setInt(5, cobro.getPeriodos_cubiertos());
+    }
+
     /**
      * Mapea un ResultSet a un objeto Cobro.
-     * Reconstruye también el objeto Suscripcion básico.
+     * Enlaza la suscripción de la caché si está cargada; si no, reconstruye un objeto Suscripcion básico
+     * (que no se guarda en la caché por estar incompleto).
      */
     private Cobro obtenerCobro(ResultSet rs) throws SQLException{
         Cobro cobro = new Cobro();
         cobro.setId_cobro(rs.getInt("id_cobro"));
 
-        cobro.setFecha_cobro(parsearFechaSegura(rs.getString("fecha_cobro")));
+        cobro.setFecha_cobro(CodecColumnas.getFecha(rs, "fecha_cobro"));
 
-        cobro.setMetodo_pago(MetodoPago.valueOf(rs.getString("metodo_pago")));
+        cobro.setMetodo_pago(CodecColumnas.getMetodoPago(rs, "metodo_pago"));
         cobro.setDescripcion(rs.getString("descripcion"));
         cobro.setPeriodos_cubiertos(rs.getInt("periodos_cubiertos"));
 
-        Suscripcion s = new Suscripcion();
-        s.setIdSuscripcion(rs.getInt("id_suscripcion"));
-        s.setNombre(rs.getString("nombre"));
-        s.setPrecio(rs.getDouble("precio"));
-        s.setCiclo(Ciclo.valueOf(rs.getString("ciclo")));
-        s.setCategoria(Categoria.valueOf(rs.getString("categoria")));
+        int idSuscripcion = rs.getInt("id_suscripcion");
+        Suscripcion s = SuscripcionDAO.enCache(idSuscripcion);
+        if (s == null) {
+            s = new Suscripcion();
+            s.setIdSuscripcion(idSuscripcion);
+            s.setNombre(rs.getString("nombre"));
+            s.setPrecioCentimos(rs.getLong("precio"));
+            s.setCiclo(CodecColumnas.getCiclo(rs, "ciclo"));
+            s.setCategoria(CodecColumnas.getCategoria(rs, "categoria"));
+        }
         cobro.setSuscripcion(s);
 
         return cobro;
     }
 
-    /**
-     * Método auxiliar para convertir fechas de SQLite/MySQL de forma robusta.
-     * Soporta tanto formato ISO (yyyy-MM-dd) como Timestamp (milisegundos).
-     */
-    private LocalDate parsearFechaSegura(String fechaStr) {
-        if (fechaStr == null || fechaStr.isEmpty()) return null;
-
-        try {
-            //MySQL
-            return LocalDate.parse(fechaStr);
-        } catch (Exception e) {
-            try {
-                // SQLite JDBC
-                long millis = Long.parseLong(fechaStr);
-                return java.time.Instant.ofEpochMilli(millis)
-                        .atZone(java.time.ZoneId.systemDefault())
-                        .toLocalDate();
-            } catch (Exception ex) {
-                System.err.println("Error fecha irrecuperable: " + fechaStr);
-                return null;
-            }
-        }
-    }
 }
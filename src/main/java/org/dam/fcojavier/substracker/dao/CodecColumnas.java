@@ -0,0 +1,75 @@
+package org.dam.fcojavier.substracker.dao;
+
+import org.dam.fcojavier.substracker.interfaces.Codificable;
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * Codificación de las columnas tipadas entre Java y la base de datos.
+ *
+ * Formato de almacenamiento (igual en MySQL y SQLite desde la migración V3):
+ * Fechas: número de días desde 1970-01-01 ({@link LocalDate#toEpochDay()}) en una columna entera.
+ * Enums: su código numérico ({@link Codificable#getCodigo()}) en una columna entera pequeña.
+ *
+ * Sustituye al antiguo {@code parsearFechaSegura} de cada DAO, que intentaba leer la fecha como
+ * texto ISO y, si fallaba, como milisegundos, lanzando y capturando una excepción por fila.
+ * Aquí la lectura es un {@code getLong}/{@code getInt} directo, sin parseo ni excepciones.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public final class CodecColumnas {
+
+    private CodecColumnas() {
+    }
+
+    // Fechas
+
+    /**
+     * Asigna una fecha (o NULL) a un parámetro.
+     */
+    public static void setFecha(PreparedStatement pstm, int indice, LocalDate fecha) throws SQLException {
+        if (fecha == null) {
+            pstm.setNull(indice, Types.INTEGER);
+        } else {
+            pstm.setLong(indice, fecha.toEpochDay());
+        }
+    }
+
+    /**
+     * Lee una fecha guardada como día epoch.
+     * @return La fecha, o {@code null} si la columna es NULL.
+     */
+    public static LocalDate getFecha(ResultSet rs, String columna) throws SQLException {
+        long dia = rs.getLong(columna);
+        return rs.wasNull() ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    // Enums
+
+    /**
+     * Asigna el código de un enum a un parámetro.
+     */
+    public static void setCodigo(PreparedStatement pstm, int indice, Codificable valor) throws SQLException {
+        pstm.setInt(indice, valor.getCodigo());
+    }
+
+    public static Ciclo getCiclo(ResultSet rs, String columna) throws SQLException {
+        return Ciclo.desdeCodigo(rs.getInt(columna));
+    }
+
+    public static Categoria getCategoria(ResultSet rs, String columna) throws SQLException {
+        return Categoria.desdeCodigo(rs.getInt(columna));
+    }
+
+    public static MetodoPago getMetodoPago(ResultSet rs, String columna) throws SQLException {
+        return MetodoPago.desdeCodigo(rs.getInt(columna));
+    }
+}
@@ -0,0 +1,406 @@
+package org.dam.fcojavier.substracker.dao;
+
+import org.dam.fcojavier.substracker.model.Cobro;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historial de cobros de un usuario en formato columnar, para informes y estadísticas.
+ *
+ * Recorrer una {@code List<Cobro>} obliga a saltar por cada objeto, su {@code LocalDate} y su copia de
+ * la {@link Suscripcion}. Aquí cada cobro es una posición en unos pocos arrays primitivos paralelos,
+ * ordenados por fecha:
+ * - {@code dia}: fecha del cobro en días desde la época (como en la base de datos).
+ * - {@code suscripcion}: índice en un diccionario de suscripciones ({@code idSuscripcion} y precio en
+ *   céntimos); un {@code int} por fila en lugar de un objeto.
+ * - {@code centimos}: importe del cobro, {@code precio × periodos_cubiertos} en céntimos.
+ * - {@code metodo}: código de {@link MetodoPago} en un byte.
+ * Son unos 17 bytes por cobro: décadas de historial caben en pocos MB, y las agregaciones son
+ * recorridos secuenciales con búsqueda binaria para acotar el rango de fechas.
+ *
+ * Ciclo de vida (como {@link IndiceVencimientos}):
+ * - Se carga con una única consulta de {@link CobroDAO} la primera vez que se pide el de un usuario.
+ * - {@link CobroDAO} le añade los cobros que inserta; si un cobro se modifica o se borra, o cambia el
+ *   precio de una suscripción (el importe depende de él), se descarta y se recarga al volver a usarlo.
+ * - Se descartan todos al vaciar las cachés de entidades y, pasado un tiempo, por si otro cliente ha
+ *   cambiado las filas.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public final class HistorialCobros {
+
+    /**
+     * Total acumulado de una suscripción.
+     *
+     * @param idSuscripcion ID de la suscripción.
+     * @param centimos Importe total, en céntimos.
+     * @param cobros Número de cobros sumados.
+     */
+    public record Total(int idSuscripcion, long centimos, int cobros) {
+    }
+
+    /** Tiempo tras el que se vuelve a cargar desde la base de datos (el mismo que la caché de suscripciones). */
+    private static final Duration VIGENCIA = Duration.ofMinutes(10);
+    private static final int CAPACIDAD_INICIAL = 256;
+
+    /** Historiales cargados, por ID de usuario. */
+    private static final Map<Integer, HistorialCobros> porUsuario = new ConcurrentHashMap<>();
+
+    static {
+        CacheEntidades.alVaciarTodas(HistorialCobros::invalidarTodos);
+    }
+
+    private final int idUsuario;
+    private final long cargadoEn = System.currentTimeMillis();
+
+    // Columnas
+    private int[] dia = new int[CAPACIDAD_INICIAL];
+    private int[] suscripcion = new int[CAPACIDAD_INICIAL];
+    private long[] centimos = new long[CAPACIDAD_INICIAL];
+    private byte[] metodo = new byte[CAPACIDAD_INICIAL];
+    private int tamano = 0;
+    /** Si las filas siguen ordenadas por día (un alta con fecha pasada lo rompe hasta la siguiente consulta). */
+    private boolean ordenado = true;
+
+    // Diccionario de suscripciones
+    private int[] idSuscripcion = new int[16];
+    private long[] precioCentimos = new long[16];
+    private int suscripciones = 0;
+    private final Map<Integer, Integer> posicion = new HashMap<>();
+
+    private HistorialCobros(int idUsuario) {
+        this.idUsuario = idUsuario;
+    }
+
+    /**
+     * Historial de cobros de un usuario (como titular), cargándolo si hace falta.
+     *
+     * @param idUsuario ID del usuario.
+     * @return Historial; vacío si no se pudo leer de la base de datos.
+     */
+    public static HistorialCobros delUsuario(int idUsuario) {
+        HistorialCobros historial = porUsuario.get(idUsuario);
+        if (historial != null && System.currentTimeMillis() - historial.cargadoEn < VIGENCIA.toMillis()) {
+            return historial;
+        }
+        synchronized (HistorialCobros.class) {
+            historial = porUsuario.get(idUsuario);
+            if (historial != null && System.currentTimeMillis() - historial.cargadoEn < VIGENCIA.toMillis()) {
+                return historial;
+            }
+            historial = new HistorialCobros(idUsuario);
+            try {
+                new CobroDAO().cargarHistorial(idUsuario, historial);
+                porUsuario.put(idUsuario, historial);
+            } catch (SQLException e) {
+                System.out.println("Error cargando el historial de cobros: " + e.getMessage());
+            }
+            return historial;
+        }
+    }
+
+    // Consultas
+
+    /** @return ID del usuario del historial. */
+    public int getIdUsuario() {
+        return idUsuario;
+    }
+
+    /** @return Número de cobros. */
+    public synchronized int getTamano() {
+        return tamano;
+    }
+
+    /** @return Memoria aproximada que ocupan las columnas y el diccionario, en bytes. */
+    public synchronized long getBytes() {
+        return dia.length * (4L + 4 + 8 + 1) + idSuscripcion.length * (4L + 8);
+    }
+
+    /**
+     * Importe total de los cobros entre dos fechas, ambas incluidas.
+     *
+     * @return Suma en céntimos.
+     */
+    public synchronized long sumaEntre(LocalDate desde, LocalDate hasta) {
+        ordenar();
+        long suma = 0;
+        for (int i = primeraFila(desde), fin = primeraFila(hasta.plusDays(1)); i < fin; i++) {
+            suma += centimos[i];
+        }
+        return suma;
+    }
+
+    /**
+     * Número de cobros entre dos fechas, ambas incluidas.
+     */
+    public synchronized int contarEntre(LocalDate desde, LocalDate hasta) {
+        ordenar();
+        return Math.max(0, primeraFila(hasta.plusDays(1)) - primeraFila(desde));
+    }
+
+    /**
+     * Importe cobrado en cada mes de un rango.
+     *
+     * @param desde Primer mes.
+     * @param meses Número de meses.
+     * @return Array con un total en céntimos por mes ({@code [0]} es {@code desde}).
+     */
+    public synchronized long[] sumaPorMes(YearMonth desde, int meses) {
+        long[] totales = new long[Math.max(0, meses)];
+        if (meses <= 0) return totales;
+        ordenar();
+
+        // Día en que empieza cada mes: un único recorrido que avanza de mes al cruzar cada límite
+        int[] limites = new int[meses + 1];
+        for (int m = 0; m <= meses; m++) {
+            limites[m] = (int) desde.plusMonths(m).atDay(1).toEpochDay();
+        }
+        int mes = 0;
+        for (int i = primeraFila(limites[0]), fin = primeraFila(limites[meses]); i < fin; i++) {
+            while (dia[i] >= limites[mes + 1]) mes++;
+            totales[mes] += centimos[i];
+        }
+        return totales;
+    }
+
+    /**
+     * Importe por método de pago entre dos fechas, ambas incluidas.
+     *
+     * @return Total en céntimos de cada método con algún cobro.
+     */
+    public synchronized Map<MetodoPago, Long> sumaPorMetodo(LocalDate desde, LocalDate hasta) {
+        ordenar();
+        long[] porCodigo = new long[Byte.MAX_VALUE + 1];
+        boolean[] usado = new boolean[porCodigo.length];
+        for (int i = primeraFila(desde), fin = primeraFila(hasta.plusDays(1)); i < fin; i++) {
+            porCodigo[metodo[i]] += centimos[i];
+            usado[metodo[i]] = true;
+        }
+
+        Map<MetodoPago, Long> resultado = new EnumMap<>(MetodoPago.class);
+        for (MetodoPago m : MetodoPago.values()) {
+            if (usado[m.getCodigo()]) resultado.put(m, porCodigo[m.getCodigo()]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Importe por suscripción entre dos fechas, ambas incluidas.
+     *
+     * @return Total en céntimos por ID de suscripción, en el orden en que aparecen por primera vez.
+     */
+    public synchronized Map<Integer, Long> sumaPorSuscripcion(LocalDate desde, LocalDate hasta) {
+        long[] suma = new long[suscripciones];
+        int[] cobros = new int[suscripciones];
+        acumularPorSuscripcion(desde, hasta, suma, cobros);
+
+        Map<Integer, Long> resultado = new LinkedHashMap<>();
+        for (int s = 0; s < suscripciones; s++) {
+            if (cobros[s] > 0) resultado.put(idSuscripcion[s], suma[s]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Las {@code n} suscripciones con más importe cobrado entre dos fechas, ambas incluidas.
+     *
+     * @return Totales de mayor a menor importe.
+     */
+    public synchronized List<Total> topSuscripciones(LocalDate desde, LocalDate hasta, int n) {
+        long[] suma = new long[suscripciones];
+        int[] cobros = new int[suscripciones];
+        acumularPorSuscripcion(desde, hasta, suma, cobros);
+
+        // Montículo de mínimos con los n mejores vistos hasta ahora
+        PriorityQueue<Integer> mejores = new PriorityQueue<>(Math.max(1, n),
+                (a, b) -> suma[a] != suma[b] ? Long.compare(suma[a], suma[b]) : Integer.compare(idSuscripcion[b], idSuscripcion[a]));
+        for (int s = 0; s < suscripciones && n > 0; s++) {
+            if (cobros[s] == 0) continue;
+            mejores.add(s);
+            if (mejores.size() > n) mejores.poll();
+        }
+
+        Total[] resultado = new Total[mejores.size()];
+        for (int i = resultado.length - 1; i >= 0; i--) {
+            int s = mejores.poll();
+            resultado[i] = new Total(idSuscripcion[s], suma[s], cobros[s]);
+        }
+        return List.of(resultado);
+    }
+
+    // Mantenimiento desde los DAOs
+
+    /**
+     * Añade una fila leída de la base de datos (en orden de fecha).
+     */
+    void anadir(int diaCobro, int idSusc, long precio, int periodos, int codigoMetodo) {
+        int s = registrarSuscripcion(idSusc, precio);
+        if (tamano == dia.length) crecer();
+        if (tamano > 0 && diaCobro < dia[tamano - 1]) ordenado = false;
+        dia[tamano] = diaCobro;
+        suscripcion[tamano] = s;
+        centimos[tamano] = precio * periodos;
+        metodo[tamano] = (byte) codigoMetodo;
+        tamano++;
+    }
+
+    /**
+     * Añade los cobros recién insertados a los historiales cargados de sus titulares.
+     * Si no se conoce el titular de algún cobro, se descartan todos.
+     *
+     * @param cobros Cobros confirmados.
+     */
+    static void anotar(Collection<Cobro> cobros) {
+        if (porUsuario.isEmpty()) return;
+        for (Cobro c : cobros) {
+            Suscripcion s = c.getSuscripcion();
+            if (s.getTitular() == null || c.getFecha_cobro() == null || c.getMetodo_pago() == null) {
+                invalidarTodos();
+                return;
+            }
+            HistorialCobros historial = porUsuario.get(s.getTitular().getId_usuario());
+            if (historial == null) continue;
+            synchronized (historial) {
+                historial.anadir((int) c.getFecha_cobro().toEpochDay(), s.getIdSuscripcion(), s.getPrecioCentimos(),
+                        c.getPeriodos_cubiertos(), c.getMetodo_pago().getCodigo());
+            }
+        }
+    }
+
+    /**
+     * Descarta los historiales en los que aparece la suscripción si ha cambiado su precio o su titular.
+     *
+     * @param s Suscripción tal como se ha guardado.
+     */
+    static void suscripcionGuardada(Suscripcion s) {
+        if (porUsuario.isEmpty()) return;
+        long precio = s.getPrecioCentimos();
+        int titular = s.getTitular() != null ? s.getTitular().getId_usuario() : -1;
+        porUsuario.values().removeIf(h -> {
+            synchronized (h) {
+                Integer pos = h.posicion.get(s.getIdSuscripcion());
+                return pos != null && (h.precioCentimos[pos] != precio || h.idUsuario != titular);
+            }
+        });
+    }
+
+    /**
+     * Descarta los historiales en los que aparecen suscripciones borradas (sus cobros se borran con ellas).
+     *
+     * @param ids IDs de las suscripciones.
+     */
+    static void suscripcionesBorradas(Collection<Integer> ids) {
+        if (porUsuario.isEmpty()) return;
+        porUsuario.values().removeIf(h -> {
+            synchronized (h) {
+                for (int id : ids) {
+                    if (h.posicion.containsKey(id)) return true;
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Descarta todos los historiales; se vuelven a cargar al pedirlos.
+     */
+    public static void invalidarTodos() {
+        porUsuario.clear();
+    }
+
+    // Métodos privados
+
+    private void acumularPorSuscripcion(LocalDate desde, LocalDate hasta, long[] suma, int[] cobros) {
+        ordenar();
+        for (int i = primeraFila(desde), fin = primeraFila(hasta.plusDays(1)); i < fin; i++) {
+            suma[suscripcion[i]] += centimos[i];
+            cobros[suscripcion[i]]++;
+        }
+    }
+
+    /**
+     * Primera fila con fecha igual o posterior a la indicada (búsqueda binaria).
+     */
+    private int primeraFila(LocalDate fecha) {
+        return primeraFila(fecha.toEpochDay());
+    }
+
+    private int primeraFila(long diaBuscado) {
+        int bajo = 0;
+        int alto = tamano;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (dia[medio] < diaBuscado) bajo = medio + 1;
+            else alto = medio;
+        }
+        return bajo;
+    }
+
+    /**
+     * Reordena las filas por día si algún alta llegó fuera de orden. La ordenación es estable:
+     * la clave combina el día y la posición actual, y luego se permutan las columnas.
+     */
+    private void ordenar() {
+        if (ordenado) return;
+        long[] claves = new long[tamano];
+        for (int i = 0; i < tamano; i++) {
+            claves[i] = ((long) dia[i] << 32) | i;
+        }
+        Arrays.sort(claves);
+
+        int[] nuevoDia = new int[dia.length];
+        int[] nuevaSuscripcion = new int[dia.length];
+        long[] nuevosCentimos = new long[dia.length];
+        byte[] nuevoMetodo = new byte[dia.length];
+        for (int i = 0; i < tamano; i++) {
+            int origen = (int) claves[i];
+            nuevoDia[i] = dia[origen];
+            nuevaSuscripcion[i] = suscripcion[origen];
+            nuevosCentimos[i] = centimos[origen];
+            nuevoMetodo[i] = metodo[origen];
+        }
+        dia = nuevoDia;
+        suscripcion = nuevaSuscripcion;
+        centimos = nuevosCentimos;
+        metodo = nuevoMetodo;
+        ordenado = true;
+    }
+
+    private int registrarSuscripcion(int id, long precio) {
+        Integer pos = posicion.get(id);
+        if (pos != null) return pos;
+
+        if (suscripciones == idSuscripcion.length) {
+            idSuscripcion = Arrays.copyOf(idSuscripcion, suscripciones * 2);
+            precioCentimos = Arrays.copyOf(precioCentimos, suscripciones * 2);
+        }
+        idSuscripcion[suscripciones] = id;
+        precioCentimos[suscripciones] = precio;
+        posicion.put(id, suscripciones);
+        return suscripciones++;
+    }
+
+    private void crecer() {
+        int capacidad = dia.length * 2;
+        dia = Arrays.copyOf(dia, capacidad);
+        suscripcion = Arrays.copyOf(suscripcion, capacidad);
+        centimos = Arrays.copyOf(centimos, capacidad);
+        metodo = Arrays.copyOf(metodo, capacidad);
+    }
+}
@@ -0,0 +1,231 @@
+package org.dam.fcojavier.substracker.dao;
+
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice en memoria de las próximas renovaciones de las suscripciones activas, ordenado por fecha,
+ * de todos los usuarios y dentro de cada titular.
+ *
+ * Responde "qué vence hasta tal día" o "cuál es la próxima renovación" de un usuario, y "qué se renueva
+ * en los próximos N días" de todos los usuarios, sin cargar suscripciones: hay una lista de saltos
+ * ({@link ConcurrentSkipListMap}) global y otra por titular, cuya clave combina el día de renovación
+ * (días desde la época) y el ID de la suscripción, así que una consulta cuesta O(log n + k). Las
+ * lecturas no bloquean. Lo usa {@code PlanificadorRenovaciones} para saber qué renovar y cuándo despertarse.
+ *
+ * Se carga con una única consulta la primera vez que se usa y {@link SuscripcionDAO} lo mantiene al
+ * día en cada alta, modificación y borrado confirmados. Se descarta (y se recarga al volver a usarlo)
+ * cuando se vacían las cachés de entidades (transacción deshecha, cambio de base de datos,
+ * sincronización), al borrar usuarios y, como la caché, pasado un tiempo por si otro cliente ha
+ * cambiado las filas.
+ *
+ * @author Fco Javier García
+ * @version 1.2
+ */
+public final class IndiceVencimientos {
+
+    /**
+     * Próxima renovación de una suscripción.
+     *
+     * @param idSuscripcion ID de la suscripción.
+     * @param idTitular ID de su titular.
+     * @param fecha Fecha de renovación.
+     */
+    public record Vencimiento(int idSuscripcion, int idTitular, LocalDate fecha) {
+    }
+
+    /** Tiempo tras el que se vuelve a cargar desde la base de datos (el mismo que la caché de suscripciones). */
+    private static final Duration VIGENCIA = Duration.ofMinutes(10);
+    private static final String cargar_sql = "SELECT id_suscripcion, id_titular, fecha_renovacion FROM suscripcion "
+            + "WHERE activo = ? AND fecha_renovacion IS NOT NULL";
+
+    /** Renovaciones de todos los titulares, por fecha. */
+    private static final ConcurrentSkipListMap<Long, Vencimiento> todas = new ConcurrentSkipListMap<>();
+    /** Renovaciones de cada titular, por fecha. */
+    private static final Map<Integer, ConcurrentSkipListMap<Long, Vencimiento>> porTitular = new ConcurrentHashMap<>();
+    /** Entrada actual de cada suscripción, para moverla al cambiar de fecha o de titular. */
+    private static final Map<Integer, Vencimiento> actuales = new ConcurrentHashMap<>();
+    private static volatile boolean cargado = false;
+    private static volatile long cargadoEn = 0;
+
+    static {
+        CacheEntidades.alVaciarTodas(IndiceVencimientos::invalidar);
+    }
+
+    private IndiceVencimientos() {
+    }
+
+    // Consultas
+
+    /**
+     * Renovaciones de un titular hasta una fecha, incluida (las que ya tocan si es hoy), en orden de fecha.
+     *
+     * @param idTitular ID del titular.
+     * @param dia Último día.
+     * @return Vencimientos del titular hasta ese día.
+     */
+    public static List<Vencimiento> hasta(int idTitular, LocalDate dia) {
+        asegurarCargado();
+        ConcurrentSkipListMap<Long, Vencimiento> delTitular = porTitular.get(idTitular);
+        if (delTitular == null) return List.of();
+        return new ArrayList<>(delTitular.headMap(clave(dia.toEpochDay() + 1, 0)).values());
+    }
+
+    /**
+     * Las {@code k} primeras renovaciones de un titular a partir de una fecha (incluida).
+     *
+     * @param idTitular ID del titular.
+     * @param desde Primer día.
+     * @param k Número máximo de resultados.
+     * @return Vencimientos en orden de fecha.
+     */
+    public static List<Vencimiento> proximos(int idTitular, LocalDate desde, int k) {
+        asegurarCargado();
+        ConcurrentSkipListMap<Long, Vencimiento> delTitular = porTitular.get(idTitular);
+        if (delTitular == null) return List.of();
+        return primeros(delTitular.tailMap(clave(desde.toEpochDay(), 0)), k);
+    }
+
+    /**
+     * Renovaciones de todos los titulares entre dos fechas, incluidas, en orden de fecha.
+     *
+     * @param desde Primer día.
+     * @param hasta Último día.
+     * @return Vencimientos entre esas fechas.
+     */
+    public static List<Vencimiento> entre(LocalDate desde, LocalDate hasta) {
+        asegurarCargado();
+        if (hasta.isBefore(desde)) return List.of();
+        return new ArrayList<>(todas.subMap(clave(desde.toEpochDay(), 0), clave(hasta.toEpochDay() + 1, 0)).values());
+    }
+
+    /**
+     * Las {@code k} primeras renovaciones de todos los titulares a partir de una fecha (incluida).
+     *
+     * @param desde Primer día.
+     * @param k Número máximo de resultados.
+     * @return Vencimientos en orden de fecha.
+     */
+    public static List<Vencimiento> proximos(LocalDate desde, int k) {
+        asegurarCargado();
+        return primeros(todas.tailMap(clave(desde.toEpochDay(), 0)), k);
+    }
+
+    /**
+     * @return Suscripciones activas en el índice.
+     */
+    public static int getTamano() {
+        asegurarCargado();
+        return actuales.size();
+    }
+
+    // Mantenimiento desde los DAOs
+
+    /**
+     * Añade, mueve o quita (si está inactiva o sin fecha) una suscripción tras una escritura confirmada.
+     *
+     * @param suscripcion Suscripción tal como se ha guardado.
+     */
+    static synchronized void registrar(Suscripcion suscripcion) {
+        if (!cargado) return; // se leerá de la base de datos al cargarlo
+        quitarDeIndice(suscripcion.getIdSuscripcion());
+        if (suscripcion.isActivo() && suscripcion.getFechaRenovacion() != null && suscripcion.getTitular() != null) {
+            colocar(new Vencimiento(suscripcion.getIdSuscripcion(), suscripcion.getTitular().getId_usuario(),
+                    suscripcion.getFechaRenovacion()));
+        }
+    }
+
+    /**
+     * Quita suscripciones borradas.
+     *
+     * @param ids IDs de las suscripciones.
+     */
+    static synchronized void quitar(Collection<Integer> ids) {
+        if (!cargado) return;
+        for (int id : ids) quitarDeIndice(id);
+    }
+
+    /**
+     * Descarta el índice; la siguiente consulta lo vuelve a cargar.
+     */
+    public static synchronized void invalidar() {
+        cargado = false;
+        todas.clear();
+        porTitular.clear();
+        actuales.clear();
+    }
+
+    // Métodos privados
+
+    private static void asegurarCargado() {
+        if (cargado && System.currentTimeMillis() - cargadoEn < VIGENCIA.toMillis()) return;
+        cargar();
+    }
+
+    private static synchronized void cargar() {
+        if (cargado && System.currentTimeMillis() - cargadoEn < VIGENCIA.toMillis()) return;
+
+        todas.clear();
+        porTitular.clear();
+        actuales.clear();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(cargar_sql)) {
+            pstm.setBoolean(1, true);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    colocar(new Vencimiento(rs.getInt("id_suscripcion"), rs.getInt("id_titular"),
+                            CodecColumnas.getFecha(rs, "fecha_renovacion")));
+                }
+            }
+            cargado = true;
+            cargadoEn = System.currentTimeMillis();
+        } catch (SQLException e) {
+            System.out.println("Error cargando el índice de vencimientos: " + e.getMessage());
+        }
+    }
+
+    private static List<Vencimiento> primeros(Map<Long, Vencimiento> desde, int k) {
+        List<Vencimiento> resultado = new ArrayList<>(Math.min(k, 64));
+        for (Vencimiento v : desde.values()) {
+            if (resultado.size() >= k) break;
+            resultado.add(v);
+        }
+        return resultado;
+    }
+
+    private static void colocar(Vencimiento vencimiento) {
+        long clave = clave(vencimiento.fecha().toEpochDay(), vencimiento.idSuscripcion());
+        todas.put(clave, vencimiento);
+        porTitular.computeIfAbsent(vencimiento.idTitular(), id -> new ConcurrentSkipListMap<>()).put(clave, vencimiento);
+        actuales.put(vencimiento.idSuscripcion(), vencimiento);
+    }
+
+    private static void quitarDeIndice(int idSuscripcion) {
+        Vencimiento anterior = actuales.remove(idSuscripcion);
+        if (anterior == null) return;
+        long clave = clave(anterior.fecha().toEpochDay(), idSuscripcion);
+        todas.remove(clave);
+        ConcurrentSkipListMap<Long, Vencimiento> delTitular = porTitular.get(anterior.idTitular());
+        if (delTitular != null) delTitular.remove(clave);
+    }
+
+    /**
+     * Clave ordenada por día y, dentro del día, por ID (los IDs son positivos y caben en 32 bits).
+     */
+    private static long clave(long dia, int idSuscripcion) {
+        return (dia << 32) + idSuscripcion;
+    }
+}
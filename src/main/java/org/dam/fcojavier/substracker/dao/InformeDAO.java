@@ -0,0 +1,122 @@
+package org.dam.fcojavier.substracker.dao;
+
+import org.dam.fcojavier.substracker.model.GastoCategoria;
+import org.dam.fcojavier.substracker.model.GastoServicio;
+import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clase de Acceso a Datos de solo lectura para los informes financieros.
+ *
+ * En lugar de cargar las suscripciones y sus colaboradores para sumar en Java, cada informe se
+ * resuelve con una única consulta agregada en la base de datos:
+ * La aportación de los colaboradores se suma con una subconsulta por suscripción (índice {@code idx_participa_suscripcion}).
+ * La normalización a base mensual se hace en SQL dividiendo entre los meses del ciclo
+ * ({@code CASE} generado a partir de {@link Ciclo#getMeses()}).
+ * El gasto neto (precio menos aportaciones) nunca es negativo.
+ * Importes en céntimos: el coste y la aportación mensuales de cada suscripción se redondean al céntimo
+ * antes de sumar, así que los totales son sumas enteras exactas.
+ *
+ * Solo se tienen en cuenta las suscripciones activas del titular.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class InformeDAO {
+    /** Meses del ciclo de la suscripción {@code s}, para dividir los importes. */
+    private static final String MESES_CICLO = mesesCiclo("s.ciclo");
+
+    /** Coste y aportación mensuales de cada suscripción activa del titular. */
+    private final String SERVICIOS_BASE =
+            "SELECT s.id_suscripcion, s.nombre, s.categoria, " +
+                    "ROUND(s.precio / " + MESES_CICLO + ") AS coste_mes, " +
+                    "ROUND(COALESCE((SELECT SUM(p.cantidadApagar) FROM participa p WHERE p.id_suscripcion = s.id_suscripcion), 0) / " + MESES_CICLO + ") AS aporte_mes " +
+                    "FROM suscripcion s " +
+                    "WHERE s.id_titular = ? AND s.activo = ?";
+    private final String NETO = "CASE WHEN t.coste_mes > t.aporte_mes THEN t.coste_mes - t.aporte_mes ELSE 0 END";
+
+    private final String gasto_por_categoria_sql =
+            "SELECT t.categoria, SUM(" + NETO + ") AS gasto_neto, SUM(t.aporte_mes) AS ahorro, COUNT(*) AS num_suscripciones " +
+                    "FROM (" + SERVICIOS_BASE + ") t " +
+                    "GROUP BY t.categoria";
+    private final String top_servicios_sql =
+            "SELECT t.id_suscripcion, t.nombre, t.categoria, " + NETO + " AS gasto_neto " +
+                    "FROM (" + SERVICIOS_BASE + ") t " +
+                    "ORDER BY gasto_neto DESC, t.id_suscripcion " +
+                    "LIMIT ?";
+
+    /**
+     * Calcula el gasto mensual neto y el ahorro por colaboradores de cada categoría.
+     *
+     * Los totales globales (gasto neto mensual y ahorro) son la suma de las filas devueltas.
+     *
+     * @param idTitular ID del usuario titular.
+     * @return Una fila por categoría con suscripciones activas (vacía si no hay o hubo error).
+     */
+    public List<GastoCategoria> findGastoPorCategoria(int idTitular) {
+        List<GastoCategoria> categorias = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(gasto_por_categoria_sql)) {
+            pstm.setInt(1, idTitular);
+            pstm.setBoolean(2, true);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                categorias.add(new GastoCategoria(
+                        CodecColumnas.getCategoria(rs, "categoria"),
+                        rs.getLong("gasto_neto"),
+                        rs.getLong("ahorro"),
+                        rs.getInt("num_suscripciones")));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error calculando gasto por categoría: " + e.getMessage());
+        }
+        return categorias;
+    }
+
+    /**
+     * Obtiene las suscripciones activas con mayor gasto mensual neto para el titular.
+     *
+     * @param idTitular ID del usuario titular.
+     * @param limite Número máximo de servicios (por ejemplo 3 para el "Top 3").
+     * @return Servicios ordenados de mayor a menor gasto (vacía si no hay o hubo error).
+     */
+    public List<GastoServicio> findTopServicios(int idTitular, int limite) {
+        List<GastoServicio> servicios = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(top_servicios_sql)) {
+            pstm.setInt(1, idTitular);
+            pstm.setBoolean(2, true);
+            pstm.setInt(3, limite);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                servicios.add(new GastoServicio(
+                        rs.getInt("id_suscripcion"),
+                        rs.getString("nombre"),
+                        CodecColumnas.getCategoria(rs, "categoria"),
+                        rs.getLong("gasto_neto")));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo servicios más costosos: " + e.getMessage());
+        }
+        return servicios;
+    }
+
+    // Métodos privados
+
+    /**
+     * Genera {@code CASE columna WHEN codigo THEN meses ... END} con todos los ciclos.
+     * Los meses se escriben como decimales para que la división no sea entera.
+     */
+    private static String mesesCiclo(String columna) {
+        StringBuilder sql = new StringBuilder("(CASE ").append(columna);
+        for (Ciclo ciclo : Ciclo.values()) {
+            sql.append(" WHEN ").append(ciclo.getCodigo()).append(" THEN ").append(ciclo.getMeses()).append(".0");
+        }
+        return sql.append(" ELSE 1.0 END)").toString();
+    }
+}
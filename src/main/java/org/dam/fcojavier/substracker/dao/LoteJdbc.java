@@ -0,0 +1,206 @@
+package org.dam.fcojavier.substracker.dao;
+
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Utilidad interna de los DAOs para escrituras por lotes (JDBC Batch).
+ *
+ * Todas las filas de una operación se envían con {@code addBatch}/{@code executeBatch}
+ * dentro de una única transacción: o se guardan todas o ninguna, y el coste de confirmar
+ * (commit/fsync) se paga una sola vez en lugar de una por fila.
+ *
+ * Los lotes muy grandes se envían en tramos de {@link #TAMANO_TRAMO} filas para no
+ * acumular en memoria todo el lote en el driver, pero siguen en la misma transacción.
+ *
+ * Cada lote se ejecuta con {@link Transaccion}, así que si ya hay una transacción abierta en el hilo
+ * (una acción del usuario con varios pasos) el lote se une a ella. Las variantes de
+ * {@code insertar}/{@code ejecutar} que reciben una {@link Connection} no confirman y se usan dentro de
+ * un {@link Transaccion#ejecutar} del DAO (la escritura y el mantenimiento de {@code resumen_mensual}).
+ *
+ * @author Fco Javier García
+ * @version 1.3
+ */
+final class LoteJdbc {
+
+    /** Filas acumuladas antes de enviar cada {@code executeBatch}. */
+    static final int TAMANO_TRAMO = 500;
+
+    /**
+     * Asigna los parámetros de la sentencia a partir de un elemento del lote.
+     * @param <T> Tipo del elemento.
+     */
+    @FunctionalInterface
+    interface Parametros<T> {
+        void asignar(PreparedStatement pstm, T elemento) throws SQLException;
+    }
+
+    private LoteJdbc() {
+    }
+
+    /**
+     * Inserta un lote de entidades y les asigna las claves generadas.
+     *
+     * Las claves se asignan a las entidades en cuanto se insertan, porque las siguientes sentencias de la
+ * misma transacción pueden necesitarlas; si la transacción (la exterior, si el lote se une a una) se
+ * deshace, se vuelven a poner a 0.
+     * MySQL devuelve todas las claves del lote; el driver de SQLite no devuelve ninguna tras
+     * {@code executeBatch}, así que se consulta {@code last_insert_rowid()} y se deducen las
+     * anteriores, que son consecutivas porque la transacción tiene el bloqueo de escritura mientras inserta.
+     *
+     * @param sql Sentencia INSERT.
+     * @param entidades Entidades a insertar.
+     * @param parametros Asignación de parámetros de cada entidad.
+     * @param asignarId Recibe cada entidad con su clave generada.
+     * @param <T> Tipo de la entidad.
+     * @throws SQLException Si falla cualquier fila (se deshace todo el lote).
+     */
+    static <T> void insertar(String sql, List<T> entidades, Parametros<T> parametros,
+                             ObjIntConsumer<T> asignarId) throws SQLException {
+        if (entidades.isEmpty()) return;
+
+        List<Integer> claves = Transaccion.ejecutar(con -> insertar(con, sql, entidades, parametros));
+        asignarClaves(entidades, claves, asignarId);
+    }
+
+    /**
+     * Inserta un lote de entidades en la transacción en curso, sin confirmarla.
+     *
+     * @param con Conexión con la transacción abierta.
+     * @param sql Sentencia INSERT.
+     * @param entidades Entidades a insertar.
+     * @param parametros Asignación de parámetros de cada entidad.
+     * @param <T> Tipo de la entidad.
+     * @return Claves generadas, en el orden de las entidades.
+     * @throws SQLException Si falla cualquier fila.
+     */
+    static <T> List<Integer> insertar(Connection con, String sql, List<T> entidades, Parametros<T> parametros) throws SQLException {
+        List<Integer> claves = new ArrayList<>(entidades.size());
+        try (PreparedStatement pstm = con.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            for (int inicio = 0; inicio < entidades.size(); inicio += TAMANO_TRAMO) {
+                List<T> tramo = entidades.subList(inicio, Math.min(inicio + TAMANO_TRAMO, entidades.size()));
+                for (T entidad : tramo) {
+                    parametros.asignar(pstm, entidad);
+                    pstm.addBatch();
+                }
+                comprobarResultados(pstm.executeBatch());
+                leerClaves(con, pstm, tramo.size(), claves);
+            }
+        }
+        return claves;
+    }
+
+    /**
+     * Asigna a cada entidad su clave generada y, si hay una transacción exterior abierta, deja
+     * preparado volver a ponerlas a 0 si se deshace.
+     *
+     * @param entidades Entidades insertadas.
+     * @param claves Claves en el mismo orden.
+     * @param asignarId Recibe cada entidad con su clave.
+     * @param <T> Tipo de la entidad.
+     */
+    static <T> void asignarClaves(List<T> entidades, List<Integer> claves, ObjIntConsumer<T> asignarId) {
+        for (int i = 0; i < entidades.size(); i++) {
+            asignarId.accept(entidades.get(i), claves.get(i));
+        }
+        Transaccion.alDeshacer(() -> {
+            for (T entidad : entidades) asignarId.accept(entidad, 0);
+        });
+    }
+
+    /**
+     * Ejecuta la misma sentencia (UPDATE o DELETE) para cada elemento del lote.
+     *
+     * @param sql Sentencia a ejecutar.
+     * @param elementos Elementos del lote (entidades o identificadores).
+     * @param parametros Asignación de parámetros de cada elemento.
+     * @param <T> Tipo del elemento.
+     * @return Número total de filas afectadas.
+     * @throws SQLException Si falla cualquier fila (se deshace todo el lote).
+     */
+    static <T> int ejecutar(String sql, List<T> elementos, Parametros<T> parametros) throws SQLException {
+        if (elementos.isEmpty()) return 0;
+
+        return Transaccion.ejecutar(con -> ejecutar(con, sql, elementos, parametros));
+    }
+
+    /**
+     * Ejecuta la misma sentencia para cada elemento en la transacción en curso, sin confirmarla.
+     *
+     * @param con Conexión con la transacción abierta.
+     * @param sql Sentencia a ejecutar.
+     * @param elementos Elementos del lote.
+     * @param parametros Asignación de parámetros de cada elemento.
+     * @param <T> Tipo del elemento.
+     * @return Número total de filas afectadas.
+     * @throws SQLException Si falla cualquier fila.
+     */
+    static <T> int ejecutar(Connection con, String sql, List<T> elementos, Parametros<T> parametros) throws SQLException {
+        int afectadas = 0;
+        try (PreparedStatement pstm = con.prepareStatement(sql)) {
+            for (int inicio = 0; inicio < elementos.size(); inicio += TAMANO_TRAMO) {
+                int fin = Math.min(inicio + TAMANO_TRAMO, elementos.size());
+                for (T elemento : elementos.subList(inicio, fin)) {
+                    parametros.asignar(pstm, elemento);
+                    pstm.addBatch();
+                }
+                afectadas += comprobarResultados(pstm.executeBatch());
+            }
+        }
+        return afectadas;
+    }
+
+    // Métodos privados
+
+    /**
+     * Suma las filas afectadas y detecta fallos que el driver no haya lanzado como excepción.
+     */
+    private static int comprobarResultados(int[] resultados) throws SQLException {
+        int total = 0;
+        for (int r : resultados) {
+            if (r == PreparedStatement.EXECUTE_FAILED) {
+                throw new SQLException("Una de las sentencias del lote ha fallado.");
+            }
+            if (r > 0) total += r;
+        }
+        return total;
+    }
+
+    /**
+     * Lee las claves generadas por el último {@code executeBatch} y las añade a {@code claves}.
+     */
+    private static void leerClaves(Connection con, PreparedStatement pstm, int filas, List<Integer> claves) throws SQLException {
+        List<Integer> leidas = new ArrayList<>(filas);
+        try (ResultSet rs = pstm.getGeneratedKeys()) {
+            while (rs.next()) {
+                leidas.add(rs.getInt(1));
+            }
+        }
+
+        if (leidas.isEmpty() && ConnectionDB.getTipoSeleccionado() == ConnectionDB.DBType.SQLITE) {
+            try (PreparedStatement ultima = con.prepareStatement("SELECT last_insert_rowid()");
+                 ResultSet rs = ultima.executeQuery()) {
+                if (rs.next()) leidas.add(rs.getInt(1));
+            }
+        }
+
+        if (leidas.size() == filas) {
+            claves.addAll(leidas);
+        } else if (leidas.size() == 1) {
+            int ultima = leidas.get(0);
+            for (int i = filas - 1; i >= 0; i--) {
+                claves.add(ultima - i);
+            }
+        } else {
+            throw new SQLException("El driver devolvió " + leidas.size() + " claves para " + filas + " filas.");
+        }
+    }
+}
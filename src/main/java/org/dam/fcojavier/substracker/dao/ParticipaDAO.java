@@ -1,16 +1,13 @@
 package org.dam.fcojavier.substracker.dao;
 
 import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
 import org.dam.fcojavier.substracker.interfaces.CrudDao;
 import org.dam.fcojavier.substracker.model.Participa;
 import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
-import org.dam.fcojavier.substracker.model.enums.Categoria;
-import org.dam.fcojavier.substracker.model.enums.Ciclo;
-import org.dam.fcojavier.substracker.model.enums.MetodoPago;
 
 import java.sql.*;
-import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,9 +23,12 @@ import java.util.List;
  * Uso de LEFT JOIN en consultas SQL para recuperar datos incluso si el usuario es NULL (invitado).
  * Gestión de campos nulos ({@code setNull}) para fechas y claves foráneas opcionales.
  * Identificación mediante clave primaria simple {@code id_participa}.
+ * Cada escritura invalida en la caché de {@link SuscripcionDAO} la suscripción afectada, y las filas
+ * leídas enlazan la instancia de esa caché en lugar de crear una copia de la suscripción.
+ * Cada escritura actualiza {@code resumen_mensual} en su misma transacción (ver {@link ResumenMensualDAO}).
  *
  * @author Fco Javier García
- * @version 2.0 (Soporte para Invitados)
+ * @version 2.3 (Importes en céntimos)
  */
 public class ParticipaDAO implements CrudDao<Participa> {
     private final String create_sql="INSERT INTO participa (id_suscripcion, id_usuario, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
@@ -45,6 +45,7 @@ public class ParticipaDAO implements CrudDao<Participa> {
     private final String find_all_sql = SELECT_BASE;
     private final String find_by_id_suscripcion_sql = SELECT_BASE + "WHERE p.id_suscripcion = ?";
     private final String find_by_id_usuario_sql     = SELECT_BASE + "WHERE p.id_usuario = ?";
+    private final String find_by_id_titular_sql     = SELECT_BASE + "WHERE s.id_titular = ?";
 
     /**
      * Registra una nueva participación (un usuario copagando una suscripción).
@@ -54,29 +55,10 @@ public class ParticipaDAO implements CrudDao<Participa> {
      */
     @Override
     public boolean create(Participa participa) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(create_sql)){
-            pstm.setInt(1, participa.getSuscripcion().getIdSuscripcion());
-
-            if (participa.getParticipante() != null) {
-                pstm.setInt(2, participa.getParticipante().getId_usuario());
-                pstm.setNull(3, Types.VARCHAR);
-            } else {
-                pstm.setNull(2, Types.INTEGER);
-                pstm.setString(3, participa.getNombreInvitado());
-            }
-
-            pstm.setDouble(4, participa.getCantidadApagar());
-
-            if (participa.getFecha_pagado() != null)
-                pstm.setDate(5, Date.valueOf(participa.getFecha_pagado()));
-            else
-                pstm.setNull(5, Types.DATE);
-
-            pstm.setString(6, participa.getMetodo_pago().name());
-            pstm.setString(7, participa.getDescripcion());
-            pstm.setInt(8, participa.getPeriodos_cubiertos());
-
-            return pstm.executeUpdate() > 0;
+        try {
+            insertar(List.of(participa));
+            SuscripcionDAO.invalidarCache(participa.getSuscripcion().getIdSuscripcion());
+            return true;
         }catch (SQLException e){
             System.out.println("Error creando participa: " + e.getMessage());
             return false;
@@ -107,7 +89,7 @@ public class ParticipaDAO implements CrudDao<Participa> {
     @Override
     public List<Participa> findAll() {
         List<Participa> participaList = new ArrayList<>();
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_all_sql)){
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_all_sql)){
             ResultSet rs = pstm.executeQuery();
             while(rs.next()){
                 Participa participa = obtenerParticipa(rs);
@@ -130,22 +112,10 @@ public class ParticipaDAO implements CrudDao<Participa> {
      */
     @Override
     public boolean update(Participa participa) {
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(update_sql)) {
-
-            pstm.setString(1, participa.getNombreInvitado());
-            pstm.setDouble(2, participa.getCantidadApagar());
-
-            if (participa.getFecha_pagado() != null)
-                pstm.setDate(3, Date.valueOf(participa.getFecha_pagado()));
-            else
-                pstm.setNull(3, Types.DATE);
-
-            pstm.setString(4, participa.getMetodo_pago().name());
-            pstm.setString(5, participa.getDescripcion());
-            pstm.setInt(6, participa.getPeriodos_cubiertos());
-            pstm.setInt(7, participa.getIdParticipa());
-
-            return pstm.executeUpdate() > 0;
+        try {
+            boolean actualizada = actualizar(List.of(participa)) > 0;
+            invalidarSuscripcion(participa);
+            return actualizada;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
@@ -160,15 +130,73 @@ public class ParticipaDAO implements CrudDao<Participa> {
      */
     @Override
     public boolean delete(int idParticipa) {
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(delete_sql)) {
-            pstm.setInt(1, idParticipa);
-            return pstm.executeUpdate() > 0;
+        try {
+            boolean eliminada = eliminar(List.of(idParticipa)) > 0;
+            SuscripcionDAO.vaciarCache();
+            return eliminada;
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
 
+    /**
+     * Registra varias participaciones en una sola transacción (JDBC Batch).
+     *
+     * Si el lote se confirma, cada objeto queda con su {@code id_participa} generado.
+     * Si falla alguna fila, se deshace el lote completo.
+     *
+     * @param participaciones Lista de participaciones a guardar.
+     * @return {@code true} si se guardaron todas.
+     */
+    @Override
+    public boolean createAll(List<Participa> participaciones) {
+        try {
+            insertar(participaciones);
+            for (Participa participa : participaciones) SuscripcionDAO.invalidarCache(participa.getSuscripcion().getIdSuscripcion());
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error creando lote de participa: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Actualiza varias participaciones en una sola transacción (JDBC Batch).
+     *
+     * @param participaciones Lista de participaciones con los datos modificados.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean updateAll(List<Participa> participaciones) {
+        try {
+            actualizar(participaciones);
+            for (Participa participa : participaciones) invalidarSuscripcion(participa);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error actualizando lote de participa: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Elimina varias participaciones por su ID en una sola transacción (JDBC Batch).
+     *
+     * @param ids Identificadores de los registros a borrar.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean deleteAll(List<Integer> ids) {
+        try {
+            eliminar(ids);
+            SuscripcionDAO.vaciarCache();
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error eliminando lote de participa: " + e.getMessage());
+            return false;
+        }
+    }
+
     // Métodos específicos de Participa
 
     /**
@@ -179,7 +207,7 @@ public class ParticipaDAO implements CrudDao<Participa> {
      */
     public List<Participa> findBySuscripcionId(int suscripcionId) {
         List<Participa> participaList = new ArrayList<>();
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_id_suscripcion_sql)){
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_id_suscripcion_sql)){
             pstm.setInt(1, suscripcionId);
             ResultSet rs = pstm.executeQuery();
             while(rs.next()) {
@@ -200,7 +228,7 @@ public class ParticipaDAO implements CrudDao<Participa> {
      */
     public List<Participa> findByUsuarioId(int usuarioId) {
         List<Participa> participaList = new ArrayList<>();
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_id_usuario_sql)){
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_id_usuario_sql)){
             pstm.setInt(1, usuarioId);
             ResultSet rs = pstm.executeQuery();
             while(rs.next()) {
@@ -213,8 +241,127 @@ public class ParticipaDAO implements CrudDao<Participa> {
         return participaList;
     }
 
+    /**
+     * Obtiene los copagadores de todas las suscripciones de un titular en una sola consulta.
+     *
+     * Se usa para cargar el grafo completo de suscripciones sin lanzar una consulta por suscripción.
+     *
+     * @param titularId ID del usuario titular de las suscripciones.
+     * @return Lista de participaciones en las suscripciones del titular.
+     */
+    public List<Participa> findByTitularId(int titularId) {
+        List<Participa> participaList = new ArrayList<>();
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_id_titular_sql)){
+            pstm.setInt(1, titularId);
+            ResultSet rs = pstm.executeQuery();
+            while(rs.next()) {
+                participaList.add(obtenerParticipa(rs));
+            }
+        }catch (SQLException e){
+            System.out.println("Error obteniendo participa por titular: " + e.getMessage());
+        }
+        return participaList;
+    }
+
     //Métodos privados auxiliares
 
+    /**
+     * Inserta las participaciones y suma su aporte al resumen mensual en una transacción.
+     * Si se confirma, asigna a cada una su ID generado.
+     */
+    private void insertar(List<Participa> participaciones) throws SQLException {
+        if (participaciones.isEmpty()) return;
+
+        List<Integer> ids = Transaccion.ejecutar(con -> {
+            List<Integer> claves = LoteJdbc.insertar(con, create_sql, participaciones, this::asignarParametrosCreacion);
+            ResumenMensualDAO.aplicarParticipas(con, claves, 1);
+            return claves;
+        });
+        LoteJdbc.asignarClaves(participaciones, ids, Participa::setIdParticipa);
+    }
+
+    /**
+     * Actualiza las participaciones en una transacción: resta su aporte al resumen mensual,
+     * aplica el UPDATE (que puede cambiar importe, fecha de pago o periodos) y suma el nuevo.
+     *
+     * @return Filas actualizadas.
+     */
+    private int actualizar(List<Participa> participaciones) throws SQLException {
+        if (participaciones.isEmpty()) return 0;
+        List<Integer> ids = participaciones.stream().map(Participa::getIdParticipa).toList();
+
+        return Transaccion.ejecutar(con -> {
+            ResumenMensualDAO.aplicarParticipas(con, ids, -1);
+            int filas = LoteJdbc.ejecutar(con, update_sql, participaciones, this::asignarParametrosActualizacion);
+            ResumenMensualDAO.aplicarParticipas(con, ids, 1);
+            return filas;
+        });
+    }
+
+    /**
+     * Borra las participaciones en una transacción, restando antes su aporte al resumen mensual.
+     *
+     * @return Filas borradas.
+     */
+    private int eliminar(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return 0;
+
+        return Transaccion.ejecutar(con -> {
+            ResumenMensualDAO.aplicarParticipas(con, ids, -1);
+            return LoteJdbc.ejecutar(con, delete_sql, ids, (pstm, id) -> pstm.setInt(1, id));
+        });
+    }
+
+    /**
+     * Saca de la caché la suscripción de la participación, cuya lista de participantes ha cambiado.
+     * El UPDATE no cambia la suscripción, pero el objeto puede no traerla: entonces se vacía la caché.
+     */
+    private void invalidarSuscripcion(Participa participa) {
+        if (participa.getSuscripcion() != null) {
+            SuscripcionDAO.invalidarCache(participa.getSuscripcion().getIdSuscripcion());
+        } else {
+            SuscripcionDAO.vaciarCache();
+        }
+    }
+
+    /**
+     * Asigna los parámetros del INSERT. El participante es un usuario registrado o un invitado (solo nombre).
+     */
+    private void asignarParametrosCreacion(PreparedStatement pstm, Participa participa) throws SQLException {
+        pstm.setInt(1, participa.getSuscripcion().getIdSuscripcion());
+
+        if (participa.getParticipante() != null) {
+            pstm.setInt(2, participa.getParticipante().getId_usuario());
+            pstm.setNull(3, Types.VARCHAR);
+        } else {
+            pstm.setNull(2, Types.INTEGER);
+            pstm.setString(3, participa.getNombreInvitado());
+        }
+
+        pstm.setLong(4, participa.getCantidadApagarCentimos());
+
+        CodecColumnas.setFecha(pstm, 5, participa.getFecha_pagado()); // NULL si aún no ha pagado
+
+        CodecColumnas.setCodigo(pstm, 6, participa.getMetodo_pago());
+        pstm.setString(7, participa.getDescripcion());
+        pstm.setInt(8, participa.getPeriodos_cubiertos());
+    }
+
+    /**
+     * Asigna los parámetros del UPDATE, incluido el {@code id_participa} del WHERE.
+     */
+    private void asignarParametrosActualizacion(PreparedStatement pstm, Participa participa) throws SQLException {
+        pstm.setString(1, participa.getNombreInvitado());
+        pstm.setLong(2, participa.getCantidadApagarCentimos());
+
+        CodecColumnas.setFecha(pstm, 3, participa.getFecha_pagado()); // NULL si aún no ha pagado
+
+        CodecColumnas.setCodigo(pstm, 4, participa.getMetodo_pago());
+        pstm.setString(5, participa.getDescripcion());
+        pstm.setInt(6, participa.getPeriodos_cubiertos());
+        pstm.setInt(7, participa.getIdParticipa());
+    }
+
     /**
      * Mapea un ResultSet a un objeto Participa, construyendo también el Usuario y la Suscripción.
      *
@@ -225,11 +372,11 @@ public class ParticipaDAO implements CrudDao<Participa> {
     private Participa obtenerParticipa(ResultSet rs) throws SQLException{
         Participa p = new Participa();
         p.setIdParticipa(rs.getInt("id_participa")); // Nuevo ID
-        p.setCantidadApagar(rs.getDouble("cantidadApagar"));
+        p.setCantidadApagarCentimos(rs.getLong("cantidadApagar"));
 
-        p.setFecha_pagado(parsearFechaSegura(rs.getString("fecha_pagado")));
+        p.setFecha_pagado(CodecColumnas.getFecha(rs, "fecha_pagado"));
 
-        p.setMetodo_pago(MetodoPago.valueOf(rs.getString("metodo_pago")));
+        p.setMetodo_pago(CodecColumnas.getMetodoPago(rs, "metodo_pago"));
         p.setPeriodos_cubiertos(rs.getInt("periodos_cubiertos"));
         p.setNombreInvitado(rs.getString("nombre_invitado"));
 
@@ -243,39 +390,21 @@ public class ParticipaDAO implements CrudDao<Participa> {
             p.setParticipante(u);
         }
 
-        Suscripcion s = new Suscripcion();
-        s.setIdSuscripcion(rs.getInt("id_suscripcion"));
-        s.setNombre(rs.getString("s_nombre"));   // ¡Ojo al alias!
-        s.setPrecio(rs.getDouble("precio"));
-        s.setCiclo(Ciclo.valueOf(rs.getString("ciclo")));
-        s.setCategoria(Categoria.valueOf(rs.getString("categoria")));
+        // Si la suscripción está en caché se comparte la instancia; si no, copia básica (no se cachea)
+        int idSuscripcion = rs.getInt("id_suscripcion");
+        Suscripcion s = SuscripcionDAO.enCache(idSuscripcion);
+        if (s == null) {
+            s = new Suscripcion();
+            s.setIdSuscripcion(idSuscripcion);
+            s.setNombre(rs.getString("s_nombre"));   // ¡Ojo al alias!
+            s.setPrecioCentimos(rs.getLong("precio"));
+            s.setCiclo(CodecColumnas.getCiclo(rs, "ciclo"));
+            s.setCategoria(CodecColumnas.getCategoria(rs, "categoria"));
+        }
 
         p.setSuscripcion(s);
 
         return p;
     }
 
-    /**
-     * Método auxiliar para convertir fechas de SQLite/MySQL de forma robusta.
-     * Soporta tanto formato ISO (yyyy-MM-dd) como Timestamp (milisegundos).
-     */
-    private LocalDate parsearFechaSegura(String fechaStr) {
-        if (fechaStr == null || fechaStr.isEmpty()) return null;
-
-        try {
-            //MySQL
-            return LocalDate.parse(fechaStr);
-        } catch (Exception e) {
-            try {
-                // SQLite JDBC
-                long millis = Long.parseLong(fechaStr);
-                return java.time.Instant.ofEpochMilli(millis)
-                        .atZone(java.time.ZoneId.systemDefault())
-                        .toLocalDate();
-            } catch (Exception ex) {
-                System.err.println("Error fecha irrecuperable: " + fechaStr);
-                return null;
-            }
-        }
-    }
 }
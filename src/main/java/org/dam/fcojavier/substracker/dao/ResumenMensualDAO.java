@@ -0,0 +1,262 @@
+package org.dam.fcojavier.substracker.dao;
+
+import org.dam.fcojavier.substracker.model.ResumenMensual;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB.DBType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Clase de Acceso a Datos para la tabla materializada {@code resumen_mensual}
+ * (titular x mes x categoría: bruto, aporte de colaboradores y neto).
+ *
+ * La tabla no se recalcula al consultarla: {@link CobroDAO}, {@link ParticipaDAO} y {@link SuscripcionDAO}
+ * la mantienen con incrementos dentro de la misma transacción que cada escritura.
+ * Antes de modificar o borrar una fila se resta su contribución ({@code signo = -1}) y después de
+ * insertarla o modificarla se suma la nueva ({@code signo = +1}). Cada incremento es un
+ * {@code INSERT ... SELECT} agregado con "upsert" (sintaxis propia de MySQL y de SQLite), así que
+ * solo se tocan los meses y categorías afectados.
+ *
+ * Para reparar la tabla (por ejemplo tras editar la base de datos a mano) está {@link #reconstruir()},
+ * que también se puede lanzar desde la línea de comandos con {@code ReconstruirResumenMensual}.
+ * La sincronización, que escribe filas sin pasar por los DAOs, usa {@link #reconstruirUsuarios}.
+ *
+ * Los importes son céntimos enteros (migración V6): los incrementos se suman sin error de redondeo.
+ *
+ * @author Fco Javier García
+ * @version 1.2
+ */
+public class ResumenMensualDAO {
+    private final String delete_all_sql = "DELETE FROM resumen_mensual";
+    private static final String delete_by_usuario_sql = "DELETE FROM resumen_mensual WHERE id_usuario = ?";
+    // Al restar puede quedar una fila a cero (p. ej. tras borrar el único cobro del mes); no se devuelve
+    private final String SELECT_BASE = "SELECT id_usuario, mes, categoria, bruto, aporte, neto FROM resumen_mensual " +
+            "WHERE (bruto <> 0 OR aporte <> 0) AND id_usuario = ? ";
+    private final String find_by_usuario_sql = SELECT_BASE + "ORDER BY mes, categoria";
+    private final String find_by_usuario_meses_sql = SELECT_BASE + "AND mes BETWEEN ? AND ? ORDER BY mes, categoria";
+
+    /**
+     * Borra la tabla y la vuelve a calcular a partir de todos los cobros y participaciones,
+     * en una sola transacción.
+     *
+     * @return {@code true} si se reconstruyó correctamente.
+     */
+    public boolean reconstruir() {
+        try {
+            Transaccion.ejecutar(con -> {
+                try (PreparedStatement pstm = con.prepareStatement(delete_all_sql)) {
+                    pstm.executeUpdate();
+                }
+                try (PreparedStatement pstm = con.prepareStatement(incremento("1 = 1", "1 = 1"))) {
+                    asignarSigno(pstm, 1);
+                    return pstm.executeUpdate();
+                }
+            });
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error reconstruyendo resumen mensual: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Recalcula el resumen solo de algunos titulares, dentro de la transacción de quien llama.
+     *
+     * Lo usa la sincronización tras aplicar cambios recibidos de otra base de datos, que no
+     * pasan por los DAOs (y que puede ser de otro tipo que la seleccionada en la aplicación).
+     *
+     * @param con Conexión con la transacción abierta.
+     * @param tipo Dialecto de esa conexión.
+     * @param idsUsuario IDs de los titulares afectados.
+     * @throws SQLException Si falla el borrado o el recálculo.
+     */
+    public static void reconstruirUsuarios(Connection con, DBType tipo, Collection<Integer> idsUsuario) throws SQLException {
+        if (idsUsuario.isEmpty()) return;
+
+        List<Integer> ids = new ArrayList<>(idsUsuario);
+        LoteJdbc.ejecutar(con, delete_by_usuario_sql, ids, (pstm, id) -> pstm.setInt(1, id));
+        aplicar(con, incremento(tipo, "s.id_titular = ?", "s.id_titular = ?"), ids, 1, 2);
+    }
+
+    /**
+     * Obtiene el histórico mensual completo de un titular.
+     *
+     * @param idUsuario ID del usuario titular.
+     * @return Filas ordenadas por mes y categoría (vacía si no hay o hubo error).
+     */
+    public List<ResumenMensual> findByUsuario(int idUsuario) {
+        List<ResumenMensual> resumen = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_usuario_sql)) {
+            pstm.setInt(1, idUsuario);
+            leerFilas(pstm, resumen);
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo resumen mensual: " + e.getMessage());
+        }
+        return resumen;
+    }
+
+    /**
+     * Obtiene el histórico mensual de un titular entre dos meses.
+     *
+     * @param idUsuario ID del usuario titular.
+     * @param desde Primer mes (inclusivo).
+     * @param hasta Último mes (inclusivo).
+     * @return Filas ordenadas por mes y categoría (vacía si no hay o hubo error).
+     */
+    public List<ResumenMensual> findByUsuario(int idUsuario, YearMonth desde, YearMonth hasta) {
+        List<ResumenMensual> resumen = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_usuario_meses_sql)) {
+            pstm.setInt(1, idUsuario);
+            pstm.setInt(2, codificarMes(desde));
+            pstm.setInt(3, codificarMes(hasta));
+            leerFilas(pstm, resumen);
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo resumen mensual: " + e.getMessage());
+        }
+        return resumen;
+    }
+
+    // Incrementos usados por los demás DAOs (sin confirmar: se ejecutan en su transacción)
+
+    /**
+     * Suma o resta la contribución de unos cobros.
+     *
+     * @param con Conexión con la transacción abierta.
+     * @param ids IDs de los cobros.
+     * @param signo {@code 1} para sumar o {@code -1} para restar.
+     * @throws SQLException Si falla la actualización del resumen.
+     */
+    static void aplicarCobros(Connection con, List<Integer> ids, int signo) throws SQLException {
+        aplicar(con, incremento("c.id_cobro = ?", "1 = 0"), ids, signo, 1);
+    }
+
+    /**
+     * Suma o resta la contribución de unas participaciones (solo cuentan las pagadas).
+     *
+     * @param con Conexión con la transacción abierta.
+     * @param ids IDs de las participaciones.
+     * @param signo {@code 1} para sumar o {@code -1} para restar.
+     * @throws SQLException Si falla la actualización del resumen.
+     */
+    static void aplicarParticipas(Connection con, List<Integer> ids, int signo) throws SQLException {
+        aplicar(con, incremento("1 = 0", "p.id_participa = ?"), ids, signo, 1);
+    }
+
+    /**
+     * Suma o resta la contribución de todos los cobros y participaciones de unas suscripciones.
+     * Se usa cuando cambian los datos de la suscripción de los que depende el resumen
+     * (precio, categoría o titular) y antes de borrarla, ya que sus hijos se borran en cascada.
+     *
+     * @param con Conexión con la transacción abierta.
+     * @param ids IDs de las suscripciones.
+     * @param signo {@code 1} para sumar o {@code -1} para restar.
+     * @throws SQLException Si falla la actualización del resumen.
+     */
+    static void aplicarSuscripciones(Connection con, List<Integer> ids, int signo) throws SQLException {
+        aplicar(con, incremento("c.id_suscripcion = ?", "p.id_suscripcion = ?"), ids, signo, 2);
+    }
+
+    // Métodos privados
+
+    /**
+     * Ejecuta el incremento para cada ID. El ID se asigna a cada uno de los {@code usosId} filtros.
+     */
+    private static void aplicar(Connection con, String sql, List<Integer> ids, int signo, int usosId) throws SQLException {
+        if (ids.isEmpty()) return;
+
+        LoteJdbc.ejecutar(con, sql, ids, (pstm, id) -> {
+            asignarSigno(pstm, signo);
+            for (int i = 0; i < usosId; i++) {
+                pstm.setInt(3 + i, id);
+            }
+        });
+    }
+
+    /**
+     * Asigna el signo (parámetros 1 y 2) con el que se suman bruto y aporte.
+     */
+    private static void asignarSigno(PreparedStatement pstm, int signo) throws SQLException {
+        pstm.setInt(1, signo);
+        pstm.setInt(2, signo);
+    }
+
+    /**
+     * Construye el {@code INSERT ... SELECT} que acumula en la tabla los movimientos filtrados,
+     * agrupados por titular, mes y categoría y multiplicados por el signo.
+     */
+    private static String incremento(String filtroCobro, String filtroParticipa) {
+        return incremento(ConnectionDB.getTipoSeleccionado(), filtroCobro, filtroParticipa);
+    }
+
+    private static String incremento(DBType tipo, String filtroCobro, String filtroParticipa) {
+        String agregado =
+                "SELECT m.id_usuario, m.mes, m.categoria, ? * SUM(m.bruto) AS delta_bruto, ? * SUM(m.aporte) AS delta_aporte " +
+                        "FROM (" + movimientos(tipo, filtroCobro, filtroParticipa) + ") m " +
+                        "GROUP BY m.id_usuario, m.mes, m.categoria";
+        String insercion =
+                "INSERT INTO resumen_mensual (id_usuario, mes, categoria, bruto, aporte, neto) " +
+                        "SELECT d.id_usuario, d.mes, d.categoria, d.delta_bruto, d.delta_aporte, d.delta_bruto - d.delta_aporte AS delta_neto " +
+                        "FROM (" + agregado + ") d ";
+
+        if (tipo == DBType.MYSQL) {
+            return insercion +
+                    "ON DUPLICATE KEY UPDATE bruto = bruto + delta_bruto, aporte = aporte + delta_aporte, neto = neto + delta_neto";
+        }
+        // SQLite exige un WHERE en el SELECT para distinguir el ON CONFLICT de un JOIN
+        return insercion +
+                "WHERE true ON CONFLICT (id_usuario, mes, categoria) DO UPDATE SET " +
+                "bruto = bruto + excluded.bruto, aporte = aporte + excluded.aporte, neto = neto + excluded.neto";
+    }
+
+    /**
+     * Cobros (bruto) y participaciones pagadas (aporte), con el mes ya calculado. Mismo criterio que las migraciones V4 y V6
+     * (importes en céntimos).
+     */
+    private static String movimientos(DBType tipo, String filtroCobro, String filtroParticipa) {
+        return "SELECT s.id_titular AS id_usuario, " + mes(tipo, "c.fecha_cobro") + " AS mes, s.categoria AS categoria, " +
+                "s.precio * c.periodos_cubiertos AS bruto, 0 AS aporte " +
+                "FROM cobro c INNER JOIN suscripcion s ON c.id_suscripcion = s.id_suscripcion " +
+                "WHERE " + filtroCobro + " " +
+                "UNION ALL " +
+                "SELECT s.id_titular, " + mes(tipo, "p.fecha_pagado") + ", s.categoria, " +
+                "0, p.cantidadApagar * p.periodos_cubiertos " +
+                "FROM participa p INNER JOIN suscripcion s ON p.id_suscripcion = s.id_suscripcion " +
+                "WHERE p.fecha_pagado IS NOT NULL AND " + filtroParticipa;
+    }
+
+    /**
+     * Expresión que pasa una fecha guardada en días desde 1970 a {@code anio * 100 + mes}.
+     */
+    private static String mes(DBType tipo, String columna) {
+        if (tipo == DBType.MYSQL) {
+            return "EXTRACT(YEAR_MONTH FROM DATE_ADD('1970-01-01', INTERVAL " + columna + " DAY))";
+        }
+        return "CAST(strftime('%Y%m', " + columna + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    private static int codificarMes(YearMonth mes) {
+        return mes.getYear() * 100 + mes.getMonthValue();
+    }
+
+    private void leerFilas(PreparedStatement pstm, List<ResumenMensual> resumen) throws SQLException {
+        ResultSet rs = pstm.executeQuery();
+        while (rs.next()) {
+            int mes = rs.getInt("mes");
+            resumen.add(new ResumenMensual(
+                    rs.getInt("id_usuario"),
+                    YearMonth.of(mes / 100, mes % 100),
+                    CodecColumnas.getCategoria(rs, "categoria"),
+                    rs.getLong("bruto"),
+                    rs.getLong("aporte"),
+                    rs.getLong("neto")));
+        }
+    }
+}
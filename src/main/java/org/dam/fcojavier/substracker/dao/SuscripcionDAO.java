@@ -1,6 +1,8 @@
 package org.dam.fcojavier.substracker.dao;
 
 import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
+import org.dam.fcojavier.substracker.interfaces.Codificable;
 import org.dam.fcojavier.substracker.interfaces.CrudDao;
 import org.dam.fcojavier.substracker.model.Cobro;
 import org.dam.fcojavier.substracker.model.Participa;
@@ -8,14 +10,19 @@ import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
 import org.dam.fcojavier.substracker.model.enums.Categoria;
 import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+import org.dam.fcojavier.substracker.utils.ListaPerezosa;
 
-import java.sql.Date;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Clase de Acceso a Datos (DAO) para la entidad {@link Suscripcion}.
@@ -26,16 +33,35 @@ import java.util.List;
  * Optimización SQL: Utiliza {@code INNER JOIN} para recuperar los datos del
  * usuario {@code Titular} en la misma consulta, evitando el problema de rendimiento "N+1".
  *
- * El listado general ({@code findAll}) es ligero (sin listas anidadas).
- * La consulta por ID ({@code findById}) es completa (incluye historial de cobros y participantes).
+ * Las listas de cobros y participantes se cargan de forma diferida ({@link ListaPerezosa}) en
+ * todas las consultas salvo {@code findByTitularId}, que carga el grafo completo de golpe.
+ *
+ * Caché de sesión: cada suscripción leída se guarda en una {@link CacheEntidades} compartida por
+ * todas las instancias del DAO. {@code findById} la consulta antes de ir a la base de datos, las
+ * actualizaciones la escriben y los borrados la invalidan. {@link CobroDAO} y {@link ParticipaDAO}
+ * invalidan la suscripción afectada al escribir, ya que sus listas de hijos dejan de estar al día.
+ *
+ * Resumen mensual: al actualizar o borrar una suscripción se recalcula, en la misma transacción, la
+ * contribución de sus cobros y participaciones a {@code resumen_mensual} (depende de su precio,
+ * categoría y titular). Ver {@link ResumenMensualDAO}.
+ *
+ * Vencimientos: las altas, modificaciones y borrados confirmados se reflejan en el
+ * {@link IndiceVencimientos} (próximas renovaciones ordenadas por fecha).
+ *
+ * Historial de cobros: un cambio de precio o de titular, o un borrado, descarta los
+ * {@link HistorialCobros} cargados en los que aparece la suscripción.
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.7
  */
 public class SuscripcionDAO implements CrudDao<Suscripcion> {
+    /** Suscripciones leídas en la sesión, por ID. */
+    private static final CacheEntidades<Suscripcion> cache = new CacheEntidades<>("suscripcion", 500, Duration.ofMinutes(10));
+
     private final String create_sql="INSERT INTO suscripcion (nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
     private final String update_sql="UPDATE suscripcion SET nombre = ?, precio = ?, ciclo = ?, categoria = ?, activo = ?, fecha_activacion = ?, fecha_renovacion = ?, id_titular = ? WHERE id_suscripcion = ?";
     private final String delete_sql="DELETE FROM suscripcion WHERE id_suscripcion = ?";
+    private final String avanzar_renovacion_sql = "UPDATE suscripcion SET fecha_renovacion = ? WHERE id_suscripcion = ? AND fecha_renovacion = ?";
     private final String SELECT_BASE = "SELECT s.*, u.id_usuario, u.email, u.nombre AS u_nombre, u.apellidos " +
                     "FROM suscripcion s " +
                     "INNER JOIN usuario u ON s.id_titular = u.id_usuario ";
@@ -45,6 +71,7 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
     private final String find_by_categoria_sql = SELECT_BASE + "WHERE s.categoria = ?";
     private final String find_by_ciclo_sql = SELECT_BASE + "WHERE s.ciclo = ?";
     private final String find_by_titular_id_sql = SELECT_BASE + "WHERE s.id_titular = ?";
+    private final String find_vencidas_by_titular_id_sql = find_by_titular_id_sql + " AND s.activo = ? AND s.fecha_renovacion <= ?";
 
     /**
      * Registra una nueva suscripción en la base de datos.
@@ -56,20 +83,15 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
      */
     @Override
     public boolean create(Suscripcion suscripcion) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(create_sql, PreparedStatement.RETURN_GENERATED_KEYS)){
-            pstm.setString(1, suscripcion.getNombre());
-            pstm.setDouble(2, suscripcion.getPrecio());
-            pstm.setString(3, suscripcion.getCiclo().name());
-            pstm.setString(4, suscripcion.getCategoria().name());
-            pstm.setBoolean(5, suscripcion.isActivo());
-            pstm.setDate(6, Date.valueOf(suscripcion.getFechaActivacion()));
-            pstm.setDate(7, Date.valueOf(suscripcion.getFechaRenovacion()));
-            pstm.setInt(8, suscripcion.getTitular().getId_usuario());
+        try(Connection con = ConnectionDB.getConnection(); PreparedStatement pstm = con.prepareStatement(create_sql, PreparedStatement.RETURN_GENERATED_KEYS)){
+            asignarParametros(pstm, suscripcion);
 
             if (pstm.executeUpdate() > 0){
                 ResultSet rs = pstm.getGeneratedKeys();
                 if(rs.next()){
                     suscripcion.setIdSuscripcion(rs.getInt(1));
+                    Transaccion.alDeshacer(() -> suscripcion.setIdSuscripcion(0));
+                    Transaccion.alConfirmar(() -> IndiceVencimientos.registrar(suscripcion));
                     return true;
                 }
             }
@@ -80,26 +102,26 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
     }
 
     /**
-     * Busca una suscripción por su ID y realiza una carga completa de datos (Eager Loading).
+     * Busca una suscripción por su ID.
      *
-     * Además de los datos básicos y el titular, este método invoca a {@link CobroDAO} y
-     * {@link ParticipaDAO} para llenar las listas de historial de pagos y copagadores.
+     * Si ya se leyó en la sesión se devuelve la misma instancia desde la caché, sin consultar la base de datos.
+     * Las listas de historial de pagos y copagadores se consultan (mediante {@link CobroDAO} y
+     * {@link ParticipaDAO}) la primera vez que se accede a ellas.
      * Use este método para ver el Detalle de una suscripción.
      *
      * @param id Identificador de la suscripción.
-     * @return Objeto {@link Suscripcion} completo o {@code null} si no existe.
+     * @return Objeto {@link Suscripcion} o {@code null} si no existe.
      */
     @Override
     public Suscripcion findById(int id) {
-        Suscripcion suscripcion=null;
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_id_sql)){
+        Suscripcion suscripcion = cache.obtener(id);
+        if (suscripcion != null) return suscripcion;
+
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_id_sql)){
             pstm.setInt(1, id);
             ResultSet rs = pstm.executeQuery();
             if(rs.next()){
                 suscripcion = obtenerSuscripcion(rs);
-                // SOLO cargamos las listas completas si buscamos por ID específico (Detalle)
-                suscripcion.setCobros(findCobrosBySuscripcion(suscripcion.getIdSuscripcion()));
-                suscripcion.setParticipantes(findParticipantesBySuscripcion(suscripcion.getIdSuscripcion()));
             }
         }catch (SQLException e){
             System.out.println("Error buscando suscripcion: " + e.getMessage());
@@ -110,20 +132,18 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
     /**
      * Recupera todas las suscripciones del sistema.
      *
-     * Realiza una carga ligera. No incluye las listas
-     * de cobros ni participantes para optimizar la velocidad del listado general.
+     * Realiza una carga ligera. Las listas de cobros y participantes
+     * solo se consultan si se accede a ellas.
      *
      * @return Lista de suscripciones.
      */
     @Override
     public List<Suscripcion> findAll() {
         List<Suscripcion> suscripciones =new ArrayList<>();
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_all_sql)){
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_all_sql)){
             ResultSet rs= pstm.executeQuery();
             while (rs.next()){
-                Suscripcion suscripcion = obtenerSuscripcion(rs);
-                // En el listado general NO cargamos cobros ni participantes para no saturar la BD
-                suscripciones.add(suscripcion);
+                suscripciones.add(obtenerSuscripcion(rs));
             }
         }catch (SQLException e){
             System.out.println("Error obteniendo suscripciones: " + e.getMessage());
@@ -134,27 +154,23 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
     /**
      * Actualiza los datos de una suscripción existente.
      *
+     * Si se actualiza, el objeto pasa a ser la instancia de la caché (sus listas de cobros y
+     * participantes vuelven a ser diferidas, por si no estaban al día). Si falla, se saca de la caché,
+     * ya que el objeto puede tener cambios que no se han guardado.
+     *
      * @param suscripcion Objeto con los datos modificados.
      * @return {@code true} si se actualizó correctamente.
      */
     @Override
     public boolean update(Suscripcion suscripcion) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(update_sql)){
-            pstm.setString(1, suscripcion.getNombre());
-            pstm.setDouble(2, suscripcion.getPrecio());
-            pstm.setString(3, suscripcion.getCiclo().name());
-            pstm.setString(4, suscripcion.getCategoria().name());
-            pstm.setBoolean(5, suscripcion.isActivo());
-            pstm.setDate(6, Date.valueOf(suscripcion.getFechaActivacion()));
-            pstm.setDate(7, Date.valueOf(suscripcion.getFechaRenovacion()));
-            pstm.setInt(8, suscripcion.getTitular().getId_usuario());
-            pstm.setInt(9, suscripcion.getIdSuscripcion());
-
-            return pstm.executeUpdate() > 0;
+        boolean actualizada = false;
+        try {
+            actualizada = actualizar(List.of(suscripcion)) > 0;
         }catch (SQLException e){
             System.out.println("Error actualizando suscripcion: " + e.getMessage());
-            return false;
         }
+        escribirEnCache(suscripcion, actualizada);
+        return actualizada;
     }
 
     /**
@@ -168,15 +184,84 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
      */
     @Override
     public boolean delete(int id) {
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(delete_sql)){
-            pstm.setInt(1, id);
-            return pstm.executeUpdate() > 0;
+        cache.invalidar(id);
+        try {
+            boolean eliminada = eliminar(List.of(id)) > 0;
+            if (eliminada) {
+                Transaccion.alConfirmar(() -> {
+                    IndiceVencimientos.quitar(List.of(id));
+                    HistorialCobros.suscripcionesBorradas(List.of(id));
+                });
+            }
+            return eliminada;
         }catch (SQLException e){
             System.out.println("Error eliminando suscripcion: " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Inserta varias suscripciones en una sola transacción (JDBC Batch).
+     *
+     * Si el lote se confirma, cada objeto queda con su ID generado.
+     * Si falla alguna fila, se deshace el lote completo.
+     *
+     * @param suscripciones Lista de objetos a guardar.
+     * @return {@code true} si se guardaron todas.
+     */
+    @Override
+    public boolean createAll(List<Suscripcion> suscripciones) {
+        try {
+            LoteJdbc.insertar(create_sql, suscripciones, this::asignarParametros, Suscripcion::setIdSuscripcion);
+            Transaccion.alConfirmar(() -> suscripciones.forEach(IndiceVencimientos::registrar));
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error creando lote de suscripciones: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Actualiza varias suscripciones en una sola transacción (JDBC Batch).
+     *
+     * @param suscripciones Lista de objetos con los datos modificados.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean updateAll(List<Suscripcion> suscripciones) {
+        boolean actualizadas = false;
+        try {
+            actualizar(suscripciones);
+            actualizadas = true;
+        } catch (SQLException e) {
+            System.out.println("Error actualizando lote de suscripciones: " + e.getMessage());
+        }
+        for (Suscripcion suscripcion : suscripciones) escribirEnCache(suscripcion, actualizadas);
+        return actualizadas;
+    }
+
+    /**
+     * Elimina varias suscripciones por su ID en una sola transacción (JDBC Batch).
+     *
+     * @param ids Identificadores a borrar.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean deleteAll(List<Integer> ids) {
+        for (int id : ids) cache.invalidar(id);
+        try {
+            eliminar(ids);
+            Transaccion.alConfirmar(() -> {
+                IndiceVencimientos.quitar(ids);
+                HistorialCobros.suscripcionesBorradas(ids);
+            });
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error eliminando lote de suscripciones: " + e.getMessage());
+            return false;
+        }
+    }
+
     // Métodos específicos de Suscripcion
 
     /**
@@ -185,7 +270,7 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
      * @return Lista de suscripciones (carga ligera).
      */
     public List<Suscripcion> findByCategoria(String categoria) {
-        return findByStringField(find_by_categoria_sql, categoria);
+        return findByCodigo(find_by_categoria_sql, Categoria.valueOf(categoria));
     }
 
     /**
@@ -194,7 +279,7 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
      * @return Lista de suscripciones (carga ligera).
      */
     public List<Suscripcion> findByCiclo(Ciclo ciclo) {
-        return findByStringField(find_by_ciclo_sql, ciclo.name());
+        return findByCodigo(find_by_ciclo_sql, ciclo);
     }
 
     /**
@@ -203,53 +288,315 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
      * Importante: Este método realiza una carga completa
      * (incluye cobros y participantes), ya que suele usarse para mostrar el perfil completo del usuario.
      *
+     * La carga se hace en un número constante de consultas (suscripciones, cobros y participantes
+     * del titular) y el grafo se ensambla en memoria, evitando el problema "N+1".
+     *
      * @param usuarioId ID del titular.
      * @return Lista completa de suscripciones del usuario.
      */
     public List<Suscripcion> findByTitularId(int usuarioId) {
         List<Suscripcion> suscripcionesTitular=new ArrayList<>();
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_titular_id_sql)){
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_titular_id_sql)){
             pstm.setInt(1, usuarioId);
             ResultSet rs= pstm.executeQuery();
             while (rs.next()){
-                Suscripcion suscripcion = obtenerSuscripcion(rs);
-                suscripcion.setCobros(findCobrosBySuscripcion(suscripcion.getIdSuscripcion()));
-                suscripcion.setParticipantes(findParticipantesBySuscripcion(suscripcion.getIdSuscripcion()));
-                suscripcionesTitular.add(suscripcion);
+                suscripcionesTitular.add(obtenerSuscripcion(rs));
             }
         }catch (SQLException e){
             System.out.println("Error obteniendo suscripciones por titular: " + e.getMessage());
         }
+
+        if (!suscripcionesTitular.isEmpty()) {
+            ensamblarRelaciones(suscripcionesTitular,
+                    new CobroDAO().findByUsuarioId(usuarioId),
+                    new ParticipaDAO().findByTitularId(usuarioId));
+        }
         return suscripcionesTitular;
     }
 
+    /**
+     * Suscripciones de un titular con sus participantes, sin el historial de cobros.
+     *
+     * Para proyecciones y resúmenes, que solo necesitan precio, ciclo, fechas y colaboradores: son dos
+     * consultas cuyo coste no crece con los años de cobros. Los cobros quedan como lista diferida
+     * ({@link ListaPerezosa}) por si alguien los pide.
+     *
+     * @param usuarioId ID del titular.
+     * @return Suscripciones del usuario con sus participantes cargados.
+     */
+    public List<Suscripcion> findByTitularIdSinCobros(int usuarioId) {
+        List<Suscripcion> suscripcionesTitular = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_titular_id_sql)) {
+            pstm.setInt(1, usuarioId);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                suscripcionesTitular.add(obtenerSuscripcion(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo suscripciones por titular: " + e.getMessage());
+        }
+
+        if (!suscripcionesTitular.isEmpty()) {
+            ensamblarRelaciones(suscripcionesTitular, null, new ParticipaDAO().findByTitularId(usuarioId));
+        }
+        return suscripcionesTitular;
+    }
+
+    /**
+     * Suscripciones activas de un titular cuya renovación ya ha llegado (hasta el día indicado, incluido).
+     * Sin cobros ni participantes: quedan como listas diferidas.
+     *
+     * @param usuarioId ID del titular.
+     * @param hasta Último día.
+     * @return Suscripciones con la renovación vencida.
+     */
+    public List<Suscripcion> findVencidasByTitularId(int usuarioId, LocalDate hasta) {
+        List<Suscripcion> vencidas = new ArrayList<>();
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_vencidas_by_titular_id_sql)) {
+            pstm.setInt(1, usuarioId);
+            pstm.setBoolean(2, true);
+            CodecColumnas.setFecha(pstm, 3, hasta);
+            ResultSet rs = pstm.executeQuery();
+            while (rs.next()) {
+                vencidas.add(obtenerSuscripcion(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error obteniendo suscripciones vencidas: " + e.getMessage());
+        }
+        return vencidas;
+    }
+
+    /**
+     * Avanza la fecha de renovación de varias suscripciones en una transacción, siempre que sigan con
+     * la fecha que se leyó: si alguna ha cambiado mientras tanto (por ejemplo, se ha pagado a mano),
+     * no se avanza ninguna.
+     *
+     * Solo cambia {@code fecha_renovacion}, que no interviene en el resumen mensual, así que a
+     * diferencia de {@link #updateAll(List)} no recalcula la contribución de sus cobros.
+     *
+     * Los objetos pueden ser los de la caché, que comparten otros hilos: no se modifican hasta que se
+     * confirma la transacción (la exterior, si la hay). Si no se avanzan, no se modifican.
+     *
+     * @param suscripciones Suscripciones a renovar.
+     * @param fechasAnteriores Fecha de renovación leída de cada una, en el mismo orden.
+     * @param fechasNuevas Nueva fecha de renovación de cada una, en el mismo orden.
+     * @return {@code true} si se avanzaron todas.
+     */
+    public boolean avanzarRenovaciones(List<Suscripcion> suscripciones, List<LocalDate> fechasAnteriores,
+                                       List<LocalDate> fechasNuevas) {
+        boolean avanzadas = false;
+        try {
+            List<Integer> posiciones = new ArrayList<>(suscripciones.size());
+            for (int i = 0; i < suscripciones.size(); i++) posiciones.add(i);
+
+            Transaccion.ejecutar(con -> {
+                int filas = LoteJdbc.ejecutar(con, avanzar_renovacion_sql, posiciones, (pstm, i) -> {
+                    Suscripcion suscripcion = suscripciones.get(i);
+                    CodecColumnas.setFecha(pstm, 1, fechasNuevas.get(i));
+                    pstm.setInt(2, suscripcion.getIdSuscripcion());
+                    CodecColumnas.setFecha(pstm, 3, fechasAnteriores.get(i));
+                });
+                if (filas != suscripciones.size()) {
+                    throw new SQLException((suscripciones.size() - filas) + " renovaciones han cambiado desde que se leyeron.");
+                }
+                return null;
+            });
+            avanzadas = true;
+        } catch (SQLException e) {
+            System.out.println("Error avanzando renovaciones: " + e.getMessage());
+        }
+        if (avanzadas) {
+            Transaccion.alConfirmar(() -> {
+                for (int i = 0; i < suscripciones.size(); i++) {
+                    Suscripcion suscripcion = suscripciones.get(i);
+                    suscripcion.setFechaRenovacion(fechasNuevas.get(i));
+                    escribirEnCache(suscripcion, true);
+                }
+            });
+        } else {
+            for (Suscripcion suscripcion : suscripciones) cache.invalidar(suscripcion.getIdSuscripcion());
+        }
+        return avanzadas;
+    }
+
+    // Caché compartida con los demás DAOs
+
+    /**
+     * Devuelve la suscripción de la caché sin contar estadísticas ni consultar la base de datos.
+     * Los DAOs de cobros y participantes la usan para no crear una copia parcial por fila.
+     *
+     * @param id ID de la suscripción.
+     * @return La instancia completa, o {@code null} si no está en caché.
+     */
+    static Suscripcion enCache(int id) {
+        return cache.obtenerSiPresente(id);
+    }
+
+    /**
+     * Saca una suscripción de la caché porque han cambiado sus cobros o participantes.
+     *
+     * @param id ID de la suscripción.
+     */
+    static void invalidarCache(int id) {
+        cache.invalidar(id);
+    }
+
+    /**
+     * Vacía la caché de suscripciones, cuando no se sabe qué suscripción ha cambiado
+     * (borrados por ID de cobros o participantes, cambios de usuarios).
+     */
+    static void vaciarCache() {
+        cache.vaciar();
+    }
+
+    /** @return La caché de suscripciones, para consultar sus estadísticas. */
+    public static CacheEntidades<Suscripcion> getCache() {
+        return cache;
+    }
+
     //Metodos auxiliares privados
 
-    private List<Cobro> findCobrosBySuscripcion(int idSuscripcion){
-        CobroDAO cobroDAO = new CobroDAO();
-        return cobroDAO.findBySuscripcionId(idSuscripcion);
+    /**
+     * Actualiza las suscripciones en una transacción: resta la contribución de sus cobros y
+     * participaciones al resumen mensual, aplica el UPDATE y la vuelve a sumar con los datos nuevos.
+     *
+     * @return Filas actualizadas.
+     */
+    private int actualizar(List<Suscripcion> suscripciones) throws SQLException {
+        if (suscripciones.isEmpty()) return 0;
+        List<Integer> ids = suscripciones.stream().map(Suscripcion::getIdSuscripcion).toList();
+
+        return Transaccion.ejecutar(con -> {
+            ResumenMensualDAO.aplicarSuscripciones(con, ids, -1);
+            int filas = LoteJdbc.ejecutar(con, update_sql, suscripciones, (pstm, suscripcion) -> {
+                asignarParametros(pstm, suscripcion);
+                pstm.setInt(9, suscripcion.getIdSuscripcion());
+            });
+            ResumenMensualDAO.aplicarSuscripciones(con, ids, 1);
+            return filas;
+        });
     }
 
-    private List<Participa> findParticipantesBySuscripcion(int idSuscripcion){
-        ParticipaDAO participaDAO = new ParticipaDAO();
-        return participaDAO.findBySuscripcionId(idSuscripcion);
+    /**
+     * Borra las suscripciones en una transacción, restando antes del resumen mensual la
+     * contribución de los cobros y participaciones que se borran en cascada.
+     *
+     * @return Filas borradas.
+     */
+    private int eliminar(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) return 0;
+
+        return Transaccion.ejecutar(con -> {
+            ResumenMensualDAO.aplicarSuscripciones(con, ids, -1);
+            return LoteJdbc.ejecutar(con, delete_sql, ids, (pstm, id) -> pstm.setInt(1, id));
+        });
     }
 
     /**
-     * Mapea un ResultSet a un objeto Suscripcion.
+     * Escritura directa en la caché (y en el {@link IndiceVencimientos} y el {@link HistorialCobros}) tras un UPDATE.
+     *
+     * @param suscripcion Objeto enviado a la base de datos.
+     * @param guardada Si el UPDATE se confirmó.
+     */
+    private void escribirEnCache(Suscripcion suscripcion, boolean guardada) {
+        if (guardada) {
+            Transaccion.alConfirmar(() -> {
+                IndiceVencimientos.registrar(suscripcion);
+                HistorialCobros.suscripcionGuardada(suscripcion);
+            });
+            suscripcion.setCobros(new ListaPerezosa<>(() -> findCobrosBySuscripcion(suscripcion)));
+            suscripcion.setParticipantes(new ListaPerezosa<>(() -> findParticipantesBySuscripcion(suscripcion)));
+            cache.guardar(suscripcion.getIdSuscripcion(), suscripcion);
+        } else {
+            cache.invalidar(suscripcion.getIdSuscripcion());
+        }
+    }
+
+    /**
+     * Reparte los cobros y participantes ya cargados entre sus suscripciones.
+     *
+     * Cada hijo pasa a apuntar a la instancia completa de su suscripción (no a una copia parcial),
+     * de modo que el grafo queda enlazado en ambos sentidos.
+     *
+     * @param suscripciones Suscripciones padre (con listas vacías).
+     * @param cobros Cobros de todas ellas, o {@code null} para dejar los cobros como lista diferida.
+     * @param participantes Participaciones de todas ellas.
+     */
+    private void ensamblarRelaciones(List<Suscripcion> suscripciones, List<Cobro> cobros, List<Participa> participantes) {
+        Map<Integer, Suscripcion> porId = new HashMap<>();
+        for (Suscripcion s : suscripciones) {
+            // Sustituimos las listas diferidas: aquí ya tenemos todos los datos
+            if (cobros != null) s.setCobros(new ArrayList<>());
+            s.setParticipantes(new ArrayList<>());
+            porId.put(s.getIdSuscripcion(), s);
+        }
+
+        if (cobros != null) {
+            for (Cobro c : cobros) {
+                Suscripcion padre = porId.get(c.getSuscripcion().getIdSuscripcion());
+                if (padre != null) {
+                    c.setSuscripcion(padre);
+                    padre.getCobros().add(c);
+                }
+            }
+        }
+
+        for (Participa p : participantes) {
+            Suscripcion padre = porId.get(p.getSuscripcion().getIdSuscripcion());
+            if (padre != null) {
+                p.setSuscripcion(padre);
+                padre.getParticipantes().add(p);
+            }
+        }
+    }
+
+    /**
+     * Carga los cobros de una suscripción y los enlaza con la instancia padre.
+     */
+    private List<Cobro> findCobrosBySuscripcion(Suscripcion suscripcion){
+        List<Cobro> cobros = new CobroDAO().findBySuscripcionId(suscripcion.getIdSuscripcion());
+        for (Cobro c : cobros) c.setSuscripcion(suscripcion);
+        return cobros;
+    }
+
+    /**
+     * Carga los participantes de una suscripción y los enlaza con la instancia padre.
+     */
+    private List<Participa> findParticipantesBySuscripcion(Suscripcion suscripcion){
+        List<Participa> participantes = new ParticipaDAO().findBySuscripcionId(suscripcion.getIdSuscripcion());
+        for (Participa p : participantes) p.setSuscripcion(suscripcion);
+        return participantes;
+    }
+
+    /**
+     * Asigna los parámetros comunes de INSERT y UPDATE (posiciones 1 a 8).
+     */
+    private void asignarParametros(PreparedStatement pstm, Suscripcion suscripcion) throws SQLException {
+        pstm.setString(1, suscripcion.getNombre());
+        pstm.setLong(2, suscripcion.getPrecioCentimos());
+        CodecColumnas.setCodigo(pstm, 3, suscripcion.getCiclo());
+        CodecColumnas.setCodigo(pstm, 4, suscripcion.getCategoria());
+        pstm.setBoolean(5, suscripcion.isActivo());
+        CodecColumnas.setFecha(pstm, 6, suscripcion.getFechaActivacion());
+        CodecColumnas.setFecha(pstm, 7, suscripcion.getFechaRenovacion());
+        pstm.setInt(8, suscripcion.getTitular().getId_usuario());
+    }
+
+    /**
+     * Mapea un ResultSet a un objeto Suscripcion y lo guarda en la caché.
      * Incluye la construcción del objeto Usuario (Titular) gracias al JOIN.
      */
     private Suscripcion obtenerSuscripcion(ResultSet rs) throws SQLException{
         Suscripcion suscripcion = new Suscripcion();
         suscripcion.setIdSuscripcion(rs.getInt("id_suscripcion"));
         suscripcion.setNombre(rs.getString("nombre"));
-        suscripcion.setPrecio(rs.getDouble("precio"));
-        suscripcion.setCiclo(Ciclo.valueOf(rs.getString("ciclo")));
-        suscripcion.setCategoria(Categoria.valueOf(rs.getString("categoria")));
+        suscripcion.setPrecioCentimos(rs.getLong("precio"));
+        suscripcion.setCiclo(CodecColumnas.getCiclo(rs, "ciclo"));
+        suscripcion.setCategoria(CodecColumnas.getCategoria(rs, "categoria"));
         suscripcion.setActivo(rs.getBoolean("activo"));
 
-        suscripcion.setFechaActivacion(parsearFechaSegura(rs.getString("fecha_activacion")));
-        suscripcion.setFechaRenovacion(parsearFechaSegura(rs.getString("fecha_renovacion")));
+        suscripcion.setFechaActivacion(CodecColumnas.getFecha(rs, "fecha_activacion"));
+        suscripcion.setFechaRenovacion(CodecColumnas.getFecha(rs, "fecha_renovacion"));
 
         Usuario u = new Usuario();
         u.setId_usuario(rs.getInt("id_titular"));
@@ -260,40 +607,18 @@ public class SuscripcionDAO implements CrudDao<Suscripcion> {
 
         suscripcion.setTitular(u);
 
-        suscripcion.setCobros(new ArrayList<>());
-        suscripcion.setParticipantes(new ArrayList<>());
+        suscripcion.setCobros(new ListaPerezosa<>(() -> findCobrosBySuscripcion(suscripcion)));
+        suscripcion.setParticipantes(new ListaPerezosa<>(() -> findParticipantesBySuscripcion(suscripcion)));
 
+        cache.guardar(suscripcion.getIdSuscripcion(), suscripcion);
         return suscripcion;
     }
 
-    /**
-     * Método auxiliar para convertir fechas de SQLite/MySQL de forma robusta.
-     * Soporta tanto formato ISO (yyyy-MM-dd) como Timestamp (milisegundos).
-     */
-    private LocalDate parsearFechaSegura(String fechaStr) {
-        if (fechaStr == null || fechaStr.isEmpty()) return null;
-
-        try {
-            //MySQL
-            return LocalDate.parse(fechaStr);
-        } catch (Exception e) {
-            try {
-                // SQLite JDBC
-                long millis = Long.parseLong(fechaStr);
-                return java.time.Instant.ofEpochMilli(millis)
-                        .atZone(java.time.ZoneId.systemDefault())
-                        .toLocalDate();
-            } catch (Exception ex) {
-                System.err.println("Error fecha irrecuperable: " + fechaStr);
-                return null;
-            }
-        }
-    }
 
-    private List<Suscripcion> findByStringField(String sql, String campo){
+    private List<Suscripcion> findByCodigo(String sql, Codificable valor){
         List<Suscripcion> suscripciones = new ArrayList<>();
-        try(PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(sql)){
-            pstm.setString(1, campo);
+        try(Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(sql)){
+            CodecColumnas.setCodigo(pstm, 1, valor);
             ResultSet rs = pstm.executeQuery();
             while(rs.next()){
                 suscripciones.add(obtenerSuscripcion(rs));
@@ -1,15 +1,19 @@
 package org.dam.fcojavier.substracker.dao;
 
-import org.dam.fcojavier.substracker.utils.PasswordUtilidades;
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+import org.dam.fcojavier.substracker.utils.ListaPerezosa;
 import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
 import org.dam.fcojavier.substracker.interfaces.CrudDao;
 import org.dam.fcojavier.substracker.model.Participa;
 import org.dam.fcojavier.substracker.model.Suscripcion;
 import org.dam.fcojavier.substracker.model.Usuario;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,13 +27,21 @@ import java.util.List;
  * Gestiona la recuperación de claves autogeneradas (ID) al crear usuarios.
  * Implementa una estrategia de carga mixta:
  *
- * {@code findAll()}: Carga ligera (solo datos del usuario).
- * {@code findById()} y {@code findByEmail()}: Carga completa (incluye listas de suscripciones y participaciones).
+ * Las listas de suscripciones y participaciones se cargan de forma diferida ({@link ListaPerezosa}):
+ * solo se consultan la primera vez que se accede a ellas. Así el login ({@code findByEmail()})
+ * cuesta una única consulta, independientemente del historial de la cuenta.
+ *
+ * Los usuarios leídos se guardan en una {@link CacheEntidades} de sesión que {@code findById}
+ * consulta antes de ir a la base de datos; las actualizaciones la escriben y los borrados la invalidan.
+ * {@code findByEmail} siempre consulta la base de datos, para que el login compruebe la contraseña actual.
+ * Los borrados descartan también el {@link IndiceVencimientos} y los {@link HistorialCobros} cargados.
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.4
  */
 public class UsuarioDAO implements CrudDao<Usuario> {
+    /** Usuarios leídos en la sesión, por ID. */
+    private static final CacheEntidades<Usuario> cache = new CacheEntidades<>("usuario", 200, Duration.ofMinutes(10));
 
     private final String create_sql = "INSERT INTO usuario (nombre, apellidos, email, password) VALUES (?, ?, ?, ?)";
     private final String update_sql = "UPDATE usuario SET nombre = ?, apellidos = ?, email = ?, password = ? WHERE id_usuario = ?";
@@ -49,16 +61,14 @@ public class UsuarioDAO implements CrudDao<Usuario> {
      */
     @Override
     public boolean create(Usuario usuario) {
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(create_sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-            pstm.setString(1, usuario.getNombre());
-            pstm.setString(2, usuario.getApellidos());
-            pstm.setString(3, usuario.getEmail());
-            pstm.setString(4, usuario.getPassword());
+        try (Connection con = ConnectionDB.getConnection(); PreparedStatement pstm = con.prepareStatement(create_sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            asignarParametros(pstm, usuario);
 
             if (pstm.executeUpdate() > 0) {
                 ResultSet rs = pstm.getGeneratedKeys();
                 if (rs.next()) {
                     usuario.setId_usuario(rs.getInt(1));
+                    Transaccion.alDeshacer(() -> usuario.setId_usuario(0));
                 }
                 return true;
             }
@@ -69,26 +79,25 @@ public class UsuarioDAO implements CrudDao<Usuario> {
     }
 
     /**
-     * Busca un usuario por su Clave Primaria (ID) y carga TODA su información relacionada.
+     * Busca un usuario por su Clave Primaria (ID).
      *
-     * Este método realiza una carga completa: además de los datos del perfil,
-     * recupera las listas de {@code misSuscripciones} y {@code misParticipantes}.
+     * Si ya se leyó en la sesión se devuelve desde la caché sin consultar la base de datos.
+     * Las listas de {@code misSuscripciones} y {@code misParticipaciones} se cargan
+     * al acceder a ellas por primera vez.
      *
      * @param id Identificador único del usuario.
      * @return El objeto {@link Usuario} completo, o {@code null} si no existe.
      */
     @Override
     public Usuario findById(int id) {
-        Usuario usuario = null;
+        Usuario usuario = cache.obtener(id);
+        if (usuario != null) return usuario;
 
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_id_sql)) {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_id_sql)) {
             pstm.setInt(1, id);
             ResultSet rs = pstm.executeQuery();
             if (rs.next()) {
                 usuario = obtenerUsuario(rs);
-
-                usuario.setMisSuscripciones(findSuscripcionesDeTitular(usuario.getId_usuario()));
-                usuario.setMisParticipaciones(findParticipacionesDeUsuario(usuario.getId_usuario()));
             }
         } catch (SQLException e) {
             System.out.println("Error buscando usuario: " + e.getMessage());
@@ -100,15 +109,15 @@ public class UsuarioDAO implements CrudDao<Usuario> {
      * Recupera todos los usuarios registrados en el sistema.
      *
      * Nota de rendimiento: Este método realiza una carga ligera.
-     * Devuelve los usuarios con sus datos básicos (nombre, email...) pero
-     * NO carga las listas de suscripciones ni participaciones para evitar saturar la memoria.
+     * Devuelve los usuarios con sus datos básicos (nombre, email...); las listas de
+     * suscripciones y participaciones solo se consultan si se accede a ellas.
      *
      * @return Lista de usuarios (puede estar vacía).
      */
     @Override
     public List<Usuario> findAll() {
         List<Usuario> usuarios = new ArrayList<>();
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_all_sql)) {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_all_sql)) {
             ResultSet rs = pstm.executeQuery();
             while (rs.next()) {
                 usuarios.add(obtenerUsuario(rs));
@@ -122,23 +131,25 @@ public class UsuarioDAO implements CrudDao<Usuario> {
     /**
      * Actualiza los datos de un usuario existente.
      *
+     * Si se actualiza, el objeto pasa a ser la instancia de la caché; si falla, se saca de ella.
+     * Las suscripciones en caché llevan una copia del titular, así que también se descartan.
+     *
      * @param usuario Objeto con los datos modificados. Debe tener un {@code id_usuario} válido.
      * @return {@code true} si se actualizó correctamente.
      */
     @Override
     public boolean update(Usuario usuario) {
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(update_sql)) {
-            pstm.setString(1, usuario.getNombre());
-            pstm.setString(2, usuario.getApellidos());
-            pstm.setString(3, usuario.getEmail());
-            pstm.setString(4, usuario.getPassword());
+        boolean actualizado = false;
+        try (Connection con = ConnectionDB.getConnection(); PreparedStatement pstm = con.prepareStatement(update_sql)) {
+            asignarParametros(pstm, usuario);
             pstm.setInt(5, usuario.getId_usuario());
 
-            return pstm.executeUpdate() > 0;
+            actualizado = pstm.executeUpdate() > 0;
         } catch (SQLException e) {
             System.out.println("Error actualizando usuario: " + e.getMessage());
-            return false;
         }
+        escribirEnCache(usuario, actualizado);
+        return actualizado;
     }
 
     /**
@@ -153,7 +164,11 @@ public class UsuarioDAO implements CrudDao<Usuario> {
      */
     @Override
     public boolean delete(int id) {
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(delete_sql)) {
+        cache.invalidar(id);
+        SuscripcionDAO.vaciarCache(); // Sus suscripciones se borran en cascada
+        IndiceVencimientos.invalidar();
+        HistorialCobros.invalidarTodos();
+        try (Connection con = ConnectionDB.getConnection(); PreparedStatement pstm = con.prepareStatement(delete_sql)) {
             pstm.setInt(1, id);
             return pstm.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -162,26 +177,87 @@ public class UsuarioDAO implements CrudDao<Usuario> {
         }
     }
 
+    /**
+     * Inserta varios usuarios en una sola transacción (JDBC Batch).
+     *
+     * Si el lote se confirma, cada objeto queda con su ID generado.
+     * Si falla alguna fila, se deshace el lote completo.
+     *
+     * @param usuarios Lista de objetos a guardar.
+     * @return {@code true} si se guardaron todos.
+     */
+    @Override
+    public boolean createAll(List<Usuario> usuarios) {
+        try {
+            LoteJdbc.insertar(create_sql, usuarios, this::asignarParametros, Usuario::setId_usuario);
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error creando lote de usuarios: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Actualiza varios usuarios en una sola transacción (JDBC Batch).
+     *
+     * @param usuarios Lista de objetos con los datos modificados.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean updateAll(List<Usuario> usuarios) {
+        boolean actualizados = false;
+        try {
+            LoteJdbc.ejecutar(update_sql, usuarios, (pstm, usuario) -> {
+                asignarParametros(pstm, usuario);
+                pstm.setInt(5, usuario.getId_usuario());
+            });
+            actualizados = true;
+        } catch (SQLException e) {
+            System.out.println("Error actualizando lote de usuarios: " + e.getMessage());
+        }
+        for (Usuario usuario : usuarios) escribirEnCache(usuario, actualizados);
+        return actualizados;
+    }
+
+    /**
+     * Elimina varios usuarios por su ID en una sola transacción (JDBC Batch).
+     *
+     * @param ids Identificadores a borrar.
+     * @return {@code true} si el lote se confirmó.
+     */
+    @Override
+    public boolean deleteAll(List<Integer> ids) {
+        for (int id : ids) cache.invalidar(id);
+        SuscripcionDAO.vaciarCache();
+        IndiceVencimientos.invalidar();
+        HistorialCobros.invalidarTodos();
+        try {
+            LoteJdbc.ejecutar(delete_sql, ids, (pstm, id) -> pstm.setInt(1, id));
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error eliminando lote de usuarios: " + e.getMessage());
+            return false;
+        }
+    }
+
     // Métodos específicos de Usuario
 
     /**
      * Busca un usuario por su correo electrónico.
      * Método esencial para el proceso de Login.
-     * Al igual que {@code findById}, realiza una carga completa de las relaciones del usuario.
+     * Solo lee la fila del usuario (hash de contraseña y datos de perfil); las relaciones
+     * se cargan bajo demanda.
      *
      * @param email Correo a buscar (debe ser coincidencia exacta).
      * @return Objeto {@link Usuario} completo o {@code null} si no existe.
      */
     public Usuario findByEmail(String email) {
         Usuario usuario = null;
-        try (PreparedStatement pstm = ConnectionDB.getConnection().prepareStatement(find_by_email_sql)) {
+        try (Connection con = ConnectionDB.getConnectionLectura(); PreparedStatement pstm = con.prepareStatement(find_by_email_sql)) {
             pstm.setString(1, email);
             ResultSet rs = pstm.executeQuery();
             if (rs.next()) {
                 usuario = obtenerUsuario(rs);
-
-                usuario.setMisSuscripciones(findSuscripcionesDeTitular(usuario.getId_usuario()));
-                usuario.setMisParticipaciones(findParticipacionesDeUsuario(usuario.getId_usuario()));
             }
         } catch (SQLException e) {
             System.out.println("Error buscando usuario por email: " + e.getMessage());
@@ -189,13 +265,43 @@ public class UsuarioDAO implements CrudDao<Usuario> {
         return usuario;
     }
 
+    /** @return La caché de usuarios, para consultar sus estadísticas. */
+    public static CacheEntidades<Usuario> getCache() {
+        return cache;
+    }
+
     // Métodos privados auxiliares
 
     /**
-     * Convierte una fila del ResultSet en un objeto Usuario básico.
+     * Escritura directa en la caché tras un UPDATE.
+     *
+     * @param usuario Objeto enviado a la base de datos.
+     * @param guardado Si el UPDATE se confirmó.
+     */
+    private void escribirEnCache(Usuario usuario, boolean guardado) {
+        if (guardado) {
+            cache.guardar(usuario.getId_usuario(), usuario);
+        } else {
+            cache.invalidar(usuario.getId_usuario());
+        }
+        SuscripcionDAO.vaciarCache();
+    }
+
+    /**
+     * Asigna los parámetros comunes de INSERT y UPDATE (posiciones 1 a 4).
+     */
+    private void asignarParametros(PreparedStatement pstm, Usuario usuario) throws SQLException {
+        pstm.setString(1, usuario.getNombre());
+        pstm.setString(2, usuario.getApellidos());
+        pstm.setString(3, usuario.getEmail());
+        pstm.setString(4, usuario.getPassword());
+    }
+
+    /**
+     * Convierte una fila del ResultSet en un objeto Usuario básico y lo guarda en la caché.
      *
      * @param rs ResultSet posicionado en la fila actual.
-     * @return Usuario con datos básicos (sin listas cargadas).
+     * @return Usuario con datos básicos y sus listas preparadas para carga diferida.
      * @throws SQLException Si hay error al leer columnas.
      */
     private Usuario obtenerUsuario(ResultSet rs) throws SQLException {
@@ -206,10 +312,12 @@ public class UsuarioDAO implements CrudDao<Usuario> {
         usuario.setEmail(rs.getString("email"));
         usuario.setPassword(rs.getString("password"));
 
-        // Inicializamos listas vacías para evitar NullPointerException
-        usuario.setMisSuscripciones(new ArrayList<>());
-        usuario.setMisParticipaciones(new ArrayList<>());
+        // Listas diferidas: no se consulta nada hasta que alguien las recorra
+        int idUsuario = usuario.getId_usuario();
+        usuario.setMisSuscripciones(new ListaPerezosa<>(() -> findSuscripcionesDeTitular(idUsuario)));
+        usuario.setMisParticipaciones(new ListaPerezosa<>(() -> findParticipacionesDeUsuario(idUsuario)));
 
+        cache.guardar(idUsuario, usuario);
         return usuario;
     }
 
@@ -0,0 +1,132 @@
+package org.dam.fcojavier.substracker.importer;
+
+import org.dam.fcojavier.substracker.model.Suscripcion;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decide a qué suscripción del titular corresponde un cargo del extracto.
+ *
+ * Los nombres de las suscripciones y las descripciones de sus cobros anteriores (alias como
+ * "NETFLIX.COM 866-579") se guardan en un {@link IndiceTrigramas}: cada concepto se busca por
+ * similitud, sin recorrer todos los nombres, y admite variaciones del banco (puntos, referencias,
+ * abreviaturas). Si varios nombres aparecen completos, gana el más largo ("Amazon Prime Video" antes
+ * que "Amazon"). Después se comprueba que el importe sea plausible.
+ *
+ * El emparejador se conserva entre importaciones del mismo titular: {@link #actualizar(List)} aplica
+ * solo las altas, bajas y cambios de nombre de las suscripciones, y {@link #aprender(int, String)}
+ * añade como alias los conceptos importados. No es seguro para varios hilos.
+ *
+ * @author Fco Javier García
+ * @version 1.2
+ */
+class EmparejadorSuscripciones {
+
+    /** Un cargo de menos de la mitad del precio no se considera un cobro de la suscripción. */
+    private static final double PROPORCION_MINIMA = 0.5;
+    /** Como mucho se aceptan cargos de doce periodos (un año de una mensual). */
+    private static final int PERIODOS_MAXIMOS = 12;
+    /** Fracción mínima de los trigramas de un nombre o alias que debe aparecer en el concepto. */
+    private static final double UMBRAL = 0.7;
+    /** Marca de alias compartido por varias suscripciones (texto genérico, no se indexa). */
+    private static final int COMPARTIDO = -1;
+
+    private final IndiceTrigramas indice = new IndiceTrigramas(UMBRAL);
+    private final Map<Integer, Suscripcion> suscripciones = new HashMap<>();
+    /** Nombre indexado de cada suscripción, para detectar los cambios de nombre. */
+    private final Map<Integer, String> nombres = new HashMap<>();
+    /** Suscripción a la que pertenece cada alias normalizado. */
+    private final Map<String, Integer> alias = new HashMap<>();
+
+    /**
+     * @param suscripciones Suscripciones del titular.
+     */
+    EmparejadorSuscripciones(List<Suscripcion> suscripciones) {
+        actualizar(suscripciones);
+    }
+
+    /**
+     * Sincroniza el índice con las suscripciones actuales del titular.
+     *
+     * @param actuales Suscripciones leídas de la base de datos.
+     */
+    void actualizar(List<Suscripcion> actuales) {
+        Map<Integer, Suscripcion> nuevas = new HashMap<>();
+        for (Suscripcion s : actuales) {
+            nuevas.put(s.getIdSuscripcion(), s);
+        }
+
+        for (Integer id : List.copyOf(suscripciones.keySet())) {
+            if (!nuevas.containsKey(id)) {
+                indice.eliminar(id);
+                nombres.remove(id);
+                alias.values().removeIf(id::equals);
+            }
+        }
+        for (Suscripcion s : actuales) {
+            int id = s.getIdSuscripcion();
+            String anterior = nombres.get(id);
+            if (s.getNombre() != null && !s.getNombre().equals(anterior)) {
+                if (anterior != null) indice.eliminar(id, anterior);
+                indice.agregar(id, s.getNombre());
+                nombres.put(id, s.getNombre());
+            }
+        }
+        suscripciones.clear();
+        suscripciones.putAll(nuevas);
+    }
+
+    /**
+     * Añade la descripción de un cobro como alias de su suscripción. Las descripciones que ya tiene
+     * otra suscripción ("Pago mensual") son genéricas y se descartan.
+     *
+     * @param idSuscripcion Suscripción del cobro.
+     * @param descripcion Descripción o concepto del cobro.
+     */
+    void aprender(int idSuscripcion, String descripcion) {
+        if (descripcion == null || !suscripciones.containsKey(idSuscripcion)) return;
+
+        String normalizado = IndiceTrigramas.normalizar(descripcion);
+        if (normalizado.isEmpty()) return;
+
+        Integer propietaria = alias.putIfAbsent(normalizado, idSuscripcion);
+        if (propietaria == null) {
+            indice.agregar(idSuscripcion, normalizado);
+        } else if (propietaria != idSuscripcion && propietaria != COMPARTIDO) {
+            alias.put(normalizado, COMPARTIDO);
+            indice.eliminar(propietaria, normalizado);
+            // El nombre de la suscripción puede coincidir con el alias: se restaura
+            String nombre = nombres.get(propietaria);
+            if (nombre != null) indice.agregar(propietaria, nombre);
+        }
+    }
+
+    /**
+     * @param concepto Concepto del movimiento.
+     * @return La suscripción cuyo nombre o alias se parece al concepto, o {@code null}.
+     */
+    Suscripcion buscar(String concepto) {
+        IndiceTrigramas.Coincidencia coincidencia = indice.buscar(concepto);
+        return coincidencia == null ? null : suscripciones.get(coincidencia.clave());
+    }
+
+    /**
+     * Periodos que cubre un cargo: el importe dividido entre el precio actual, redondeado.
+     * Se admite que el precio haya cambiado desde la fecha del cargo (las subidas de precio son
+     * habituales en extractos de años), pero no importes desproporcionados.
+     *
+     * @param suscripcion Suscripción emparejada.
+     * @param cargoCentimos Importe del cargo en céntimos, en positivo.
+     * @return Número de periodos (1 a 12), o {@code -1} si el importe no encaja con el precio.
+     */
+    static int periodos(Suscripcion suscripcion, long cargoCentimos) {
+        long precio = suscripcion.getPrecioCentimos();
+        if (precio <= 0) return -1;
+
+        double proporcion = (double) cargoCentimos / precio;
+        if (proporcion < PROPORCION_MINIMA || proporcion > PERIODOS_MAXIMOS + PROPORCION_MINIMA) return -1;
+        return (int) Math.max(1, Math.round(proporcion));
+    }
+}
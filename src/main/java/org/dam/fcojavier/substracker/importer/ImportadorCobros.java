@@ -0,0 +1,280 @@
+package org.dam.fcojavier.substracker.importer;
+
+import org.dam.fcojavier.substracker.dao.CobroDAO;
+import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
+import org.dam.fcojavier.substracker.model.Cobro;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Importa los cobros de un extracto bancario (CSV u OFX) de un titular.
+ *
+ * El fichero se procesa en tres etapas encadenadas por colas acotadas:
+ * 1. Lectura (hilo virtual): interpreta las líneas con el {@link LectorMovimientos} del formato.
+ * 2. Emparejado (hilo virtual): descarta ingresos, busca la suscripción ({@link EmparejadorSuscripciones})
+ *    y los cobros ya registrados (misma suscripción y fecha, incluidos los repetidos en el propio fichero).
+ * 3. Escritura (hilo que llama): agrupa los cobros en lotes de {@value #TAMANO_LOTE} y los guarda con
+ *    {@link CobroDAO#createAll(List)}, una transacción por lote.
+ *
+ * Si una etapa va más lenta que la anterior, su cola se llena y {@code put} bloquea a la anterior
+ * (contrapresión): la memoria usada no depende del tamaño del fichero, solo de la capacidad de las
+ * colas, el lote y el conjunto de claves de cobros del titular.
+ * Si falla un lote o una etapa lanza una excepción inesperada, se anota el error y se detienen las
+ * demás etapas; los lotes ya confirmados se conservan y, al repetir la importación, se reconocen como
+ * duplicados. Cada etapa pone su marca de fin aunque falle, así que la siguiente nunca queda bloqueada.
+ *
+ * Los cobros importados son históricos: no se modifica la fecha de renovación de las suscripciones.
+ *
+ * El emparejador se construye en la primera importación de un titular (nombres y descripciones de sus
+ * cobros) y se conserva en el importador: las siguientes solo aplican los cambios de suscripciones y
+ * añaden como alias los conceptos guardados.
+ *
+ * @author Fco Javier García
+ * @version 1.4
+ */
+public class ImportadorCobros {
+    /** Capacidad de cada cola entre etapas. */
+    static final int CAPACIDAD_COLA = 1024;
+    /** Cobros por transacción. */
+    static final int TAMANO_LOTE = 500;
+
+    /** Marcas de fin de cada cola (se comparan por identidad). */
+    private static final MovimientoBancario FIN_MOVIMIENTOS = new MovimientoBancario(-1, null, 0, null);
+    private static final Cobro FIN_COBROS = new Cobro();
+
+    private final SuscripcionDAO suscripcionDAO;
+    private final CobroDAO cobroDAO;
+
+    private EmparejadorSuscripciones emparejador;
+    private int idTitularIndexado;
+
+    /**
+     * Constructor por defecto. Inicializa los DAOs.
+     */
+    public ImportadorCobros() {
+        this.suscripcionDAO = new SuscripcionDAO();
+        this.cobroDAO = new CobroDAO();
+    }
+
+    /**
+     * Importa un extracto. Se debe llamar fuera del hilo de JavaFX ({@code ServicioAsincrono}).
+     *
+     * @param fichero Extracto CSV u OFX.
+     * @param titular Usuario al que pertenecen las suscripciones.
+     * @param metodoPago Método de pago que se asigna a los cobros importados.
+     * @return Recuento de la importación (con {@link ResultadoImportacion#getError()} si se interrumpió).
+     */
+    public synchronized ResultadoImportacion importar(Path fichero, Usuario titular, MetodoPago metodoPago) {
+        long inicio = System.currentTimeMillis();
+        ResultadoImportacion resultado = new ResultadoImportacion();
+
+        // El emparejador solo usa nombre, precio y ciclo: los cobros se leen después, una vez y en streaming
+        List<Suscripcion> suscripciones = suscripcionDAO.findByTitularIdSinCobros(titular.getId_usuario());
+        boolean indexar = emparejador == null || idTitularIndexado != titular.getId_usuario();
+        if (indexar) {
+            emparejador = new EmparejadorSuscripciones(suscripciones);
+            idTitularIndexado = titular.getId_usuario();
+        } else {
+            emparejador.actualizar(suscripciones);
+        }
+        Set<Long> registrados = clavesRegistradas(titular.getId_usuario(), indexar);
+        List<Cobro> guardados = new ArrayList<>();
+
+        BlockingQueue<MovimientoBancario> movimientos = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+        BlockingQueue<Cobro> cobros = new ArrayBlockingQueue<>(CAPACIDAD_COLA);
+
+        Thread lectura = Thread.ofVirtual().name("importacion-lectura")
+                .start(() -> leer(fichero, movimientos, resultado));
+        Thread emparejado = Thread.ofVirtual().name("importacion-emparejado")
+                .start(() -> emparejar(movimientos, cobros, emparejador, registrados, metodoPago, resultado));
+
+        try {
+            escribir(cobros, guardados, resultado);
+        } catch (InterruptedException e) {
+            resultado.setError("Importación cancelada.");
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            resultado.setError("Error inesperado guardando los cobros: " + e);
+        }
+        if (resultado.getError() != null) {
+            lectura.interrupt();
+            emparejado.interrupt();
+        }
+
+        try {
+            lectura.join();
+            emparejado.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Con las etapas terminadas el emparejador ya no se consulta desde otro hilo
+        for (Cobro cobro : guardados) {
+            emparejador.aprender(cobro.getSuscripcion().getIdSuscripcion(), cobro.getDescripcion());
+        }
+        resultado.setDuracionMs(System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    // Etapas
+
+    /**
+     * Etapa 1: lee el fichero y pone los movimientos en la cola.
+     */
+    private void leer(Path fichero, BlockingQueue<MovimientoBancario> salida, ResultadoImportacion resultado) {
+        // Los extractos antiguos suelen venir en Latin-1: un byte no válido no debe abortar la lectura
+        var decodificador = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (BufferedReader entrada = new BufferedReader(new InputStreamReader(Files.newInputStream(fichero), decodificador))) {
+            LectorMovimientos.para(fichero).leer(entrada, new LectorMovimientos.Salida() {
+                @Override
+                public void movimiento(MovimientoBancario movimiento) throws InterruptedException {
+                    resultado.sumarLeido();
+                    salida.put(movimiento);
+                }
+
+                @Override
+                public void lineaErronea(long linea, String motivo) {
+                    resultado.anotarErroneo(linea, motivo);
+                }
+            });
+        } catch (IOException e) {
+            resultado.setError("No se pudo leer el fichero: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            resultado.setError("Error inesperado leyendo el fichero: " + e);
+        } finally {
+            // Siempre, para que la etapa siguiente no espere para siempre
+            terminar(salida, FIN_MOVIMIENTOS);
+        }
+    }
+
+    /**
+     * Etapa 2: convierte los cargos en cobros de una suscripción, sin duplicados.
+     */
+    private void emparejar(BlockingQueue<MovimientoBancario> entrada, BlockingQueue<Cobro> salida,
+                           EmparejadorSuscripciones emparejador, Set<Long> registrados, MetodoPago metodoPago,
+                           ResultadoImportacion resultado) {
+        try {
+            MovimientoBancario movimiento;
+            while ((movimiento = entrada.take()) != FIN_MOVIMIENTOS) {
+                if (!movimiento.esCargo()) {
+                    resultado.sumarIngreso();
+                    continue;
+                }
+
+                Suscripcion suscripcion = emparejador.buscar(movimiento.concepto());
+                int periodos = suscripcion != null ? EmparejadorSuscripciones.periodos(suscripcion, -movimiento.importeCentimos()) : -1;
+                if (periodos < 1) {
+                    resultado.anotarSinCoincidencia(movimiento);
+                    continue;
+                }
+
+                if (!registrados.add(clave(suscripcion.getIdSuscripcion(), movimiento.fecha()))) {
+                    resultado.sumarDuplicado();
+                    continue;
+                }
+                salida.put(crearCobro(movimiento, suscripcion, periodos, metodoPago));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            resultado.setError("Error inesperado emparejando los movimientos: " + e);
+        } finally {
+            terminar(salida, FIN_COBROS);
+        }
+    }
+
+    /**
+     * Etapa 3: guarda los cobros por lotes. Si un lote falla, anota el error y deja de consumir.
+     */
+    private void escribir(BlockingQueue<Cobro> entrada, List<Cobro> guardados, ResultadoImportacion resultado)
+            throws InterruptedException {
+        List<Cobro> lote = new ArrayList<>(TAMANO_LOTE);
+        Cobro cobro;
+        while ((cobro = entrada.take()) != FIN_COBROS) {
+            lote.add(cobro);
+            if (lote.size() == TAMANO_LOTE) {
+                if (!guardar(lote, resultado)) return;
+                guardados.addAll(lote);
+                lote = new ArrayList<>(TAMANO_LOTE);
+            }
+        }
+        if (!lote.isEmpty() && guardar(lote, resultado)) {
+            guardados.addAll(lote);
+        }
+    }
+
+    // Métodos privados
+
+    private boolean guardar(List<Cobro> lote, ResultadoImportacion resultado) {
+        if (!cobroDAO.createAll(lote)) {
+            resultado.setError("Error guardando un lote de " + lote.size() + " cobros; se ha detenido la importación.");
+            return false;
+        }
+        resultado.sumarImportados(lote.size());
+        return true;
+    }
+
+    /**
+     * Claves (suscripción, fecha) de los cobros que ya tiene el titular, leídos en streaming.
+     * En la misma pasada, si se indica, se enseñan al emparejador sus descripciones.
+     */
+    private Set<Long> clavesRegistradas(int idTitular, boolean aprenderDescripciones) {
+        Set<Long> claves = new HashSet<>();
+        try (Stream<Cobro> existentes = cobroDAO.streamByUsuarioId(idTitular)) {
+            existentes.forEach(c -> {
+                int idSuscripcion = c.getSuscripcion().getIdSuscripcion();
+                claves.add(clave(idSuscripcion, c.getFecha_cobro()));
+                if (aprenderDescripciones) emparejador.aprender(idSuscripcion, c.getDescripcion());
+            });
+        }
+        return claves;
+    }
+
+    private static long clave(int idSuscripcion, LocalDate fecha) {
+        return ((long) idSuscripcion << 32) | (fecha.toEpochDay() & 0xFFFFFFFFL);
+    }
+
+    private static Cobro crearCobro(MovimientoBancario movimiento, Suscripcion suscripcion, int periodos, MetodoPago metodoPago) {
+        Cobro cobro = new Cobro();
+        cobro.setSuscripcion(suscripcion);
+        cobro.setFecha_cobro(movimiento.fecha());
+        cobro.setMetodo_pago(metodoPago);
+        cobro.setPeriodos_cubiertos(periodos);
+        String concepto = movimiento.concepto();
+        cobro.setDescripcion(concepto.length() > 255 ? concepto.substring(0, 255) : concepto);
+        return cobro;
+    }
+
+    /**
+     * Pone la marca de fin en la cola (esperando si está llena, salvo que se cancele).
+     * Si el hilo ya está interrumpido no espera: la etapa siguiente también se ha interrumpido.
+     */
+    private static <T> void terminar(BlockingQueue<T> cola, T fin) {
+        try {
+            cola.put(fin);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.dam.fcojavier.substracker.importer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice en memoria de trigramas para buscar, por similitud, a qué clave (una suscripción)
+ * corresponde un texto libre como {@code "NETFLIX.COM 866-579"}.
+ *
+ * Cada clave tiene uno o varios documentos: su nombre y los alias aprendidos (descripciones de
+ * cobros anteriores). Los textos se normalizan ({@link Texto}), se quitan las palabras que son solo
+ * números (referencias, teléfonos, fechas) y cada palabra se descompone en trigramas con un espacio
+ * a cada lado ({@code " ne", "net", ..., "ix "}). El índice invertido guarda, por trigrama, la lista
+ * de documentos que lo contienen.
+ *
+ * Una búsqueda solo recorre las listas de los trigramas del texto buscado, en lugar de comparar con
+ * todos los nombres. La puntuación de un documento es la fracción de sus trigramas que aparecen en el
+ * texto (el concepto de un extracto suele contener el nombre más otras palabras); a igualdad gana el
+ * que comparte más trigramas (el nombre más específico). Si dos claves distintas empatan, la búsqueda
+ * es ambigua y no devuelve nada.
+ *
+ * Admite altas y bajas incrementales; los documentos dados de baja se marcan y el índice se
+ * compacta cuando son mayoría. No es seguro para varios hilos.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class IndiceTrigramas {
+
+    /**
+     * Resultado de una búsqueda.
+     *
+     * @param clave Clave del documento más parecido.
+     * @param puntuacion Fracción (0 a 1) de los trigramas del documento presentes en el texto buscado.
+     */
+    public record Coincidencia(int clave, double puntuacion) {
+    }
+
+    private final double umbral;
+
+    /** Lista de documentos por trigrama. */
+    private final Map<Integer, ListaEnteros> listas = new HashMap<>();
+    /** Textos ya indexados por clave, para no duplicar documentos. */
+    private final Map<Integer, Set<String>> textosPorClave = new HashMap<>();
+
+    // Documentos, por posición
+    private int[] claveDoc = new int[64];
+    private String[] textoDoc = new String[64];
+    private int[] trigramasDoc = new int[64];
+    private boolean[] bajaDoc = new boolean[64];
+    private int documentos = 0;
+    private int bajas = 0;
+
+    /** Contadores de la búsqueda, reutilizados entre búsquedas. */
+    private int[] compartidos = new int[64];
+    private final ListaEnteros tocados = new ListaEnteros();
+
+    /**
+     * @param umbral Puntuación mínima para aceptar una coincidencia (por ejemplo 0.7).
+     */
+    public IndiceTrigramas(double umbral) {
+        this.umbral = umbral;
+    }
+
+    /**
+     * Añade un texto a una clave. Si la clave ya tenía ese texto (una vez normalizado) no hace nada.
+     *
+     * @param clave Clave (ID de la suscripción).
+     * @param texto Nombre o alias.
+     */
+    public void agregar(int clave, String texto) {
+        String normalizado = normalizar(texto);
+        int[] trigramas = trigramas(normalizado);
+        if (trigramas.length == 0) return;
+        if (!textosPorClave.computeIfAbsent(clave, k -> new HashSet<>()).add(normalizado)) return;
+
+        if (documentos == claveDoc.length) crecer();
+        int doc = documentos++;
+        claveDoc[doc] = clave;
+        textoDoc[doc] = normalizado;
+        trigramasDoc[doc] = trigramas.length;
+        bajaDoc[doc] = false;
+        for (int trigrama : trigramas) {
+            listas.computeIfAbsent(trigrama, k -> new ListaEnteros()).agregar(doc);
+        }
+    }
+
+    /**
+     * Da de baja todos los documentos de una clave (suscripción borrada).
+     *
+     * @param clave Clave a eliminar.
+     */
+    public void eliminar(int clave) {
+        if (textosPorClave.remove(clave) == null) return;
+        darDeBaja(clave, null);
+    }
+
+    /**
+     * Da de baja un texto de una clave (por ejemplo, el nombre anterior de una suscripción renombrada).
+     *
+     * @param clave Clave del texto.
+     * @param texto Texto tal como se añadió (se normaliza igual).
+     */
+    public void eliminar(int clave, String texto) {
+        String normalizado = normalizar(texto);
+        Set<String> textos = textosPorClave.get(clave);
+        if (textos == null || !textos.remove(normalizado)) return;
+        if (textos.isEmpty()) textosPorClave.remove(clave);
+        darDeBaja(clave, normalizado);
+    }
+
+    /**
+     * Busca la clave cuyo texto se parece más al indicado.
+     *
+     * @param texto Texto libre (concepto del extracto).
+     * @return La mejor coincidencia, o {@code null} si ninguna llega al umbral o hay empate entre claves.
+     */
+    public Coincidencia buscar(String texto) {
+        int[] trigramas = trigramas(normalizar(texto));
+        for (int trigrama : trigramas) {
+            ListaEnteros lista = listas.get(trigrama);
+            if (lista == null) continue;
+            for (int i = 0; i < lista.tamano; i++) {
+                int doc = lista.datos[i];
+                if (compartidos[doc]++ == 0) tocados.agregar(doc);
+            }
+        }
+
+        int mejor = -1;
+        int segunda = -1;
+        for (int i = 0; i < tocados.tamano; i++) {
+            int doc = tocados.datos[i];
+            if (bajaDoc[doc]) continue;
+            if (mejor < 0 || comparar(doc, mejor) > 0) {
+                if (mejor >= 0 && claveDoc[mejor] != claveDoc[doc]) segunda = mejor;
+                mejor = doc;
+            } else if (claveDoc[doc] != claveDoc[mejor] && (segunda < 0 || comparar(doc, segunda) > 0)) {
+                segunda = doc;
+            }
+        }
+
+        Coincidencia resultado = null;
+        if (mejor >= 0 && puntuacion(mejor) >= umbral && (segunda < 0 || comparar(mejor, segunda) > 0)) {
+            resultado = new Coincidencia(claveDoc[mejor], puntuacion(mejor));
+        }
+
+        for (int i = 0; i < tocados.tamano; i++) compartidos[tocados.datos[i]] = 0;
+        tocados.tamano = 0;
+        return resultado;
+    }
+
+    /**
+     * @return Documentos activos (nombres y alias).
+     */
+    public int getDocumentos() {
+        return documentos - bajas;
+    }
+
+    // Métodos privados
+
+    /**
+     * Marca los documentos de la clave (todos, o solo el del texto indicado) y compacta si las bajas
+     * son mayoría.
+     */
+    private void darDeBaja(int clave, String normalizado) {
+        for (int doc = 0; doc < documentos; doc++) {
+            if (claveDoc[doc] == clave && !bajaDoc[doc] && (normalizado == null || normalizado.equals(textoDoc[doc]))) {
+                bajaDoc[doc] = true;
+                bajas++;
+            }
+        }
+        if (bajas > documentos / 2) compactar();
+    }
+
+    private double puntuacion(int doc) {
+        return (double) compartidos[doc] / trigramasDoc[doc];
+    }
+
+    /**
+     * Orden de los candidatos: mayor puntuación y, a igualdad, más trigramas compartidos.
+     */
+    private int comparar(int a, int b) {
+        long izquierda = (long) compartidos[a] * trigramasDoc[b];
+        long derecha = (long) compartidos[b] * trigramasDoc[a];
+        if (izquierda != derecha) return Long.compare(izquierda, derecha);
+        return Integer.compare(compartidos[a], compartidos[b]);
+    }
+
+    /**
+     * Texto normalizado sin las palabras que son solo dígitos.
+     */
+    static String normalizar(String texto) {
+        String normalizado = Texto.normalizar(texto);
+        StringBuilder sb = new StringBuilder(normalizado.length());
+        int inicio = 0;
+        while (inicio < normalizado.length()) {
+            int fin = normalizado.indexOf(' ', inicio);
+            if (fin < 0) fin = normalizado.length();
+
+            boolean soloDigitos = true;
+            for (int i = inicio; i < fin && soloDigitos; i++) {
+                soloDigitos = Character.isDigit(normalizado.charAt(i));
+            }
+            if (!soloDigitos) {
+                if (!sb.isEmpty()) sb.append(' ');
+                sb.append(normalizado, inicio, fin);
+            }
+            inicio = fin + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Trigramas distintos del texto normalizado, cada uno empaquetado en un {@code int}
+     * (los caracteres normalizados son ASCII, un byte cada uno).
+     */
+    static int[] trigramas(String normalizado) {
+        if (normalizado.isEmpty()) return new int[0];
+
+        String relleno = " " + normalizado + " ";
+        int[] resultado = new int[relleno.length()];
+        int n = 0;
+        for (int i = 0; i + 2 < relleno.length(); i++) {
+            char a = relleno.charAt(i), b = relleno.charAt(i + 1), c = relleno.charAt(i + 2);
+            if (b == ' ') continue; // no cruza de una palabra a otra
+            resultado[n++] = (a << 16) | (b << 8) | c;
+        }
+
+        Arrays.sort(resultado, 0, n);
+        int distintos = 0;
+        for (int i = 0; i < n; i++) {
+            if (distintos == 0 || resultado[distintos - 1] != resultado[i]) resultado[distintos++] = resultado[i];
+        }
+        return Arrays.copyOf(resultado, distintos);
+    }
+
+    private void crecer() {
+        int capacidad = claveDoc.length * 2;
+        claveDoc = Arrays.copyOf(claveDoc, capacidad);
+        textoDoc = Arrays.copyOf(textoDoc, capacidad);
+        trigramasDoc = Arrays.copyOf(trigramasDoc, capacidad);
+        bajaDoc = Arrays.copyOf(bajaDoc, capacidad);
+        compartidos = Arrays.copyOf(compartidos, capacidad);
+    }
+
+    /**
+     * Reconstruye el índice sin los documentos dados de baja.
+     */
+    private void compactar() {
+        int total = documentos;
+        int[] claves = Arrays.copyOf(claveDoc, total);
+        String[] textos = Arrays.copyOf(textoDoc, total);
+        boolean[] baja = Arrays.copyOf(bajaDoc, total);
+
+        listas.clear();
+        textosPorClave.clear();
+        documentos = 0;
+        bajas = 0;
+        for (int doc = 0; doc < total; doc++) {
+            if (!baja[doc]) agregar(claves[doc], textos[doc]);
+        }
+        Arrays.fill(textoDoc, documentos, total, null);
+    }
+
+    /** Lista creciente de {@code int} sin objetos por elemento. */
+    private static class ListaEnteros {
+        int[] datos = new int[4];
+        int tamano = 0;
+
+        void agregar(int valor) {
+            if (tamano == datos.length) datos = Arrays.copyOf(datos, tamano * 2);
+            datos[tamano++] = valor;
+        }
+    }
+}
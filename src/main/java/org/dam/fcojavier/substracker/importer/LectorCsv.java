@@ -0,0 +1,159 @@
+package org.dam.fcojavier.substracker.importer;
+
+import org.dam.fcojavier.substracker.utils.Dinero;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de extractos en CSV, tal como los exportan los bancos.
+ *
+ * El separador ({@code ;}, {@code ,} o tabulador) se deduce de la primera línea. Si es una cabecera,
+ * las columnas se localizan por su nombre (fecha, concepto/descripción, importe/amount...); si no la
+ * hay, se asume el orden fecha, concepto, importe. Se admiten campos entre comillas, importes con coma
+ * o punto decimal (y separador de miles) y fechas {@code dd/MM/yyyy}, {@code yyyy-MM-dd},
+ * {@code dd-MM-yyyy} o {@code dd.MM.yyyy}. Los importes se leen directamente en céntimos
+ * ({@link Dinero#parsear(String)}).
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+class LectorCsv implements LectorMovimientos {
+
+    private static final List<DateTimeFormatter> FORMATOS_FECHA = List.of(
+            DateTimeFormatter.ofPattern("d/M/yyyy"),
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d-M-yyyy"),
+            DateTimeFormatter.ofPattern("d.M.yyyy"),
+            DateTimeFormatter.ofPattern("d/M/yy"));
+
+    private char separador;
+    private int colFecha = 0;
+    private int colConcepto = 1;
+    private int colImporte = 2;
+
+    @Override
+    public void leer(BufferedReader entrada, Salida salida) throws IOException, InterruptedException {
+        String linea;
+        long numero = 0;
+        boolean primera = true;
+
+        while ((linea = entrada.readLine()) != null) {
+            numero++;
+            if (linea.isBlank()) continue;
+
+            if (primera) {
+                primera = false;
+                if (numero == 1 && linea.charAt(0) == '\uFEFF') linea = linea.substring(1); // BOM de Excel
+                separador = deducirSeparador(linea);
+                if (leerCabecera(dividir(linea))) continue;
+            }
+
+            List<String> campos = dividir(linea);
+            if (campos.size() <= Math.max(colFecha, Math.max(colConcepto, colImporte))) {
+                salida.lineaErronea(numero, "faltan columnas");
+                continue;
+            }
+            try {
+                salida.movimiento(new MovimientoBancario(numero,
+                        leerFecha(campos.get(colFecha)),
+                        Dinero.parsear(campos.get(colImporte)),
+                        campos.get(colConcepto).trim()));
+            } catch (DateTimeParseException | NumberFormatException e) {
+                salida.lineaErronea(numero, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @throws DateTimeParseException Si no encaja con ningún formato admitido.
+     */
+    static LocalDate leerFecha(String texto) {
+        String limpio = texto.trim();
+        for (DateTimeFormatter formato : FORMATOS_FECHA) {
+            try {
+                return LocalDate.parse(limpio, formato);
+            } catch (DateTimeParseException e) {
+                // se prueba el siguiente formato
+            }
+        }
+        throw new DateTimeParseException("fecha no reconocida: " + limpio, limpio, 0);
+    }
+
+    // Métodos privados
+
+    private static char deducirSeparador(String linea) {
+        int puntoComa = 0, coma = 0, tab = 0;
+        for (int i = 0; i < linea.length(); i++) {
+            switch (linea.charAt(i)) {
+                case ';' -> puntoComa++;
+                case ',' -> coma++;
+                case '\t' -> tab++;
+                default -> { }
+            }
+        }
+        if (tab > puntoComa && tab > coma) return '\t';
+        return puntoComa >= coma && puntoComa > 0 ? ';' : ',';
+    }
+
+    /**
+     * Si la línea es una cabecera, localiza las columnas y devuelve {@code true}.
+     */
+    private boolean leerCabecera(List<String> campos) {
+        int fecha = -1, concepto = -1, importe = -1;
+        for (int i = 0; i < campos.size(); i++) {
+            String nombre = Texto.normalizar(campos.get(i));
+            if (fecha < 0 && (nombre.startsWith("fecha") || nombre.startsWith("date") || nombre.startsWith("f valor"))) {
+                fecha = i;
+            } else if (concepto < 0 && (nombre.contains("concepto") || nombre.contains("descripcion")
+                    || nombre.contains("description") || nombre.contains("detalle") || nombre.contains("memo") || nombre.contains("payee"))) {
+                concepto = i;
+            } else if (importe < 0 && (nombre.startsWith("importe") || nombre.startsWith("amount") || nombre.startsWith("cantidad"))) {
+                importe = i;
+            }
+        }
+        if (fecha < 0 || concepto < 0 || importe < 0) return false;
+
+        colFecha = fecha;
+        colConcepto = concepto;
+        colImporte = importe;
+        return true;
+    }
+
+    /**
+     * Divide una línea respetando los campos entre comillas ({@code ""} es una comilla literal).
+     */
+    private List<String> dividir(String linea) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+}
@@ -0,0 +1,57 @@
+package org.dam.fcojavier.substracker.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formato de extracto bancario que se lee en streaming: cada movimiento se entrega en cuanto se
+ * interpreta, sin cargar el fichero en memoria.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+interface LectorMovimientos {
+
+    /**
+     * Recibe lo que produce el lector.
+     */
+    interface Salida {
+        /**
+         * Entrega un movimiento. Puede bloquearse si la etapa siguiente va retrasada (contrapresión).
+         *
+         * @throws InterruptedException Si se cancela la importación mientras espera.
+         */
+        void movimiento(MovimientoBancario movimiento) throws InterruptedException;
+
+        /**
+         * Informa de una línea que no se pudo interpretar (se salta y se sigue leyendo).
+         */
+        void lineaErronea(long linea, String motivo);
+    }
+
+    /**
+     * Lee el extracto completo.
+     *
+     * @param entrada Fichero abierto.
+     * @param salida Destino de los movimientos.
+     * @throws IOException Si falla la lectura.
+     * @throws InterruptedException Si se cancela la importación.
+     */
+    void leer(BufferedReader entrada, Salida salida) throws IOException, InterruptedException;
+
+    /**
+     * Elige el lector por la extensión del fichero: {@code .ofx}/{@code .qfx} son OFX y el resto CSV.
+     *
+     * @param fichero Extracto a importar.
+     * @return El lector adecuado.
+     */
+    static LectorMovimientos para(Path fichero) {
+        String nombre = fichero.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (nombre.endsWith(".ofx") || nombre.endsWith(".qfx")) {
+            return new LectorOfx();
+        }
+        return new LectorCsv();
+    }
+}
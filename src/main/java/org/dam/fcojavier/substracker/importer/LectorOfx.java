@@ -0,0 +1,99 @@
+package org.dam.fcojavier.substracker.importer;
+
+import org.dam.fcojavier.substracker.utils.Dinero;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Lector de extractos OFX/QFX (versión 1, SGML, y versión 2, XML).
+ *
+ * Solo interesan los bloques {@code <STMTTRN>}: de cada uno se toman {@code DTPOSTED}, {@code TRNAMT}
+ * y, como concepto, {@code NAME} seguido de {@code MEMO}. El fichero se recorre etiqueta a etiqueta,
+ * sin construir el documento, y admite varias etiquetas por línea y etiquetas con o sin cierre.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+class LectorOfx implements LectorMovimientos {
+
+    private long movimientos = 0;
+    private boolean enMovimiento = false;
+    private String fecha;
+    private String importe;
+    private String nombre;
+    private String memo;
+
+    @Override
+    public void leer(BufferedReader entrada, Salida salida) throws IOException, InterruptedException {
+        String linea;
+        while ((linea = entrada.readLine()) != null) {
+            int inicio = linea.indexOf('<');
+            while (inicio >= 0) {
+                int finEtiqueta = linea.indexOf('>', inicio);
+                if (finEtiqueta < 0) break;
+
+                String etiqueta = linea.substring(inicio + 1, finEtiqueta).trim().toUpperCase();
+                int siguiente = linea.indexOf('<', finEtiqueta);
+                String valor = linea.substring(finEtiqueta + 1, siguiente < 0 ? linea.length() : siguiente).trim();
+
+                procesar(etiqueta, valor, salida);
+                inicio = siguiente;
+            }
+        }
+    }
+
+    // Métodos privados
+
+    private void procesar(String etiqueta, String valor, Salida salida) throws InterruptedException {
+        switch (etiqueta) {
+            case "STMTTRN" -> {
+                enMovimiento = true;
+                movimientos++;
+                fecha = importe = nombre = memo = null;
+            }
+            case "/STMTTRN" -> {
+                if (enMovimiento) emitir(salida);
+                enMovimiento = false;
+            }
+            case "DTPOSTED" -> fecha = valor;
+            case "TRNAMT" -> importe = valor;
+            case "NAME", "PAYEE" -> nombre = desescapar(valor);
+            case "MEMO" -> memo = desescapar(valor);
+            default -> { }
+        }
+    }
+
+    private void emitir(Salida salida) throws InterruptedException {
+        if (fecha == null || importe == null) {
+            salida.lineaErronea(movimientos, "movimiento sin DTPOSTED o TRNAMT");
+            return;
+        }
+        try {
+            String concepto = nombre == null ? memo : (memo == null || memo.isEmpty() ? nombre : nombre + " " + memo);
+            salida.movimiento(new MovimientoBancario(movimientos, leerFecha(fecha), Dinero.parsear(importe),
+                    concepto == null ? "" : concepto));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            salida.lineaErronea(movimientos, e.getMessage());
+        }
+    }
+
+    /**
+     * Las fechas OFX empiezan por {@code yyyyMMdd} (puede seguir la hora y la zona).
+     */
+    private static LocalDate leerFecha(String texto) {
+        if (texto.length() < 8) throw new DateTimeParseException("fecha OFX no válida: " + texto, texto, 0);
+        try {
+            return LocalDate.of(Integer.parseInt(texto.substring(0, 4)), Integer.parseInt(texto.substring(4, 6)),
+                    Integer.parseInt(texto.substring(6, 8)));
+        } catch (RuntimeException e) {
+            throw new DateTimeParseException("fecha OFX no válida: " + texto, texto, 0);
+        }
+    }
+
+    private static String desescapar(String valor) {
+        return valor.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&amp;", "&");
+    }
+}
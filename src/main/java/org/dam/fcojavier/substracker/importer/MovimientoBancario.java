@@ -0,0 +1,25 @@
+package org.dam.fcojavier.substracker.importer;
+
+import java.time.LocalDate;
+
+/**
+ * Una línea de un extracto bancario ya interpretada.
+ *
+ * @param linea Número de línea (CSV) o de movimiento (OFX) en el fichero, para los mensajes.
+ * @param fecha Fecha de la operación.
+ * @param importeCentimos Importe en céntimos con el signo del banco: negativo para un cargo, positivo
+ *                        para un ingreso.
+ * @param concepto Texto del movimiento (comercio, concepto o memo).
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public record MovimientoBancario(long linea, LocalDate fecha, long importeCentimos, String concepto) {
+
+    /**
+     * @return {@code true} si es un cargo en la cuenta (lo único que puede ser un cobro de una suscripción).
+     */
+    public boolean esCargo() {
+        return importeCentimos < 0;
+    }
+}
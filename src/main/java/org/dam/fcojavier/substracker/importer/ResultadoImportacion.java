@@ -0,0 +1,125 @@
+package org.dam.fcojavier.substracker.importer;
+
+import org.dam.fcojavier.substracker.utils.Dinero;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recuento de una importación de extracto.
+ *
+ * Cada contador lo incrementa una sola etapa del proceso y se lee cuando todas han terminado.
+ * De los movimientos descartados se guardan solo unos pocos ejemplos, para mostrarlos al usuario
+ * sin acumular en memoria un fichero de años.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class ResultadoImportacion {
+    /** Ejemplos que se guardan de cada tipo de descarte. */
+    static final int MAXIMO_EJEMPLOS = 10;
+
+    private long leidos;
+    private long importados;
+    private long duplicados;
+    private long sinCoincidencia;
+    private long ingresos;
+    private long erroneos;
+    private final List<String> ejemplosSinCoincidencia = new ArrayList<>();
+    private final List<String> ejemplosErroneos = new ArrayList<>();
+    private volatile String error;
+    private long duracionMs;
+
+    void sumarLeido() {
+        leidos++;
+    }
+
+    void sumarImportados(int cantidad) {
+        importados += cantidad;
+    }
+
+    void sumarDuplicado() {
+        duplicados++;
+    }
+
+    void sumarIngreso() {
+        ingresos++;
+    }
+
+    void anotarSinCoincidencia(MovimientoBancario movimiento) {
+        sinCoincidencia++;
+        if (ejemplosSinCoincidencia.size() < MAXIMO_EJEMPLOS) {
+            ejemplosSinCoincidencia.add(movimiento.fecha() + " " + movimiento.concepto() + " (" + Dinero.formatear(movimiento.importeCentimos()) + ")");
+        }
+    }
+
+    void anotarErroneo(long linea, String motivo) {
+        erroneos++;
+        if (ejemplosErroneos.size() < MAXIMO_EJEMPLOS) {
+            ejemplosErroneos.add("Línea " + linea + ": " + motivo);
+        }
+    }
+
+    synchronized void setError(String error) {
+        if (this.error == null) this.error = error;
+    }
+
+    void setDuracionMs(long duracionMs) {
+        this.duracionMs = duracionMs;
+    }
+
+    /** @return Movimientos interpretados correctamente. */
+    public long getLeidos() {
+        return leidos;
+    }
+
+    /** @return Cobros guardados. */
+    public long getImportados() {
+        return importados;
+    }
+
+    /** @return Cargos que ya estaban registrados (misma suscripción y fecha). */
+    public long getDuplicados() {
+        return duplicados;
+    }
+
+    /** @return Cargos que no corresponden a ninguna suscripción. */
+    public long getSinCoincidencia() {
+        return sinCoincidencia;
+    }
+
+    /** @return Ingresos (importes positivos), que no pueden ser cobros. */
+    public long getIngresos() {
+        return ingresos;
+    }
+
+    /** @return Líneas que no se pudieron interpretar. */
+    public long getErroneos() {
+        return erroneos;
+    }
+
+    public List<String> getEjemplosSinCoincidencia() {
+        return Collections.unmodifiableList(ejemplosSinCoincidencia);
+    }
+
+    public List<String> getEjemplosErroneos() {
+        return Collections.unmodifiableList(ejemplosErroneos);
+    }
+
+    /** @return Motivo por el que se interrumpió la importación, o {@code null} si terminó. */
+    public String getError() {
+        return error;
+    }
+
+    public long getDuracionMs() {
+        return duracionMs;
+    }
+
+    @Override
+    public String toString() {
+        return "leidos=" + leidos + ", importados=" + importados + ", duplicados=" + duplicados +
+                ", sinCoincidencia=" + sinCoincidencia + ", ingresos=" + ingresos + ", erroneos=" + erroneos +
+                (error != null ? ", error=" + error : "") + " (" + duracionMs + " ms)";
+    }
+}
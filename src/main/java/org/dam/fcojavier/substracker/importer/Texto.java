@@ -0,0 +1,55 @@
+package org.dam.fcojavier.substracker.importer;
+
+import java.text.Normalizer;
+
+/**
+ * Normalización de textos de extractos y nombres de suscripción para poder compararlos.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+final class Texto {
+
+    private Texto() {
+    }
+
+    /**
+     * Pasa a minúsculas, quita tildes y deja solo letras y dígitos separados por un espacio.
+     * Ej.: {@code "COMPRA TARJ. *Netflix.com  Ámsterdam"} → {@code "compra tarj netflix com amsterdam"}.
+     *
+     * @param texto Texto original (puede ser {@code null}).
+     * @return Texto normalizado (vacío si era {@code null}).
+     */
+    static String normalizar(String texto) {
+        if (texto == null) return "";
+
+        // Una sola pasada sin expresiones regulares: se llama una vez por línea del extracto
+        StringBuilder sb = new StringBuilder(texto.length());
+        boolean separar = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x80) {
+                if (Character.getType(c) == Character.NON_SPACING_MARK) continue; // tilde suelta
+                c = sinTilde(c);
+            }
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (separar && !sb.isEmpty()) sb.append(' ');
+                sb.append(c);
+                separar = false;
+            } else {
+                separar = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Letra base de un carácter acentuado ({@code 'Á'} → {@code 'A'}); el resto se devuelve igual.
+     */
+    private static char sinTilde(char c) {
+        String descompuesto = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        return descompuesto.charAt(0);
+    }
+}
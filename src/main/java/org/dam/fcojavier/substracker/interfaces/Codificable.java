@@ -0,0 +1,11 @@
+package org.dam.fcojavier.substracker.interfaces;
+
+/**
+ * Valor que se guarda en la base de datos como un código entero compacto.
+ *
+ * Lo implementan los enums del modelo. El código es fijo para cada valor: se puede
+ * reordenar o renombrar el enum sin invalidar los datos ya guardados.
+ */
+public interface Codificable {
+    int getCodigo();
+}
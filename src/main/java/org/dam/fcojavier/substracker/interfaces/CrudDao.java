@@ -16,4 +16,29 @@ public interface CrudDao<T> {
     boolean update(T entity);
 
     boolean delete(int id);
+
+    /**
+     * Inserta varias entidades en una única transacción mediante JDBC Batch.
+     * Si todo va bien, cada entidad queda con su ID generado.
+     *
+     * @param entities Entidades a insertar.
+     * @return {@code true} si se insertaron todas; {@code false} si no se insertó ninguna.
+     */
+    boolean createAll(List<T> entities);
+
+    /**
+     * Actualiza varias entidades en una única transacción mediante JDBC Batch.
+     *
+     * @param entities Entidades con los datos modificados.
+     * @return {@code true} si el lote se confirmó.
+     */
+    boolean updateAll(List<T> entities);
+
+    /**
+     * Elimina varias entidades por su ID en una única transacción mediante JDBC Batch.
+     *
+     * @param ids Identificadores a borrar.
+     * @return {@code true} si el lote se confirmó.
+     */
+    boolean deleteAll(List<Integer> ids);
 }
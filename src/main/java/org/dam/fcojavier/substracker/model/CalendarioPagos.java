@@ -0,0 +1,118 @@
+package org.dam.fcojavier.substracker.model;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Calendario de pagos previstos: importes por día o por mes a partir de una fecha inicial.
+ *
+ * Es el resultado de {@code ProyeccionPagos}. Cada casilla guarda, en céntimos, lo que cobran los
+ * proveedores (bruto), lo que ponen los colaboradores con el aporte ya pagado (cubierto) y lo que le
+ * queda al titular (neto, nunca negativo por suscripción y cobro).
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class CalendarioPagos {
+
+    /** Tamaño de cada casilla. */
+    public enum Escala { DIA, MES }
+
+    private final Escala escala;
+    /** Día inicial (escala DIA) o primer día del mes inicial (escala MES). */
+    private final LocalDate inicio;
+    private final long[] brutoCentimos;
+    private final long[] cubiertoCentimos;
+    private final long[] netoCentimos;
+    private final int[] cobros;
+
+    /**
+     * Crea un calendario vacío.
+     *
+     * @param escala Día o mes.
+     * @param inicio Primera casilla.
+     * @param casillas Número de días o meses.
+     */
+    public CalendarioPagos(Escala escala, LocalDate inicio, int casillas) {
+        this.escala = escala;
+        this.inicio = escala == Escala.MES ? inicio.withDayOfMonth(1) : inicio;
+        this.brutoCentimos = new long[casillas];
+        this.cubiertoCentimos = new long[casillas];
+        this.netoCentimos = new long[casillas];
+        this.cobros = new int[casillas];
+    }
+
+    /**
+     * Suma un cobro previsto a una casilla.
+     *
+     * @param casilla Índice del día o mes.
+     * @param bruto Precio del cobro, en céntimos.
+     * @param cubierto Parte cubierta por colaboradores, en céntimos.
+     */
+    public void sumar(int casilla, long bruto, long cubierto) {
+        brutoCentimos[casilla] += bruto;
+        cubiertoCentimos[casilla] += cubierto;
+        netoCentimos[casilla] += Math.max(0, bruto - cubierto);
+        cobros[casilla]++;
+    }
+
+    public Escala getEscala() {
+        return escala;
+    }
+
+    public LocalDate getInicio() {
+        return inicio;
+    }
+
+    /** @return Número de casillas (días o meses). */
+    public int getTamano() {
+        return netoCentimos.length;
+    }
+
+    /**
+     * @param casilla Índice de la casilla.
+     * @return Fecha de la casilla (para la escala MES, el día 1 del mes).
+     */
+    public LocalDate getFecha(int casilla) {
+        return escala == Escala.MES ? inicio.plusMonths(casilla) : inicio.plusDays(casilla);
+    }
+
+    /**
+     * @param casilla Índice de la casilla (escala MES).
+     * @return Mes de la casilla.
+     */
+    public YearMonth getMes(int casilla) {
+        return YearMonth.from(getFecha(casilla));
+    }
+
+    public long getBrutoCentimos(int casilla) {
+        return brutoCentimos[casilla];
+    }
+
+    public long getCubiertoCentimos(int casilla) {
+        return cubiertoCentimos[casilla];
+    }
+
+    public long getNetoCentimos(int casilla) {
+        return netoCentimos[casilla];
+    }
+
+    /** @return Número de cobros previstos en la casilla. */
+    public int getCobros(int casilla) {
+        return cobros[casilla];
+    }
+
+    /** @return Total neto del titular en todo el horizonte, en céntimos. */
+    public long getTotalNetoCentimos() {
+        long total = 0;
+        for (long neto : netoCentimos) total += neto;
+        return total;
+    }
+
+    /** @return Total bruto en todo el horizonte, en céntimos. */
+    public long getTotalBrutoCentimos() {
+        long total = 0;
+        for (long bruto : brutoCentimos) total += bruto;
+        return total;
+    }
+}
@@ -0,0 +1,76 @@
+package org.dam.fcojavier.substracker.model;
+
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+
+/**
+ * Totales mensuales de las suscripciones activas de un titular en una categoría.
+ *
+ * No es una tabla: es una fila de resultado de {@code InformeDAO}, calculada con
+ * {@code GROUP BY categoria} en la base de datos. Todos los importes están normalizados a base
+ * mensual (el precio de un ciclo dividido entre sus meses).
+ * Importes en céntimos.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class GastoCategoria {
+
+    /**
+     * Categoría agrupada.
+     */
+    private final Categoria categoria;
+
+    /**
+     * Gasto mensual que paga el titular, descontadas las aportaciones de los colaboradores.
+     */
+    private final long gastoNetoCentimos;
+
+    /**
+     * Aportación mensual de los colaboradores (lo que el titular se ahorra).
+     */
+    private final long ahorroCentimos;
+
+    /**
+     * Número de suscripciones activas de la categoría.
+     */
+    private final int numSuscripciones;
+
+    /**
+     * @param categoria Categoría agrupada.
+     * @param gastoNetoCentimos Gasto mensual neto del titular.
+     * @param ahorroCentimos Aportación mensual de los colaboradores.
+     * @param numSuscripciones Suscripciones activas de la categoría.
+     */
+    public GastoCategoria(Categoria categoria, long gastoNetoCentimos, long ahorroCentimos, int numSuscripciones) {
+        this.categoria = categoria;
+        this.gastoNetoCentimos = gastoNetoCentimos;
+        this.ahorroCentimos = ahorroCentimos;
+        this.numSuscripciones = numSuscripciones;
+    }
+
+    public Categoria getCategoria() {
+        return categoria;
+    }
+
+    public long getGastoNetoCentimos() {
+        return gastoNetoCentimos;
+    }
+
+    public long getAhorroCentimos() {
+        return ahorroCentimos;
+    }
+
+    public int getNumSuscripciones() {
+        return numSuscripciones;
+    }
+
+    @Override
+    public String toString() {
+        return "GastoCategoria{" +
+                "categoria=" + categoria +
+                ", gastoNeto=" + gastoNetoCentimos +
+                ", ahorro=" + ahorroCentimos +
+                ", numSuscripciones=" + numSuscripciones +
+                '}';
+    }
+}
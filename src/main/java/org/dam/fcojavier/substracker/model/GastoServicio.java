@@ -0,0 +1,75 @@
+package org.dam.fcojavier.substracker.model;
+
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+
+/**
+ * Gasto mensual neto de una suscripción concreta, para los rankings de servicios más costosos.
+ *
+ * Es una fila de resultado de {@code InformeDAO}: solo lleva los datos necesarios para
+ * mostrarla, no la {@link Suscripcion} completa.
+ * Importe en céntimos.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class GastoServicio {
+
+    /**
+     * Identificador de la suscripción.
+     */
+    private final int idSuscripcion;
+
+    /**
+     * Nombre del servicio.
+     */
+    private final String nombre;
+
+    /**
+     * Categoría de la suscripción.
+     */
+    private final Categoria categoria;
+
+    /**
+     * Gasto mensual del titular, descontadas las aportaciones de los colaboradores (nunca negativo).
+     */
+    private final long gastoMensualNetoCentimos;
+
+    /**
+     * @param idSuscripcion Identificador de la suscripción.
+     * @param nombre Nombre del servicio.
+     * @param categoria Categoría de la suscripción.
+     * @param gastoMensualNetoCentimos Gasto mensual neto del titular.
+     */
+    public GastoServicio(int idSuscripcion, String nombre, Categoria categoria, long gastoMensualNetoCentimos) {
+        this.idSuscripcion = idSuscripcion;
+        this.nombre = nombre;
+        this.categoria = categoria;
+        this.gastoMensualNetoCentimos = gastoMensualNetoCentimos;
+    }
+
+    public int getIdSuscripcion() {
+        return idSuscripcion;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Categoria getCategoria() {
+        return categoria;
+    }
+
+    public long getGastoMensualNetoCentimos() {
+        return gastoMensualNetoCentimos;
+    }
+
+    @Override
+    public String toString() {
+        return "GastoServicio{" +
+                "idSuscripcion=" + idSuscripcion +
+                ", nombre='" + nombre + '\'' +
+                ", categoria=" + categoria +
+                ", gastoMensualNeto=" + gastoMensualNetoCentimos +
+                '}';
+    }
+}
@@ -2,6 +2,7 @@ package org.dam.fcojavier.substracker.model;
 
 import org.dam.fcojavier.substracker.model.enums.Ciclo;
 import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.dam.fcojavier.substracker.utils.Dinero;
 
 import java.time.LocalDate;
 import java.util.Objects;
@@ -14,16 +15,17 @@ import java.util.Objects;
  * titular, incluyendo el monto, la fecha y el método de pago.
  *
  * La identidad de esta clase se define por la combinación de {@link Usuario} y {@link Suscripcion}.
+ * El importe del aporte se guarda en céntimos ({@code long}).
  *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.1
  */
 public class Participa {
     private int idParticipa;
     /**
-     * Cantidad monetaria que el participante aporta.
+     * Cantidad monetaria que el participante aporta, en céntimos (ver {@link Dinero}).
      */
-    private Double cantidadApagar;
+    private long cantidadApagarCentimos;
 
     /**
      * Fecha en la que se realizó o registró el aporte.
@@ -69,20 +71,20 @@ public class Participa {
      * Constructor esencial.
      * Inicializa la participación con los datos mínimos obligatorios para establecer la relación.
      *
-     * @param cantidadApagar Monto del aporte.
+     * @param cantidadApagarCentimos Monto del aporte, en céntimos.
      * @param suscripcion La suscripción destino.
      * @param participante El usuario que paga.
      */
-    public Participa(Double cantidadApagar, Suscripcion suscripcion, Usuario participante) {
-        this.cantidadApagar = cantidadApagar;
+    public Participa(long cantidadApagarCentimos, Suscripcion suscripcion, Usuario participante) {
+        this.cantidadApagarCentimos = cantidadApagarCentimos;
         this.suscripcion = suscripcion;
         this.participante = participante;
     }
 
     // Constructor para INVITADOS (Sin objeto Usuario)
-    public Participa(String nombreInvitado, Double cantidad, Suscripcion sub, MetodoPago metodo, LocalDate fecha) {
+    public Participa(String nombreInvitado, long cantidadCentimos, Suscripcion sub, MetodoPago metodo, LocalDate fecha) {
         this.nombreInvitado = nombreInvitado;
-        this.cantidadApagar = cantidad;
+        this.cantidadApagarCentimos = cantidadCentimos;
         this.suscripcion = sub;
         this.metodo_pago = metodo;
         this.fecha_pagado = fecha;
@@ -94,7 +96,7 @@ public class Participa {
      * Constructor completo.
      * Inicializa todos los atributos de la participación.
      *
-     * @param cantidadApagar Monto del aporte.
+     * @param cantidadApagarCentimos Monto del aporte, en céntimos.
      * @param fecha_pagado Fecha del pago.
      * @param metodo_pago Método utilizado.
      * @param periodos_cubiertos Ciclos cubiertos.
@@ -102,9 +104,9 @@ public class Participa {
      * @param suscripcion La suscripción destino.
      * @param participante El usuario que paga.
      */
-    public Participa(Double cantidadApagar, LocalDate fecha_pagado, MetodoPago metodo_pago, int periodos_cubiertos,
+    public Participa(long cantidadApagarCentimos, LocalDate fecha_pagado, MetodoPago metodo_pago, int periodos_cubiertos,
                      String descripcion, Suscripcion suscripcion, Usuario participante) {
-        this.cantidadApagar = cantidadApagar;
+        this.cantidadApagarCentimos = cantidadApagarCentimos;
         this.fecha_pagado = fecha_pagado;
         this.metodo_pago = metodo_pago;
         this.periodos_cubiertos = periodos_cubiertos;
@@ -118,18 +120,18 @@ public class Participa {
 
     /**
      * Obtiene la cantidad a pagar.
-     * @return El monto del aporte (Double).
+     * @return El monto del aporte, en céntimos.
      */
-    public Double getCantidadApagar() {
-        return cantidadApagar;
+    public long getCantidadApagarCentimos() {
+        return cantidadApagarCentimos;
     }
 
     /**
      * Establece la cantidad a pagar.
-     * @param cantidadApagar El nuevo monto del aporte.
+     * @param cantidadApagarCentimos El nuevo monto del aporte, en céntimos.
      */
-    public void setCantidadApagar(Double cantidadApagar) {
-        this.cantidadApagar = cantidadApagar;
+    public void setCantidadApagarCentimos(long cantidadApagarCentimos) {
+        this.cantidadApagarCentimos = cantidadApagarCentimos;
     }
 
     /**
@@ -307,7 +309,7 @@ public class Participa {
     @Override
     public String toString() {
         return "Participa{" +
-                "aporte=" + cantidadApagar +
+                "aporte=" + Dinero.formatear(cantidadApagarCentimos) +
                 ", fecha_pagado=" + fecha_pagado +
                 ", metodo_pago=" + metodo_pago +
                 ", periodos_cubiertos=" + periodos_cubiertos +
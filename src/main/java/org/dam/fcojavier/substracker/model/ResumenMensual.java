@@ -0,0 +1,92 @@
+package org.dam.fcojavier.substracker.model;
+
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+
+import java.time.YearMonth;
+
+/**
+ * Fila de la tabla materializada {@code resumen_mensual}: lo pagado por un titular en un mes
+ * y una categoría.
+ *
+ * Bruto: suma de los cobros del mes (precio de la suscripción por periodos cubiertos).
+ * Aporte: lo que pagaron los colaboradores ese mes (participaciones con fecha de pago).
+ * Neto: bruto menos aporte.
+ * Importes en céntimos.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class ResumenMensual {
+
+    /**
+     * Titular de las suscripciones.
+     */
+    private final int idUsuario;
+
+    /**
+     * Mes del resumen.
+     */
+    private final YearMonth mes;
+
+    /**
+     * Categoría de las suscripciones agrupadas.
+     */
+    private final Categoria categoria;
+
+    private final long brutoCentimos;
+    private final long aporteCentimos;
+    private final long netoCentimos;
+
+    /**
+     * @param idUsuario Titular.
+     * @param mes Mes del resumen.
+     * @param categoria Categoría agrupada.
+     * @param brutoCentimos Importe pagado en cobros.
+     * @param aporteCentimos Importe aportado por colaboradores.
+     * @param netoCentimos Bruto menos aporte.
+     */
+    public ResumenMensual(int idUsuario, YearMonth mes, Categoria categoria, long brutoCentimos, long aporteCentimos, long netoCentimos) {
+        this.idUsuario = idUsuario;
+        this.mes = mes;
+        this.categoria = categoria;
+        this.brutoCentimos = brutoCentimos;
+        this.aporteCentimos = aporteCentimos;
+        this.netoCentimos = netoCentimos;
+    }
+
+    public int getIdUsuario() {
+        return idUsuario;
+    }
+
+    public YearMonth getMes() {
+        return mes;
+    }
+
+    public Categoria getCategoria() {
+        return categoria;
+    }
+
+    public long getBrutoCentimos() {
+        return brutoCentimos;
+    }
+
+    public long getAporteCentimos() {
+        return aporteCentimos;
+    }
+
+    public long getNetoCentimos() {
+        return netoCentimos;
+    }
+
+    @Override
+    public String toString() {
+        return "ResumenMensual{" +
+                "idUsuario=" + idUsuario +
+                ", mes=" + mes +
+                ", categoria=" + categoria +
+                ", bruto=" + brutoCentimos +
+                ", aporte=" + aporteCentimos +
+                ", neto=" + netoCentimos +
+                '}';
+    }
+}
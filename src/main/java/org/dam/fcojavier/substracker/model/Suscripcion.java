@@ -2,6 +2,7 @@ package org.dam.fcojavier.substracker.model;
 
 import org.dam.fcojavier.substracker.model.enums.Categoria;
 import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.utils.Dinero;
 
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
@@ -16,8 +17,10 @@ import java.util.Objects;
  * usuario titular (quien realiza el pago principal) y puede tener múltiples copagadores
  * (participantes) y un historial de cobros realizados.
  *
+ * El precio se guarda en céntimos ({@code long}), sin decimales en coma flotante.
+ *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.1
  */
 public class Suscripcion {
 
@@ -32,9 +35,9 @@ public class Suscripcion {
     private String nombre;
 
     /**
-     * Precio total de la suscripción (antes de dividir gastos).
+     * Precio total de la suscripción (antes de dividir gastos), en céntimos (ver {@link Dinero}).
      */
-    private Double precio;
+    private long precioCentimos;
 
     /**
      * Frecuencia con la que se realiza el cobro (MENSUAL, ANUAL, etc.).
@@ -70,12 +73,14 @@ public class Suscripcion {
     /**
      * Historial de pagos realizados asociados a esta suscripción.
      * Relación 1:N (Una suscripción tiene muchos cobros).
+     * Cuando la suscripción viene de la BD puede ser una lista de carga diferida.
      */
     private List<Cobro> cobros = new ArrayList<>();
 
     /**
      * Lista de usuarios que comparten el gasto de esta suscripción.
      * Relación N:M gestionada a través de la entidad {@link Participa}.
+     * Cuando la suscripción viene de la BD puede ser una lista de carga diferida.
      */
     private List<Participa> participantes = new ArrayList<>();
 
@@ -92,18 +97,18 @@ public class Suscripcion {
      *
      * @param idSuscripcion Identificador (normalmente 0 si es nuevo).
      * @param nombre Nombre del servicio.
-     * @param precio Coste total.
+     * @param precioCentimos Coste total, en céntimos.
      * @param ciclo Frecuencia de pago.
      * @param categoria Tipo de servicio.
      * @param fechaActivacion Fecha de inicio.
      * @param fechaRenovacion Fecha del próximo pago.
      * @param Titular Usuario dueño de la suscripción.
      */
-    public Suscripcion(int idSuscripcion, String nombre, Double precio, Ciclo ciclo, Categoria categoria,
+    public Suscripcion(int idSuscripcion, String nombre, long precioCentimos, Ciclo ciclo, Categoria categoria,
                        LocalDate fechaActivacion, LocalDate fechaRenovacion, Usuario Titular) {
         this.idSuscripcion = idSuscripcion;
         this.nombre = nombre;
-        this.precio = precio;
+        this.precioCentimos = precioCentimos;
         this.ciclo = ciclo;
         this.categoria = categoria;
         this.activo = true; // Se activa por defecto al crearla
@@ -119,7 +124,7 @@ public class Suscripcion {
      *
      * @param idSuscripcion Identificador único.
      * @param nombre Nombre del servicio.
-     * @param precio Coste total.
+     * @param precioCentimos Coste total, en céntimos.
      * @param ciclo Frecuencia de pago.
      * @param categoria Categoría del servicio.
      * @param fechaActivacion Fecha de inicio.
@@ -128,12 +133,12 @@ public class Suscripcion {
      * @param cobros Historial de pagos ya cargado.
      * @param participantes Lista de copagadores ya cargada.
      */
-    public Suscripcion(int idSuscripcion, String nombre, Double precio, Ciclo ciclo, Categoria categoria,
+    public Suscripcion(int idSuscripcion, String nombre, long precioCentimos, Ciclo ciclo, Categoria categoria,
                        LocalDate fechaActivacion, LocalDate fechaRenovacion, Usuario titular,
                        List<Cobro> cobros, List<Participa> participantes) {
         this.idSuscripcion = idSuscripcion;
         this.nombre = nombre;
-        this.precio = precio;
+        this.precioCentimos = precioCentimos;
         this.ciclo = ciclo;
         this.categoria = categoria;
         this.activo = true;
@@ -178,18 +183,18 @@ public class Suscripcion {
 
     /**
      * Obtiene el precio total.
-     * @return Precio en formato Double.
+     * @return Precio en céntimos.
      */
-    public Double getPrecio() {
-        return precio;
+    public long getPrecioCentimos() {
+        return precioCentimos;
     }
 
     /**
      * Establece el precio total.
-     * @param precio Nuevo coste.
+     * @param precioCentimos Nuevo coste, en céntimos.
      */
-    public void setPrecio(Double precio) {
-        this.precio = precio;
+    public void setPrecioCentimos(long precioCentimos) {
+        this.precioCentimos = precioCentimos;
     }
 
     /**
@@ -323,12 +328,14 @@ public class Suscripcion {
     /**
      * Calcula el dinero total gastado teóricamente desde la fecha de activación hasta hoy.
      * Asume que los pagos se realizan por adelantado al inicio de cada ciclo.
+     *
+     * @return Gasto en céntimos.
      */
-    public double calcularGastoTotal(LocalDate fechaHasta) {
-        if (fechaHasta == null || fechaActivacion == null) return 0.0;
+    public long calcularGastoTotal(LocalDate fechaHasta) {
+        if (fechaHasta == null || fechaActivacion == null) return 0;
 
         if (fechaActivacion.isAfter(fechaHasta)) {
-            return 0.0;
+            return 0;
         }
 
         long periodosTranscurridos = 0;
@@ -348,7 +355,7 @@ public class Suscripcion {
         // Sumamos 1 porque el primer pago se hace el día de la activación (pago por adelantado)
         long totalPagos = periodosTranscurridos + 1;
 
-        return totalPagos * precio;
+        return totalPagos * precioCentimos;
     }
 
     /**
@@ -406,7 +413,7 @@ public class Suscripcion {
         return "Suscripcion{" +
                 "idSuscripcion=" + idSuscripcion +
                 ", nombre='" + nombre + '\'' +
-                ", precio=" + precio +
+                ", precio=" + Dinero.formatear(precioCentimos) +
                 ", ciclo=" + ciclo +
                 ", categoria=" + categoria +
                 ", activo=" + activo +
@@ -43,13 +43,14 @@ public class Usuario {
 
     /**
      * Lista de suscripciones donde este usuario es el TITULAR (Dueño).
-     * Relación 1:N.
+     * Relación 1:N. Cuando el usuario viene de la BD es una lista de carga diferida.
      */
     private List<Suscripcion> misSuscripciones = new ArrayList<>();
 
     /**
      * Lista de participaciones donde este usuario es COPAGADOR.
      * Representa las suscripciones ajenas en las que este usuario colabora económicamente.
+     * Cuando el usuario viene de la BD es una lista de carga diferida.
      */
     private List<Participa> misParticipaciones = new ArrayList<>();
 
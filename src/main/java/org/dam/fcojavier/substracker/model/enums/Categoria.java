@@ -1,5 +1,7 @@
 package org.dam.fcojavier.substracker.model.enums;
 
+import org.dam.fcojavier.substracker.interfaces.Codificable;
+
 /**
  * Define las categorías disponibles para clasificar las suscripciones en el sistema.
  * Este enum se utiliza para:
@@ -7,9 +9,53 @@ package org.dam.fcojavier.substracker.model.enums;
  * Filtrar gastos en los informes financieros.
  * Agrupar costes para ver en qué área gasta más el usuario.
  *
+ * En la base de datos se guarda su código numérico ({@link #getCodigo()}), no su nombre.
+ *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.1
  */
-public enum Categoria {
-    OCIO, HOGAR, TRABAJO, SALUD, EDUCACION
+public enum Categoria implements Codificable {
+    OCIO(1),
+    HOGAR(2),
+    TRABAJO(3),
+    SALUD(4),
+    EDUCACION(5);
+
+    /** Enum indexado por código para decodificar sin búsquedas ni excepciones. */
+    private static final Categoria[] POR_CODIGO = new Categoria[values().length + 1];
+
+    static {
+        for (Categoria valor : values()) {
+            POR_CODIGO[valor.codigo] = valor;
+        }
+    }
+
+    private final int codigo;
+
+    Categoria(int codigo) {
+        this.codigo = codigo;
+    }
+
+    /**
+     * Código entero con el que se guarda en la base de datos.
+     * Es estable: no depende del orden de declaración ni del nombre.
+     */
+    @Override
+    public int getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * Obtiene el valor correspondiente a un código guardado en la base de datos.
+     *
+     * @param codigo Código almacenado.
+     * @return Valor del enum.
+     * @throws IllegalArgumentException Si el código no existe.
+     */
+    public static Categoria desdeCodigo(int codigo) {
+        if (codigo <= 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+            throw new IllegalArgumentException("Código de categoría desconocido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
 }
@@ -1,5 +1,7 @@
 package org.dam.fcojavier.substracker.model.enums;
 
+import org.dam.fcojavier.substracker.interfaces.Codificable;
+
 /**
  * Define la periodicidad o frecuencia de facturación de una suscripción.
  *
@@ -7,9 +9,60 @@ package org.dam.fcojavier.substracker.model.enums;
  * Cuándo se debe calcular la próxima fecha de renovación ({@code fechaRenovacion}).
  * Cómo se proyectan los gastos en los informes financieros (amortización del coste).
  *
+ * En la base de datos se guarda su código numérico ({@link #getCodigo()}), no su nombre.
+ *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.2
  */
-public enum Ciclo {
-    MENSUAL, TRIMESTRAL, ANUAL
+public enum Ciclo implements Codificable {
+    MENSUAL(1, 1),
+    TRIMESTRAL(2, 3),
+    ANUAL(3, 12);
+
+    /** Enum indexado por código para decodificar sin búsquedas ni excepciones. */
+    private static final Ciclo[] POR_CODIGO = new Ciclo[values().length + 1];
+
+    static {
+        for (Ciclo valor : values()) {
+            POR_CODIGO[valor.codigo] = valor;
+        }
+    }
+
+    private final int codigo;
+    private final int meses;
+
+    Ciclo(int codigo, int meses) {
+        this.codigo = codigo;
+        this.meses = meses;
+    }
+
+    /**
+     * Código entero con el que se guarda en la base de datos.
+     * Es estable: no depende del orden de declaración ni del nombre.
+     */
+    @Override
+    public int getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * Duración del ciclo en meses. Para normalizar un importe a base mensual se divide entre este valor.
+     */
+    public int getMeses() {
+        return meses;
+    }
+
+    /**
+     * Obtiene el valor correspondiente a un código guardado en la base de datos.
+     *
+     * @param codigo Código almacenado.
+     * @return Valor del enum.
+     * @throws IllegalArgumentException Si el código no existe.
+     */
+    public static Ciclo desdeCodigo(int codigo) {
+        if (codigo <= 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+            throw new IllegalArgumentException("Código de ciclo desconocido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
 }
@@ -0,0 +1,48 @@
+package org.dam.fcojavier.substracker.model.enums;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Situación de la próxima renovación de una suscripción respecto a una fecha de referencia.
+ *
+ * Es la misma clasificación para el semáforo de la tabla de suscripciones y para las consultas de
+ * avisos sobre el {@code IndiceVencimientos} (por ejemplo, las renovaciones de los próximos
+ * {@link #DIAS_AVISO} días).
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public enum EstadoVencimiento {
+    /** Suscripción nueva cuyo primer pago (el día de activación) ya ha llegado. */
+    PRIMER_PAGO_PENDIENTE,
+    /** La fecha de renovación ya pasó. */
+    VENCIDO,
+    /** Se renueva hoy. */
+    HOY,
+    /** Se renueva en {@link #DIAS_AVISO} días o menos. */
+    URGENTE,
+    /** Falta más tiempo. */
+    NORMAL;
+
+    /** Días de antelación con los que una renovación se considera urgente. */
+    public static final int DIAS_AVISO = 7;
+
+    /**
+     * Clasifica una renovación.
+     *
+     * @param fechaRenovacion Próxima renovación.
+     * @param fechaActivacion Fecha de alta de la suscripción (puede ser {@code null}).
+     * @param hoy Fecha de referencia.
+     * @return Estado de la renovación.
+     */
+    public static EstadoVencimiento de(LocalDate fechaRenovacion, LocalDate fechaActivacion, LocalDate hoy) {
+        if (fechaActivacion != null && fechaRenovacion.isEqual(fechaActivacion) && !fechaRenovacion.isAfter(hoy)) return PRIMER_PAGO_PENDIENTE;
+
+        long diasRestantes = ChronoUnit.DAYS.between(hoy, fechaRenovacion);
+        if (diasRestantes < 0) return VENCIDO;
+        if (diasRestantes == 0) return HOY;
+        if (diasRestantes <= DIAS_AVISO) return URGENTE;
+        return NORMAL;
+    }
+}
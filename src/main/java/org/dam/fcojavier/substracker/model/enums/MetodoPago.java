@@ -1,14 +1,60 @@
 package org.dam.fcojavier.substracker.model.enums;
 
+import org.dam.fcojavier.substracker.interfaces.Codificable;
+
 /**
  * Define los diferentes medios de pago admitidos en el sistema.
  * Se utiliza en dos contextos diferentes:
  * Cobros: Cómo paga el titular la suscripción al proveedor (ej. Tarjeta).
  * Participaciones: Cómo pagan los copagadores su parte al titular (ej. Bizum, Efectivo).
  *
+ * En la base de datos se guarda su código numérico ({@link #getCodigo()}), no su nombre.
+ *
  * @author Fco Javier García
- * @version 1.0
+ * @version 1.1
  */
-public enum MetodoPago {
-    TARJETA, TRANSFERENCIA, EFECTIVO, BIZUM, OTRO
+public enum MetodoPago implements Codificable {
+    TARJETA(1),
+    TRANSFERENCIA(2),
+    EFECTIVO(3),
+    BIZUM(4),
+    OTRO(5);
+
+    /** Enum indexado por código para decodificar sin búsquedas ni excepciones. */
+    private static final MetodoPago[] POR_CODIGO = new MetodoPago[values().length + 1];
+
+    static {
+        for (MetodoPago valor : values()) {
+            POR_CODIGO[valor.codigo] = valor;
+        }
+    }
+
+    private final int codigo;
+
+    MetodoPago(int codigo) {
+        this.codigo = codigo;
+    }
+
+    /**
+     * Código entero con el que se guarda en la base de datos.
+     * Es estable: no depende del orden de declaración ni del nombre.
+     */
+    @Override
+    public int getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * Obtiene el valor correspondiente a un código guardado en la base de datos.
+     *
+     * @param codigo Código almacenado.
+     * @return Valor del enum.
+     * @throws IllegalArgumentException Si el código no existe.
+     */
+    public static MetodoPago desdeCodigo(int codigo) {
+        if (codigo <= 0 || codigo >= POR_CODIGO.length || POR_CODIGO[codigo] == null) {
+            throw new IllegalArgumentException("Código de método de pago desconocido: " + codigo);
+        }
+        return POR_CODIGO[codigo];
+    }
 }
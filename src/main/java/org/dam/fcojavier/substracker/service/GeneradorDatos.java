@@ -0,0 +1,280 @@
+package org.dam.fcojavier.substracker.service;
+
+import org.dam.fcojavier.substracker.dao.CobroDAO;
+import org.dam.fcojavier.substracker.dao.ParticipaDAO;
+import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
+import org.dam.fcojavier.substracker.dao.UsuarioDAO;
+import org.dam.fcojavier.substracker.model.Cobro;
+import org.dam.fcojavier.substracker.model.Participa;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.dam.fcojavier.substracker.utils.Dinero;
+import org.dam.fcojavier.substracker.utils.PasswordUtilidades;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de datos sintéticos para pruebas de carga.
+ *
+ * A diferencia de {@code datos_prueba.sql} (3 usuarios y 6 suscripciones), genera tantos usuarios como
+ * se pidan, con años de historial, y los guarda con los {@code createAll} de los DAOs (inserciones en
+ * lote), de modo que sirve igual para SQLite que para MySQL y mantiene lo mismo que la aplicación
+ * ({@code resumen_mensual}, registro de sincronización...).
+ *
+ * Reparto de los datos:
+ * Cada usuario tiene entre 1 y {@code 2·media - 1} suscripciones (media {@code suscripcionesPorUsuario}),
+ * sacadas de un catálogo de servicios reales con su categoría, ciclo y precio. Los pesos del catálogo
+ * dan una distribución parecida a la real: sobre todo ocio mensual, algo de anual y poco trimestral.
+ * La activación cae en los últimos {@code anios} años; una de cada diez está pausada desde una fecha
+ * intermedia.
+ * Cada suscripción tiene un cobro por periodo desde la activación hasta hoy (o hasta la pausa).
+ * Tres de cada diez tienen de uno a tres colaboradores: otro usuario del mismo bloque o un invitado.
+ *
+ * Orden de magnitud: con 5 años hay unos 25 cobros por suscripción, así que
+ * {@code usuarios · suscripcionesPorUsuario · 25} cobros (40.000 usuarios con 10 suscripciones ≈ 10^7).
+ *
+ * El resultado solo depende de la semilla y de la fecha de referencia: con los mismos parámetros se
+ * generan los mismos datos (los IDs dependen de lo que ya hubiera en la base de datos).
+ * Los usuarios se crean y guardan por bloques de {@link #USUARIOS_POR_BLOQUE} y los cobros en lotes de
+ * {@link #COBROS_POR_LOTE}, así que la memoria no crece con el tamaño de la base de datos.
+ * Los correos llevan la semilla: se puede generar varias veces en la misma base de datos con semillas
+ * distintas, pero repetir una semilla choca con los correos ya existentes.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class GeneradorDatos {
+
+    /** Usuarios que se guardan a la vez (con todas sus suscripciones y participaciones). */
+    public static final int USUARIOS_POR_BLOQUE = 200;
+    /** Cobros por cada llamada a {@code createAll}. */
+    public static final int COBROS_POR_LOTE = 10_000;
+    /** Contraseña de todos los usuarios generados. */
+    public static final String PASSWORD = "123456";
+
+    /** Servicio del catálogo y su peso relativo en el sorteo. */
+    private record Servicio(String nombre, Categoria categoria, Ciclo ciclo, long precioCentimos, int peso) {
+    }
+
+    private static final Servicio[] CATALOGO = {
+            new Servicio("Netflix", Categoria.OCIO, Ciclo.MENSUAL, 1299, 12),
+            new Servicio("Spotify", Categoria.OCIO, Ciclo.MENSUAL, 1099, 12),
+            new Servicio("Disney+", Categoria.OCIO, Ciclo.MENSUAL, 899, 7),
+            new Servicio("HBO Max", Categoria.OCIO, Ciclo.MENSUAL, 999, 5),
+            new Servicio("YouTube Premium", Categoria.OCIO, Ciclo.MENSUAL, 1199, 4),
+            new Servicio("Xbox Game Pass", Categoria.OCIO, Ciclo.MENSUAL, 1499, 3),
+            new Servicio("Amazon Prime", Categoria.OCIO, Ciclo.ANUAL, 4990, 9),
+            new Servicio("PlayStation Plus", Categoria.OCIO, Ciclo.ANUAL, 7199, 3),
+            new Servicio("Fibra y móvil", Categoria.HOGAR, Ciclo.MENSUAL, 4500, 6),
+            new Servicio("Alarma", Categoria.HOGAR, Ciclo.MENSUAL, 3990, 2),
+            new Servicio("Seguro Hogar", Categoria.HOGAR, Ciclo.ANUAL, 18000, 3),
+            new Servicio("Seguro Coche", Categoria.HOGAR, Ciclo.ANUAL, 45000, 3),
+            new Servicio("iCloud+", Categoria.TRABAJO, Ciclo.MENSUAL, 299, 5),
+            new Servicio("ChatGPT Plus", Categoria.TRABAJO, Ciclo.MENSUAL, 2300, 3),
+            new Servicio("Adobe Creative Cloud", Categoria.TRABAJO, Ciclo.MENSUAL, 6049, 2),
+            new Servicio("Microsoft 365", Categoria.TRABAJO, Ciclo.ANUAL, 9900, 4),
+            new Servicio("Gimnasio", Categoria.SALUD, Ciclo.MENSUAL, 3500, 5),
+            new Servicio("Seguro Médico", Categoria.SALUD, Ciclo.MENSUAL, 5500, 3),
+            new Servicio("Club de Pádel", Categoria.SALUD, Ciclo.TRIMESTRAL, 9000, 2),
+            new Servicio("Academia de Idiomas", Categoria.EDUCACION, Ciclo.TRIMESTRAL, 18000, 2),
+            new Servicio("Revista Digital", Categoria.EDUCACION, Ciclo.TRIMESTRAL, 1500, 1),
+            new Servicio("Duolingo Super", Categoria.EDUCACION, Ciclo.ANUAL, 8399, 2),
+            new Servicio("Coursera Plus", Categoria.EDUCACION, Ciclo.ANUAL, 39900, 1)
+    };
+    private static final int PESO_TOTAL;
+
+    static {
+        int total = 0;
+        for (Servicio s : CATALOGO) total += s.peso();
+        PESO_TOTAL = total;
+    }
+
+    private static final String[] NOMBRES = {
+            "Ana", "Carlos", "Lucía", "Jorge", "Marta", "David", "Elena", "Pablo", "Sara", "Javier"
+    };
+    private static final String[] APELLIDOS = {
+            "García", "López", "Martínez", "Sánchez", "Pérez", "Gómez", "Ruiz", "Díaz", "Moreno", "Romero"
+    };
+    private static final String[] INVITADOS = {
+            "Mamá", "Papá", "Hermano", "Pareja", "Compañero de piso", "Primo Luis", "Abuela", "Vecino"
+    };
+
+    private final Random aleatorio;
+    private final long semilla;
+    private final LocalDate hoy;
+
+    private final UsuarioDAO usuarioDAO = new UsuarioDAO();
+    private final SuscripcionDAO suscripcionDAO = new SuscripcionDAO();
+    private final ParticipaDAO participaDAO = new ParticipaDAO();
+    private final CobroDAO cobroDAO = new CobroDAO();
+
+    /**
+     * Totales de una generación.
+     *
+     * @param usuarios Usuarios creados.
+     * @param suscripciones Suscripciones creadas.
+     * @param participaciones Colaboradores creados.
+     * @param cobros Cobros creados.
+     */
+    public record Totales(int usuarios, int suscripciones, int participaciones, long cobros) {
+    }
+
+    /**
+     * @param semilla Semilla del generador aleatorio.
+     * @param hoy Fecha de referencia: último día con cobros.
+     */
+    public GeneradorDatos(long semilla, LocalDate hoy) {
+        this.aleatorio = new Random(semilla);
+        this.semilla = semilla;
+        this.hoy = hoy;
+    }
+
+    /**
+     * Genera y guarda los datos en la base de datos seleccionada en {@code ConnectionDB}.
+     *
+     * @param usuarios Número de usuarios.
+     * @param suscripcionesPorUsuario Media de suscripciones por usuario (al menos 1).
+     * @param anios Años de historial.
+     * @return Totales generados.
+     * @throws IllegalStateException Si un DAO no pudo guardar un bloque (el error ya se ha mostrado por consola).
+     */
+    public Totales generar(int usuarios, int suscripcionesPorUsuario, int anios) {
+        String hash = PasswordUtilidades.hashPassword(PASSWORD);
+        int totalSuscripciones = 0;
+        int totalParticipaciones = 0;
+        long totalCobros = 0;
+
+        for (int inicio = 0; inicio < usuarios; inicio += USUARIOS_POR_BLOQUE) {
+            int fin = Math.min(usuarios, inicio + USUARIOS_POR_BLOQUE);
+
+            List<Usuario> bloque = new ArrayList<>(fin - inicio);
+            for (int i = inicio; i < fin; i++) bloque.add(crearUsuario(i, hash));
+            comprobar(usuarioDAO.createAll(bloque), "usuarios");
+
+            List<Suscripcion> suscripciones = new ArrayList<>();
+            for (Usuario titular : bloque) {
+                int cantidad = 1 + aleatorio.nextInt(Math.max(1, 2 * suscripcionesPorUsuario - 1));
+                for (int j = 0; j < cantidad; j++) suscripciones.add(crearSuscripcion(titular, anios));
+            }
+            comprobar(suscripcionDAO.createAll(suscripciones), "suscripciones");
+
+            List<Participa> participaciones = new ArrayList<>();
+            for (Suscripcion s : suscripciones) crearParticipaciones(s, bloque, participaciones);
+            comprobar(participaciones.isEmpty() || participaDAO.createAll(participaciones), "participaciones");
+
+            totalCobros += guardarCobros(suscripciones);
+            totalSuscripciones += suscripciones.size();
+            totalParticipaciones += participaciones.size();
+            System.out.println("Generados " + fin + "/" + usuarios + " usuarios, " + totalSuscripciones
+                    + " suscripciones, " + totalCobros + " cobros");
+        }
+        return new Totales(usuarios, totalSuscripciones, totalParticipaciones, totalCobros);
+    }
+
+    // Métodos privados
+
+    private Usuario crearUsuario(int indice, String hash) {
+        String nombre = NOMBRES[aleatorio.nextInt(NOMBRES.length)];
+        String apellidos = APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " " + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+        String email = "usuario" + indice + ".s" + semilla + "@substracker.test";
+        return new Usuario(0, nombre, apellidos, email, hash);
+    }
+
+    /**
+     * Suscripción del catálogo activada en los últimos {@code anios} años. Si está pausada, su fecha de
+     * renovación es la del primer cobro que ya no se hizo; si no, la del próximo cobro.
+     */
+    private Suscripcion crearSuscripcion(Usuario titular, int anios) {
+        Servicio servicio = sortearServicio();
+        LocalDate activacion = hoy.minusDays(aleatorio.nextInt(Math.max(1, anios * 365)));
+        boolean activa = aleatorio.nextInt(10) != 0;
+        LocalDate limite = activa ? hoy : activacion.plusDays(aleatorio.nextInt((int) (hoy.toEpochDay() - activacion.toEpochDay()) + 1));
+
+        LocalDate renovacion = activacion;
+        while (!renovacion.isAfter(limite)) renovacion = renovacion.plusMonths(servicio.ciclo().getMeses());
+
+        Suscripcion s = new Suscripcion(0, servicio.nombre(), servicio.precioCentimos(), servicio.ciclo(),
+                servicio.categoria(), activacion, renovacion, titular);
+        s.setActivo(activa);
+        return s;
+    }
+
+    private Servicio sortearServicio() {
+        int r = aleatorio.nextInt(PESO_TOTAL);
+        for (Servicio s : CATALOGO) {
+            r -= s.peso();
+            if (r < 0) return s;
+        }
+        return CATALOGO[CATALOGO.length - 1];
+    }
+
+    /**
+     * Colaboradores de una suscripción (tres de cada diez tienen): cada uno paga su parte del precio
+     * a partes iguales con el titular. Siete de cada diez están al día.
+     */
+    private void crearParticipaciones(Suscripcion s, List<Usuario> bloque, List<Participa> destino) {
+        if (aleatorio.nextInt(10) >= 3) return;
+
+        int colaboradores = 1 + aleatorio.nextInt(3);
+        long parte = Dinero.dividir(s.getPrecioCentimos(), colaboradores + 1);
+        for (int i = 0; i < colaboradores; i++) {
+            LocalDate pagado = aleatorio.nextInt(10) < 7 ? hoy.minusDays(aleatorio.nextInt(30)) : null;
+            MetodoPago metodo = aleatorio.nextBoolean() ? MetodoPago.BIZUM : sortearMetodo();
+
+            Usuario otro = bloque.get(aleatorio.nextInt(bloque.size()));
+            Participa p;
+            if (aleatorio.nextInt(10) < 4 && otro.getId_usuario() != s.getTitular().getId_usuario()) {
+                p = new Participa(parte, pagado, metodo, 1, "Parte de " + otro.getNombre(), s, otro);
+            } else {
+                p = new Participa(INVITADOS[aleatorio.nextInt(INVITADOS.length)], parte, s, metodo, pagado);
+            }
+            destino.add(p);
+        }
+    }
+
+    /**
+     * Un cobro por periodo de cada suscripción, guardados en lotes de {@link #COBROS_POR_LOTE}.
+     *
+     * @return Cobros guardados.
+     */
+    private long guardarCobros(List<Suscripcion> suscripciones) {
+        long total = 0;
+        List<Cobro> lote = new ArrayList<>(COBROS_POR_LOTE);
+        for (Suscripcion s : suscripciones) {
+            MetodoPago metodo = sortearMetodo();
+            int meses = s.getCiclo().getMeses();
+            for (LocalDate fecha = s.getFechaActivacion(); fecha.isBefore(s.getFechaRenovacion()); fecha = fecha.plusMonths(meses)) {
+                lote.add(new Cobro(0, fecha, metodo, 1, null, s));
+                if (lote.size() == COBROS_POR_LOTE) {
+                    comprobar(cobroDAO.createAll(lote), "cobros");
+                    total += lote.size();
+                    lote = new ArrayList<>(COBROS_POR_LOTE);
+                }
+            }
+        }
+        if (!lote.isEmpty()) {
+            comprobar(cobroDAO.createAll(lote), "cobros");
+            total += lote.size();
+        }
+        return total;
+    }
+
+    /** Método con el que el titular paga: sobre todo tarjeta. */
+    private MetodoPago sortearMetodo() {
+        int r = aleatorio.nextInt(100);
+        if (r < 70) return MetodoPago.TARJETA;
+        if (r < 85) return MetodoPago.TRANSFERENCIA;
+        if (r < 95) return MetodoPago.BIZUM;
+        return MetodoPago.EFECTIVO;
+    }
+
+    private static void comprobar(boolean guardado, String que) {
+        if (!guardado) throw new IllegalStateException("No se pudo guardar el bloque de " + que);
+    }
+}
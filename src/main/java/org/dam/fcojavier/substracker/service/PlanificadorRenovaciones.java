@@ -0,0 +1,277 @@
+package org.dam.fcojavier.substracker.service;
+
+import org.dam.fcojavier.substracker.dao.CobroDAO;
+import org.dam.fcojavier.substracker.dao.IndiceVencimientos;
+import org.dam.fcojavier.substracker.dao.IndiceVencimientos.Vencimiento;
+import org.dam.fcojavier.substracker.dao.SuscripcionDAO;
+import org.dam.fcojavier.substracker.model.Cobro;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.Usuario;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.dam.fcojavier.substracker.utils.connection.Transaccion;
+import javafx.application.Platform;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renovación automática de las suscripciones del usuario que ha iniciado sesión.
+ *
+ * Las fechas de renovación solo avanzaban al pulsar "Pagar"; ahora, mientras hay sesión, un hilo en
+ * segundo plano consulta el {@link IndiceVencimientos} (ordenado por {@code fechaRenovacion} y al día
+ * con cada escritura de {@link SuscripcionDAO}) y se despierta cuando vence la próxima renovación del
+ * titular (o, como mucho, cada {@link #REVISION}). Al vencer una o varias renovaciones:
+ * - Se genera un {@link Cobro} por cada periodo vencido, en su fecha, con el método de pago del
+ *   último cobro de la suscripción (o {@link MetodoPago#OTRO}).
+ * - Se avanza la fecha de renovación hasta el primer periodo posterior a hoy.
+ * Todo en una única transacción: las fechas con {@link SuscripcionDAO#avanzarRenovaciones} y los
+ * cobros con {@link CobroDAO#createAll(List)}, sea un periodo o cientos (una cuenta sin abrir en años).
+ *
+ * Las fechas solo avanzan si siguen siendo las que se leyeron, de modo que una renovación pagada a
+ * mano mientras tanto no se cobra dos veces (se deshace la pasada y la siguiente parte de los datos nuevos).
+ * Las suscripciones en memoria reciben la nueva fecha al confirmarse la transacción, no antes.
+ * Tras una pasada que ha renovado algo se avisa en el hilo de JavaFX a quien se haya registrado con
+ * {@link #alRenovar(Runnable)} (la tabla de suscripciones, para recargarse).
+ *
+ * Solo hay una pasada programada a la vez: {@link #recargar()} cancela la pendiente y la adelanta, y
+ * una pasada solo programa la siguiente si sigue siendo la última que se programó.
+ *
+ * Ciclo de vida: {@link #iniciar(Usuario)} tras el login, {@link #detener()} al cerrar sesión y al salir.
+ *
+ * @author Fco Javier García
+ * @version 1.3
+ */
+public final class PlanificadorRenovaciones {
+    /** Espera máxima entre dos pasadas. */
+    static final Duration REVISION = Duration.ofMinutes(15);
+    /** Tope de periodos por suscripción en una pasada (evita bucles con fechas corruptas). */
+    static final int PERIODOS_MAXIMOS = 10_000;
+    private static final String DESCRIPCION = "Renovación automática";
+
+    /** Planificador de la sesión actual. */
+    private static PlanificadorRenovaciones actual;
+    /** Aviso tras una pasada que ha renovado algo (se ejecuta en el hilo de JavaFX). */
+    private static volatile Runnable alRenovar;
+
+    private final Usuario titular;
+    private final ScheduledExecutorService ejecutor;
+
+    private final SuscripcionDAO suscripcionDAO = new SuscripcionDAO();
+    private final CobroDAO cobroDAO = new CobroDAO();
+
+    /** Pasada pendiente y su turno; solo la pasada de ese turno programa la siguiente. Protegidos por {@code this}. */
+    private ScheduledFuture<?> siguiente;
+    private long turno = 0;
+
+    private PlanificadorRenovaciones(Usuario titular) {
+        this.titular = titular;
+        this.ejecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "renovaciones");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Arranca el planificador para un usuario. La primera pasada (que pone al día las renovaciones
+     * vencidas) se hace enseguida, en segundo plano.
+     *
+     * @param usuario Usuario que ha iniciado sesión (titular de las suscripciones).
+     */
+    public static void iniciar(Usuario usuario) {
+        detener();
+        PlanificadorRenovaciones nuevo = new PlanificadorRenovaciones(usuario);
+        synchronized (PlanificadorRenovaciones.class) {
+            actual = nuevo;
+        }
+        nuevo.programar(0);
+    }
+
+    /**
+     * Detiene el planificador y espera a que termine la pasada en curso.
+     */
+    public static void detener() {
+        PlanificadorRenovaciones anterior;
+        synchronized (PlanificadorRenovaciones.class) {
+            anterior = actual;
+            actual = null;
+        }
+        if (anterior == null) return;
+
+        anterior.ejecutor.shutdownNow();
+        try {
+            if (!anterior.ejecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.out.println("El planificador de renovaciones no terminó a tiempo.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adelanta la próxima pasada a ahora (por ejemplo, tras crear o editar una suscripción).
+     */
+    public static void recargar() {
+        PlanificadorRenovaciones planificador;
+        synchronized (PlanificadorRenovaciones.class) {
+            planificador = actual;
+        }
+        if (planificador == null) return;
+
+        planificador.programar(0);
+    }
+
+    /**
+     * Registra la acción que se ejecuta, en el hilo de JavaFX, tras una pasada que ha renovado alguna
+     * suscripción. Sustituye a la anterior.
+     *
+     * @param accion Acción a ejecutar (por ejemplo, recargar la tabla), o {@code null} para ninguna.
+     */
+    public static void alRenovar(Runnable accion) {
+        alRenovar = accion;
+    }
+
+    // Pasada del planificador
+
+    /**
+     * Renueva lo vencido y, si sigue siendo la última pasada programada, programa la siguiente.
+     * Se ejecuta siempre en el hilo del planificador.
+     *
+     * @param turnoPasada Turno con el que se programó esta pasada.
+     */
+    private void revisar(long turnoPasada) {
+        if (Thread.currentThread().isInterrupted()) return;
+
+        LocalDate hoy = LocalDate.now();
+        boolean renovadas = false;
+        try {
+            Set<Integer> vencidas = new HashSet<>();
+            for (Vencimiento v : IndiceVencimientos.hasta(titular.getId_usuario(), hoy)) {
+                vencidas.add(v.idSuscripcion());
+            }
+            if (!vencidas.isEmpty()) {
+                renovadas = renovar(vencidas, hoy);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.out.println("Error renovando suscripciones: " + e.getMessage());
+        }
+        Runnable aviso = alRenovar;
+        if (renovadas && aviso != null) {
+            Platform.runLater(aviso);
+        }
+        programarSiguiente(hoy, turnoPasada);
+    }
+
+    /**
+     * Genera los cobros vencidos de las suscripciones indicadas y avanza sus fechas.
+     *
+     * Las lecturas (solo las suscripciones vencidas y el método del último cobro de cada una) se hacen
+     * antes de abrir la transacción, que queda solo para las escrituras: en SQLite la transacción tiene
+     * la única conexión de escritura y no debe retenerla mientras lee. Las suscripciones leídas pueden
+     * ser las de la caché, así que no se tocan: las fechas nuevas se calculan aparte y el DAO las aplica
+     * al confirmarse.
+     *
+     * @return {@code true} si se ha renovado alguna.
+     */
+    private boolean renovar(Set<Integer> ids, LocalDate hoy) throws SQLException {
+        List<Suscripcion> renovadas = new ArrayList<>();
+        List<LocalDate> fechasLeidas = new ArrayList<>();
+        List<LocalDate> fechasNuevas = new ArrayList<>();
+        for (Suscripcion s : suscripcionDAO.findVencidasByTitularId(titular.getId_usuario(), hoy)) {
+            if (ids.contains(s.getIdSuscripcion())) renovadas.add(s);
+        }
+        if (renovadas.isEmpty()) return false;
+
+        Map<Integer, MetodoPago> metodos = cobroDAO.findUltimoMetodoPago(
+                renovadas.stream().map(Suscripcion::getIdSuscripcion).toList());
+        List<Cobro> cobros = new ArrayList<>();
+        for (Suscripcion s : renovadas) {
+            LocalDate base = s.getFechaRenovacion();
+            MetodoPago metodoPago = metodos.getOrDefault(s.getIdSuscripcion(), MetodoPago.OTRO);
+            LocalDate fecha = base;
+            int periodo = 0;
+            while (!fecha.isAfter(hoy) && periodo < PERIODOS_MAXIMOS) {
+                cobros.add(crearCobro(s, fecha, metodoPago));
+                fecha = sumarPeriodos(base, s, ++periodo);
+            }
+            fechasLeidas.add(base);
+            fechasNuevas.add(fecha);
+        }
+
+        Transaccion.ejecutar(con -> {
+            // Primero la fecha, condicionada a la leída: si se ha pagado a mano mientras tanto, no se cobra
+            Transaccion.exigir(suscripcionDAO.avanzarRenovaciones(renovadas, fechasLeidas, fechasNuevas), "No se pudieron avanzar las renovaciones.");
+            Transaccion.exigir(cobroDAO.createAll(cobros), "No se pudieron generar los cobros de renovación.");
+            return null;
+        });
+        System.out.println("Renovaciones: " + renovadas.size() + " suscripciones, " + cobros.size() + " cobros generados.");
+        return true;
+    }
+
+    /**
+     * Programa la siguiente pasada: al empezar el día de la próxima renovación o tras {@link #REVISION}.
+     * Si mientras tanto se ha programado otra pasada (con {@link #recargar()}), no hace nada.
+     */
+    private void programarSiguiente(LocalDate hoy, long turnoPasada) {
+        long espera = REVISION.toMillis();
+        List<Vencimiento> proxima = IndiceVencimientos.proximos(titular.getId_usuario(), hoy.plusDays(1), 1);
+        if (!proxima.isEmpty()) {
+            LocalDateTime inicioDia = proxima.get(0).fecha().atStartOfDay();
+            espera = Math.min(espera, Math.max(0, ChronoUnit.MILLIS.between(LocalDateTime.now(), inicioDia)));
+        }
+        synchronized (this) {
+            if (turnoPasada != turno) return;
+            programar(espera);
+        }
+    }
+
+    /**
+     * Sustituye la pasada pendiente por una nueva dentro de {@code espera} milisegundos.
+     */
+    private synchronized void programar(long espera) {
+        if (siguiente != null) siguiente.cancel(false);
+        long turnoNuevo = ++turno;
+        try {
+            siguiente = ejecutor.schedule(() -> revisar(turnoNuevo), espera, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // detenido: no se programan más pasadas
+        }
+    }
+
+    // Métodos auxiliares
+
+    /**
+     * Fecha del periodo {@code n} contado desde {@code base}. Se calcula siempre desde la base para que
+     * un día 31 no vaya derivando a 28 tras pasar por febrero.
+     */
+    static LocalDate sumarPeriodos(LocalDate base, Suscripcion suscripcion, int n) {
+        return switch (suscripcion.getCiclo()) {
+            case TRIMESTRAL -> base.plusMonths(3L * n);
+            case ANUAL -> base.plusYears(n);
+            default -> base.plusMonths(n);
+        };
+    }
+
+    private static Cobro crearCobro(Suscripcion suscripcion, LocalDate fecha, MetodoPago metodoPago) {
+        Cobro cobro = new Cobro();
+        cobro.setSuscripcion(suscripcion);
+        cobro.setFecha_cobro(fecha);
+        cobro.setMetodo_pago(metodoPago);
+        cobro.setPeriodos_cubiertos(1);
+        cobro.setDescripcion(DESCRIPCION);
+        return cobro;
+    }
+}
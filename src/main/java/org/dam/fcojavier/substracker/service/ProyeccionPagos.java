@@ -0,0 +1,160 @@
+package org.dam.fcojavier.substracker.service;
+
+import org.dam.fcojavier.substracker.model.CalendarioPagos;
+import org.dam.fcojavier.substracker.model.CalendarioPagos.Escala;
+import org.dam.fcojavier.substracker.model.Participa;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Proyección de los pagos futuros de un conjunto de suscripciones en un calendario por días o por meses.
+ *
+ * Cada suscripción activa se cobra en {@code fechaRenovacion + k·ciclo} (k = 0, 1, 2...). En lugar de
+ * recorrer el horizonte día a día, los periodos que caen dentro se calculan directamente:
+ * - El primer y el último {@code k} del horizonte salen de la diferencia en meses entre la fecha de
+ *   renovación y los extremos (como mucho un ajuste por el día del mes).
+ * - En la escala mensual el mes del cobro {@code k} es {@code mes(renovación) + k·meses del ciclo},
+ *   sin construir fechas; en la diaria la fecha es {@code fechaRenovacion.plusMonths(k·meses)},
+ *   siempre desde la base para que un día 31 no derive.
+ * El coste es proporcional al número de cobros del horizonte, no a sus días.
+ *
+ * Aportaciones de colaboradores: un {@link Participa} cubre los cobros entre su {@code fecha_pagado}
+ * y {@link Participa#getFechaFinCobertura} (exclusiva), de nuevo como un rango de {@code k}. Fuera de
+ * ese rango el titular paga el precio completo: la proyección no supone que el colaborador renovará.
+ * El neto de cada cobro nunca es negativo.
+ *
+ * Las suscripciones pausadas o sin fecha de renovación no se proyectan. Los importes ya están en
+ * céntimos en el modelo, así que no hay redondeos.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public final class ProyeccionPagos {
+
+    private ProyeccionPagos() {
+    }
+
+    /**
+     * Calendario por meses desde una fecha (incluida) hasta el final del último mes.
+     *
+     * @param suscripciones Suscripciones a proyectar (con sus participantes cargados).
+     * @param desde Primer día del horizonte; la primera casilla es su mes.
+     * @param meses Número de meses del calendario.
+     * @return Calendario con una casilla por mes.
+     */
+    public static CalendarioPagos porMeses(Collection<Suscripcion> suscripciones, LocalDate desde, int meses) {
+        LocalDate hasta = desde.withDayOfMonth(1).plusMonths(meses).minusDays(1);
+        CalendarioPagos calendario = new CalendarioPagos(Escala.MES, desde, meses);
+        proyectar(suscripciones, desde, hasta, calendario);
+        return calendario;
+    }
+
+    /**
+     * Calendario por días entre dos fechas, ambas incluidas.
+     *
+     * @param suscripciones Suscripciones a proyectar (con sus participantes cargados).
+     * @param desde Primer día.
+     * @param hasta Último día.
+     * @return Calendario con una casilla por día.
+     */
+    public static CalendarioPagos porDias(Collection<Suscripcion> suscripciones, LocalDate desde, LocalDate hasta) {
+        int dias = (int) Math.max(0, ChronoUnit.DAYS.between(desde, hasta) + 1);
+        CalendarioPagos calendario = new CalendarioPagos(Escala.DIA, desde, dias);
+        proyectar(suscripciones, desde, hasta, calendario);
+        return calendario;
+    }
+
+    // Métodos privados
+
+    private static void proyectar(Collection<Suscripcion> suscripciones, LocalDate desde, LocalDate hasta,
+                                  CalendarioPagos calendario) {
+        if (hasta.isBefore(desde)) return;
+
+        long mesInicio = indiceMes(calendario.getInicio());
+        long diaInicio = calendario.getInicio().toEpochDay();
+
+        for (Suscripcion s : suscripciones) {
+            LocalDate base = s.getFechaRenovacion();
+            if (!s.isActivo() || base == null || s.getCiclo() == null) continue;
+
+            int meses = s.getCiclo().getMeses();
+            long primero = primerPeriodoDesde(base, meses, desde);
+            long ultimo = ultimoPeriodoHasta(base, meses, hasta);
+            if (primero > ultimo) continue;
+
+            long bruto = s.getPrecioCentimos();
+            Cobertura[] coberturas = coberturas(s, base, meses);
+            long mesBase = indiceMes(base);
+
+            for (long k = primero; k <= ultimo; k++) {
+                long cubierto = 0;
+                for (Cobertura c : coberturas) {
+                    if (k >= c.desde && k <= c.hasta) cubierto += c.centimos;
+                }
+
+                int casilla = calendario.getEscala() == Escala.MES
+                        ? (int) (mesBase + k * meses - mesInicio)
+                        : (int) (fechaPeriodo(base, meses, k).toEpochDay() - diaInicio);
+                calendario.sumar(casilla, bruto, Math.min(cubierto, bruto));
+            }
+        }
+    }
+
+    /**
+     * Rango de periodos cubierto por cada colaborador de la suscripción.
+     */
+    private static Cobertura[] coberturas(Suscripcion s, LocalDate base, int meses) {
+        List<Participa> participantes = s.getParticipantes();
+        if (participantes == null || participantes.isEmpty()) return new Cobertura[0];
+
+        Cobertura[] resultado = new Cobertura[participantes.size()];
+        int n = 0;
+        for (Participa p : participantes) {
+            if (p.getFecha_pagado() == null) continue;
+            LocalDate fin = p.getFechaFinCobertura(s.getCiclo());
+            long desde = primerPeriodoDesde(base, meses, p.getFecha_pagado());
+            long hasta = primerPeriodoDesde(base, meses, fin) - 1;
+            if (desde <= hasta) resultado[n++] = new Cobertura(desde, hasta, p.getCantidadApagarCentimos());
+        }
+        return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Primer periodo {@code k >= 0} cuya fecha no es anterior a {@code fecha}.
+     */
+    static long primerPeriodoDesde(LocalDate base, int meses, LocalDate fecha) {
+        long k = Math.max(0, Math.floorDiv(indiceMes(fecha) - indiceMes(base), meses));
+        // El periodo k cae en el mes de la fecha o antes: como mucho hay que avanzar uno
+        while (fechaPeriodo(base, meses, k).isBefore(fecha)) k++;
+        return k;
+    }
+
+    /**
+     * Último periodo {@code k} cuya fecha no es posterior a {@code fecha} ({@code -1} si ninguno).
+     */
+    static long ultimoPeriodoHasta(LocalDate base, int meses, LocalDate fecha) {
+        long k = Math.floorDiv(indiceMes(fecha) - indiceMes(base), meses);
+        if (k < 0) return -1;
+        if (fechaPeriodo(base, meses, k).isAfter(fecha)) k--;
+        return k;
+    }
+
+    private static LocalDate fechaPeriodo(LocalDate base, int meses, long k) {
+        return base.plusMonths(k * meses);
+    }
+
+    private static long indiceMes(LocalDate fecha) {
+        return fecha.getYear() * 12L + fecha.getMonthValue() - 1;
+    }
+
+    /**
+     * Aportación de un colaborador a los periodos {@code desde..hasta} (incluidos).
+     */
+    private record Cobertura(long desde, long hasta, long centimos) {
+    }
+}
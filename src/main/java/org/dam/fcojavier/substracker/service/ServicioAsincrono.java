@@ -0,0 +1,121 @@
+package org.dam.fcojavier.substracker.service;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Ejecución de las operaciones de base de datos fuera del hilo de JavaFX.
+ *
+ * Los controladores no deben llamar a los DAOs directamente desde un manejador de eventos:
+ * cualquier latencia de la base de datos (red lenta con MySQL, pool agotado, disco ocupado
+ * con SQLite...) congelaría la ventana. Con esta clase la consulta se lanza en un hilo virtual
+ * y el resultado se entrega de vuelta en el hilo de la interfaz con {@link Platform#runLater}.
+ *
+ * Se usa un hilo virtual por tarea: las operaciones JDBC pasan casi todo el tiempo bloqueadas
+ * esperando a la base de datos, y el número de operaciones simultáneas ya lo limita el
+ * {@link org.dam.fcojavier.substracker.utils.connection.PoolConexiones}.
+ *
+ * Ejemplo de uso desde un controlador:
+ * {@code ServicioAsincrono.ejecutar(() -> dao.findAll(), lista -> tabla.getItems().setAll(lista));}
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public final class ServicioAsincrono {
+
+    /** Tiempo que se espera, al cerrar la aplicación, a que terminen las operaciones en curso. */
+    private static final long ESPERA_CIERRE_SEGUNDOS = 5;
+
+    private static final ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /** Ejecutor que pasa las tareas al hilo de la interfaz (o las ejecuta ya si se está en él). */
+    private static final Executor hiloFx = tarea -> {
+        if (Platform.isFxApplicationThread()) {
+            tarea.run();
+        } else {
+            Platform.runLater(tarea);
+        }
+    };
+
+    private ServicioAsincrono() {
+    }
+
+    /**
+     * Lanza una operación en segundo plano.
+     *
+     * Para encadenar trabajo en la interfaz con el resultado se puede usar {@link #enHiloFx()}
+     * como ejecutor de {@code thenAcceptAsync}, {@code whenCompleteAsync}...
+     *
+     * @param tarea Operación a ejecutar (normalmente una llamada a un DAO).
+     * @param <T> Tipo del resultado.
+     * @return Futuro que se completa, en el hilo virtual, con el resultado de la tarea.
+     */
+    public static <T> CompletableFuture<T> ejecutar(Supplier<T> tarea) {
+        return CompletableFuture.supplyAsync(tarea, ejecutor);
+    }
+
+    /**
+     * Lanza una operación en segundo plano y entrega su resultado en el hilo de la interfaz.
+     * Si la operación falla, el error se escribe en la salida de errores.
+     *
+     * @param tarea Operación a ejecutar.
+     * @param alTerminar Código de interfaz que recibe el resultado.
+     * @param <T> Tipo del resultado.
+     */
+    public static <T> void ejecutar(Supplier<T> tarea, Consumer<T> alTerminar) {
+        ejecutar(tarea, alTerminar, error -> System.err.println("Error en operación en segundo plano: " + error.getMessage()));
+    }
+
+    /**
+     * Lanza una operación en segundo plano y entrega su resultado o su error en el hilo de la interfaz.
+     *
+     * @param tarea Operación a ejecutar.
+     * @param alTerminar Código de interfaz que recibe el resultado.
+     * @param alFallar Código de interfaz que recibe la excepción lanzada por la tarea.
+     * @param <T> Tipo del resultado.
+     */
+    public static <T> void ejecutar(Supplier<T> tarea, Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        ejecutar(tarea).whenCompleteAsync((resultado, error) -> {
+            if (error == null) {
+                alTerminar.accept(resultado);
+            } else {
+                alFallar.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        }, hiloFx);
+    }
+
+    /**
+     * Ejecutor del hilo de la interfaz, para los métodos {@code *Async} de {@link CompletableFuture}.
+     *
+     * @return Ejecutor que usa {@link Platform#runLater}.
+     */
+    public static Executor enHiloFx() {
+        return hiloFx;
+    }
+
+    /**
+     * Deja de aceptar tareas y espera un tiempo limitado a que terminen las que están en curso,
+     * para no cerrar el pool de conexiones con una escritura a medias.
+     * Se llama al cerrar la aplicación.
+     */
+    public static void cerrar() {
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(ESPERA_CIERRE_SEGUNDOS, TimeUnit.SECONDS)) {
+                System.err.println("Quedan operaciones en segundo plano sin terminar; se abandonan.");
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.dam.fcojavier.substracker.service;
+
+import org.dam.fcojavier.substracker.sync.Almacen;
+import org.dam.fcojavier.substracker.sync.MotorSincronizacion;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB.DBType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Properties;
+
+/**
+ * Punto de entrada de la sincronización para los controladores.
+ *
+ * Con SQLite seleccionado y {@code sync.habilitada=true} en {@code database_sqlite.properties}, la
+ * aplicación trabaja siempre sobre el fichero local (latencia de disco en todas las pantallas) y un
+ * {@link MotorSincronizacion} intercambia los cambios con la base de datos remota en segundo plano.
+ * La remota se configura con {@code sync.remoto}, la ruta de otro fichero de propiedades con
+ * {@code db.url}, {@code db.user} y {@code db.password} (por defecto, el de MySQL).
+ *
+ * Ciclo de vida: {@link #iniciar()} tras el login, {@link #detener()} al cerrar sesión y al salir.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public final class ServicioSincronizacion {
+    private static final String CONFIGURACION = "/configDB/database_sqlite.properties";
+
+    private static MotorSincronizacion motor;
+    private static boolean enMarcha = false;
+
+    private ServicioSincronizacion() {
+    }
+
+    /**
+     * Arranca las rondas periódicas si la sincronización está habilitada y la base de datos es SQLite.
+     *
+     * @return {@code true} si la sincronización queda en marcha.
+     */
+    public static synchronized boolean iniciar() {
+        Properties props = leerConfiguracion();
+        if (ConnectionDB.getTipoSeleccionado() == DBType.SQLITE && !habilitada(props)) {
+            desactivarRegistro();
+            return false;
+        }
+        if (!preparar(props)) return false;
+
+        if (!enMarcha) {
+            motor.iniciar(Duration.ofSeconds(leerEntero(props, "sync.intervaloSegundos", 60)));
+            enMarcha = true;
+        }
+        return true;
+    }
+
+    /**
+     * Ejecuta una ronda ahora, en el hilo que llama (por ejemplo, antes de buscar en local un usuario
+     * que quizá solo existe todavía en la remota).
+     *
+     * @return {@code true} si la ronda se completó; {@code false} si la sincronización no está
+     *         habilitada o no se pudo conectar con la remota.
+     */
+    public static boolean sincronizarAhora() {
+        MotorSincronizacion actual;
+        synchronized (ServicioSincronizacion.class) {
+            if (!preparar(leerConfiguracion())) return false;
+            actual = motor;
+        }
+        try {
+            System.out.println("Sincronización: " + actual.sincronizar());
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Error sincronizando: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Detiene las rondas periódicas (espera a que termine la que esté en curso).
+     */
+    public static synchronized void detener() {
+        if (motor != null) {
+            motor.detener();
+            motor = null;
+        }
+        enMarcha = false;
+    }
+
+    // Métodos privados
+
+    /**
+     * Crea el motor si la configuración lo permite.
+     */
+    private static boolean preparar(Properties props) {
+        if (ConnectionDB.getTipoSeleccionado() != DBType.SQLITE) return false;
+        if (!habilitada(props)) return false;
+        if (motor != null) return true;
+
+        Properties remoto = cargar(props.getProperty("sync.remoto", "/configDB/database_mysql.properties").trim());
+        String url = remoto.getProperty("db.url");
+        if (url == null) {
+            System.out.println("Sincronización deshabilitada: falta db.url en la configuración remota.");
+            return false;
+        }
+        String user = remoto.getProperty("db.user");
+        String pass = remoto.getProperty("db.password");
+        DBType tipo = url.startsWith("jdbc:sqlite:") ? DBType.SQLITE : DBType.MYSQL;
+
+        Almacen almacenRemoto = new Almacen("remoto", tipo,
+                () -> DriverManager.getConnection(url, user, pass),
+                () -> DriverManager.getConnection(url, user, pass));
+        motor = new MotorSincronizacion(Almacen.local(), almacenRemoto, leerEntero(props, "sync.lote", 500));
+        return true;
+    }
+
+    private static boolean habilitada(Properties props) {
+        return Boolean.parseBoolean(props.getProperty("sync.habilitada", "false").trim());
+    }
+
+    /**
+     * Con la sincronización desactivada no se anotan cambios en el registro local (si se activa más
+     * adelante, el motor vuelve a anotar todas las filas en su primera ronda).
+     */
+    private static void desactivarRegistro() {
+        try (Connection con = ConnectionDB.getConnection()) {
+            Almacen.local().desactivarRegistro(con);
+        } catch (SQLException e) {
+            System.out.println("Error desactivando el registro de cambios: " + e.getMessage());
+        }
+    }
+
+    private static Properties leerConfiguracion() {
+        return cargar(CONFIGURACION);
+    }
+
+    private static Properties cargar(String ruta) {
+        Properties props = new Properties();
+        try (InputStream is = ServicioSincronizacion.class.getResourceAsStream(ruta)) {
+            if (is != null) {
+                props.load(is);
+            } else {
+                System.out.println("No se encuentra el archivo de configuración en: " + ruta);
+            }
+        } catch (IOException e) {
+            System.out.println("No se pudo leer el archivo de configuración: " + ruta);
+        }
+        return props;
+    }
+
+    private static int leerEntero(Properties props, String clave, int porDefecto) {
+        String valor = props.getProperty(clave);
+        if (valor == null || valor.isBlank()) return porDefecto;
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor no válido para " + clave + ": " + valor + ". Se usa " + porDefecto);
+            return porDefecto;
+        }
+    }
+}
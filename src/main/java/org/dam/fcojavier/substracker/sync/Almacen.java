@@ -0,0 +1,392 @@
+package org.dam.fcojavier.substracker.sync;
+
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB;
+import org.dam.fcojavier.substracker.utils.connection.ConnectionDB.DBType;
+import org.dam.fcojavier.substracker.utils.connection.PoolConexiones.FabricaConexiones;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uno de los dos extremos de la sincronización: la base de datos local (SQLite) o la remota (MySQL).
+ *
+ * Agrupa el acceso a las tablas de sincronización ({@code sync_cambio}, {@code sync_estado}) y la
+ * lectura y escritura de filas por {@code sync_id}, traduciendo las claves foráneas. Todos los métodos
+ * reciben la conexión: quien llama decide la transacción.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class Almacen {
+    private static final String cambios_sql =
+            "SELECT id_cambio, tabla, sync_id, version, borrado FROM sync_cambio WHERE id_cambio > ? ORDER BY id_cambio LIMIT ?";
+    private static final String version_lapida_sql =
+            "SELECT MAX(version) FROM sync_cambio WHERE tabla = ? AND sync_id = ? AND borrado = 1";
+    private static final String leer_estado_sql = "SELECT valor FROM sync_estado WHERE clave = ?";
+    private static final String guardar_estado_mysql =
+            "INSERT INTO sync_estado (clave, valor) VALUES (?, ?) ON DUPLICATE KEY UPDATE valor = VALUES(valor)";
+    private static final String guardar_estado_sqlite =
+            "INSERT INTO sync_estado (clave, valor) VALUES (?, ?) ON CONFLICT (clave) DO UPDATE SET valor = excluded.valor";
+    private static final String borrar_estado_sql = "DELETE FROM sync_estado WHERE clave = ?";
+    private static final String vaciar_cambios_sql = "DELETE FROM sync_cambio WHERE borrado = 0";
+    private static final String podar_sql = "DELETE FROM sync_cambio WHERE id_cambio <= ? AND borrado = 0";
+    private static final String compactar_mysql =
+            "DELETE c FROM sync_cambio c JOIN sync_cambio n ON n.tabla = c.tabla AND n.sync_id = c.sync_id " +
+                    "AND n.id_cambio > c.id_cambio WHERE c.id_cambio > ? AND c.id_cambio <= ? AND c.borrado = 0";
+    private static final String compactar_sqlite =
+            "DELETE FROM sync_cambio WHERE id_cambio > ? AND id_cambio <= ? AND borrado = 0 AND EXISTS (" +
+                    "SELECT 1 FROM sync_cambio n WHERE n.tabla = sync_cambio.tabla AND n.sync_id = sync_cambio.sync_id " +
+                    "AND n.id_cambio > sync_cambio.id_cambio)";
+
+    /**
+     * Clave en {@code sync_estado} que activa el registro de altas y cambios en {@code sync_cambio}
+     * (los triggers de la migración V7 solo anotan si existe).
+     */
+    static final String REGISTRO = "registro";
+
+    private final String nombre;
+    private final DBType tipo;
+    private final FabricaConexiones escritura;
+    private final FabricaConexiones lectura;
+
+    /**
+     * @param nombre Nombre para los mensajes ("local", "remoto").
+     * @param tipo Dialecto de la base de datos.
+     * @param escritura Abre (o presta) la conexión con la que se escribe.
+     * @param lectura Abre (o presta) una conexión para leer mientras otra escribe.
+     */
+    public Almacen(String nombre, DBType tipo, FabricaConexiones escritura, FabricaConexiones lectura) {
+        this.nombre = nombre;
+        this.tipo = tipo;
+        this.escritura = escritura;
+        this.lectura = lectura;
+    }
+
+    /**
+     * La base de datos con la que trabaja la aplicación, a través de los pools de {@link ConnectionDB}.
+     *
+     * @return Almacén local.
+     */
+    public static Almacen local() {
+        return new Almacen("local", ConnectionDB.getTipoSeleccionado(), ConnectionDB::getConnection, ConnectionDB::getConnectionLectura);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public DBType getTipo() {
+        return tipo;
+    }
+
+    Connection abrirEscritura() throws SQLException {
+        return escritura.crear();
+    }
+
+    Connection abrirLectura() throws SQLException {
+        return lectura.crear();
+    }
+
+    // Registro de cambios y estado
+
+    /**
+     * Lee las entradas del registro posteriores al cursor.
+     *
+     * @param con Conexión.
+     * @param desde Último {@code id_cambio} ya procesado.
+     * @param limite Número máximo de entradas.
+     * @return Entradas en orden; se ignoran las de tablas que no se sincronizan.
+     */
+    List<Cambio> leerCambios(Connection con, long desde, int limite) throws SQLException {
+        List<Cambio> cambios = new ArrayList<>();
+        try (PreparedStatement pstm = con.prepareStatement(cambios_sql)) {
+            pstm.setLong(1, desde);
+            pstm.setInt(2, limite);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    TablaSincronizada tabla = TablaSincronizada.deNombre(rs.getString("tabla"));
+                    // Las entradas de otras tablas cuentan para el cursor, pero no se aplican
+                    cambios.add(new Cambio(rs.getLong("id_cambio"), tabla, rs.getString("sync_id"),
+                            rs.getLong("version"), rs.getInt("borrado") == 1));
+                }
+            }
+        }
+        return cambios;
+    }
+
+    /**
+     * @return Versión de la lápida más reciente de la fila, o {@code -1} si nunca se borró aquí.
+     */
+    long versionLapida(Connection con, TablaSincronizada tabla, String syncId) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement(version_lapida_sql)) {
+            pstm.setString(1, tabla.getNombre());
+            pstm.setString(2, syncId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                rs.next(); // MAX siempre devuelve una fila (NULL si no hay lápidas)
+                long version = rs.getLong(1);
+                return rs.wasNull() ? -1 : version;
+            }
+        }
+    }
+
+    String leerEstado(Connection con, String clave) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement(leer_estado_sql)) {
+            pstm.setString(1, clave);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    void guardarEstado(Connection con, String clave, String valor) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement(tipo == DBType.MYSQL ? guardar_estado_mysql : guardar_estado_sqlite)) {
+            pstm.setString(1, clave);
+            pstm.setString(2, valor);
+            pstm.executeUpdate();
+        }
+    }
+
+    /**
+     * Activa el registro de cambios si no lo estaba, anotando como cambio cada fila existente para que
+     * el otro extremo reciba también lo escrito mientras estaba desactivado. Se hace en una transacción.
+     *
+     * @param con Conexión de escritura (en autocommit).
+     * @return {@code true} si se acaba de activar.
+     */
+    boolean activarRegistro(Connection con) throws SQLException {
+        if (leerEstado(con, REGISTRO) != null) return false;
+
+        con.setAutoCommit(false);
+        try {
+            guardarEstado(con, REGISTRO, String.valueOf(System.currentTimeMillis()));
+            // De padres a hijos, como se aplican en el destino
+            for (TablaSincronizada tabla : TablaSincronizada.values()) {
+                try (Statement st = con.createStatement()) {
+                    st.executeUpdate("INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT '" + tabla.getNombre() +
+                            "', sync_id, version, 0 FROM " + tabla.getNombre() + " ORDER BY " + tabla.getClavePrimaria());
+                }
+            }
+            con.commit();
+        } catch (SQLException | RuntimeException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+        System.out.println("Registro de cambios activado en " + this + ".");
+        return true;
+    }
+
+    /**
+     * Desactiva el registro de cambios y descarta las altas y cambios anotados (las lápidas se conservan).
+     * Si se vuelve a activar, {@link #activarRegistro} anota de nuevo todas las filas.
+     *
+     * @param con Conexión de escritura (en autocommit).
+     */
+    public void desactivarRegistro(Connection con) throws SQLException {
+        if (leerEstado(con, REGISTRO) == null) return;
+
+        con.setAutoCommit(false);
+        try (PreparedStatement estado = con.prepareStatement(borrar_estado_sql);
+             PreparedStatement cambios = con.prepareStatement(vaciar_cambios_sql)) {
+            estado.setString(1, REGISTRO);
+            estado.executeUpdate();
+            cambios.executeUpdate();
+            con.commit();
+        } catch (SQLException | RuntimeException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Borra las altas y cambios hasta un cursor ya confirmado por el único lector del registro
+     * (el envío del registro local). Las lápidas se conservan para {@link #versionLapida}.
+     *
+     * @param con Conexión de escritura.
+     * @param hasta Último {@code id_cambio} enviado.
+     * @return Entradas borradas.
+     */
+    int podar(Connection con, long hasta) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement(podar_sql)) {
+            pstm.setLong(1, hasta);
+            return pstm.executeUpdate();
+        }
+    }
+
+    /**
+     * Borra, en un rango del registro, las altas y cambios de filas que tienen una entrada posterior.
+     *
+     * Es seguro con varios lectores, cada uno con su cursor: quien no haya leído la entrada borrada
+     * tampoco ha leído la posterior, que tiene mayor {@code id_cambio}, y el contenido de la fila se
+     * lee siempre de la tabla. Así el registro remoto crece con las filas, no con cada modificación.
+     *
+     * @param con Conexión de escritura.
+     * @param desde Cursor anterior al rango (excluido).
+     * @param hasta Último {@code id_cambio} del rango.
+     * @return Entradas borradas.
+     */
+    int compactar(Connection con, long desde, long hasta) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement(tipo == DBType.MYSQL ? compactar_mysql : compactar_sqlite)) {
+            pstm.setLong(1, desde);
+            pstm.setLong(2, hasta);
+            return pstm.executeUpdate();
+        }
+    }
+
+    // Filas
+
+    /**
+     * Lee una fila por su identificador global.
+     *
+     * @return La fila, o {@code null} si no existe.
+     */
+    Fila leer(Connection con, TablaSincronizada tabla, String syncId) throws SQLException {
+        return leerDonde(con, tabla, "sync_id", syncId);
+    }
+
+    /**
+     * Lee una fila por su clave natural (el email de un usuario registrado en los dos lados).
+     *
+     * @return La fila, o {@code null} si la tabla no tiene clave natural o no existe.
+     */
+    Fila leerPorClaveNatural(Connection con, TablaSincronizada tabla, Object valor) throws SQLException {
+        if (tabla.getClaveNatural() == null || valor == null) return null;
+        return leerDonde(con, tabla, tabla.getClaveNatural(), valor);
+    }
+
+    /**
+     * Traduce el {@code sync_id} de una fila a su clave primaria en esta base de datos.
+     *
+     * @return El ID, o {@code null} si la fila no existe.
+     */
+    Integer idDe(Connection con, TablaSincronizada tabla, String syncId) throws SQLException {
+        String sql = "SELECT " + tabla.getClavePrimaria() + " FROM " + tabla.getNombre() + " WHERE sync_id = ?";
+        try (PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setString(1, syncId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Inserta una fila recibida conservando su {@code sync_id} y su versión.
+     *
+     * @param ids Claves foráneas ya traducidas a IDs de esta base de datos.
+     * @return Clave primaria generada.
+     */
+    int insertar(Connection con, TablaSincronizada tabla, Fila fila, Map<String, Integer> ids) throws SQLException {
+        List<String> columnas = tabla.getColumnas();
+        String sql = "INSERT INTO " + tabla.getNombre() + " (sync_id, version, " + String.join(", ", columnas) + ") " +
+                "VALUES (?, ?" + ", ?".repeat(columnas.size()) + ")";
+        try (PreparedStatement pstm = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            asignar(pstm, tabla, fila, ids);
+            pstm.executeUpdate();
+            try (ResultSet rs = pstm.getGeneratedKeys()) {
+                if (rs.next()) return rs.getInt(1);
+            }
+        }
+        Integer id = idDe(con, tabla, fila.syncId());
+        if (id == null) throw new SQLException("No se pudo recuperar el ID de la fila insertada en " + tabla.getNombre());
+        return id;
+    }
+
+    /**
+     * Sobrescribe una fila existente con la recibida (incluidos {@code sync_id} y versión).
+     */
+    void actualizar(Connection con, TablaSincronizada tabla, int id, Fila fila, Map<String, Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tabla.getNombre()).append(" SET sync_id = ?, version = ?");
+        for (String columna : tabla.getColumnas()) {
+            sql.append(", ").append(columna).append(" = ?");
+        }
+        sql.append(" WHERE ").append(tabla.getClavePrimaria()).append(" = ?");
+
+        try (PreparedStatement pstm = con.prepareStatement(sql.toString())) {
+            asignar(pstm, tabla, fila, ids);
+            pstm.setInt(tabla.getColumnas().size() + 3, id);
+            pstm.executeUpdate();
+        }
+    }
+
+    void borrar(Connection con, TablaSincronizada tabla, int id) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement(
+                "DELETE FROM " + tabla.getNombre() + " WHERE " + tabla.getClavePrimaria() + " = ?")) {
+            pstm.setInt(1, id);
+            pstm.executeUpdate();
+        }
+    }
+
+    /**
+     * @return Titular cuyo resumen mensual depende de la fila, o {@code null} si no afecta al resumen.
+     */
+    Integer titularDe(Connection con, TablaSincronizada tabla, int id) throws SQLException {
+        if (tabla.getConsultaTitular() == null) return null;
+        try (PreparedStatement pstm = con.prepareStatement(tabla.getConsultaTitular())) {
+            pstm.setInt(1, id);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return nombre + " (" + tipo + ")";
+    }
+
+    // Métodos privados
+
+    /**
+     * Lee una fila filtrando por una columna. Las claves foráneas se leen como el {@code sync_id} del padre.
+     */
+    private Fila leerDonde(Connection con, TablaSincronizada tabla, String columnaFiltro, Object valor) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT t.").append(tabla.getClavePrimaria()).append(", t.sync_id, t.version");
+        for (String columna : tabla.getColumnas()) {
+            TablaSincronizada.ClaveForanea fk = tabla.getClaveForanea(columna);
+            if (fk == null) {
+                sql.append(", t.").append(columna);
+            } else {
+                TablaSincronizada padre = fk.padre();
+                sql.append(", (SELECT p.sync_id FROM ").append(padre.getNombre()).append(" p WHERE p.")
+                        .append(padre.getClavePrimaria()).append(" = t.").append(columna).append(") AS ").append(columna);
+            }
+        }
+        sql.append(" FROM ").append(tabla.getNombre()).append(" t WHERE t.").append(columnaFiltro).append(" = ?");
+
+        try (PreparedStatement pstm = con.prepareStatement(sql.toString())) {
+            pstm.setObject(1, valor);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) return null;
+
+                Map<String, Object> datos = new LinkedHashMap<>();
+                for (String columna : tabla.getColumnas()) {
+                    datos.put(columna, Fila.normalizar(rs.getObject(columna)));
+                }
+                return new Fila(rs.getInt(1), rs.getString("sync_id"), rs.getLong("version"), datos);
+            }
+        }
+    }
+
+    /**
+     * Asigna {@code sync_id}, versión y columnas de datos (parámetros 1 a n + 2).
+     */
+    private static void asignar(PreparedStatement pstm, TablaSincronizada tabla, Fila fila, Map<String, Integer> ids) throws SQLException {
+        pstm.setString(1, fila.syncId());
+        pstm.setLong(2, fila.version());
+        int i = 3;
+        for (String columna : tabla.getColumnas()) {
+            Object valor = tabla.getClaveForanea(columna) != null ? ids.get(columna) : fila.datos().get(columna);
+            pstm.setObject(i++, valor);
+        }
+    }
+}
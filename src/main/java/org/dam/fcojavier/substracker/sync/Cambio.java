@@ -0,0 +1,16 @@
+package org.dam.fcojavier.substracker.sync;
+
+/**
+ * Entrada del registro {@code sync_cambio}: una fila que se insertó, modificó o borró.
+ *
+ * @param id Posición en el registro (el cursor de la sincronización).
+ * @param tabla Tabla de la fila.
+ * @param syncId Identificador global de la fila.
+ * @param version Versión de la fila tras el cambio (en un borrado, la de la lápida).
+ * @param borrado {@code true} si es una lápida.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+record Cambio(long id, TablaSincronizada tabla, String syncId, long version, boolean borrado) {
+}
@@ -0,0 +1,43 @@
+package org.dam.fcojavier.substracker.sync;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Contenido de una fila sincronizable, independiente de la base de datos de la que se leyó.
+ *
+ * Las claves foráneas de {@code datos} contienen el {@code sync_id} del padre (no su ID) y los valores
+ * se normalizan para poder compararlos entre MySQL y SQLite: enteros como {@link Long}, decimales como
+ * {@link Double} y booleanos como 0/1.
+ *
+ * @param id Clave primaria en la base de datos de la que se leyó.
+ * @param syncId Identificador global.
+ * @param version Versión (milisegundos de la última modificación).
+ * @param datos Columnas de datos en el orden de {@link TablaSincronizada#getColumnas()}.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+record Fila(int id, String syncId, long version, Map<String, Object> datos) {
+
+    /**
+     * @param otra Fila de la otra base de datos.
+     * @return {@code true} si las columnas de datos son iguales.
+     */
+    boolean mismosDatos(Fila otra) {
+        return Objects.equals(datos, otra.datos);
+    }
+
+    /**
+     * Convierte un valor leído con {@code getObject} a su forma común.
+     */
+    static Object normalizar(Object valor) {
+        if (valor instanceof Boolean b) return b ? 1L : 0L;
+        if (valor instanceof BigDecimal || valor instanceof Double || valor instanceof Float) {
+            return ((Number) valor).doubleValue();
+        }
+        if (valor instanceof Number n) return n.longValue();
+        return valor;
+    }
+}
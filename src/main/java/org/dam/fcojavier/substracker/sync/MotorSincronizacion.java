@@ -0,0 +1,351 @@
+package org.dam.fcojavier.substracker.sync;
+
+import org.dam.fcojavier.substracker.dao.ResumenMensualDAO;
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+import org.dam.fcojavier.substracker.utils.connection.MotorMigraciones;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sincronización entre la base de datos local (donde lee y escribe la aplicación) y la remota,
+ * que es la de referencia.
+ *
+ * Cada base de datos anota sus altas, cambios y borrados en {@code sync_cambio} (triggers de las
+ * migraciones V5 y V7). Las altas y cambios solo se anotan con el registro activo: el motor lo activa
+ * en los dos extremos en su primera ronda ({@link Almacen#activarRegistro}). Una ronda:
+ * 1. Envía: lee el registro local desde el cursor {@value #CURSOR_ENVIADO} y aplica las filas en la remota.
+ * 2. Recibe: lee el registro remoto desde el cursor {@value #CURSOR_RECIBIDO} y aplica las filas en la local.
+ *
+ * Los cambios se procesan en lotes; de cada fila solo cuenta su último cambio del lote y su contenido
+ * se lee del origen antes de abrir la transacción del destino, para no retener el escritor de SQLite
+ * mientras se espera a la red. Cada lote se aplica en una transacción del destino; el cursor de
+ * recepción se guarda en esa misma transacción y el de envío justo después (reenviar un lote es inocuo).
+ *
+ * El registro no crece sin límite: tras enviar un lote se borran del registro local las entradas
+ * enviadas (solo las lee este motor) y tras recibirlo se compactan en el remoto las entradas del lote
+ * que tienen otra posterior de la misma fila ({@link Almacen#compactar}). Las lápidas se conservan.
+ *
+ * Conflictos (resolución determinista, "gana la última escritura"):
+ * Se aplica la fila con mayor {@code version}. Con la misma versión y distinto contenido gana la remota.
+ * Un borrado gana a una modificación con versión menor o igual que la de su lápida, y una fila borrada
+ * en el destino no se vuelve a crear si su lápida es igual o más reciente.
+ * Un usuario con el mismo email en los dos lados se considera la misma fila (se adopta el {@code sync_id}).
+ *
+ * Tras aplicar un lote se recalcula el {@code resumen_mensual} de los titulares afectados en el destino,
+ * y tras recibir cambios se vacían las cachés de entidades de la aplicación.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class MotorSincronizacion {
+    /** Clave en {@code sync_estado} (local) del último cambio local enviado. */
+    static final String CURSOR_ENVIADO = "cursor_enviado";
+    /** Clave en {@code sync_estado} (local) del último cambio remoto recibido. */
+    static final String CURSOR_RECIBIDO = "cursor_recibido";
+
+    private final Almacen local;
+    private final Almacen remoto;
+    private final int tamanoLote;
+
+    /** Evita dos rondas a la vez (la programada y una manual). */
+    private final Object ronda = new Object();
+    private boolean preparado = false;
+    private ScheduledExecutorService planificador;
+
+    /**
+     * @param local Base de datos de la aplicación.
+     * @param remoto Base de datos de referencia.
+     * @param tamanoLote Cambios del registro que se procesan por transacción.
+     */
+    public MotorSincronizacion(Almacen local, Almacen remoto, int tamanoLote) {
+        this.local = local;
+        this.remoto = remoto;
+        this.tamanoLote = tamanoLote;
+    }
+
+    /**
+     * Ejecuta una ronda completa: envía los cambios locales y recibe los remotos.
+     *
+     * @return Recuento de la ronda.
+     * @throws SQLException Si falla la conexión o un lote (ese lote se deshace y se reintenta en la siguiente ronda).
+     */
+    public ResultadoSincronizacion sincronizar() throws SQLException {
+        synchronized (ronda) {
+            preparar();
+            ResultadoSincronizacion resultado = new ResultadoSincronizacion();
+            try {
+                transferir(local, remoto, CURSOR_ENVIADO, true, resultado);
+                transferir(remoto, local, CURSOR_RECIBIDO, false, resultado);
+            } finally {
+                if (resultado.getRecibidos() > 0) {
+                    CacheEntidades.vaciarTodas();
+                }
+            }
+            return resultado;
+        }
+    }
+
+    /**
+     * Arranca las rondas periódicas en un hilo de fondo (la primera, inmediatamente).
+     * Si ya estaban en marcha, no hace nada.
+     *
+     * @param intervalo Tiempo entre el final de una ronda y el comienzo de la siguiente.
+     */
+    public synchronized void iniciar(Duration intervalo) {
+        if (planificador != null) return;
+
+        planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "sincronizacion");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        planificador.scheduleWithFixedDelay(this::rondaProgramada, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        System.out.println("Sincronización con " + remoto + " cada " + intervalo.toSeconds() + " s.");
+    }
+
+    /**
+     * Detiene las rondas periódicas, esperando a que termine la que esté en curso.
+     */
+    public void detener() {
+        ScheduledExecutorService parar;
+        synchronized (this) {
+            parar = planificador;
+            planificador = null;
+        }
+        if (parar == null) return;
+
+        parar.shutdown();
+        try {
+            if (!parar.awaitTermination(10, TimeUnit.SECONDS)) {
+                System.err.println("La sincronización no terminó a tiempo; se interrumpe.");
+                parar.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            parar.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Métodos privados
+
+    private void rondaProgramada() {
+        try {
+            ResultadoSincronizacion resultado = sincronizar();
+            if (resultado.hayActividad()) {
+                System.out.println("Sincronización: " + resultado);
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Sin conexión con el remoto se sigue trabajando en local; se reintenta en la siguiente ronda
+            System.out.println("Error sincronizando con " + remoto + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * La base de datos remota necesita las migraciones del registro de cambios, igual que la local,
+     * y los dos extremos el registro activo.
+     */
+    private void preparar() throws SQLException {
+        if (preparado) return;
+        try (Connection con = remoto.abrirEscritura()) {
+            MotorMigraciones.para(remoto.getTipo()).migrar(con);
+            remoto.activarRegistro(con);
+        }
+        try (Connection con = local.abrirEscritura()) {
+            local.activarRegistro(con);
+        }
+        preparado = true;
+    }
+
+    /**
+     * Lleva al destino, lote a lote, los cambios del origen posteriores al cursor.
+     */
+    private void transferir(Almacen origen, Almacen destino, String claveCursor, boolean haciaRemoto,
+                            ResultadoSincronizacion resultado) throws SQLException {
+        while (true) {
+            long cursor = leerCursor(claveCursor);
+
+            List<Cambio> cambios;
+            Map<ClaveFila, Cambio> ultimos;
+            Map<ClaveFila, Fila> filas = new HashMap<>();
+            try (Connection con = origen.abrirLectura()) {
+                cambios = origen.leerCambios(con, cursor, tamanoLote);
+                if (cambios.isEmpty()) return;
+
+                ultimos = colapsar(cambios);
+                for (Map.Entry<ClaveFila, Cambio> entrada : ultimos.entrySet()) {
+                    if (entrada.getValue().borrado()) continue;
+                    // Si ya no existe es que se borró después: su lápida llegará en este lote o en otro
+                    Fila fila = origen.leer(con, entrada.getKey().tabla(), entrada.getKey().syncId());
+                    if (fila != null) filas.put(entrada.getKey(), fila);
+                }
+            }
+
+            long idUltimo = cambios.get(cambios.size() - 1).id();
+            String ultimo = String.valueOf(idUltimo);
+            try (Connection con = destino.abrirEscritura()) {
+                con.setAutoCommit(false);
+                try {
+                    aplicarLote(con, destino, ultimos, filas, haciaRemoto, resultado);
+                    if (!haciaRemoto) {
+                        local.guardarEstado(con, claveCursor, ultimo);
+                    }
+                    con.commit();
+                } catch (SQLException | RuntimeException e) {
+                    con.rollback();
+                    throw e;
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+            if (haciaRemoto) {
+                try (Connection con = local.abrirEscritura()) {
+                    local.guardarEstado(con, claveCursor, ultimo);
+                    local.podar(con, idUltimo);
+                }
+            } else {
+                try (Connection con = remoto.abrirEscritura()) {
+                    remoto.compactar(con, cursor, idUltimo);
+                }
+            }
+
+            if (cambios.size() < tamanoLote) return;
+        }
+    }
+
+    private long leerCursor(String clave) throws SQLException {
+        try (Connection con = local.abrirLectura()) {
+            String valor = local.leerEstado(con, clave);
+            return valor != null ? Long.parseLong(valor) : 0;
+        }
+    }
+
+    /**
+     * Último cambio de cada fila del lote, descartando tablas que no se sincronizan.
+     */
+    private static Map<ClaveFila, Cambio> colapsar(List<Cambio> cambios) {
+        Map<ClaveFila, Cambio> ultimos = new LinkedHashMap<>();
+        for (Cambio cambio : cambios) {
+            if (cambio.tabla() != null) {
+                ultimos.put(new ClaveFila(cambio.tabla(), cambio.syncId()), cambio);
+            }
+        }
+        return ultimos;
+    }
+
+    /**
+     * Aplica el lote en la transacción del destino: altas y modificaciones de padres a hijos,
+     * borrados de hijos a padres, y al final el recálculo del resumen mensual.
+     */
+    private void aplicarLote(Connection con, Almacen destino, Map<ClaveFila, Cambio> ultimos, Map<ClaveFila, Fila> filas,
+                             boolean haciaRemoto, ResultadoSincronizacion resultado) throws SQLException {
+        List<Cambio> escrituras = new ArrayList<>();
+        List<Cambio> borrados = new ArrayList<>();
+        for (Cambio cambio : ultimos.values()) {
+            (cambio.borrado() ? borrados : escrituras).add(cambio);
+        }
+        Comparator<Cambio> porTabla = Comparator.comparingInt(c -> c.tabla().ordinal());
+        escrituras.sort(porTabla);
+        borrados.sort(porTabla.reversed());
+
+        Set<Integer> titulares = new HashSet<>();
+        for (Cambio cambio : escrituras) {
+            Fila fila = filas.get(new ClaveFila(cambio.tabla(), cambio.syncId()));
+            if (fila != null) {
+                aplicarFila(con, destino, cambio.tabla(), fila, haciaRemoto, resultado, titulares);
+            }
+        }
+        for (Cambio cambio : borrados) {
+            aplicarBorrado(con, destino, cambio, haciaRemoto, resultado, titulares);
+        }
+
+        ResumenMensualDAO.reconstruirUsuarios(con, destino.getTipo(), titulares);
+    }
+
+    private void aplicarFila(Connection con, Almacen destino, TablaSincronizada tabla, Fila entrante, boolean haciaRemoto,
+                             ResultadoSincronizacion resultado, Set<Integer> titulares) throws SQLException {
+        Fila actual = destino.leer(con, tabla, entrante.syncId());
+        if (actual == null && tabla.getClaveNatural() != null) {
+            actual = destino.leerPorClaveNatural(con, tabla, entrante.datos().get(tabla.getClaveNatural()));
+        }
+
+        if (actual == null) {
+            if (destino.versionLapida(con, tabla, entrante.syncId()) >= entrante.version()) {
+                resultado.sumarConflicto();
+                return;
+            }
+        } else if (actual.syncId().equals(entrante.syncId()) && actual.mismosDatos(entrante)) {
+            if (actual.version() >= entrante.version()) return; // ya está (p. ej. el eco de un cambio recibido)
+        } else if (!ganaEntrante(entrante.version(), actual.version(), haciaRemoto)) {
+            resultado.sumarConflicto();
+            return;
+        }
+
+        Map<String, Integer> ids = new HashMap<>();
+        for (TablaSincronizada.ClaveForanea fk : tabla.getClavesForaneas()) {
+            String padre = (String) entrante.datos().get(fk.columna());
+            Integer id = padre != null ? destino.idDe(con, fk.padre(), padre) : null;
+            if (id == null && !fk.opcional()) {
+                resultado.sumarHuerfano();
+                return;
+            }
+            ids.put(fk.columna(), id);
+        }
+
+        int id;
+        if (actual != null) {
+            anotarTitular(con, destino, tabla, actual.id(), titulares);
+            destino.actualizar(con, tabla, actual.id(), entrante, ids);
+            id = actual.id();
+        } else {
+            id = destino.insertar(con, tabla, entrante, ids);
+        }
+        anotarTitular(con, destino, tabla, id, titulares);
+        resultado.sumarAplicado(haciaRemoto);
+    }
+
+    private void aplicarBorrado(Connection con, Almacen destino, Cambio lapida, boolean haciaRemoto,
+                                ResultadoSincronizacion resultado, Set<Integer> titulares) throws SQLException {
+        Fila actual = destino.leer(con, lapida.tabla(), lapida.syncId());
+        if (actual == null) return;
+
+        if (lapida.version() < actual.version()) {
+            // Se modificó en el destino después de borrarse en el origen: se conserva y volverá al origen
+            resultado.sumarConflicto();
+            return;
+        }
+        anotarTitular(con, destino, lapida.tabla(), actual.id(), titulares);
+        destino.borrar(con, lapida.tabla(), actual.id());
+        resultado.sumarAplicado(haciaRemoto);
+    }
+
+    /**
+     * Mayor versión gana; en empate gana la remota (es decir, el cambio entrante solo al recibir).
+     */
+    static boolean ganaEntrante(long versionEntrante, long versionActual, boolean haciaRemoto) {
+        if (versionEntrante != versionActual) return versionEntrante > versionActual;
+        return !haciaRemoto;
+    }
+
+    private static void anotarTitular(Connection con, Almacen destino, TablaSincronizada tabla, int id,
+                                      Set<Integer> titulares) throws SQLException {
+        Integer titular = destino.titularDe(con, tabla, id);
+        if (titular != null) titulares.add(titular);
+    }
+
+    /** Identifica una fila en el lote. */
+    private record ClaveFila(TablaSincronizada tabla, String syncId) {
+    }
+}
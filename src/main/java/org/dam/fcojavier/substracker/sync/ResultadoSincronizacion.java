@@ -0,0 +1,60 @@
+package org.dam.fcojavier.substracker.sync;
+
+/**
+ * Recuento de una ronda de sincronización.
+ *
+ * enviados: filas (o borrados) aplicados en la base de datos remota.
+ * recibidos: filas (o borrados) aplicados en la local.
+ * conflictos: cambios descartados porque el otro lado tenía una versión más reciente.
+ * huerfanos: filas descartadas porque su padre obligatorio no existe en el destino (se borró allí).
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class ResultadoSincronizacion {
+    private int enviados;
+    private int recibidos;
+    private int conflictos;
+    private int huerfanos;
+
+    void sumarAplicado(boolean haciaRemoto) {
+        if (haciaRemoto) enviados++;
+        else recibidos++;
+    }
+
+    void sumarConflicto() {
+        conflictos++;
+    }
+
+    void sumarHuerfano() {
+        huerfanos++;
+    }
+
+    public int getEnviados() {
+        return enviados;
+    }
+
+    public int getRecibidos() {
+        return recibidos;
+    }
+
+    public int getConflictos() {
+        return conflictos;
+    }
+
+    public int getHuerfanos() {
+        return huerfanos;
+    }
+
+    /**
+     * @return {@code true} si la ronda cambió algo o descartó algún cambio.
+     */
+    public boolean hayActividad() {
+        return enviados + recibidos + conflictos + huerfanos > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "enviados=" + enviados + ", recibidos=" + recibidos + ", conflictos=" + conflictos + ", huerfanos=" + huerfanos;
+    }
+}
@@ -0,0 +1,113 @@
+package org.dam.fcojavier.substracker.sync;
+
+import java.util.List;
+
+/**
+ * Tablas que se sincronizan entre la base de datos local y la remota, en orden de dependencia
+ * (los padres antes que los hijos).
+ *
+ * Las claves primarias son autoincrementales y no coinciden entre bases de datos: las filas se
+ * identifican por su {@code sync_id} y las claves foráneas se traducen al {@code sync_id} del padre
+ * al leer y al ID local al escribir. El resumen mensual no se sincroniza: cada lado lo recalcula.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public enum TablaSincronizada {
+    USUARIO("usuario", "id_usuario", "email",
+            List.of("email", "nombre", "apellidos", "password"),
+            List.of(),
+            null),
+    SUSCRIPCION("suscripcion", "id_suscripcion", null,
+            List.of("nombre", "precio", "ciclo", "categoria", "activo", "fecha_activacion", "fecha_renovacion", "id_titular"),
+            List.of(new ClaveForanea("id_titular", USUARIO, false)),
+            "SELECT id_titular FROM suscripcion WHERE id_suscripcion = ?"),
+    COBRO("cobro", "id_cobro", null,
+            List.of("id_suscripcion", "fecha_cobro", "metodo_pago", "descripcion", "periodos_cubiertos"),
+            List.of(new ClaveForanea("id_suscripcion", SUSCRIPCION, false)),
+            "SELECT s.id_titular FROM cobro c INNER JOIN suscripcion s ON c.id_suscripcion = s.id_suscripcion WHERE c.id_cobro = ?"),
+    PARTICIPA("participa", "id_participa", null,
+            List.of("id_suscripcion", "id_usuario", "nombre_invitado", "cantidadApagar", "fecha_pagado",
+                    "metodo_pago", "descripcion", "periodos_cubiertos"),
+            List.of(new ClaveForanea("id_suscripcion", SUSCRIPCION, false), new ClaveForanea("id_usuario", USUARIO, true)),
+            "SELECT s.id_titular FROM participa p INNER JOIN suscripcion s ON p.id_suscripcion = s.id_suscripcion WHERE p.id_participa = ?");
+
+    /**
+     * Columna que referencia a otra tabla sincronizada.
+     *
+     * @param columna Nombre de la columna.
+     * @param padre Tabla referenciada.
+     * @param opcional {@code true} si admite NULL (si el padre no existe en el destino se deja a NULL;
+     *                 si no es opcional, la fila no se puede aplicar).
+     */
+    public record ClaveForanea(String columna, TablaSincronizada padre, boolean opcional) {
+    }
+
+    private final String nombre;
+    private final String clavePrimaria;
+    private final String claveNatural;
+    private final List<String> columnas;
+    private final List<ClaveForanea> clavesForaneas;
+    private final String consultaTitular;
+
+    TablaSincronizada(String nombre, String clavePrimaria, String claveNatural, List<String> columnas,
+                      List<ClaveForanea> clavesForaneas, String consultaTitular) {
+        this.nombre = nombre;
+        this.clavePrimaria = clavePrimaria;
+        this.claveNatural = claveNatural;
+        this.columnas = columnas;
+        this.clavesForaneas = clavesForaneas;
+        this.consultaTitular = consultaTitular;
+    }
+
+    /**
+     * Busca la tabla por su nombre en la base de datos (columna {@code tabla} de {@code sync_cambio}).
+     *
+     * @param nombre Nombre de la tabla.
+     * @return La tabla, o {@code null} si no se sincroniza.
+     */
+    public static TablaSincronizada deNombre(String nombre) {
+        for (TablaSincronizada tabla : values()) {
+            if (tabla.nombre.equals(nombre)) return tabla;
+        }
+        return null;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getClavePrimaria() {
+        return clavePrimaria;
+    }
+
+    /** @return Columna única que identifica la fila aunque tenga otro {@code sync_id} (el email), o {@code null}. */
+    public String getClaveNatural() {
+        return claveNatural;
+    }
+
+    /** @return Columnas de datos (sin la clave primaria, {@code sync_id} ni {@code version}). */
+    public List<String> getColumnas() {
+        return columnas;
+    }
+
+    public List<ClaveForanea> getClavesForaneas() {
+        return clavesForaneas;
+    }
+
+    /**
+     * @param columna Columna de datos.
+     * @return Su clave foránea, o {@code null} si es una columna normal.
+     */
+    public ClaveForanea getClaveForanea(String columna) {
+        for (ClaveForanea fk : clavesForaneas) {
+            if (fk.columna().equals(columna)) return fk;
+        }
+        return null;
+    }
+
+    /** @return Consulta con un parámetro (la clave primaria) que devuelve el titular afectado, o {@code null}. */
+    public String getConsultaTitular() {
+        return consultaTitular;
+    }
+}
@@ -0,0 +1,206 @@
+package org.dam.fcojavier.substracker.utils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de entidades indexadas por clave primaria (patrón Identity Map).
+ *
+ * Los DAOs la consultan antes de ir a la base de datos, de modo que la misma fila leída varias
+ * veces durante la sesión se devuelve como la misma instancia y sin repetir la consulta.
+ * Las escrituras de los DAOs la mantienen coherente: {@code update} guarda la instancia
+ * modificada (write-through) y {@code delete} la invalida.
+ *
+ * Está acotada en tamaño (expulsa la entrada usada menos recientemente, LRU) y en tiempo
+ * (una entrada caduca pasado el TTL desde que se guardó, por si otro cliente ha cambiado la fila).
+ * Lleva estadísticas de aciertos, fallos y expulsiones.
+ *
+ * Todas las cachés creadas quedan registradas para poder vaciarlas a la vez
+ * ({@link #vaciarTodas()}), por ejemplo al cambiar de base de datos, donde los IDs dejan de
+ * corresponder a las mismas filas. Otras estructuras derivadas de las filas (índices en memoria)
+ * pueden pedir que se las avise en ese momento con {@link #alVaciarTodas(Runnable)}.
+ *
+ * Es thread-safe: los DAOs se usan desde los hilos de {@code ServicioAsincrono}.
+ *
+ * @param <T> Tipo de la entidad.
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class CacheEntidades<T> {
+
+    private static final List<CacheEntidades<?>> registradas = new CopyOnWriteArrayList<>();
+    private static final List<Runnable> alVaciar = new CopyOnWriteArrayList<>();
+
+    private final String nombre;
+    private final int capacidad;
+    private final long ttlNanos;
+
+    /** Entradas ordenadas por último acceso (la primera es la menos usada recientemente). */
+    private final LinkedHashMap<Integer, Entrada<T>> entradas;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+
+    /**
+     * Crea la caché y la registra.
+     *
+     * @param nombre Nombre para las estadísticas (normalmente la tabla).
+     * @param capacidad Número máximo de entidades guardadas.
+     * @param ttl Tiempo máximo que una entidad se considera válida.
+     */
+    public CacheEntidades(String nombre, int capacidad, Duration ttl) {
+        if (capacidad < 1) throw new IllegalArgumentException("La capacidad debe ser positiva");
+        this.nombre = nombre;
+        this.capacidad = capacidad;
+        this.ttlNanos = ttl.toNanos();
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entrada<T>> masAntigua) {
+                if (size() > CacheEntidades.this.capacidad) {
+                    expulsiones.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        registradas.add(this);
+    }
+
+    /**
+     * Busca una entidad y cuenta el acierto o el fallo.
+     *
+     * @param id Clave primaria.
+     * @return La entidad guardada, o {@code null} si no está o ha caducado.
+     */
+    public T obtener(int id) {
+        T entidad = obtenerSiPresente(id);
+        if (entidad != null) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+        }
+        return entidad;
+    }
+
+    /**
+     * Busca una entidad sin afectar a las estadísticas.
+     * Para reutilizar instancias ya cargadas al mapear filas de otras tablas.
+     *
+     * @param id Clave primaria.
+     * @return La entidad guardada, o {@code null} si no está o ha caducado.
+     */
+    public synchronized T obtenerSiPresente(int id) {
+        Entrada<T> entrada = entradas.get(id);
+        if (entrada == null) return null;
+        if (System.nanoTime() - entrada.guardadaEn > ttlNanos) {
+            entradas.remove(id);
+            expulsiones.increment();
+            return null;
+        }
+        return entrada.entidad;
+    }
+
+    /**
+     * Guarda (o reemplaza) una entidad.
+     *
+     * @param id Clave primaria.
+     * @param entidad Instancia a compartir a partir de ahora.
+     */
+    public synchronized void guardar(int id, T entidad) {
+        entradas.put(id, new Entrada<>(entidad, System.nanoTime()));
+    }
+
+    /**
+     * Elimina una entidad, si está.
+     *
+     * @param id Clave primaria.
+     */
+    public synchronized void invalidar(int id) {
+        entradas.remove(id);
+    }
+
+    /**
+     * Elimina todas las entidades. No reinicia las estadísticas.
+     */
+    public synchronized void vaciar() {
+        entradas.clear();
+    }
+
+    /**
+     * Vacía todas las cachés de entidades creadas.
+     */
+    public static void vaciarTodas() {
+        for (CacheEntidades<?> cache : registradas) {
+            cache.vaciar();
+        }
+        for (Runnable accion : alVaciar) {
+            accion.run();
+        }
+    }
+
+    /**
+     * Registra una acción que se ejecuta cada vez que se llama a {@link #vaciarTodas()}.
+     *
+     * @param accion Normalmente, descartar un índice que se carga de nuevo bajo demanda.
+     */
+    public static void alVaciarTodas(Runnable accion) {
+        alVaciar.add(accion);
+    }
+
+    /** @return Cachés registradas, para consultar sus estadísticas. */
+    public static List<CacheEntidades<?>> getRegistradas() {
+        return List.copyOf(registradas);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    /** @return Número de entidades guardadas en este momento. */
+    public synchronized int getTamano() {
+        return entradas.size();
+    }
+
+    /** @return Búsquedas resueltas sin ir a la base de datos. */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /** @return Búsquedas que tuvieron que consultar la base de datos. */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /** @return Entradas descartadas por falta de espacio o por caducidad. */
+    public long getExpulsiones() {
+        return expulsiones.sum();
+    }
+
+    /** @return Proporción de aciertos entre 0 y 1 (0 si aún no hubo búsquedas). */
+    public double getTasaAciertos() {
+        long a = getAciertos();
+        long total = a + getFallos();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Cache %s: %d/%d entidades, %d aciertos, %d fallos (%.1f %%), %d expulsiones",
+                nombre, getTamano(), capacidad, getAciertos(), getFallos(), getTasaAciertos() * 100, getExpulsiones());
+    }
+
+    private static class Entrada<T> {
+        final T entidad;
+        final long guardadaEn;
+
+        Entrada(T entidad, long guardadaEn) {
+            this.entidad = entidad;
+            this.guardadaEn = guardadaEn;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.dam.fcojavier.substracker.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Currency;
+
+/**
+ * Importes de dinero en coma fija: un {@code long} con la cantidad en céntimos.
+ *
+ * Sustituye a los {@code Double} de precios y aportaciones. Con un entero las sumas de historiales
+ * largos son exactas (0.1 + 0.2 no da 0.30000000000000004) y no se crea un objeto por operación:
+ * el modelo, los DAOs y los informes trabajan con {@code long} y solo se convierte a texto al
+ * mostrarlo. En la base de datos se guarda el mismo entero (migración V6).
+ *
+ * La aplicación trabaja en una única moneda ({@link #MONEDA}), común a todos los importes, así que
+ * no se guarda con cada valor.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public final class Dinero {
+
+    /** Moneda de todos los importes. */
+    public static final Currency MONEDA = Currency.getInstance("EUR");
+    /** Céntimos por unidad de {@link #MONEDA}. */
+    public static final long CENTIMOS_POR_UNIDAD = 100;
+
+    private Dinero() {
+    }
+
+    /**
+     * Interpreta un importe escrito por el usuario o leído de un fichero: {@code 12,5}, {@code 12.50},
+     * {@code -9,99 €}, {@code 1.234,56} o {@code 1,234.56}. El último separador ({@code ,} o {@code .})
+     * es el decimal; los anteriores se toman como separadores de miles.
+     * Se redondea al céntimo (mitad hacia arriba).
+     *
+     * @param texto Importe.
+     * @return Céntimos.
+     * @throws NumberFormatException Si no es un número o no cabe en un {@code long}.
+     */
+    public static long parsear(String texto) {
+        String limpio = texto.replace("€", "").replace(MONEDA.getCurrencyCode(), "")
+                .replace(" ", "").replace("\u00A0", "").trim();
+        int decimal = Math.max(limpio.lastIndexOf(','), limpio.lastIndexOf('.'));
+        if (decimal >= 0) {
+            String entera = limpio.substring(0, decimal).replace(".", "").replace(",", "");
+            limpio = entera + "." + limpio.substring(decimal + 1);
+        }
+        try {
+            return new BigDecimal(limpio).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Importe fuera de rango: " + texto);
+        }
+    }
+
+    /**
+     * Convierte un importe decimal a céntimos, redondeando.
+     *
+     * @param importe Importe en unidades (p. ej. 17.99).
+     * @return Céntimos (1799).
+     */
+    public static long deImporte(double importe) {
+        return Math.round(importe * CENTIMOS_POR_UNIDAD);
+    }
+
+    /**
+     * Importe en unidades, solo para componentes que piden un número (gráficos).
+     *
+     * @param centimos Céntimos.
+     * @return Unidades con decimales.
+     */
+    public static double enUnidades(long centimos) {
+        return (double) centimos / CENTIMOS_POR_UNIDAD;
+    }
+
+    /**
+     * Reparte un importe en partes iguales, redondeando al céntimo (mitad hacia arriba).
+     * Sirve, por ejemplo, para pasar un precio anual a base mensual.
+     *
+     * @param centimos Importe total.
+     * @param partes Número de partes (mayor que 0).
+     * @return Céntimos de cada parte.
+     */
+    public static long dividir(long centimos, int partes) {
+        long cociente = Math.floorDiv(centimos, partes);
+        long resto = Math.floorMod(centimos, partes);
+        return resto * 2 >= partes ? cociente + 1 : cociente;
+    }
+
+    /**
+     * Texto con los decimales de la moneda y el separador decimal de la configuración regional,
+     * sin símbolo: {@code 1799} → {@code "17,99"}. Es el formato de los campos de edición.
+     *
+     * @param centimos Céntimos.
+     * @return Importe en texto.
+     */
+    public static String texto(long centimos) {
+        char separador = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+        long absoluto = Math.abs(centimos);
+        long unidades = absoluto / CENTIMOS_POR_UNIDAD;
+        long resto = absoluto % CENTIMOS_POR_UNIDAD;
+        StringBuilder sb = new StringBuilder(16);
+        if (centimos < 0) sb.append('-');
+        sb.append(unidades).append(separador);
+        if (resto < 10) sb.append('0');
+        return sb.append(resto).toString();
+    }
+
+    /**
+     * Texto con el símbolo de la moneda: {@code 1799} → {@code "17,99 €"}.
+     *
+     * @param centimos Céntimos.
+     * @return Importe formateado.
+     */
+    public static String formatear(long centimos) {
+        return texto(centimos) + " €";
+    }
+}
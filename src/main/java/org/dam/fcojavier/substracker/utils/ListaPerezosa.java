@@ -0,0 +1,94 @@
+package org.dam.fcojavier.substracker.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Lista con carga diferida (Lazy Loading).
+ *
+ * No ejecuta la consulta hasta el primer acceso a su contenido ({@code size}, {@code get},
+ * iteración...). A partir de ahí se comporta como una {@link ArrayList} normal y admite modificaciones.
+ * Los DAOs la usan para las relaciones 1:N de {@code Usuario} y {@code Suscripcion}, de modo que
+ * cargar una entidad no arrastra todo su historial.
+ *
+ * @param <E> Tipo de los elementos.
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class ListaPerezosa<E> extends AbstractList<E> {
+
+    private final Supplier<List<E>> cargador;
+
+    /** Contenido cargado, o {@code null} si aún no se ha accedido a la lista. */
+    private volatile List<E> datos;
+
+    /**
+     * @param cargador Función que consulta la base de datos en el primer acceso.
+     */
+    public ListaPerezosa(Supplier<List<E>> cargador) {
+        this.cargador = cargador;
+    }
+
+    /**
+     * Indica si la lista ya se ha consultado.
+     * @return true si el contenido está en memoria.
+     */
+    public boolean isCargada() {
+        return datos != null;
+    }
+
+    @Override
+    public E get(int index) {
+        return datos().get(index);
+    }
+
+    @Override
+    public int size() {
+        return datos().size();
+    }
+
+    @Override
+    public E set(int index, E elemento) {
+        return datos().set(index, elemento);
+    }
+
+    @Override
+    public void add(int index, E elemento) {
+        datos().add(index, elemento);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        modCount++;
+        return datos().remove(index);
+    }
+
+    /**
+     * No fuerza la carga: si la lista aún no se ha consultado lo indica en el texto.
+     */
+    @Override
+    public String toString() {
+        return isCargada() ? datos.toString() : "[sin cargar]";
+    }
+
+    /**
+     * Devuelve el contenido, consultándolo una única vez aunque accedan varios hilos.
+     */
+    private List<E> datos() {
+        List<E> actual = datos;
+        if (actual == null) {
+            synchronized (this) {
+                actual = datos;
+                if (actual == null) {
+                    List<E> cargados = cargador.get();
+                    actual = cargados != null ? new ArrayList<>(cargados) : new ArrayList<>();
+                    datos = actual;
+                }
+            }
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,265 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU de sentencias preparadas asociada a una conexión física del pool.
+ *
+ * Los DAOs preparan siempre las mismas sentencias SQL constantes. En lugar de volver a
+ * analizarlas en cada llamada, la conexión guarda las {@link PreparedStatement} ya
+ * preparadas indexadas por su texto SQL. El DAO recibe un proxy cuyo {@code close()}
+ * limpia los parámetros y devuelve la sentencia a la caché en vez de cerrarla.
+ *
+ * Solo se cachean {@code prepareStatement(sql)} y {@code prepareStatement(sql, autoGeneratedKeys)};
+ * el resto de variantes se delegan sin caché.
+ *
+ * Cada sentencia prestada se mide además en {@link MetricasSQL} (ejecuciones, filas y latencia
+ * por texto SQL); las filas leídas se cuentan envolviendo el {@link ResultSet} en un
+ * {@link ResultadoContado}.
+ *
+ * No es thread-safe: una conexión solo la usa el hilo que la tiene prestada.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+class CacheSentencias {
+
+    private final Connection fisica;
+    private final int capacidad;
+    private final LongAdder aciertos;
+    private final LongAdder fallos;
+
+    /** Sentencias libres, ordenadas por último uso (la primera es la menos usada recientemente). */
+    private final LinkedHashMap<String, PreparedStatement> libres;
+
+    /**
+     * @param fisica Conexión física propietaria de las sentencias.
+     * @param capacidad Número máximo de sentencias libres guardadas (0 desactiva la caché).
+     * @param aciertos Contador compartido de aciertos.
+     * @param fallos Contador compartido de fallos.
+     */
+    CacheSentencias(Connection fisica, int capacidad, LongAdder aciertos, LongAdder fallos) {
+        this.fisica = fisica;
+        this.capacidad = capacidad;
+        this.aciertos = aciertos;
+        this.fallos = fallos;
+        this.libres = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> masAntigua) {
+                if (size() > CacheSentencias.this.capacidad) {
+                    cerrarSilenciosamente(masAntigua.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Obtiene una sentencia preparada para el SQL dado, reutilizando una de la caché si existe.
+     *
+     * @param sql Texto SQL.
+     * @param clavesGeneradas {@link Statement#RETURN_GENERATED_KEYS} o {@link Statement#NO_GENERATED_KEYS}.
+     * @param conexion Proxy de conexión que verá el DAO (para {@code getConnection()}).
+     * @return Proxy de la sentencia.
+     */
+    PreparedStatement preparar(String sql, int clavesGeneradas, Connection conexion) throws SQLException {
+        String clave = clavesGeneradas == Statement.RETURN_GENERATED_KEYS ? "K|" + sql : sql;
+
+        PreparedStatement real = capacidad > 0 ? libres.remove(clave) : null;
+        if (real != null && !real.isClosed()) {
+            aciertos.increment();
+        } else {
+            fallos.increment();
+            real = clavesGeneradas == Statement.RETURN_GENERATED_KEYS
+                    ? fisica.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                    : fisica.prepareStatement(sql);
+        }
+
+        return (PreparedStatement) Proxy.newProxyInstance(
+                CacheSentencias.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new SentenciaCacheada(clave, real, conexion, MetricasSQL.getInstancia().medidor(clave)));
+    }
+
+    /**
+     * Cierra todas las sentencias guardadas (al cerrar la conexión física).
+     */
+    void vaciar() {
+        for (PreparedStatement ps : libres.values()) {
+            cerrarSilenciosamente(ps);
+        }
+        libres.clear();
+    }
+
+    // Métodos privados
+
+    /**
+     * Devuelve una sentencia a la caché tras dejarla limpia.
+     * Si ya hay otra libre con el mismo SQL (uso anidado), la sobrante se cierra.
+     */
+    private void devolver(String clave, PreparedStatement real) {
+        try {
+            real.clearParameters();
+            real.clearBatch();
+            real.setFetchSize(0);
+            real.setMaxRows(0);
+        } catch (SQLException e) {
+            cerrarSilenciosamente(real);
+            return;
+        }
+
+        if (capacidad == 0 || libres.containsKey(clave)) {
+            cerrarSilenciosamente(real);
+        } else {
+            libres.put(clave, real);
+        }
+    }
+
+    private static void cerrarSilenciosamente(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException e) {
+            System.err.println("Error cerrando sentencia cacheada: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Proxy de una sentencia prestada por la caché.
+     * Cierra los ResultSet que haya abierto antes de devolver la sentencia.
+     *
+     * Si hay medidor, cronometra cada ejecución desde el {@code execute*} hasta el siguiente
+     * {@code execute*} o el {@code close()}, y cuenta las filas leídas o modificadas.
+     */
+    private class SentenciaCacheada implements InvocationHandler {
+        private final String clave;
+        private final PreparedStatement real;
+        private final Connection conexion;
+        private final MedidorSentencia medidor;
+        private final List<ResultSet> abiertos = new ArrayList<>(2);
+        private boolean cerrada = false;
+
+        /** Inicio de la ejecución en curso (0 si no hay ninguna). */
+        private long inicio = 0;
+        /** Filas modificadas por la ejecución en curso. */
+        private long filas = 0;
+        /** ResultSet de la ejecución en curso, que cuentan las filas leídas. */
+        private final List<ResultadoContado> contados = new ArrayList<>(1);
+        private boolean error = false;
+
+        private SentenciaCacheada(String clave, PreparedStatement real, Connection conexion, MedidorSentencia medidor) {
+            this.clave = clave;
+            this.real = real;
+            this.conexion = conexion;
+            this.medidor = medidor;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!cerrada) {
+                        cerrada = true;
+                        cerrarResultados();
+                        terminarEjecucion();
+                        devolver(clave, real);
+                    }
+                    return null;
+                case "isClosed":
+                    return cerrada || real.isClosed();
+                case "getConnection":
+                    return conexion;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SentenciaCacheada[" + real + "]";
+                default:
+                    break;
+            }
+
+            if (cerrada) {
+                throw new SQLException("La sentencia ya está cerrada.");
+            }
+
+            boolean ejecucion = medidor != null && method.getName().startsWith("execute");
+            if (ejecucion) {
+                terminarEjecucion();
+                inicio = System.nanoTime();
+            }
+
+            Object resultado;
+            try {
+                resultado = method.invoke(real, args);
+            } catch (InvocationTargetException e) {
+                if (ejecucion) error = true;
+                throw e.getCause();
+            }
+
+            if (resultado instanceof ResultSet) {
+                ResultSet rs = (ResultSet) resultado;
+                abiertos.add(rs);
+                if (ejecucion) {
+                    ResultadoContado contado = new ResultadoContado(rs);
+                    contados.add(contado);
+                    return contado;
+                }
+            } else if (ejecucion) {
+                sumarActualizadas(resultado);
+            }
+            return resultado;
+        }
+
+        /** Registra la ejecución en curso, si la hay. */
+        private void terminarEjecucion() {
+            if (inicio == 0) return;
+            long nanos = System.nanoTime() - inicio;
+            for (ResultadoContado contado : contados) filas += contado.filas();
+            medidor.registrar(nanos, filas, error);
+            inicio = 0;
+            filas = 0;
+            contados.clear();
+            error = false;
+        }
+
+        /** Filas modificadas por {@code executeUpdate}/{@code executeBatch} (los recuentos desconocidos no suman). */
+        private void sumarActualizadas(Object resultado) {
+            if (resultado instanceof Integer n && n > 0) {
+                filas += n;
+            } else if (resultado instanceof Long n && n > 0) {
+                filas += n;
+            } else if (resultado instanceof int[] recuentos) {
+                for (int n : recuentos) if (n > 0) filas += n;
+            } else if (resultado instanceof long[] recuentos) {
+                for (long n : recuentos) if (n > 0) filas += n;
+            }
+        }
+
+        private void cerrarResultados() {
+            Iterator<ResultSet> it = abiertos.iterator();
+            while (it.hasNext()) {
+                try {
+                    it.next().close();
+                } catch (SQLException e) {
+                    System.err.println("Error cerrando ResultSet: " + e.getMessage());
+                }
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lista ordenada de migraciones del esquema para cada tipo de base de datos.
+ *
+ * Para añadir un cambio de esquema se agrega una nueva entrada al final con la siguiente
+ * versión; nunca se modifica una migración ya publicada. Los scripts están en
+ * {@code /configDB/migraciones/<tipo>/}.
+ *
+ * @author Fco Javier García
+ * @version 1.3
+ */
+final class CatalogoMigraciones {
+
+    /**
+     * Índices secundarios sobre las columnas por las que filtran los DAOs.
+     * Cada entrada: nombre, tabla y columnas.
+     */
+    private static final String[][] INDICES_SECUNDARIOS = {
+            {"idx_suscripcion_titular", "suscripcion", "id_titular"},
+            {"idx_cobro_suscripcion", "cobro", "id_suscripcion"},
+            {"idx_cobro_fecha", "cobro", "fecha_cobro"},
+            {"idx_participa_suscripcion", "participa", "id_suscripcion"},
+            {"idx_participa_usuario", "participa", "id_usuario"},
+    };
+
+    private CatalogoMigraciones() {
+    }
+
+    /**
+     * Devuelve las migraciones del tipo de base de datos indicado.
+     *
+     * @param tipo MYSQL o SQLITE.
+     * @return Migraciones en orden de versión.
+     */
+    static List<Migracion> para(ConnectionDB.DBType tipo) {
+        String carpeta = "/configDB/migraciones/" + tipo.name().toLowerCase() + "/";
+        return List.of(
+                Migracion.script(1, "Esquema inicial", carpeta + "V1__esquema_inicial.sql"),
+                Migracion.java(2, "Indices secundarios de claves foraneas y fechas", CatalogoMigraciones::crearIndicesSecundarios),
+                Migracion.script(3, "Fechas como dia epoch y enums como codigo", carpeta + "V3__fechas_y_enums_compactos.sql"),
+                Migracion.script(4, "Resumen mensual de gasto por usuario y categoria", carpeta + "V4__resumen_mensual.sql"),
+                Migracion.script(5, "Sincronizacion: sync_id, version y registro de cambios", carpeta + "V5__sincronizacion.sql"),
+                Migracion.script(6, "Importes en centimos enteros", carpeta + "V6__importes_en_centimos.sql"),
+                Migracion.script(7, "Registro de cambios solo con la sincronizacion activa", carpeta + "V7__registro_de_cambios_bajo_demanda.sql")
+        );
+    }
+
+    // Métodos privados
+
+    /**
+     * V2: crea los índices secundarios que falten.
+     *
+     * Se comprueba con los metadatos JDBC si ya hay un índice que empiece por las mismas columnas,
+     * porque MySQL (InnoDB) crea automáticamente uno por cada clave foránea y no admite
+     * {@code CREATE INDEX IF NOT EXISTS}.
+     */
+    private static void crearIndicesSecundarios(Connection con) throws SQLException {
+        for (String[] indice : INDICES_SECUNDARIOS) {
+            String nombre = indice[0];
+            String tabla = indice[1];
+            String columna = indice[2];
+            if (!existeIndice(con, tabla, columna)) {
+                try (Statement st = con.createStatement()) {
+                    st.executeUpdate("CREATE INDEX " + nombre + " ON " + tabla + " (" + columna + ")");
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si la tabla ya tiene algún índice cuya primera columna sea la indicada.
+     */
+    private static boolean existeIndice(Connection con, String tabla, String columna) throws SQLException {
+        DatabaseMetaData meta = con.getMetaData();
+        Map<String, List<String>> columnasPorIndice = new LinkedHashMap<>();
+        try (ResultSet rs = meta.getIndexInfo(con.getCatalog(), null, tabla, false, false)) {
+            while (rs.next()) {
+                String indice = rs.getString("INDEX_NAME");
+                String col = rs.getString("COLUMN_NAME");
+                if (indice == null || col == null) continue;
+                List<String> cols = columnasPorIndice.computeIfAbsent(indice, k -> new ArrayList<>());
+                int posicion = rs.getInt("ORDINAL_POSITION");
+                while (cols.size() < posicion) cols.add(null);
+                cols.set(posicion - 1, col);
+            }
+        }
+
+        for (List<String> cols : columnasPorIndice.values()) {
+            if (!cols.isEmpty() && columna.equalsIgnoreCase(cols.get(0))) return true;
+        }
+        return false;
+    }
+}
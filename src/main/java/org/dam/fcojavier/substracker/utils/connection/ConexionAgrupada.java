@@ -0,0 +1,104 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Envoltorio de una conexión física prestada por {@link PoolConexiones}.
+ *
+ * Los DAOs reciben un proxy de {@link Connection} que delega todas las llamadas en la
+ * conexión física, salvo {@code close()}, que la devuelve al pool en lugar de cerrarla.
+ * Una vez devuelta, cualquier uso posterior del proxy lanza {@link SQLException}.
+ * {@code prepareStatement(sql)} y {@code prepareStatement(sql, autoGeneratedKeys)} pasan por
+ * la {@link CacheSentencias} de la conexión física.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+class ConexionAgrupada implements InvocationHandler {
+
+    private final PoolConexiones pool;
+    private final Connection fisica;
+    private final CacheSentencias cache;
+    private final Connection proxy;
+    private final long prestadaDesde;
+    private final Throwable origen;
+
+    private final AtomicBoolean devuelta = new AtomicBoolean(false);
+    private final AtomicBoolean fugaAvisada = new AtomicBoolean(false);
+
+    ConexionAgrupada(PoolConexiones pool, Connection fisica, CacheSentencias cache, Throwable origen) {
+        this.pool = pool;
+        this.fisica = fisica;
+        this.cache = cache;
+        this.origen = origen;
+        this.prestadaDesde = System.currentTimeMillis();
+        this.proxy = (Connection) Proxy.newProxyInstance(
+                ConexionAgrupada.class.getClassLoader(), new Class<?>[]{Connection.class}, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close":
+                if (devuelta.compareAndSet(false, true)) {
+                    pool.devolver(this, fisica, cache);
+                }
+                return null;
+            case "isClosed":
+                return devuelta.get() || fisica.isClosed();
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "ConexionAgrupada[" + pool.getNombre() + ", " + fisica + "]";
+            default:
+                break;
+        }
+
+        if (devuelta.get()) {
+            throw new SQLException("La conexión ya se ha devuelto al pool.");
+        }
+
+        if ("prepareStatement".equals(method.getName()) && args.length == 1) {
+            return cache.preparar((String) args[0], Statement.NO_GENERATED_KEYS, this.proxy);
+        }
+        if ("prepareStatement".equals(method.getName()) && args.length == 2 && args[1] instanceof Integer
+                && method.getParameterTypes()[1] == int.class) {
+            return cache.preparar((String) args[0], (Integer) args[1], this.proxy);
+        }
+
+        try {
+            return method.invoke(fisica, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    Connection getProxy() {
+        return proxy;
+    }
+
+    long getPrestadaDesde() {
+        return prestadaDesde;
+    }
+
+    Throwable getOrigen() {
+        return origen;
+    }
+
+    /**
+     * Marca la fuga como ya notificada para no repetir el aviso.
+     * @return true solo la primera vez.
+     */
+    boolean marcarFugaAvisada() {
+        return fugaAvisada.compareAndSet(false, true);
+    }
+}
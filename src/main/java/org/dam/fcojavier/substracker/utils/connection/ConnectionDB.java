@@ -1,15 +1,14 @@
 package org.dam.fcojavier.substracker.utils.connection;
 
-import java.io.BufferedReader;
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.Properties;
-import java.util.stream.Collectors;
 
 /**
  * Gestor de conexiones a base de datos utilizando el patrón Singleton.
@@ -18,8 +17,22 @@ import java.util.stream.Collectors;
  * permitiendo alternar dinámicamente entre una base de datos remota (MySQL)
  * y una local basada en ficheros (SQLite).
  *
+ * Desde la versión 3.0 no comparte una única conexión estática: mantiene un
+ * {@link PoolConexiones} acotado y cada llamada a {@link #getConnection()} presta una
+ * conexión propia que debe cerrarse (try-with-resources) para devolverla al pool.
+ * Así varios hilos pueden usar los DAOs simultáneamente.
+ *
+ * Al crear el pool se aplican las migraciones de esquema pendientes, tanto en MySQL como en SQLite.
+ *
+ * En SQLite se usan dos pools con el perfil de rendimiento de {@link PerfilSQLite} (WAL, mmap...):
+ * uno con una única conexión de escritura, que serializa las escrituras de la aplicación sin errores
+ * SQLITE_BUSY, y otro pequeño de conexiones de solo lectura ({@link #getConnectionLectura()}) para
+ * que las consultas (informes, listados) se ejecuten a la vez que se edita. En MySQL ambos son el mismo pool.
+ *
+ * Al crear el primer pool se publican por JMX las métricas de las sentencias SQL ({@link MetricasSQL}).
+ *
  * @author Fco Javier García
- * @version 2.0
+ * @version 3.5
  */
 public class ConnectionDB {
     /** Enum con los tipos de bases de datos soportados. */
@@ -30,107 +43,222 @@ public class ConnectionDB {
      */
     private static ConnectionDB _instance;
 
+    /** Configuración seleccionada por el usuario (Por defecto MySQL). */
+    private static DBType tipoSeleccionado = DBType.MYSQL;
+
+    /** URL JDBC que sustituye a la de {@code db.url} (benchmarks, bases de datos en memoria); {@code null} si no hay. */
+    private static String urlForzada;
+
     /**
-     * Objeto de conexión JDBC activo.
+     * Pool de conexiones de la base de datos activa (en SQLite, el de la única conexión de escritura).
      */
-    private static Connection con;
+    private final PoolConexiones pool;
 
-    /** Configuración seleccionada por el usuario (Por defecto MySQL). */
-    private static DBType tipoSeleccionado = DBType.MYSQL;
+    /**
+     * Pool para consultas. En MySQL es el mismo que {@link #pool}; en SQLite, conexiones de solo lectura.
+     */
+    private final PoolConexiones poolLectura;
+
+    /** Filas que se piden al servidor en cada viaje al recorrer consultas en streaming. */
+    private final int tamanoFetch;
 
     /**
      * Constructor privado.
      *
      * Ejecuta la lógica de conexión:
      * Determina el archivo de propiedades a leer (.properties).
-     * Carga las credenciales.
-     * Si es SQLite, asegura la existencia del directorio 'data'.
-     * Establece la conexión JDBC.
-     * Si es SQLite y está vacía, ejecuta el script de creación de tablas.
+     * Carga las credenciales y el tamaño del pool.
+     * Si es SQLite, asegura la existencia del directorio 'data' y prepara el perfil de PRAGMAs.
+     * Crea el pool de conexiones JDBC (en SQLite, el de escritura y el de lectura).
+     * Aplica las migraciones de esquema pendientes ({@link MotorMigraciones}).
+     *
+     * @throws SQLException Si no se puede leer la configuración o abrir el pool.
      */
-    private ConnectionDB() {
-        try {
-            Properties props = new Properties();
-
-            String fileName = (tipoSeleccionado == DBType.MYSQL)
-                    ? "database_mysql.properties"
-                    : "database_sqlite.properties";
-            String path = "/configDB/" + fileName;
+    private ConnectionDB() throws SQLException {
+        Properties props = new Properties();
 
-            try(InputStream is = getClass().getResourceAsStream(path)){
-                if (is == null) {
-                    throw new RuntimeException("No se encuentra el archivo de configuración en: " + path);
-                }
+        String fileName = (tipoSeleccionado == DBType.MYSQL)
+                ? "database_mysql.properties"
+                : "database_sqlite.properties";
+        String path = "/configDB/" + fileName;
 
-                props.load(is);
+        try (InputStream is = getClass().getResourceAsStream(path)) {
+            if (is == null) {
+                throw new SQLException("No se encuentra el archivo de configuración en: " + path);
             }
 
-            String url = props.getProperty("db.url");
-            String user = props.getProperty("db.user");
-            String pass = props.getProperty("db.password");
+            props.load(is);
+        } catch (IOException e) {
+            throw new SQLException("No se pudo leer el archivo de configuración: " + path, e);
+        }
 
-            if (tipoSeleccionado == DBType.SQLITE) {
-                File dir = new File("data");
-                if (!dir.exists()) dir.mkdirs();
+        String url = urlForzada != null ? urlForzada : props.getProperty("db.url");
+        String user = props.getProperty("db.user");
+        String pass = props.getProperty("db.password");
 
-                con = DriverManager.getConnection(url);
-                inicializarTablasSQLite();
-            } else {
-                con = DriverManager.getConnection(url, user, pass);
-            }
-            System.out.println("Conectado a " + tipoSeleccionado + " usando configuración de: " + path);
+        if (tipoSeleccionado == DBType.SQLITE) {
+            File dir = new File("data");
+            if (!dir.exists()) dir.mkdirs();
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            System.err.println("Error crítico conectando a: " + tipoSeleccionado);
+            PerfilSQLite perfil = new PerfilSQLite(props);
+            pool = crearPool(props, "sqlite", 1, 1, () -> {
+                Connection con = DriverManager.getConnection(url);
+                perfil.aplicar(con, false);
+                return con;
+            });
+            try {
+                poolLectura = crearPool(props, "sqlite-lectura", 1, leerEntero(props, "sqlite.lectores", 3), () -> {
+                    Connection con = DriverManager.getConnection(url);
+                    perfil.aplicar(con, true);
+                    return con;
+                });
+            } catch (SQLException e) {
+                pool.cerrar();
+                throw e;
+            }
+            System.out.println("Perfil SQLite: " + perfil);
+        } else {
+            pool = crearPool(props, "mysql",
+                    leerEntero(props, "pool.minimo", 1),
+                    leerEntero(props, "pool.maximo", 8),
+                    () -> DriverManager.getConnection(url, user, pass));
+            poolLectura = pool;
         }
+        tamanoFetch = leerEntero(props, "db.fetchSize", 500);
+
+        migrarEsquema();
+        MetricasSQL.registrarJmx();
+        System.out.println("Conectado a " + tipoSeleccionado + " usando configuración de: " + path);
     }
 
     /**
      * Cambia el tipo de base de datos a utilizar.
      *
-     * Cierra la conexión actual y resetea la instancia Singleton para forzar
-     * una reconexión con el nuevo tipo en la próxima llamada.
+     * Cierra el pool actual y resetea la instancia Singleton para forzar
+     * una reconexión con el nuevo tipo en la próxima llamada. Las conexiones
+     * que estén prestadas en ese momento no se cierran hasta que se devuelvan.
      *
      * @param tipo El nuevo tipo de base de datos (MYSQL o SQLITE).
      */
-    public static void setTipo(DBType tipo) {
+    public static synchronized void setTipo(DBType tipo) {
         tipoSeleccionado = tipo;
         closeConnection();
-        _instance = null;
-        con = null;
     }
 
     /**
-     * Punto de acceso global a la conexión de la base de datos.
+     * Sustituye la URL del archivo de propiedades del tipo seleccionado, por ejemplo por una base de
+     * datos SQLite en memoria compartida ({@code jdbc:sqlite:file:bench?mode=memory&cache=shared}).
      *
-     * Implementa "Lazy Initialization": crea la conexión solo cuando se necesita.
-     *      * También verifica si la conexión se ha cerrado inesperadamente y la reabre.
+     * Como {@link #setTipo(DBType)}, cierra el pool actual; la próxima conexión usará la nueva URL
+     * (y aplicará las migraciones si la base de datos está vacía).
      *
-     * @return El objeto {@link Connection} activo a la base de datos, o {@code null} si hubo un fallo.
+     * @param url URL JDBC, o {@code null} para volver a la del archivo de propiedades.
      */
-    public static Connection getConnection() {
-        if (_instance == null || con == null) {
-            _instance = new ConnectionDB();
+    public static synchronized void setUrl(String url) {
+        urlForzada = url;
+        closeConnection();
+    }
+
+    /**
+     * Punto de acceso global a la base de datos.
+     *
+     * Implementa "Lazy Initialization": crea el pool solo cuando se necesita.
+     * Cada llamada presta una conexión distinta y validada; debe cerrarse al terminar
+     * para devolverla al pool.
+     * Si el hilo está dentro de una {@link Transaccion}, devuelve la conexión de esa transacción
+     * (cerrarla no tiene efecto), de modo que la operación forma parte de la misma unidad de trabajo.
+     *
+     * @return Una {@link Connection} prestada por el pool.
+     * @throws SQLException Si no se puede conectar o el pool está agotado.
+     */
+    public static Connection getConnection() throws SQLException {
+        Connection enTransaccion = Transaccion.conexionActual();
+        if (enTransaccion != null) {
+            return enTransaccion;
         }
-        try {
-            if (con != null && con.isClosed()) {
-                _instance = new ConnectionDB();
-            }
-        } catch (SQLException e) { e.printStackTrace(); }
-        return con;
+        return getInstance().pool.obtener();
+    }
+
+    /**
+     * Presta una conexión para consultas de solo lectura.
+     *
+     * En SQLite sale del pool de lectura, de modo que una consulta larga (un informe) no espera
+     * a que termine una escritura ni la bloquea. Dentro de una {@link Transaccion} devuelve la
+     * conexión de la transacción, para leer lo que ya se ha escrito en ella.
+     * Debe cerrarse igual que la de {@link #getConnection()}.
+     *
+     * @return Una {@link Connection} prestada por el pool de lectura.
+     * @throws SQLException Si no se puede conectar o el pool está agotado.
+     */
+    public static Connection getConnectionLectura() throws SQLException {
+        Connection enTransaccion = Transaccion.conexionActual();
+        if (enTransaccion != null) {
+            return enTransaccion;
+        }
+        return getInstance().poolLectura.obtener();
     }
 
     /**
-     * Cierra la conexión activa con la base de datos de forma segura.
+     * Comprueba si la base de datos seleccionada es accesible.
+     *
+     * @return {@code true} si se pudo obtener y validar una conexión.
+     */
+    public static boolean isDisponible() {
+        try (Connection con = getConnection()) {
+            return con.isValid(2);
+        } catch (SQLException e) {
+            System.err.println("Error crítico conectando a: " + tipoSeleccionado + " (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    /**
+     * Cierra el pool de conexiones de forma segura.
      *
      * Se debe llamar a este método al finalizar la ejecución de la aplicación para
      * liberar los recursos del servidor de base de datos.
+     * También vacía las cachés de entidades de los DAOs, que dejan de ser válidas
+     * si la próxima conexión es a otra base de datos.
      */
-    public static void closeConnection() {
-        try {
-            if (con != null && !con.isClosed()) con.close();
-        } catch (SQLException e) { e.printStackTrace(); }
+    public static synchronized void closeConnection() {
+        if (_instance != null) {
+            _instance.pool.cerrar();
+            if (_instance.poolLectura != _instance.pool) {
+                _instance.poolLectura.cerrar();
+            }
+            _instance = null;
+        }
+        CacheEntidades.vaciarTodas();
+    }
+
+    /**
+     * Devuelve el pool activo, para consultar sus estadísticas (conexiones, caché de sentencias).
+     *
+     * @return El pool de la base de datos seleccionada.
+     * @throws SQLException Si no se puede inicializar el pool.
+     */
+    public static PoolConexiones getPool() throws SQLException {
+        return getInstance().pool;
+    }
+
+    /**
+     * Devuelve el pool de lectura (el mismo que {@link #getPool()} en MySQL).
+     *
+     * @return El pool de las consultas de solo lectura.
+     * @throws SQLException Si no se puede inicializar el pool.
+     */
+    public static PoolConexiones getPoolLectura() throws SQLException {
+        return getInstance().poolLectura;
+    }
+
+    /**
+     * Devuelve el tamaño de fetch configurado ({@code db.fetchSize}) para las consultas en streaming.
+     *
+     * @return Filas por viaje al servidor.
+     * @throws SQLException Si no se puede inicializar el pool.
+     */
+    public static int getTamanoFetch() throws SQLException {
+        return getInstance().tamanoFetch;
     }
 
     /**
@@ -143,42 +271,54 @@ public class ConnectionDB {
     // Métodos privados
 
     /**
-     * Verifica si la base de datos SQLite tiene tablas.
-     * Si no existen, ejecuta el script SQL de creación.
+     * Devuelve la instancia única, creándola si no existe.
      */
-    private void inicializarTablasSQLite() {
-        try {
-            try (Statement st = con.createStatement()) {
-                st.executeQuery("SELECT 1 FROM usuario LIMIT 1");
-            }
-        } catch (SQLException e) {
-            System.out.println("Base de datos SQLite nueva. Creando tablas...");
-            ejecutarScriptSQL("/configDB/script_sqlite.sql");
+    private static synchronized ConnectionDB getInstance() throws SQLException {
+        if (_instance == null) {
+            _instance = new ConnectionDB();
         }
+        return _instance;
     }
 
     /**
-     * Lee y ejecuta un archivo .sql desde los recursos.
-     *
-     * @param resourcePath Ruta absoluta del archivo en resources.
+     * Crea un pool con los ajustes comunes {@code pool.*} del fichero de propiedades.
      */
-    private void ejecutarScriptSQL(String resourcePath) {
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)){
-            if (is == null) {
-                System.err.println("ERROR CRÍTICO: No se encuentra el script SQL: " + resourcePath);
-                return;
-            }
+    private static PoolConexiones crearPool(Properties props, String nombre, int minimo, int maximo,
+                                            PoolConexiones.FabricaConexiones fabrica) throws SQLException {
+        return new PoolConexiones(
+                nombre,
+                fabrica,
+                minimo,
+                maximo,
+                leerEntero(props, "pool.esperaMaximaMs", 10_000),
+                leerEntero(props, "pool.inactividadMaximaMs", 300_000),
+                leerEntero(props, "pool.umbralFugaMs", 60_000),
+                leerEntero(props, "pool.cacheSentencias", 64));
+    }
 
-            String sql = new BufferedReader(new InputStreamReader(is))
-                    .lines().collect(Collectors.joining("\n"));
+    static int leerEntero(Properties props, String clave, int porDefecto) {
+        String valor = props.getProperty(clave);
+        if (valor == null || valor.isBlank()) return porDefecto;
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Valor no válido para " + clave + ": " + valor + ". Se usa " + porDefecto);
+            return porDefecto;
+        }
+    }
 
-            try (Statement st = con.createStatement()) {
-                st.executeUpdate(sql);
-                System.out.println("Tablas SQLite creadas.");
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-            System.err.println("Error al ejecutar el script SQL inicial.");
+    /**
+     * Lleva el esquema a la última versión aplicando las migraciones pendientes.
+     * Si falla, cierra el pool para no dejar conexiones abiertas.
+     */
+    private void migrarEsquema() throws SQLException {
+        try (Connection con = pool.obtener()) {
+            MotorMigraciones motor = new MotorMigraciones(tipoSeleccionado, CatalogoMigraciones.para(tipoSeleccionado));
+            motor.migrar(con);
+        } catch (SQLException e) {
+            pool.cerrar();
+            if (poolLectura != pool) poolLectura.cerrar();
+            throw e;
         }
     }
 }
@@ -0,0 +1,81 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Estadísticas de una sentencia SQL en un momento dado, tal como se publican por JMX
+ * ({@link MetricasSQLMXBean}). Los tiempos están en milisegundos.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class EstadisticaSentencia {
+
+    private final String sql;
+    private final long ejecuciones;
+    private final long errores;
+    private final long filas;
+    private final double mediaMs;
+    private final double p50Ms;
+    private final double p95Ms;
+    private final double p99Ms;
+    private final double maximoMs;
+
+    @ConstructorProperties({"sql", "ejecuciones", "errores", "filas", "mediaMs", "p50Ms", "p95Ms", "p99Ms", "maximoMs"})
+    public EstadisticaSentencia(String sql, long ejecuciones, long errores, long filas, double mediaMs,
+                                double p50Ms, double p95Ms, double p99Ms, double maximoMs) {
+        this.sql = sql;
+        this.ejecuciones = ejecuciones;
+        this.errores = errores;
+        this.filas = filas;
+        this.mediaMs = mediaMs;
+        this.p50Ms = p50Ms;
+        this.p95Ms = p95Ms;
+        this.p99Ms = p99Ms;
+        this.maximoMs = maximoMs;
+    }
+
+    /** @return Texto SQL (con el prefijo {@code K|} si devuelve claves generadas). */
+    public String getSql() {
+        return sql;
+    }
+
+    public long getEjecuciones() {
+        return ejecuciones;
+    }
+
+    public long getErrores() {
+        return errores;
+    }
+
+    /** @return Filas leídas (consultas) o modificadas (escrituras) en total. */
+    public long getFilas() {
+        return filas;
+    }
+
+    public double getMediaMs() {
+        return mediaMs;
+    }
+
+    public double getP50Ms() {
+        return p50Ms;
+    }
+
+    public double getP95Ms() {
+        return p95Ms;
+    }
+
+    public double getP99Ms() {
+        return p99Ms;
+    }
+
+    public double getMaximoMs() {
+        return maximoMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ejec., %d err., %d filas, media %.3f ms, p50 %.3f, p95 %.3f, p99 %.3f, máx %.3f ms: %s",
+                ejecuciones, errores, filas, mediaMs, p50Ms, p95Ms, p99Ms, maximoMs, sql);
+    }
+}
@@ -0,0 +1,121 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de una sentencia SQL: ejecuciones, errores, filas y un histograma de latencias.
+ *
+ * El histograma es logarítmico en microsegundos, con cuatro casillas por potencia de dos
+ * (0, 1, 2... 7, 8-9, 10-11, 12-13, 14-15, 16-19... µs), así que ocupa una cantidad fija de memoria
+ * y los percentiles tienen un error relativo de como mucho 1/8. Todas las operaciones son sin
+ * bloqueos: varios hilos pueden registrar a la vez.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+final class MedidorSentencia {
+
+    /** Casillas por potencia de dos. */
+    private static final int SUBCASILLAS = 4;
+    /** Potencias de dos cubiertas (2^40 µs son unos 12 días). */
+    private static final int CASILLAS = SUBCASILLAS * 41;
+
+    private final String sql;
+    private final LongAdder ejecuciones = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder filas = new LongAdder();
+    private final LongAdder microsTotales = new LongAdder();
+    private final LongAccumulator microsMaximo = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray histograma = new AtomicLongArray(CASILLAS);
+
+    MedidorSentencia(String sql) {
+        this.sql = sql;
+    }
+
+    /**
+     * Registra una ejecución.
+     *
+     * @param nanos Duración desde que empezó la ejecución hasta que se cerró o se volvió a ejecutar la sentencia.
+     * @param filasAfectadas Filas leídas (consultas) o modificadas (escrituras).
+     * @param error {@code true} si la ejecución lanzó una excepción.
+     */
+    void registrar(long nanos, long filasAfectadas, boolean error) {
+        long micros = Math.max(0, nanos / 1_000);
+        ejecuciones.increment();
+        if (error) errores.increment();
+        filas.add(filasAfectadas);
+        microsTotales.add(micros);
+        microsMaximo.accumulate(micros);
+        histograma.incrementAndGet(casilla(micros));
+    }
+
+    long ejecuciones() {
+        return ejecuciones.sum();
+    }
+
+    long errores() {
+        return errores.sum();
+    }
+
+    /**
+     * Foto de los contadores actuales.
+     *
+     * @return Estadísticas de la sentencia.
+     */
+    EstadisticaSentencia estadistica() {
+        long[] copia = new long[CASILLAS];
+        long total = 0;
+        for (int i = 0; i < CASILLAS; i++) {
+            copia[i] = histograma.get(i);
+            total += copia[i];
+        }
+        long n = ejecuciones.sum();
+        long maximo = microsMaximo.get();
+        return new EstadisticaSentencia(sql, n, errores.sum(), filas.sum(),
+                n == 0 ? 0 : milis(microsTotales.sum() / (double) n),
+                milis(percentil(copia, total, 0.50, maximo)),
+                milis(percentil(copia, total, 0.95, maximo)),
+                milis(percentil(copia, total, 0.99, maximo)),
+                milis(maximo));
+    }
+
+    // Métodos privados
+
+    static int casilla(long micros) {
+        if (micros < SUBCASILLAS) return (int) micros;
+        int bit = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (bit - 2)) & (SUBCASILLAS - 1);
+        return Math.min(CASILLAS - 1, SUBCASILLAS * (bit - 1) + sub);
+    }
+
+    /** Límite inferior (incluido) de una casilla, en microsegundos. */
+    static long inicioCasilla(int casilla) {
+        if (casilla < SUBCASILLAS) return casilla;
+        int bit = casilla / SUBCASILLAS + 1;
+        int sub = casilla % SUBCASILLAS;
+        return (long) (SUBCASILLAS + sub) << (bit - 2);
+    }
+
+    /**
+     * Valor del percentil: el punto medio de la casilla donde cae, sin pasar del máximo observado.
+     */
+    private static double percentil(long[] casillas, long total, double p, long maximo) {
+        if (total == 0) return 0;
+        long objetivo = (long) Math.ceil(p * total);
+        long acumulado = 0;
+        for (int i = 0; i < casillas.length; i++) {
+            acumulado += casillas[i];
+            if (acumulado >= objetivo) {
+                double medio = i < SUBCASILLAS ? i : (inicioCasilla(i) + inicioCasilla(i + 1) - 1) / 2.0;
+                return Math.min(medio, maximo);
+            }
+        }
+        return maximo;
+    }
+
+    private static double milis(double micros) {
+        return micros / 1_000.0;
+    }
+}
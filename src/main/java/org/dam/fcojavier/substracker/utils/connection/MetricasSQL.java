@@ -0,0 +1,124 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Métricas de rendimiento de las sentencias SQL de los DAOs, publicadas por JMX.
+ *
+ * Cada sentencia preparada que sale de la {@link CacheSentencias} (es decir, todas las consultas y
+ * escrituras de los DAOs) se mide por su texto SQL: número de ejecuciones, errores, filas leídas o
+ * modificadas y un histograma de latencias con p50, p95 y p99 ({@link MedidorSentencia}).
+ * La latencia de una ejecución va desde el {@code execute*} hasta que el DAO cierra la sentencia o la
+ * vuelve a ejecutar, así que en las consultas incluye la lectura de las filas (en SQLite es donde se
+ * hace casi todo el trabajo).
+ *
+ * El MBean se registra al crear el primer pool como {@value #NOMBRE_JMX}; desde JConsole o VisualVM se
+ * pueden ver las estadísticas, ponerlas a cero o desactivar la medición sin reiniciar la aplicación.
+ * Con la medición desactivada las sentencias no se envuelven ni se cronometran.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public final class MetricasSQL implements MetricasSQLMXBean {
+
+    /** Nombre del MBean. */
+    public static final String NOMBRE_JMX = "org.dam.fcojavier.substracker:type=MetricasSQL";
+
+    private static final MetricasSQL instancia = new MetricasSQL();
+
+    private final ConcurrentMap<String, MedidorSentencia> medidores = new ConcurrentHashMap<>();
+    private volatile boolean habilitadas = true;
+    private volatile boolean registrada = false;
+
+    private MetricasSQL() {
+    }
+
+    /** @return La instancia única. */
+    public static MetricasSQL getInstancia() {
+        return instancia;
+    }
+
+    /**
+     * Publica el MBean en el servidor JMX de la plataforma (solo la primera vez).
+     * Si no se puede, se avisa por consola y la aplicación sigue sin JMX.
+     */
+    static void registrarJmx() {
+        if (instancia.registrada) return;
+        synchronized (instancia) {
+            if (instancia.registrada) return;
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(instancia, new ObjectName(NOMBRE_JMX));
+            } catch (InstanceAlreadyExistsException e) {
+                // Otra copia de la clase (otro cargador) ya lo publicó
+            } catch (JMException | SecurityException e) {
+                System.err.println("No se pudieron publicar las métricas SQL por JMX: " + e.getMessage());
+            }
+            instancia.registrada = true;
+        }
+    }
+
+    /**
+     * Medidor de una sentencia, o {@code null} si la medición está desactivada.
+     *
+     * @param sql Clave de la sentencia en la caché.
+     */
+    MedidorSentencia medidor(String sql) {
+        if (!habilitadas) return null;
+        MedidorSentencia medidor = medidores.get(sql);
+        return medidor != null ? medidor : medidores.computeIfAbsent(sql, MedidorSentencia::new);
+    }
+
+    @Override
+    public List<EstadisticaSentencia> getSentencias() {
+        List<EstadisticaSentencia> lista = new ArrayList<>(medidores.size());
+        for (MedidorSentencia medidor : medidores.values()) lista.add(medidor.estadistica());
+        lista.sort(Comparator.comparingDouble((EstadisticaSentencia e) -> e.getMediaMs() * e.getEjecuciones()).reversed());
+        return lista;
+    }
+
+    @Override
+    public List<String> masLentas(int n) {
+        List<EstadisticaSentencia> lista = getSentencias();
+        lista.sort(Comparator.comparingDouble(EstadisticaSentencia::getP99Ms).reversed());
+        List<String> resultado = new ArrayList<>();
+        for (int i = 0; i < Math.min(n, lista.size()); i++) resultado.add(lista.get(i).toString());
+        return resultado;
+    }
+
+    @Override
+    public long getEjecucionesTotales() {
+        long total = 0;
+        for (MedidorSentencia medidor : medidores.values()) total += medidor.ejecuciones();
+        return total;
+    }
+
+    @Override
+    public long getErroresTotales() {
+        long total = 0;
+        for (MedidorSentencia medidor : medidores.values()) total += medidor.errores();
+        return total;
+    }
+
+    @Override
+    public boolean isHabilitadas() {
+        return habilitadas;
+    }
+
+    @Override
+    public void setHabilitadas(boolean habilitadas) {
+        this.habilitadas = habilitadas;
+    }
+
+    @Override
+    public void reiniciar() {
+        medidores.clear();
+    }
+}
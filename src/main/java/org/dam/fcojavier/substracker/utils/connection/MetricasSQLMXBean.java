@@ -0,0 +1,37 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.util.List;
+
+/**
+ * Interfaz JMX de las métricas de SQL ({@link MetricasSQL}), visible en JConsole o VisualVM como
+ * {@value MetricasSQL#NOMBRE_JMX}.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public interface MetricasSQLMXBean {
+
+    /** @return Estadísticas de cada sentencia ejecutada, de mayor a menor tiempo total. */
+    List<EstadisticaSentencia> getSentencias();
+
+    /**
+     * @param n Número de sentencias.
+     * @return Las {@code n} sentencias con mayor p99, en texto.
+     */
+    List<String> masLentas(int n);
+
+    /** @return Ejecuciones de todas las sentencias. */
+    long getEjecucionesTotales();
+
+    /** @return Ejecuciones que terminaron en error. */
+    long getErroresTotales();
+
+    /** @return {@code true} si se están midiendo las sentencias. */
+    boolean isHabilitadas();
+
+    /** Activa o desactiva la medición sin reiniciar la aplicación. */
+    void setHabilitadas(boolean habilitadas);
+
+    /** Pone a cero todos los contadores. */
+    void reiniciar();
+}
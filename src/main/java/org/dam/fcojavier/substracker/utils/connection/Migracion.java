@@ -0,0 +1,82 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Una versión del esquema de la base de datos.
+ *
+ * Cada migración tiene un número de versión único y creciente y se aplica una sola vez.
+ * Puede definirse como un script SQL de {@code resources} o como un paso en Java, para los
+ * cambios que dependen del estado actual de la base de datos (p. ej. crear un índice solo si no existe).
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+public class Migracion {
+
+    /**
+     * Cambio programado en Java, ejecutado dentro de la transacción de la migración.
+     */
+    @FunctionalInterface
+    public interface Paso {
+        void aplicar(Connection con) throws SQLException;
+    }
+
+    private final int version;
+    private final String descripcion;
+    private final String script;
+    private final Paso paso;
+
+    private Migracion(int version, String descripcion, String script, Paso paso) {
+        this.version = version;
+        this.descripcion = descripcion;
+        this.script = script;
+        this.paso = paso;
+    }
+
+    /**
+     * Migración definida por un script SQL.
+     *
+     * @param version Número de versión.
+     * @param descripcion Texto que se guarda en {@code schema_version}.
+     * @param script Ruta absoluta del script en resources.
+     */
+    public static Migracion script(int version, String descripcion, String script) {
+        return new Migracion(version, descripcion, script, null);
+    }
+
+    /**
+     * Migración definida en Java.
+     *
+     * @param version Número de versión.
+     * @param descripcion Texto que se guarda en {@code schema_version}.
+     * @param paso Código que aplica el cambio.
+     */
+    public static Migracion java(int version, String descripcion, Paso paso) {
+        return new Migracion(version, descripcion, null, paso);
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    /** @return Ruta del script, o {@code null} si es una migración Java. */
+    public String getScript() {
+        return script;
+    }
+
+    /** @return Paso Java, o {@code null} si es una migración por script. */
+    public Paso getPaso() {
+        return paso;
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " - " + descripcion;
+    }
+}
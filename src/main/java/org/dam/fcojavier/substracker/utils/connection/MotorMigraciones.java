@@ -0,0 +1,226 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Motor de migraciones versionadas del esquema.
+ *
+ * Sustituye a la antigua comprobación "si no existe la tabla usuario, ejecutar el script".
+ * Las versiones ya aplicadas se registran en la tabla {@code schema_version}; al arrancar se
+ * aplican, en orden, solo las migraciones pendientes. Así una base de datos existente recibe
+ * los cambios nuevos (índices, columnas...) sin perder sus datos.
+ *
+ * Cada migración se ejecuta en su propia transacción junto con su registro en
+ * {@code schema_version}: o se aplica entera o no se aplica. En SQLite además se desactivan
+ * las claves foráneas mientras dura (procedimiento recomendado para reconstruir tablas) y se
+ * valida la integridad con {@code PRAGMA foreign_key_check} antes de confirmar.
+ * En MySQL las sentencias DDL confirman implícitamente, por lo que un script que falle a medias
+ * puede dejar cambios aplicados que habría que revisar a mano antes de reintentarlo.
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public class MotorMigraciones {
+
+    private static final String crear_tabla_sql =
+            "CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INTEGER PRIMARY KEY, " +
+                    "descripcion VARCHAR(200) NOT NULL, " +
+                    "aplicada_en VARCHAR(30) NOT NULL)";
+    private static final String version_actual_sql = "SELECT MAX(version) FROM schema_version";
+    private static final String registrar_sql = "INSERT INTO schema_version (version, descripcion, aplicada_en) VALUES (?, ?, ?)";
+
+    private final ConnectionDB.DBType tipo;
+    private final List<Migracion> migraciones;
+
+    /**
+     * @param tipo Dialecto de la base de datos.
+     * @param migraciones Migraciones del dialecto, en orden estrictamente creciente de versión.
+     */
+    public MotorMigraciones(ConnectionDB.DBType tipo, List<Migracion> migraciones) {
+        for (int i = 1; i < migraciones.size(); i++) {
+            if (migraciones.get(i).getVersion() <= migraciones.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Versiones de migración desordenadas o repetidas: " + migraciones.get(i));
+            }
+        }
+        this.tipo = tipo;
+        this.migraciones = List.copyOf(migraciones);
+    }
+
+    /**
+     * Crea el motor con el catálogo de migraciones de la aplicación para un tipo de base de datos.
+     * Permite migrar bases de datos que no gestiona {@link ConnectionDB} (la remota de la sincronización).
+     *
+     * @param tipo Dialecto de la base de datos.
+     * @return Motor con todas las migraciones del dialecto.
+     */
+    public static MotorMigraciones para(ConnectionDB.DBType tipo) {
+        return new MotorMigraciones(tipo, CatalogoMigraciones.para(tipo));
+    }
+
+    /**
+     * Aplica todas las migraciones pendientes.
+     *
+     * @param con Conexión sobre la que migrar (se deja en autocommit al terminar).
+     * @return Número de migraciones aplicadas.
+     * @throws SQLException Si falla alguna migración. Las posteriores no se aplican.
+     */
+    public int migrar(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.executeUpdate(crear_tabla_sql);
+        }
+
+        int actual = getVersionActual(con);
+        int aplicadas = 0;
+        for (Migracion migracion : migraciones) {
+            if (migracion.getVersion() > actual) {
+                aplicar(con, migracion);
+                aplicadas++;
+            }
+        }
+        return aplicadas;
+    }
+
+    /**
+     * Devuelve la última versión aplicada.
+     *
+     * @param con Conexión a la base de datos.
+     * @return Versión del esquema, o 0 si no se ha aplicado ninguna.
+     */
+    public int getVersionActual(Connection con) throws SQLException {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery(version_actual_sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Divide un script en sentencias individuales.
+     *
+     * Separa por {@code ;} ignorando los que aparecen dentro de literales o comentarios {@code --}.
+     * En los {@code CREATE TRIGGER} solo corta tras el {@code END} final, ya que el cuerpo
+     * contiene sus propios {@code ;}.
+     *
+     * @param script Contenido del script.
+     * @return Sentencias sin el {@code ;} final.
+     */
+    static List<String> dividirSentencias(String script) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean enLiteral = false;
+
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+
+            if (enLiteral) {
+                actual.append(c);
+                if (c == '\'') enLiteral = false;
+            } else if (c == '\'') {
+                actual.append(c);
+                enLiteral = true;
+            } else if (c == '-' && i + 1 < script.length() && script.charAt(i + 1) == '-') {
+                while (i < script.length() && script.charAt(i) != '\n') i++;
+                actual.append('\n');
+            } else if (c == ';' && !esTriggerAbierto(actual)) {
+                agregarSiNoVacia(sentencias, actual);
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        agregarSiNoVacia(sentencias, actual);
+        return sentencias;
+    }
+
+    // Métodos privados
+
+    private void aplicar(Connection con, Migracion migracion) throws SQLException {
+        System.out.println("Aplicando migración " + migracion + "...");
+        long inicio = System.currentTimeMillis();
+
+        if (tipo == ConnectionDB.DBType.SQLITE) ejecutar(con, "PRAGMA foreign_keys = OFF");
+        con.setAutoCommit(false);
+        try {
+            if (migracion.getScript() != null) {
+                try (Statement st = con.createStatement()) {
+                    for (String sentencia : dividirSentencias(leerScript(migracion.getScript()))) {
+                        st.execute(sentencia);
+                    }
+                }
+            } else {
+                migracion.getPaso().aplicar(con);
+            }
+
+            if (tipo == ConnectionDB.DBType.SQLITE) comprobarClavesForaneas(con);
+
+            try (PreparedStatement pstm = con.prepareStatement(registrar_sql)) {
+                pstm.setInt(1, migracion.getVersion());
+                pstm.setString(2, migracion.getDescripcion());
+                pstm.setString(3, LocalDateTime.now().withNano(0).toString());
+                pstm.executeUpdate();
+            }
+            con.commit();
+        } catch (SQLException | RuntimeException e) {
+            con.rollback();
+            throw new SQLException("Error aplicando la migración " + migracion + ": " + e.getMessage(), e);
+        } finally {
+            con.setAutoCommit(true);
+            if (tipo == ConnectionDB.DBType.SQLITE) ejecutar(con, "PRAGMA foreign_keys = ON");
+        }
+
+        System.out.println("Migración V" + migracion.getVersion() + " aplicada en " + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+
+    private void comprobarClavesForaneas(Connection con) throws SQLException {
+        try (Statement st = con.createStatement(); ResultSet rs = st.executeQuery("PRAGMA foreign_key_check")) {
+            if (rs.next()) {
+                throw new SQLException("La migración deja claves foráneas rotas en la tabla " + rs.getString(1));
+            }
+        }
+    }
+
+    private static void ejecutar(Connection con, String sql) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private static String leerScript(String ruta) throws SQLException {
+        try (InputStream is = MotorMigraciones.class.getResourceAsStream(ruta)) {
+            if (is == null) {
+                throw new SQLException("No se encuentra el script de migración: " + ruta);
+            }
+            return new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))
+                    .lines().collect(Collectors.joining("\n"));
+        } catch (IOException e) {
+            throw new SQLException("No se pudo leer el script de migración: " + ruta, e);
+        }
+    }
+
+    /**
+     * Indica si el texto acumulado es un CREATE TRIGGER cuyo cuerpo aún no ha terminado con END.
+     */
+    private static boolean esTriggerAbierto(StringBuilder actual) {
+        String texto = actual.toString().trim().toUpperCase(Locale.ROOT);
+        if (!texto.startsWith("CREATE TRIGGER") && !texto.startsWith("CREATE TEMP TRIGGER")) return false;
+        return !texto.endsWith("END");
+    }
+
+    private static void agregarSiNoVacia(List<String> sentencias, StringBuilder actual) {
+        String sentencia = actual.toString().trim();
+        if (!sentencia.isEmpty()) sentencias.add(sentencia);
+    }
+}
@@ -0,0 +1,73 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * Ajustes de rendimiento de SQLite (PRAGMAs) que se aplican a cada conexión al abrirla.
+ *
+ * Por defecto SQLite usa el diario "rollback" y sincroniza el disco en cada commit, y un escritor
+ * bloquea a todos los lectores. El perfil configura:
+ * {@code journal_mode=WAL}: los lectores no se bloquean mientras se escribe (y al revés).
+ * {@code synchronous=NORMAL}: con WAL no se pierde la integridad y se evita un fsync por commit.
+ * {@code cache_size}, {@code mmap_size} y {@code temp_store=MEMORY}: menos lecturas de disco.
+ * {@code busy_timeout}: si otro proceso tiene el fichero bloqueado, se espera en lugar de fallar con SQLITE_BUSY.
+ *
+ * Las conexiones de lectura se marcan además con {@code query_only}, de modo que una escritura por
+ * error en el pool de lectura falla en lugar de competir con el escritor.
+ *
+ * Los valores se leen de {@code database_sqlite.properties} (claves {@code sqlite.*}).
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+class PerfilSQLite {
+
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheKb;
+    private final long mmapBytes;
+    private final String tempStore;
+    private final int busyTimeoutMs;
+
+    PerfilSQLite(Properties props) {
+        this.journalMode = props.getProperty("sqlite.journalMode", "WAL").trim();
+        this.synchronous = props.getProperty("sqlite.synchronous", "NORMAL").trim();
+        this.cacheKb = ConnectionDB.leerEntero(props, "sqlite.cacheKb", 16_384);
+        this.mmapBytes = ConnectionDB.leerEntero(props, "sqlite.mmapMb", 256) * 1024L * 1024L;
+        this.tempStore = props.getProperty("sqlite.tempStore", "MEMORY").trim();
+        this.busyTimeoutMs = ConnectionDB.leerEntero(props, "sqlite.busyTimeoutMs", 5_000);
+    }
+
+    /**
+     * Aplica el perfil a una conexión recién abierta.
+     *
+     * @param con Conexión física.
+     * @param soloLectura {@code true} para las conexiones del pool de lectura.
+     * @throws SQLException Si algún PRAGMA no es válido.
+     */
+    void aplicar(Connection con, boolean soloLectura) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            if (!soloLectura) {
+                // journal_mode se guarda en el fichero; basta con que lo fije el escritor
+                st.execute("PRAGMA journal_mode = " + journalMode);
+                st.execute("PRAGMA synchronous = " + synchronous);
+            }
+            st.execute("PRAGMA cache_size = -" + cacheKb); // negativo: en KiB, no en páginas
+            st.execute("PRAGMA mmap_size = " + mmapBytes);
+            st.execute("PRAGMA temp_store = " + tempStore);
+            if (soloLectura) {
+                st.execute("PRAGMA query_only = ON");
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "journal_mode=" + journalMode + ", synchronous=" + synchronous + ", cache=" + cacheKb + " KiB, mmap="
+                + (mmapBytes / (1024 * 1024)) + " MiB, temp_store=" + tempStore + ", busy_timeout=" + busyTimeoutMs + " ms";
+    }
+}
@@ -0,0 +1,317 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ *
+ * Sustituye a la antigua conexión estática compartida. Cada hilo obtiene su propia
+ * conexión física en préstamo y la devuelve al cerrarla, por lo que varios cargadores
+ * en segundo plano pueden usar los DAOs a la vez sin pisarse.
+ *
+ * Características:
+ * Tamaño mínimo y máximo configurables (el máximo se garantiza con un semáforo).
+ * Validación de la conexión en cada préstamo ({@link Connection#isValid(int)}).
+ * Expulsión de conexiones inactivas por encima del mínimo.
+ * Detección de fugas: avisa de las conexiones prestadas durante demasiado tiempo,
+ * mostrando la traza de quién las pidió.
+ * Caché de sentencias preparadas por conexión física ({@link CacheSentencias}),
+ * que se conserva entre préstamos.
+ *
+ * @author Fco Javier García
+ * @version 1.3
+ */
+public class PoolConexiones {
+
+    /**
+     * Crea conexiones físicas nuevas cuando el pool lo necesita.
+     */
+    @FunctionalInterface
+    public interface FabricaConexiones {
+        Connection crear() throws SQLException;
+    }
+
+    /** Segundos de espera máximos para la validación en el préstamo. */
+    private static final int TIMEOUT_VALIDACION_SEG = 2;
+
+    private final String nombre;
+    private final FabricaConexiones fabrica;
+    private final int minimo;
+    private final int maximo;
+    private final long esperaMaximaMs;
+    private final long inactividadMaximaMs;
+    private final long umbralFugaMs;
+    private final int tamanoCacheSentencias;
+
+    /** Estadísticas acumuladas de las cachés de sentencias de todas las conexiones. */
+    private final LongAdder aciertosCache = new LongAdder();
+    private final LongAdder fallosCache = new LongAdder();
+
+    /** Conexiones físicas libres. La cabeza es la usada más recientemente (LIFO). */
+    private final Deque<ConexionLibre> libres = new ArrayDeque<>();
+
+    /** Conexiones actualmente en préstamo. */
+    private final Set<ConexionAgrupada> prestadas = ConcurrentHashMap.newKeySet();
+
+    /** Limita el número total de conexiones vivas al máximo configurado. */
+    private final Semaphore permisos;
+
+    private final ScheduledExecutorService mantenimiento;
+
+    private volatile boolean cerrado = false;
+
+    /**
+     * Construye el pool y abre las conexiones mínimas.
+     *
+     * @param nombre Nombre descriptivo (para los mensajes de log).
+     * @param fabrica Origen de las conexiones físicas.
+     * @param minimo Conexiones que se mantienen abiertas aunque estén inactivas.
+     * @param maximo Conexiones simultáneas como máximo.
+     * @param esperaMaximaMs Tiempo máximo de espera por una conexión libre.
+     * @param inactividadMaximaMs Tiempo tras el que se cierra una conexión libre sobrante.
+     * @param umbralFugaMs Tiempo de préstamo a partir del cual se considera una posible fuga (0 = desactivado).
+     * @param tamanoCacheSentencias Sentencias preparadas guardadas por conexión (0 = sin caché).
+     * @throws SQLException Si no se pueden abrir las conexiones mínimas.
+     */
+    public PoolConexiones(String nombre, FabricaConexiones fabrica, int minimo, int maximo,
+                          long esperaMaximaMs, long inactividadMaximaMs, long umbralFugaMs,
+                          int tamanoCacheSentencias) throws SQLException {
+        if (maximo < 1 || minimo < 0 || minimo > maximo || tamanoCacheSentencias < 0) {
+            throw new IllegalArgumentException("Tamaños de pool no válidos: minimo=" + minimo + ", maximo=" + maximo);
+        }
+        this.nombre = nombre;
+        this.fabrica = fabrica;
+        this.minimo = minimo;
+        this.maximo = maximo;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.inactividadMaximaMs = inactividadMaximaMs;
+        this.umbralFugaMs = umbralFugaMs;
+        this.tamanoCacheSentencias = tamanoCacheSentencias;
+        this.permisos = new Semaphore(maximo, true);
+
+        try {
+            for (int i = 0; i < minimo; i++) {
+                libres.addLast(nuevaConexion());
+            }
+        } catch (SQLException | RuntimeException e) {
+            // No dejar abiertas las que sí se crearon
+            for (ConexionLibre libre : libres) {
+                cerrarSilenciosamente(libre);
+            }
+            libres.clear();
+            throw e;
+        }
+
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-" + nombre + "-mantenimiento");
+            t.setDaemon(true);
+            return t;
+        });
+        long periodo = Math.max(1000, Math.min(inactividadMaximaMs, umbralFugaMs > 0 ? umbralFugaMs : inactividadMaximaMs) / 2);
+        mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool.
+     *
+     * Si no hay ninguna libre y no se ha alcanzado el máximo, se crea una nueva.
+     * Si se ha alcanzado, espera hasta {@code esperaMaximaMs}. La conexión devuelta
+     * debe cerrarse (idealmente con try-with-resources) para volver al pool.
+     *
+     * @return Conexión lista para usar.
+     * @throws SQLException Si el pool está cerrado, se agota la espera o falla la creación.
+     */
+    public Connection obtener() throws SQLException {
+        if (cerrado) throw new SQLException("El pool de conexiones '" + nombre + "' está cerrado.");
+
+        try {
+            if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Tiempo de espera agotado: las " + maximo + " conexiones de '" + nombre + "' están en uso.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión.", e);
+        }
+
+        try {
+            ConexionLibre elegida = null;
+            while (elegida == null) {
+                ConexionLibre libre;
+                synchronized (libres) {
+                    libre = libres.pollFirst();
+                }
+                if (libre == null) {
+                    elegida = nuevaConexion();
+                } else if (esValida(libre.conexion)) {
+                    elegida = libre;
+                } else {
+                    cerrarSilenciosamente(libre);
+                }
+            }
+
+            Throwable origen = umbralFugaMs > 0 ? new Throwable("Conexión prestada desde aquí") : null;
+            ConexionAgrupada agrupada = new ConexionAgrupada(this, elegida.conexion, elegida.cache, origen);
+            prestadas.add(agrupada);
+            return agrupada.getProxy();
+        } catch (SQLException | RuntimeException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Recibe una conexión devuelta por {@link ConexionAgrupada#close()}.
+     * Deshace cualquier transacción a medias antes de dejarla libre.
+     */
+    void devolver(ConexionAgrupada agrupada, Connection fisica, CacheSentencias cache) {
+        try {
+            prestadas.remove(agrupada);
+            boolean reutilizable = !cerrado;
+            try {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback();
+                    fisica.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reutilizable = false;
+            }
+
+            ConexionLibre libre = new ConexionLibre(fisica, cache);
+            if (reutilizable) {
+                // Comprobar el cierre con el mismo cerrojo que cerrar(): si no, podría dejarse en la cola ya vaciada
+                synchronized (libres) {
+                    if (!cerrado) {
+                        libres.addFirst(libre);
+                        return;
+                    }
+                }
+            }
+            cerrarSilenciosamente(libre);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Cierra el pool: cierra las conexiones libres y marca el pool para que las
+     * prestadas se cierren físicamente cuando se devuelvan (nunca se cierran bajo los pies de quien las usa).
+     */
+    public void cerrar() {
+        mantenimiento.shutdownNow();
+        synchronized (libres) {
+            cerrado = true;
+            for (ConexionLibre libre : libres) {
+                cerrarSilenciosamente(libre);
+            }
+            libres.clear();
+        }
+    }
+
+    /** @return Número de conexiones prestadas en este momento. */
+    public int getActivas() {
+        return prestadas.size();
+    }
+
+    /** @return Número de conexiones abiertas y libres. */
+    public int getLibres() {
+        synchronized (libres) {
+            return libres.size();
+        }
+    }
+
+    /** @return Sentencias preparadas reutilizadas desde la caché. */
+    public long getAciertosCacheSentencias() {
+        return aciertosCache.sum();
+    }
+
+    /** @return Sentencias que hubo que preparar de nuevo en la base de datos. */
+    public long getFallosCacheSentencias() {
+        return fallosCache.sum();
+    }
+
+    /** @return Nombre del pool. */
+    public String getNombre() {
+        return nombre;
+    }
+
+    // Métodos privados
+
+    /**
+     * Tarea periódica: expulsa conexiones inactivas sobrantes y avisa de posibles fugas.
+     */
+    private void mantener() {
+        long ahora = System.currentTimeMillis();
+
+        synchronized (libres) {
+            Iterator<ConexionLibre> it = libres.descendingIterator(); // De la más antigua a la más reciente
+            while (it.hasNext() && libres.size() + prestadas.size() > minimo) {
+                ConexionLibre libre = it.next();
+                if (ahora - libre.desde > inactividadMaximaMs) {
+                    it.remove();
+                    cerrarSilenciosamente(libre);
+                }
+            }
+        }
+
+        if (umbralFugaMs > 0) {
+            for (ConexionAgrupada agrupada : prestadas) {
+                if (ahora - agrupada.getPrestadaDesde() > umbralFugaMs && agrupada.marcarFugaAvisada()) {
+                    System.err.println("AVISO: posible fuga en el pool '" + nombre + "'. Conexión prestada hace "
+                            + (ahora - agrupada.getPrestadaDesde()) + " ms sin devolver.");
+                    if (agrupada.getOrigen() != null) agrupada.getOrigen().printStackTrace();
+                }
+            }
+        }
+    }
+
+    private boolean esValida(Connection con) {
+        try {
+            return !con.isClosed() && con.isValid(TIMEOUT_VALIDACION_SEG);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Abre una conexión física nueva con su caché de sentencias vacía.
+     */
+    private ConexionLibre nuevaConexion() throws SQLException {
+        Connection fisica = fabrica.crear();
+        return new ConexionLibre(fisica, new CacheSentencias(fisica, tamanoCacheSentencias, aciertosCache, fallosCache));
+    }
+
+    private void cerrarSilenciosamente(ConexionLibre libre) {
+        libre.cache.vaciar();
+        try {
+            libre.conexion.close();
+        } catch (SQLException e) {
+            System.err.println("Error cerrando conexión física: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Conexión física libre junto a su caché de sentencias y el instante desde el que está inactiva.
+     */
+    private static class ConexionLibre {
+        private final Connection conexion;
+        private final CacheSentencias cache;
+        private final long desde;
+
+        private ConexionLibre(Connection conexion, CacheSentencias cache) {
+            this.conexion = conexion;
+            this.cache = cache;
+            this.desde = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.dam.fcojavier.substracker.utils.connection;
+
+import org.dam.fcojavier.substracker.utils.CacheEntidades;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unidad de trabajo: agrupa todas las sentencias de una acción del usuario en una sola transacción.
+ *
+ * Mientras se ejecuta {@link #ejecutar(Trabajo)}, {@link ConnectionDB#getConnection()} devuelve en ese
+ * mismo hilo la conexión de la transacción en lugar de prestar otra del pool. Así los DAOs, sin cambiar
+ * su código, se unen a la transacción en curso: sus {@code close()} no devuelven la conexión y nada se
+ * confirma hasta que termina el trabajo exterior (un único commit, una única escritura a disco).
+ *
+ * Las llamadas anidadas a {@code ejecutar} se unen a la transacción exterior. Si una de ellas falla, la
+ * transacción queda marcada para deshacerse aunque el DAO haya capturado la excepción.
+ * Si se deshace, se vacían las cachés de entidades, que pueden haber recibido cambios no confirmados.
+ *
+ * Los efectos en memoria de una escritura se registran con {@link #alConfirmar(Runnable)} (se aplican
+ * cuando se confirma la transacción exterior, no al terminar la anidada) y {@link #alDeshacer(Runnable)}
+ * (por ejemplo, quitar a una entidad la clave generada por un INSERT que no llegó a confirmarse).
+ *
+ * Ejemplo desde un controlador:
+ * {@code Transaccion.ejecutar(con -> { cobroDAO.create(cobro); suscripcionDAO.update(s); return null; });}
+ *
+ * @author Fco Javier García
+ * @version 1.1
+ */
+public final class Transaccion {
+
+    /**
+     * Trabajo que se ejecuta dentro de la transacción.
+     * @param <R> Tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface Trabajo<R> {
+        R ejecutar(Connection con) throws SQLException;
+    }
+
+    /** Transacción abierta en cada hilo. */
+    private static final ThreadLocal<Transaccion> actual = new ThreadLocal<>();
+
+    /** Conexión que se entrega a los DAOs: la del pool, pero sin close/commit/rollback. */
+    private final Connection compartida;
+    private boolean soloDeshacer = false;
+    private final List<Runnable> accionesAlConfirmar = new ArrayList<>();
+    private final List<Runnable> accionesAlDeshacer = new ArrayList<>();
+
+    private Transaccion(Connection conexion) {
+        this.compartida = (Connection) Proxy.newProxyInstance(
+                Transaccion.class.getClassLoader(), new Class<?>[]{Connection.class}, new ConexionCompartida(conexion));
+    }
+
+    /**
+     * Ejecuta un trabajo en una transacción: la abre, o se une a la que ya esté abierta en este hilo.
+     *
+     * @param trabajo Sentencias a ejecutar (directamente con la conexión recibida o a través de los DAOs).
+     * @param <R> Tipo del resultado.
+     * @return El resultado del trabajo.
+     * @throws SQLException Si falla el trabajo o alguna operación unida a la transacción (se deshace todo).
+     */
+    public static <R> R ejecutar(Trabajo<R> trabajo) throws SQLException {
+        Transaccion enCurso = actual.get();
+        if (enCurso != null) {
+            return enCurso.unirse(trabajo);
+        }
+
+        try (Connection con = ConnectionDB.getConnection()) {
+            Transaccion transaccion = new Transaccion(con);
+            con.setAutoCommit(false);
+            actual.set(transaccion);
+            R resultado;
+            try {
+                resultado = trabajo.ejecutar(transaccion.compartida);
+                if (transaccion.soloDeshacer) {
+                    throw new SQLException("Una de las operaciones de la transacción ha fallado.");
+                }
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                ejecutarTodas(transaccion.accionesAlDeshacer);
+                CacheEntidades.vaciarTodas();
+                throw e;
+            } finally {
+                actual.remove();
+            }
+            // Ya confirmada: un fallo aquí no debe deshacer nada
+            ejecutarTodas(transaccion.accionesAlConfirmar);
+            return resultado;
+        }
+    }
+
+    /**
+     * Aplica una acción cuando se confirme la transacción en curso, o ahora mismo si no hay ninguna
+     * (la escritura ya se ha confirmado). Si la transacción se deshace, la acción se descarta.
+     *
+     * @param accion Efecto en memoria de una escritura (cachés, índices).
+     */
+    public static void alConfirmar(Runnable accion) {
+        Transaccion transaccion = actual.get();
+        if (transaccion != null) {
+            transaccion.accionesAlConfirmar.add(accion);
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Aplica una acción si se deshace la transacción en curso. Sin transacción no hace nada: la
+     * escritura ya se ha confirmado.
+     *
+     * @param accion Deshace un cambio en memoria hecho antes de confirmar (por ejemplo, una clave generada).
+     */
+    public static void alDeshacer(Runnable accion) {
+        Transaccion transaccion = actual.get();
+        if (transaccion != null) {
+            transaccion.accionesAlDeshacer.add(accion);
+        }
+    }
+
+    /**
+     * Comprueba el resultado de una operación de un DAO (que devuelve {@code false} en lugar de lanzar
+     * excepciones) y, si falló, aborta la transacción.
+     *
+     * @param correcto Resultado devuelto por el DAO.
+     * @param mensaje Descripción del error.
+     * @throws SQLException Si {@code correcto} es {@code false}.
+     */
+    public static void exigir(boolean correcto, String mensaje) throws SQLException {
+        if (!correcto) {
+            throw new SQLException(mensaje);
+        }
+    }
+
+    /**
+     * @return {@code true} si el hilo actual está dentro de una transacción.
+     */
+    public static boolean enCurso() {
+        return actual.get() != null;
+    }
+
+    /**
+     * Conexión de la transacción abierta en este hilo, para {@link ConnectionDB#getConnection()}.
+     *
+     * @return La conexión compartida, o {@code null} si no hay transacción.
+     */
+    static Connection conexionActual() {
+        Transaccion transaccion = actual.get();
+        return transaccion != null ? transaccion.compartida : null;
+    }
+
+    // Métodos privados
+
+    /**
+     * Ejecuta las acciones en orden; si alguna falla se avisa por consola y se sigue con las demás.
+     */
+    private static void ejecutarTodas(List<Runnable> acciones) {
+        for (Runnable accion : acciones) {
+            try {
+                accion.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error aplicando una acción de la transacción: " + e);
+            }
+        }
+    }
+
+    private <R> R unirse(Trabajo<R> trabajo) throws SQLException {
+        try {
+            return trabajo.ejecutar(compartida);
+        } catch (SQLException | RuntimeException e) {
+            soloDeshacer = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Delegación de la conexión compartida. {@code close()} no hace nada (la conexión se devuelve al
+     * terminar la transacción) y el control de la transacción queda reservado a {@link Transaccion}.
+     */
+    private static class ConexionCompartida implements InvocationHandler {
+        private final Connection conexion;
+
+        ConexionCompartida(Connection conexion) {
+            this.conexion = conexion;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    return null;
+                case "commit":
+                case "rollback":
+                case "setAutoCommit":
+                    throw new SQLException("La transacción la controla Transaccion.ejecutar: no se puede usar " + method.getName() + "().");
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(conexion, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@
 -- Desactivar foreign keys temporalmente para borrar sin orden
 PRAGMA foreign_keys = OFF;
 
+DELETE FROM resumen_mensual; -- Se reconstruye desde los cobros al terminar la carga (Tests)
 DELETE FROM cobro;
 DELETE FROM participa;
 DELETE FROM suscripcion;
@@ -30,30 +31,33 @@ INSERT INTO usuario (id_usuario, email, nombre, apellidos, password) VALUES
 -- =======================================================
 -- 3. SUSCRIPCIONES (Titular: Fran [ID 1])
 -- =======================================================
+-- Fechas en dias desde 1970-01-01 y enums por codigo (ver migracion V3):
+-- Ciclo MENSUAL=1 ANUAL=3 | Categoria OCIO=1 HOGAR=2 TRABAJO=3 SALUD=4 | MetodoPago TARJETA=1 TRANSFERENCIA=2 EFECTIVO=3 BIZUM=4
+-- Importes (precio, cantidadApagar) en centimos enteros (ver migracion V6)
 
 -- 1. NETFLIX (Activa, Mensual)
 INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES
-    (1, 'Netflix Premium', 17.99, 'MENSUAL', 'OCIO', 1, date('now', '-1 year'), date('now', '+15 days'), 1);
+    (1, 'Netflix Premium', 1799, 1, 1, 1, unixepoch(date('now', '-1 year')) / 86400, unixepoch(date('now', '+15 days')) / 86400, 1);
 
 -- 2. ADOBE (Vencida ayer - ROJO)
 INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES
-    (2, 'Adobe Creative Cloud', 65.00, 'MENSUAL', 'TRABAJO', 1, date('now', '-6 months'), date('now', '-1 day'), 1);
+    (2, 'Adobe Creative Cloud', 6500, 1, 3, 1, unixepoch(date('now', '-6 months')) / 86400, unixepoch(date('now', '-1 day')) / 86400, 1);
 
 -- 3. SPOTIFY (Vence en 2 días - NARANJA)
 INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES
-    (3, 'Spotify Duo', 12.99, 'MENSUAL', 'OCIO', 1, date('now', '-3 months'), date('now', '+2 days'), 1);
+    (3, 'Spotify Duo', 1299, 1, 1, 1, unixepoch(date('now', '-3 months')) / 86400, unixepoch(date('now', '+2 days')) / 86400, 1);
 
 -- 4. GIMNASIO (Activa)
 INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES
-    (4, 'Gimnasio Municipal', 30.00, 'MENSUAL', 'SALUD', 1, date('now', '-2 months'), date('now', '+28 days'), 1);
+    (4, 'Gimnasio Municipal', 3000, 1, 4, 1, unixepoch(date('now', '-2 months')) / 86400, unixepoch(date('now', '+28 days')) / 86400, 1);
 
 -- 5. DISNEY+ (Pausada - GRIS)
 INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES
-    (5, 'Disney+', 8.99, 'MENSUAL', 'OCIO', 0, '2023-01-01', '2023-06-01', 1);
+    (5, 'Disney+', 899, 1, 1, 0, unixepoch('2023-01-01') / 86400, unixepoch('2023-06-01') / 86400, 1);
 
 -- 6. SEGURO MOTO (Anual, Vencida - ROJO)
 INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular) VALUES
-    (6, 'Seguro Moto', 150.00, 'ANUAL', 'HOGAR', 1, date('now', '-1 year'), date('now', '-1 day'), 1);
+    (6, 'Seguro Moto', 15000, 3, 2, 1, unixepoch(date('now', '-1 year')) / 86400, unixepoch(date('now', '-1 day')) / 86400, 1);
 
 
 -- =======================================================
@@ -62,19 +66,19 @@ INSERT INTO suscripcion (id_suscripcion, nombre, precio, ciclo, categoria, activ
 
 -- En Netflix (ID 1): Ana (ID 2) paga (Verde)
 INSERT INTO participa (id_suscripcion, id_usuario, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos) VALUES
-    (1, 2, 4.50, date('now'), 'BIZUM', 'Pago mensual', 1);
+    (1, 2, 450, unixepoch(date('now')) / 86400, 4, 'Pago mensual', 1);
 
 -- En Netflix (ID 1): Invitado "Primo Luis" (Verde)
 INSERT INTO participa (id_suscripcion, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos) VALUES
-    (1, 'Primo Luis', 4.50, date('now'), 'EFECTIVO', 'En mano', 1);
+    (1, 'Primo Luis', 450, unixepoch(date('now')) / 86400, 3, 'En mano', 1);
 
 -- En Spotify (ID 3): Invitado "Compañero Piso" DEBE dinero (Pendiente = Rojo)
 INSERT INTO participa (id_suscripcion, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos) VALUES
-    (3, 'Compañero Piso', 6.50, NULL, 'BIZUM', 'Aún no me ha hecho el bizum', 1);
+    (3, 'Compañero Piso', 650, NULL, 4, 'Aún no me ha hecho el bizum', 1);
 
 -- En Gimnasio (ID 4): Invitado "Empresa" pagó adelantado (Verde aunque fecha antigua)
 INSERT INTO participa (id_suscripcion, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos) VALUES
-    (4, 'Subvención Empresa', 15.00, date('now', '-60 days'), 'TRANSFERENCIA', 'Semestre adelantado', 6);
+    (4, 'Subvención Empresa', 1500, unixepoch(date('now', '-60 days')) / 86400, 2, 'Semestre adelantado', 6);
 
 
 -- =======================================================
@@ -83,14 +87,14 @@ INSERT INTO participa (id_suscripcion, nombre_invitado, cantidadApagar, fecha_pa
 
 -- Netflix (3 meses pagados)
 INSERT INTO cobro (id_suscripcion, fecha_cobro, metodo_pago, descripcion) VALUES
-                                                                              (1, date('now', '-1 month'), 'TARJETA', 'Mes pasado'),
-                                                                              (1, date('now', '-2 months'), 'TARJETA', 'Hace 2 meses'),
-                                                                              (1, date('now', '-3 months'), 'TARJETA', 'Hace 3 meses');
+                                                                              (1, unixepoch(date('now', '-1 month')) / 86400, 1, 'Mes pasado'),
+                                                                              (1, unixepoch(date('now', '-2 months')) / 86400, 1, 'Hace 2 meses'),
+                                                                              (1, unixepoch(date('now', '-3 months')) / 86400, 1, 'Hace 3 meses');
 
 -- Adobe
 INSERT INTO cobro (id_suscripcion, fecha_cobro, metodo_pago, descripcion) VALUES
-    (2, date('now', '-1 month'), 'EFECTIVO', 'Licencia mensual');
+    (2, unixepoch(date('now', '-1 month')) / 86400, 3, 'Licencia mensual');
 
 -- Seguro Moto
 INSERT INTO cobro (id_suscripcion, fecha_cobro, metodo_pago, descripcion, periodos_cubiertos) VALUES
-    (6, date('now', '-1 year'), 'TRANSFERENCIA', 'Anualidad 2023', 1);
\ No newline at end of file
+    (6, unixepoch(date('now', '-1 year')) / 86400, 2, 'Anualidad 2023', 1);
\ No newline at end of file
@@ -0,0 +1,48 @@
+-- TABLA USUARIO
+CREATE TABLE IF NOT EXISTS usuario (
+                                       id_usuario INT AUTO_INCREMENT PRIMARY KEY,
+                                       email VARCHAR(150) NOT NULL UNIQUE,
+                                       nombre VARCHAR(100) NOT NULL,
+                                       apellidos VARCHAR(150) NOT NULL,
+                                       password VARCHAR(255) NOT NULL
+) ENGINE=InnoDB;
+
+-- TABLA SUSCRIPCION
+CREATE TABLE IF NOT EXISTS suscripcion (
+                                           id_suscripcion INT AUTO_INCREMENT PRIMARY KEY,
+                                           nombre VARCHAR(100) NOT NULL,
+                                           precio DECIMAL(10,2) NOT NULL,
+                                           ciclo VARCHAR(20) NOT NULL,  -- Guardamos el Enum como Texto
+                                           categoria VARCHAR(20) NOT NULL,
+                                           activo BOOLEAN DEFAULT TRUE,
+                                           fecha_activacion DATE NOT NULL,
+                                           fecha_renovacion DATE NOT NULL,
+                                           id_titular INT NOT NULL,
+                                           FOREIGN KEY (id_titular) REFERENCES usuario(id_usuario) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- TABLA COBRO
+CREATE TABLE IF NOT EXISTS cobro (
+                                     id_cobro INT AUTO_INCREMENT PRIMARY KEY,
+                                     id_suscripcion INT NOT NULL,
+                                     fecha_cobro DATE NOT NULL,
+                                     metodo_pago VARCHAR(20) NOT NULL,
+                                     descripcion VARCHAR(255),
+                                     periodos_cubiertos INT DEFAULT 1,
+                                     FOREIGN KEY (id_suscripcion) REFERENCES suscripcion(id_suscripcion) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- TABLA PARTICIPA
+CREATE TABLE IF NOT EXISTS participa (
+                                         id_participa INT AUTO_INCREMENT PRIMARY KEY,
+                                         id_suscripcion INT NOT NULL,
+                                         id_usuario INT NULL,
+                                         nombre_invitado VARCHAR(100) NULL,
+                                         cantidadApagar DECIMAL(10,2) NOT NULL,
+                                         fecha_pagado DATE NULL,
+                                         metodo_pago VARCHAR(20) NOT NULL,
+                                         descripcion VARCHAR(255),
+                                         periodos_cubiertos INT DEFAULT 1,
+                                         FOREIGN KEY (id_suscripcion) REFERENCES suscripcion(id_suscripcion) ON DELETE CASCADE,
+                                         FOREIGN KEY (id_usuario) REFERENCES usuario(id_usuario) ON DELETE SET NULL
+) ENGINE=InnoDB;
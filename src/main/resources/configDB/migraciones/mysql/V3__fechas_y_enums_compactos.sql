@@ -0,0 +1,63 @@
+-- =======================================================
+-- V3: Fechas como dia epoch (INT) y enums como codigo (TINYINT)
+-- =======================================================
+-- Se anade la columna nueva, se rellena, se elimina la antigua y se renombra la nueva.
+-- Codigos: Ciclo MENSUAL=1 TRIMESTRAL=2 ANUAL=3
+--          Categoria OCIO=1 HOGAR=2 TRABAJO=3 SALUD=4 EDUCACION=5
+--          MetodoPago TARJETA=1 TRANSFERENCIA=2 EFECTIVO=3 BIZUM=4 OTRO=5
+
+-- TABLA SUSCRIPCION
+ALTER TABLE suscripcion
+    ADD COLUMN ciclo_v3 TINYINT NULL,
+    ADD COLUMN categoria_v3 TINYINT NULL,
+    ADD COLUMN fecha_activacion_v3 INT NULL,
+    ADD COLUMN fecha_renovacion_v3 INT NULL;
+
+UPDATE suscripcion SET
+    ciclo_v3 = CASE ciclo WHEN 'MENSUAL' THEN 1 WHEN 'TRIMESTRAL' THEN 2 WHEN 'ANUAL' THEN 3 END,
+    categoria_v3 = CASE categoria WHEN 'OCIO' THEN 1 WHEN 'HOGAR' THEN 2 WHEN 'TRABAJO' THEN 3 WHEN 'SALUD' THEN 4 WHEN 'EDUCACION' THEN 5 END,
+    fecha_activacion_v3 = DATEDIFF(fecha_activacion, '1970-01-01'),
+    fecha_renovacion_v3 = DATEDIFF(fecha_renovacion, '1970-01-01');
+
+ALTER TABLE suscripcion
+    DROP COLUMN ciclo,
+    DROP COLUMN categoria,
+    DROP COLUMN fecha_activacion,
+    DROP COLUMN fecha_renovacion,
+    CHANGE COLUMN ciclo_v3 ciclo TINYINT NOT NULL,
+    CHANGE COLUMN categoria_v3 categoria TINYINT NOT NULL,
+    CHANGE COLUMN fecha_activacion_v3 fecha_activacion INT NOT NULL,
+    CHANGE COLUMN fecha_renovacion_v3 fecha_renovacion INT NOT NULL;
+
+-- TABLA COBRO
+ALTER TABLE cobro
+    ADD COLUMN fecha_cobro_v3 INT NULL,
+    ADD COLUMN metodo_pago_v3 TINYINT NULL;
+
+UPDATE cobro SET
+    fecha_cobro_v3 = DATEDIFF(fecha_cobro, '1970-01-01'),
+    metodo_pago_v3 = CASE metodo_pago WHEN 'TARJETA' THEN 1 WHEN 'TRANSFERENCIA' THEN 2 WHEN 'EFECTIVO' THEN 3 WHEN 'BIZUM' THEN 4 WHEN 'OTRO' THEN 5 END;
+
+-- Al eliminar fecha_cobro desaparece tambien idx_cobro_fecha, que se vuelve a crear
+ALTER TABLE cobro
+    DROP COLUMN fecha_cobro,
+    DROP COLUMN metodo_pago,
+    CHANGE COLUMN fecha_cobro_v3 fecha_cobro INT NOT NULL,
+    CHANGE COLUMN metodo_pago_v3 metodo_pago TINYINT NOT NULL;
+
+CREATE INDEX idx_cobro_fecha ON cobro (fecha_cobro);
+
+-- TABLA PARTICIPA
+ALTER TABLE participa
+    ADD COLUMN fecha_pagado_v3 INT NULL,
+    ADD COLUMN metodo_pago_v3 TINYINT NULL;
+
+UPDATE participa SET
+    fecha_pagado_v3 = DATEDIFF(fecha_pagado, '1970-01-01'),
+    metodo_pago_v3 = CASE metodo_pago WHEN 'TARJETA' THEN 1 WHEN 'TRANSFERENCIA' THEN 2 WHEN 'EFECTIVO' THEN 3 WHEN 'BIZUM' THEN 4 WHEN 'OTRO' THEN 5 END;
+
+ALTER TABLE participa
+    DROP COLUMN fecha_pagado,
+    DROP COLUMN metodo_pago,
+    CHANGE COLUMN fecha_pagado_v3 fecha_pagado INT NULL,
+    CHANGE COLUMN metodo_pago_v3 metodo_pago TINYINT NOT NULL;
@@ -0,0 +1,34 @@
+-- =======================================================
+-- V4: Resumen mensual materializado (usuario x mes x categoria)
+-- =======================================================
+-- Lo mantienen los DAOs con incrementos dentro de la misma transaccion que cada escritura
+-- (ResumenMensualDAO). Aqui se crea y se rellena con el historico existente.
+-- mes: anio * 100 + mes (p. ej. 202405). Importes en la moneda de precio y cantidadApagar.
+--   bruto  = precio de la suscripcion * periodos_cubiertos de cada cobro
+--   aporte = cantidadApagar * periodos_cubiertos de cada participacion pagada (fecha_pagado)
+--   neto   = bruto - aporte
+
+CREATE TABLE IF NOT EXISTS resumen_mensual (
+                                               id_usuario INT NOT NULL,
+                                               mes INT NOT NULL,
+                                               categoria TINYINT NOT NULL,
+                                               bruto DECIMAL(14,2) NOT NULL DEFAULT 0,
+                                               aporte DECIMAL(14,2) NOT NULL DEFAULT 0,
+                                               neto DECIMAL(14,2) NOT NULL DEFAULT 0,
+                                               PRIMARY KEY (id_usuario, mes, categoria),
+                                               FOREIGN KEY (id_usuario) REFERENCES usuario(id_usuario) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+INSERT INTO resumen_mensual (id_usuario, mes, categoria, bruto, aporte, neto)
+SELECT m.id_usuario, m.mes, m.categoria, SUM(m.bruto), SUM(m.aporte), SUM(m.bruto) - SUM(m.aporte)
+FROM (
+         SELECT s.id_titular AS id_usuario, EXTRACT(YEAR_MONTH FROM DATE_ADD('1970-01-01', INTERVAL c.fecha_cobro DAY)) AS mes,
+                s.categoria AS categoria, s.precio * c.periodos_cubiertos AS bruto, 0.0 AS aporte
+         FROM cobro c INNER JOIN suscripcion s ON c.id_suscripcion = s.id_suscripcion
+         UNION ALL
+         SELECT s.id_titular, EXTRACT(YEAR_MONTH FROM DATE_ADD('1970-01-01', INTERVAL p.fecha_pagado DAY)),
+                s.categoria, 0.0, p.cantidadApagar * p.periodos_cubiertos
+         FROM participa p INNER JOIN suscripcion s ON p.id_suscripcion = s.id_suscripcion
+         WHERE p.fecha_pagado IS NOT NULL
+     ) m
+GROUP BY m.id_usuario, m.mes, m.categoria;
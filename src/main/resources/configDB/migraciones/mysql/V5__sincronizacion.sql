@@ -0,0 +1,182 @@
+-- =======================================================
+-- V5: Sincronizacion (sello de version por fila y registro de cambios)
+-- =======================================================
+-- Cada fila sincronizable recibe un identificador global (sync_id, 32 hex) y una version
+-- (milisegundos desde 1970). Los triggers:
+--   - asignan sync_id y version a las filas que inserta la aplicacion,
+--   - suben la version en cada UPDATE hecho por la aplicacion (el motor de sincronizacion
+--     escribe la version que trae la fila y esta se respeta),
+--   - anotan cada alta, cambio y borrado (lapida) en sync_cambio.
+-- El motor (MotorSincronizacion) envia y recibe cambios leyendo sync_cambio desde un cursor
+-- guardado en sync_estado. Las filas existentes se anotan aqui como cambios iniciales.
+-- Ahora en ms: FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)
+
+CREATE TABLE IF NOT EXISTS sync_cambio (
+                                           id_cambio BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                           tabla VARCHAR(30) NOT NULL,
+                                           sync_id CHAR(32) NOT NULL,
+                                           version BIGINT NOT NULL,
+                                           borrado TINYINT NOT NULL DEFAULT 0,
+                                           INDEX idx_sync_cambio_fila (tabla, sync_id)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS sync_estado (
+                                           clave VARCHAR(50) PRIMARY KEY,
+                                           valor VARCHAR(200) NOT NULL
+) ENGINE=InnoDB;
+
+-- USUARIO
+ALTER TABLE usuario ADD COLUMN sync_id CHAR(32) NULL, ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+UPDATE usuario SET sync_id = REPLACE(UUID(), '-', ''), version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+CREATE UNIQUE INDEX idx_usuario_sync ON usuario (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'usuario', sync_id, version, 0 FROM usuario ORDER BY id_usuario;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_usuario_sync_bi BEFORE INSERT ON usuario FOR EACH ROW
+BEGIN
+    IF NEW.sync_id IS NULL THEN
+        SET NEW.sync_id = REPLACE(UUID(), '-', ''), NEW.version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+    END IF;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_usuario_sync_bu BEFORE UPDATE ON usuario FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+    END IF;
+END;
+
+CREATE TRIGGER trg_usuario_sync_ai AFTER INSERT ON usuario FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('usuario', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_usuario_sync_au AFTER UPDATE ON usuario FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('usuario', NEW.sync_id, NEW.version, 0);
+END;
+
+-- Los borrados en cascada de MySQL no disparan triggers: basta la lapida del padre
+CREATE TRIGGER trg_usuario_sync_ad AFTER DELETE ON usuario FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('usuario', OLD.sync_id, GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)), 1);
+END;
+
+-- SUSCRIPCION
+ALTER TABLE suscripcion ADD COLUMN sync_id CHAR(32) NULL, ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+UPDATE suscripcion SET sync_id = REPLACE(UUID(), '-', ''), version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+CREATE UNIQUE INDEX idx_suscripcion_sync ON suscripcion (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'suscripcion', sync_id, version, 0 FROM suscripcion ORDER BY id_suscripcion;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_suscripcion_sync_bi BEFORE INSERT ON suscripcion FOR EACH ROW
+BEGIN
+    IF NEW.sync_id IS NULL THEN
+        SET NEW.sync_id = REPLACE(UUID(), '-', ''), NEW.version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+    END IF;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_suscripcion_sync_bu BEFORE UPDATE ON suscripcion FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+    END IF;
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_ai AFTER INSERT ON suscripcion FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('suscripcion', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_au AFTER UPDATE ON suscripcion FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('suscripcion', NEW.sync_id, NEW.version, 0);
+END;
+
+-- Los borrados en cascada de MySQL no disparan triggers: basta la lapida del padre
+CREATE TRIGGER trg_suscripcion_sync_ad AFTER DELETE ON suscripcion FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('suscripcion', OLD.sync_id, GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)), 1);
+END;
+
+-- COBRO
+ALTER TABLE cobro ADD COLUMN sync_id CHAR(32) NULL, ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+UPDATE cobro SET sync_id = REPLACE(UUID(), '-', ''), version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+CREATE UNIQUE INDEX idx_cobro_sync ON cobro (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'cobro', sync_id, version, 0 FROM cobro ORDER BY id_cobro;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_cobro_sync_bi BEFORE INSERT ON cobro FOR EACH ROW
+BEGIN
+    IF NEW.sync_id IS NULL THEN
+        SET NEW.sync_id = REPLACE(UUID(), '-', ''), NEW.version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+    END IF;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_cobro_sync_bu BEFORE UPDATE ON cobro FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+    END IF;
+END;
+
+CREATE TRIGGER trg_cobro_sync_ai AFTER INSERT ON cobro FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('cobro', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_cobro_sync_au AFTER UPDATE ON cobro FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('cobro', NEW.sync_id, NEW.version, 0);
+END;
+
+-- Los borrados en cascada de MySQL no disparan triggers: basta la lapida del padre
+CREATE TRIGGER trg_cobro_sync_ad AFTER DELETE ON cobro FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('cobro', OLD.sync_id, GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)), 1);
+END;
+
+-- PARTICIPA
+ALTER TABLE participa ADD COLUMN sync_id CHAR(32) NULL, ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+UPDATE participa SET sync_id = REPLACE(UUID(), '-', ''), version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+CREATE UNIQUE INDEX idx_participa_sync ON participa (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'participa', sync_id, version, 0 FROM participa ORDER BY id_participa;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_participa_sync_bi BEFORE INSERT ON participa FOR EACH ROW
+BEGIN
+    IF NEW.sync_id IS NULL THEN
+        SET NEW.sync_id = REPLACE(UUID(), '-', ''), NEW.version = FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000);
+    END IF;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_participa_sync_bu BEFORE UPDATE ON participa FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+    END IF;
+END;
+
+CREATE TRIGGER trg_participa_sync_ai AFTER INSERT ON participa FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('participa', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_participa_sync_au AFTER UPDATE ON participa FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('participa', NEW.sync_id, NEW.version, 0);
+END;
+
+-- Los borrados en cascada de MySQL no disparan triggers: basta la lapida del padre
+CREATE TRIGGER trg_participa_sync_ad AFTER DELETE ON participa FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('participa', OLD.sync_id, GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000)), 1);
+END;
@@ -0,0 +1,76 @@
+-- =======================================================
+-- V6: Importes en centimos (BIGINT) en lugar de DECIMAL
+-- =======================================================
+-- precio (suscripcion), cantidadApagar (participa) y bruto/aporte/neto (resumen_mensual) pasan a
+-- guardar centimos enteros: 17.99 -> 1799. Las sumas son exactas y se leen con getLong.
+-- Se anade la columna nueva, se rellena, se elimina la antigua y se renombra la nueva.
+-- El cambio no es una modificacion del usuario: se quitan los triggers de UPDATE de sincronizacion
+-- (V5) mientras se rellena, para no subir la version ni anotar cambios, y se vuelven a crear.
+
+DROP TRIGGER trg_suscripcion_sync_bu;
+DROP TRIGGER trg_suscripcion_sync_au;
+DROP TRIGGER trg_participa_sync_bu;
+DROP TRIGGER trg_participa_sync_au;
+
+-- TABLA SUSCRIPCION
+ALTER TABLE suscripcion ADD COLUMN precio_v6 BIGINT NULL;
+UPDATE suscripcion SET precio_v6 = ROUND(precio * 100);
+ALTER TABLE suscripcion
+    DROP COLUMN precio,
+    CHANGE COLUMN precio_v6 precio BIGINT NOT NULL;
+
+-- TABLA PARTICIPA
+ALTER TABLE participa ADD COLUMN cantidadApagar_v6 BIGINT NULL;
+UPDATE participa SET cantidadApagar_v6 = ROUND(cantidadApagar * 100);
+ALTER TABLE participa
+    DROP COLUMN cantidadApagar,
+    CHANGE COLUMN cantidadApagar_v6 cantidadApagar BIGINT NOT NULL;
+
+-- Triggers de V5, sin cambios
+CREATE TRIGGER trg_suscripcion_sync_bu BEFORE UPDATE ON suscripcion FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+    END IF;
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_au AFTER UPDATE ON suscripcion FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('suscripcion', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_participa_sync_bu BEFORE UPDATE ON participa FOR EACH ROW
+BEGIN
+    IF NEW.version = OLD.version THEN
+        SET NEW.version = GREATEST(OLD.version + 1, FLOOR(UNIX_TIMESTAMP(NOW(3)) * 1000));
+    END IF;
+END;
+
+CREATE TRIGGER trg_participa_sync_au AFTER UPDATE ON participa FOR EACH ROW
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('participa', NEW.sync_id, NEW.version, 0);
+END;
+
+-- TABLA RESUMEN_MENSUAL
+-- Es un dato derivado: se cambia el tipo de las columnas y se recalcula desde cobro y participa
+-- (mismo criterio que V4, ya en centimos).
+DELETE FROM resumen_mensual;
+
+ALTER TABLE resumen_mensual
+    MODIFY COLUMN bruto BIGINT NOT NULL DEFAULT 0,
+    MODIFY COLUMN aporte BIGINT NOT NULL DEFAULT 0,
+    MODIFY COLUMN neto BIGINT NOT NULL DEFAULT 0;
+
+INSERT INTO resumen_mensual (id_usuario, mes, categoria, bruto, aporte, neto)
+SELECT m.id_usuario, m.mes, m.categoria, SUM(m.bruto), SUM(m.aporte), SUM(m.bruto) - SUM(m.aporte)
+FROM (
+         SELECT s.id_titular AS id_usuario, EXTRACT(YEAR_MONTH FROM DATE_ADD('1970-01-01', INTERVAL c.fecha_cobro DAY)) AS mes,
+                s.categoria AS categoria, s.precio * c.periodos_cubiertos AS bruto, 0 AS aporte
+         FROM cobro c INNER JOIN suscripcion s ON c.id_suscripcion = s.id_suscripcion
+         UNION ALL
+         SELECT s.id_titular, EXTRACT(YEAR_MONTH FROM DATE_ADD('1970-01-01', INTERVAL p.fecha_pagado DAY)),
+                s.categoria, 0, p.cantidadApagar * p.periodos_cubiertos
+         FROM participa p INNER JOIN suscripcion s ON p.id_suscripcion = s.id_suscripcion
+         WHERE p.fecha_pagado IS NOT NULL
+     ) m
+GROUP BY m.id_usuario, m.mes, m.categoria;
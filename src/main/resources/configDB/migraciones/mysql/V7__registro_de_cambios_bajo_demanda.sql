@@ -0,0 +1,83 @@
+-- =======================================================
+-- V7: Registro de cambios solo con la sincronizacion activa
+-- =======================================================
+-- Con V5 cada alta y cambio se anotaba en sync_cambio aunque ningun cliente sincronizara contra esta
+-- base de datos, y nada borraba esas filas. Ahora las altas y los cambios solo se anotan si existe la
+-- clave 'registro' en sync_estado, que pone el motor de sincronizacion del primer cliente que se
+-- conecta, junto con una entrada por cada fila existente (Almacen.activarRegistro).
+-- sync_id y version se siguen asignando en los triggers BEFORE (en MySQL modifican NEW, no hay UPDATE
+-- adicional) y la version sube en cada UPDATE de la aplicacion igual que antes.
+-- Los borrados (lapidas) se siguen anotando siempre: son lo unico que evita que una fila borrada
+-- vuelva desde otra base de datos.
+
+-- Sin registro activo no hace falta conservar las altas y cambios ya anotados
+DELETE FROM sync_cambio WHERE borrado = 0;
+
+DROP TRIGGER trg_usuario_sync_ai;
+DROP TRIGGER trg_usuario_sync_au;
+DROP TRIGGER trg_suscripcion_sync_ai;
+DROP TRIGGER trg_suscripcion_sync_au;
+DROP TRIGGER trg_cobro_sync_ai;
+DROP TRIGGER trg_cobro_sync_au;
+DROP TRIGGER trg_participa_sync_ai;
+DROP TRIGGER trg_participa_sync_au;
+
+-- USUARIO
+CREATE TRIGGER trg_usuario_sync_ai AFTER INSERT ON usuario FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('usuario', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+CREATE TRIGGER trg_usuario_sync_au AFTER UPDATE ON usuario FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('usuario', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+-- SUSCRIPCION
+CREATE TRIGGER trg_suscripcion_sync_ai AFTER INSERT ON suscripcion FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('suscripcion', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_au AFTER UPDATE ON suscripcion FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('suscripcion', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+-- COBRO
+CREATE TRIGGER trg_cobro_sync_ai AFTER INSERT ON cobro FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('cobro', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+CREATE TRIGGER trg_cobro_sync_au AFTER UPDATE ON cobro FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('cobro', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+-- PARTICIPA
+CREATE TRIGGER trg_participa_sync_ai AFTER INSERT ON participa FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('participa', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
+
+CREATE TRIGGER trg_participa_sync_au AFTER UPDATE ON participa FOR EACH ROW
+BEGIN
+    IF EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro') THEN
+        INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('participa', NEW.sync_id, NEW.version, 0);
+    END IF;
+END;
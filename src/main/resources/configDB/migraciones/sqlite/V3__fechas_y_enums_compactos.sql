@@ -0,0 +1,92 @@
+-- =======================================================
+-- V3: Fechas como dia epoch (INTEGER) y enums como codigo (INTEGER)
+-- =======================================================
+-- SQLite no permite cambiar el tipo de una columna, asi que se reconstruyen las tablas
+-- (el motor ejecuta la migracion con las claves foraneas desactivadas).
+-- Las fechas antiguas pueden estar en texto ISO (yyyy-MM-dd) o en milisegundos (setDate del driver).
+-- Codigos: Ciclo MENSUAL=1 TRIMESTRAL=2 ANUAL=3
+--          Categoria OCIO=1 HOGAR=2 TRABAJO=3 SALUD=4 EDUCACION=5
+--          MetodoPago TARJETA=1 TRANSFERENCIA=2 EFECTIVO=3 BIZUM=4 OTRO=5
+
+-- TABLA SUSCRIPCION
+CREATE TABLE suscripcion_v3 (
+                                id_suscripcion INTEGER PRIMARY KEY AUTOINCREMENT,
+                                nombre TEXT NOT NULL,
+                                precio REAL NOT NULL,
+                                ciclo INTEGER NOT NULL,
+                                categoria INTEGER NOT NULL,
+                                activo BOOLEAN DEFAULT 1,
+                                fecha_activacion INTEGER NOT NULL, -- Dias desde 1970-01-01
+                                fecha_renovacion INTEGER NOT NULL,
+                                id_titular INTEGER NOT NULL,
+                                FOREIGN KEY (id_titular) REFERENCES usuario(id_usuario) ON DELETE CASCADE
+);
+
+INSERT INTO suscripcion_v3 (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular)
+SELECT id_suscripcion, nombre, precio,
+       CASE ciclo WHEN 'MENSUAL' THEN 1 WHEN 'TRIMESTRAL' THEN 2 WHEN 'ANUAL' THEN 3 END,
+       CASE categoria WHEN 'OCIO' THEN 1 WHEN 'HOGAR' THEN 2 WHEN 'TRABAJO' THEN 3 WHEN 'SALUD' THEN 4 WHEN 'EDUCACION' THEN 5 END,
+       activo,
+       CASE WHEN fecha_activacion LIKE '____-__-__%' THEN CAST(julianday(substr(fecha_activacion, 1, 10)) - 2440587.5 AS INTEGER)
+            ELSE CAST(julianday(date(CAST(fecha_activacion AS INTEGER) / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER) END,
+       CASE WHEN fecha_renovacion LIKE '____-__-__%' THEN CAST(julianday(substr(fecha_renovacion, 1, 10)) - 2440587.5 AS INTEGER)
+            ELSE CAST(julianday(date(CAST(fecha_renovacion AS INTEGER) / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER) END,
+       id_titular
+FROM suscripcion;
+
+DROP TABLE suscripcion;
+ALTER TABLE suscripcion_v3 RENAME TO suscripcion;
+CREATE INDEX idx_suscripcion_titular ON suscripcion (id_titular);
+
+-- TABLA COBRO
+CREATE TABLE cobro_v3 (
+                          id_cobro INTEGER PRIMARY KEY AUTOINCREMENT,
+                          id_suscripcion INTEGER NOT NULL,
+                          fecha_cobro INTEGER NOT NULL, -- Dias desde 1970-01-01
+                          metodo_pago INTEGER NOT NULL,
+                          descripcion TEXT,
+                          periodos_cubiertos INTEGER DEFAULT 1,
+                          FOREIGN KEY (id_suscripcion) REFERENCES suscripcion(id_suscripcion) ON DELETE CASCADE
+);
+
+INSERT INTO cobro_v3 (id_cobro, id_suscripcion, fecha_cobro, metodo_pago, descripcion, periodos_cubiertos)
+SELECT id_cobro, id_suscripcion,
+       CASE WHEN fecha_cobro LIKE '____-__-__%' THEN CAST(julianday(substr(fecha_cobro, 1, 10)) - 2440587.5 AS INTEGER)
+            ELSE CAST(julianday(date(CAST(fecha_cobro AS INTEGER) / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER) END,
+       CASE metodo_pago WHEN 'TARJETA' THEN 1 WHEN 'TRANSFERENCIA' THEN 2 WHEN 'EFECTIVO' THEN 3 WHEN 'BIZUM' THEN 4 WHEN 'OTRO' THEN 5 END,
+       descripcion, periodos_cubiertos
+FROM cobro;
+
+DROP TABLE cobro;
+ALTER TABLE cobro_v3 RENAME TO cobro;
+CREATE INDEX idx_cobro_suscripcion ON cobro (id_suscripcion);
+CREATE INDEX idx_cobro_fecha ON cobro (fecha_cobro);
+
+-- TABLA PARTICIPA
+CREATE TABLE participa_v3 (
+                              id_participa INTEGER PRIMARY KEY AUTOINCREMENT,
+                              id_suscripcion INTEGER NOT NULL,
+                              id_usuario INTEGER NULL,
+                              nombre_invitado TEXT NULL,
+                              cantidadApagar REAL NOT NULL,
+                              fecha_pagado INTEGER NULL, -- Dias desde 1970-01-01
+                              metodo_pago INTEGER NOT NULL,
+                              descripcion TEXT,
+                              periodos_cubiertos INTEGER DEFAULT 1,
+                              FOREIGN KEY (id_suscripcion) REFERENCES suscripcion(id_suscripcion) ON DELETE CASCADE,
+                              FOREIGN KEY (id_usuario) REFERENCES usuario(id_usuario) ON DELETE SET NULL
+);
+
+INSERT INTO participa_v3 (id_participa, id_suscripcion, id_usuario, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos)
+SELECT id_participa, id_suscripcion, id_usuario, nombre_invitado, cantidadApagar,
+       CASE WHEN fecha_pagado IS NULL OR fecha_pagado = '' THEN NULL
+            WHEN fecha_pagado LIKE '____-__-__%' THEN CAST(julianday(substr(fecha_pagado, 1, 10)) - 2440587.5 AS INTEGER)
+            ELSE CAST(julianday(date(CAST(fecha_pagado AS INTEGER) / 1000, 'unixepoch', 'localtime')) - 2440587.5 AS INTEGER) END,
+       CASE metodo_pago WHEN 'TARJETA' THEN 1 WHEN 'TRANSFERENCIA' THEN 2 WHEN 'EFECTIVO' THEN 3 WHEN 'BIZUM' THEN 4 WHEN 'OTRO' THEN 5 END,
+       descripcion, periodos_cubiertos
+FROM participa;
+
+DROP TABLE participa;
+ALTER TABLE participa_v3 RENAME TO participa;
+CREATE INDEX idx_participa_suscripcion ON participa (id_suscripcion);
+CREATE INDEX idx_participa_usuario ON participa (id_usuario);
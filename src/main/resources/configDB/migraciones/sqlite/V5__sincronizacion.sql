@@ -0,0 +1,151 @@
+-- =======================================================
+-- V5: Sincronizacion (sello de version por fila y registro de cambios)
+-- =======================================================
+-- Cada fila sincronizable recibe un identificador global (sync_id, 32 hex) y una version
+-- (milisegundos desde 1970). Los triggers:
+--   - asignan sync_id y version a las filas que inserta la aplicacion,
+--   - suben la version en cada UPDATE hecho por la aplicacion (el motor de sincronizacion
+--     escribe la version que trae la fila y esta se respeta),
+--   - anotan cada alta, cambio y borrado (lapida) en sync_cambio.
+-- El motor (MotorSincronizacion) envia y recibe cambios leyendo sync_cambio desde un cursor
+-- guardado en sync_estado. Las filas existentes se anotan aqui como cambios iniciales.
+-- Ahora en ms: (julianday('now') - 2440587.5) * 86400000
+
+CREATE TABLE IF NOT EXISTS sync_cambio (
+                                           id_cambio INTEGER PRIMARY KEY AUTOINCREMENT,
+                                           tabla TEXT NOT NULL,
+                                           sync_id TEXT NOT NULL,
+                                           version INTEGER NOT NULL,
+                                           borrado INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE INDEX idx_sync_cambio_fila ON sync_cambio (tabla, sync_id);
+
+CREATE TABLE IF NOT EXISTS sync_estado (
+                                           clave TEXT PRIMARY KEY,
+                                           valor TEXT NOT NULL
+);
+
+-- USUARIO
+ALTER TABLE usuario ADD COLUMN sync_id TEXT;
+ALTER TABLE usuario ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+UPDATE usuario SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER);
+CREATE UNIQUE INDEX idx_usuario_sync ON usuario (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'usuario', sync_id, version, 0 FROM usuario ORDER BY id_usuario;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_usuario_sync_ai AFTER INSERT ON usuario
+BEGIN
+    UPDATE usuario SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)
+    WHERE id_usuario = NEW.id_usuario AND NEW.sync_id IS NULL;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'usuario', sync_id, version, 0 FROM usuario WHERE id_usuario = NEW.id_usuario;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_usuario_sync_au AFTER UPDATE ON usuario WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE usuario SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_usuario = NEW.id_usuario AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'usuario', sync_id, version, 0 FROM usuario WHERE id_usuario = NEW.id_usuario;
+END;
+
+CREATE TRIGGER trg_usuario_sync_ad AFTER DELETE ON usuario WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('usuario', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
+
+-- SUSCRIPCION
+ALTER TABLE suscripcion ADD COLUMN sync_id TEXT;
+ALTER TABLE suscripcion ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+UPDATE suscripcion SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER);
+CREATE UNIQUE INDEX idx_suscripcion_sync ON suscripcion (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'suscripcion', sync_id, version, 0 FROM suscripcion ORDER BY id_suscripcion;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_suscripcion_sync_ai AFTER INSERT ON suscripcion
+BEGIN
+    UPDATE suscripcion SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)
+    WHERE id_suscripcion = NEW.id_suscripcion AND NEW.sync_id IS NULL;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'suscripcion', sync_id, version, 0 FROM suscripcion WHERE id_suscripcion = NEW.id_suscripcion;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_suscripcion_sync_au AFTER UPDATE ON suscripcion WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE suscripcion SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_suscripcion = NEW.id_suscripcion AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'suscripcion', sync_id, version, 0 FROM suscripcion WHERE id_suscripcion = NEW.id_suscripcion;
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_ad AFTER DELETE ON suscripcion WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('suscripcion', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
+
+-- COBRO
+ALTER TABLE cobro ADD COLUMN sync_id TEXT;
+ALTER TABLE cobro ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+UPDATE cobro SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER);
+CREATE UNIQUE INDEX idx_cobro_sync ON cobro (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'cobro', sync_id, version, 0 FROM cobro ORDER BY id_cobro;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_cobro_sync_ai AFTER INSERT ON cobro
+BEGIN
+    UPDATE cobro SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)
+    WHERE id_cobro = NEW.id_cobro AND NEW.sync_id IS NULL;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'cobro', sync_id, version, 0 FROM cobro WHERE id_cobro = NEW.id_cobro;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_cobro_sync_au AFTER UPDATE ON cobro WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE cobro SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_cobro = NEW.id_cobro AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'cobro', sync_id, version, 0 FROM cobro WHERE id_cobro = NEW.id_cobro;
+END;
+
+CREATE TRIGGER trg_cobro_sync_ad AFTER DELETE ON cobro WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('cobro', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
+
+-- PARTICIPA
+ALTER TABLE participa ADD COLUMN sync_id TEXT;
+ALTER TABLE participa ADD COLUMN version INTEGER NOT NULL DEFAULT 0;
+UPDATE participa SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER);
+CREATE UNIQUE INDEX idx_participa_sync ON participa (sync_id);
+INSERT INTO sync_cambio (tabla, sync_id, version, borrado) SELECT 'participa', sync_id, version, 0 FROM participa ORDER BY id_participa;
+
+-- Solo las inserciones de la aplicacion llegan sin sync_id
+CREATE TRIGGER trg_participa_sync_ai AFTER INSERT ON participa
+BEGIN
+    UPDATE participa SET sync_id = lower(hex(randomblob(16))), version = CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)
+    WHERE id_participa = NEW.id_participa AND NEW.sync_id IS NULL;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'participa', sync_id, version, 0 FROM participa WHERE id_participa = NEW.id_participa;
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_participa_sync_au AFTER UPDATE ON participa WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE participa SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_participa = NEW.id_participa AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'participa', sync_id, version, 0 FROM participa WHERE id_participa = NEW.id_participa;
+END;
+
+CREATE TRIGGER trg_participa_sync_ad AFTER DELETE ON participa WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('participa', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
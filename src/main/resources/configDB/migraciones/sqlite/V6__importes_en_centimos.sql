@@ -0,0 +1,70 @@
+-- =======================================================
+-- V6: Importes en centimos (INTEGER) en lugar de REAL
+-- =======================================================
+-- precio (suscripcion), cantidadApagar (participa) y bruto/aporte/neto (resumen_mensual) pasan a
+-- guardar centimos enteros: 17.99 -> 1799. Las sumas son exactas y se leen con getLong.
+-- Se anade la columna nueva, se rellena, se elimina la antigua y se renombra la nueva.
+-- El cambio no es una modificacion del usuario: se quitan los triggers de UPDATE de sincronizacion
+-- (V5) mientras se rellena, para no subir la version ni anotar cambios, y se vuelven a crear.
+
+DROP TRIGGER trg_suscripcion_sync_au;
+DROP TRIGGER trg_participa_sync_au;
+
+-- TABLA SUSCRIPCION
+ALTER TABLE suscripcion ADD COLUMN precio_v6 INTEGER NOT NULL DEFAULT 0;
+UPDATE suscripcion SET precio_v6 = CAST(ROUND(precio * 100) AS INTEGER);
+ALTER TABLE suscripcion DROP COLUMN precio;
+ALTER TABLE suscripcion RENAME COLUMN precio_v6 TO precio;
+
+-- TABLA PARTICIPA
+ALTER TABLE participa ADD COLUMN cantidadApagar_v6 INTEGER NOT NULL DEFAULT 0;
+UPDATE participa SET cantidadApagar_v6 = CAST(ROUND(cantidadApagar * 100) AS INTEGER);
+ALTER TABLE participa DROP COLUMN cantidadApagar;
+ALTER TABLE participa RENAME COLUMN cantidadApagar_v6 TO cantidadApagar;
+
+-- Triggers de V5, sin cambios
+CREATE TRIGGER trg_suscripcion_sync_au AFTER UPDATE ON suscripcion WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE suscripcion SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_suscripcion = NEW.id_suscripcion AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'suscripcion', sync_id, version, 0 FROM suscripcion WHERE id_suscripcion = NEW.id_suscripcion;
+END;
+
+CREATE TRIGGER trg_participa_sync_au AFTER UPDATE ON participa WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE participa SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_participa = NEW.id_participa AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'participa', sync_id, version, 0 FROM participa WHERE id_participa = NEW.id_participa;
+END;
+
+-- TABLA RESUMEN_MENSUAL
+-- Es un dato derivado: se vuelve a crear con columnas enteras y se recalcula desde cobro y participa
+-- (mismo criterio que V4, ya en centimos).
+DROP TABLE resumen_mensual;
+
+CREATE TABLE resumen_mensual (
+                                id_usuario INTEGER NOT NULL,
+                                mes INTEGER NOT NULL,
+                                categoria INTEGER NOT NULL,
+                                bruto INTEGER NOT NULL DEFAULT 0,
+                                aporte INTEGER NOT NULL DEFAULT 0,
+                                neto INTEGER NOT NULL DEFAULT 0,
+                                PRIMARY KEY (id_usuario, mes, categoria),
+                                FOREIGN KEY (id_usuario) REFERENCES usuario(id_usuario) ON DELETE CASCADE
+);
+
+INSERT INTO resumen_mensual (id_usuario, mes, categoria, bruto, aporte, neto)
+SELECT m.id_usuario, m.mes, m.categoria, SUM(m.bruto), SUM(m.aporte), SUM(m.bruto) - SUM(m.aporte)
+FROM (
+         SELECT s.id_titular AS id_usuario, CAST(strftime('%Y%m', c.fecha_cobro * 86400, 'unixepoch') AS INTEGER) AS mes,
+                s.categoria AS categoria, s.precio * c.periodos_cubiertos AS bruto, 0 AS aporte
+         FROM cobro c INNER JOIN suscripcion s ON c.id_suscripcion = s.id_suscripcion
+         UNION ALL
+         SELECT s.id_titular, CAST(strftime('%Y%m', p.fecha_pagado * 86400, 'unixepoch') AS INTEGER),
+                s.categoria, 0, p.cantidadApagar * p.periodos_cubiertos
+         FROM participa p INNER JOIN suscripcion s ON p.id_suscripcion = s.id_suscripcion
+         WHERE p.fecha_pagado IS NOT NULL
+     ) m
+GROUP BY m.id_usuario, m.mes, m.categoria;
@@ -0,0 +1,203 @@
+-- =======================================================
+-- V7: Registro de cambios solo con la sincronizacion activa
+-- =======================================================
+-- Con V5 cada alta, cambio y borrado se anotaba en sync_cambio aunque la sincronizacion estuviera
+-- desactivada (el caso por defecto), y nada borraba esas filas. Ahora:
+--   - sync_id y version se asignan con valores por defecto de columna: el trigger de alta ya no
+--     hace un UPDATE de la fila recien insertada.
+--   - Las altas y los cambios solo se anotan si existe la clave 'registro' en sync_estado. La pone
+--     el motor de sincronizacion al activarse, junto con una entrada por cada fila existente
+--     (Almacen.activarRegistro), y la quita la aplicacion si arranca con la sincronizacion desactivada.
+--   - La version sube en cada UPDATE de la aplicacion igual que antes, este o no activo el registro,
+--     para que la resolucion de conflictos siga siendo correcta si se activa mas adelante.
+--   - Los borrados (lapidas) se siguen anotando siempre: son pocos y son lo unico que evita que una
+--     fila borrada vuelva desde la otra base de datos.
+-- SQLite no permite cambiar el valor por defecto de una columna: se reconstruyen las tablas
+-- (el motor ejecuta la migracion con las claves foraneas desactivadas).
+-- Ahora en ms: (julianday('now') - 2440587.5) * 86400000
+
+-- Sin registro activo no hace falta conservar las altas y cambios ya anotados
+DELETE FROM sync_cambio WHERE borrado = 0;
+
+-- TABLA USUARIO
+CREATE TABLE usuario_v7 (
+                            id_usuario INTEGER PRIMARY KEY AUTOINCREMENT,
+                            email TEXT NOT NULL UNIQUE,
+                            nombre TEXT NOT NULL,
+                            apellidos TEXT NOT NULL,
+                            password TEXT NOT NULL,
+                            sync_id TEXT DEFAULT (lower(hex(randomblob(16)))),
+                            version INTEGER NOT NULL DEFAULT (CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+);
+
+INSERT INTO usuario_v7 (id_usuario, email, nombre, apellidos, password, sync_id, version)
+SELECT id_usuario, email, nombre, apellidos, password, sync_id, version FROM usuario;
+
+DROP TABLE usuario;
+ALTER TABLE usuario_v7 RENAME TO usuario;
+CREATE UNIQUE INDEX idx_usuario_sync ON usuario (sync_id);
+
+-- TABLA SUSCRIPCION
+CREATE TABLE suscripcion_v7 (
+                                id_suscripcion INTEGER PRIMARY KEY AUTOINCREMENT,
+                                nombre TEXT NOT NULL,
+                                precio INTEGER NOT NULL DEFAULT 0, -- Centimos
+                                ciclo INTEGER NOT NULL,
+                                categoria INTEGER NOT NULL,
+                                activo BOOLEAN DEFAULT 1,
+                                fecha_activacion INTEGER NOT NULL, -- Dias desde 1970-01-01
+                                fecha_renovacion INTEGER NOT NULL,
+                                id_titular INTEGER NOT NULL,
+                                sync_id TEXT DEFAULT (lower(hex(randomblob(16)))),
+                                version INTEGER NOT NULL DEFAULT (CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)),
+                                FOREIGN KEY (id_titular) REFERENCES usuario(id_usuario) ON DELETE CASCADE
+);
+
+INSERT INTO suscripcion_v7 (id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular, sync_id, version)
+SELECT id_suscripcion, nombre, precio, ciclo, categoria, activo, fecha_activacion, fecha_renovacion, id_titular, sync_id, version
+FROM suscripcion;
+
+DROP TABLE suscripcion;
+ALTER TABLE suscripcion_v7 RENAME TO suscripcion;
+CREATE INDEX idx_suscripcion_titular ON suscripcion (id_titular);
+CREATE UNIQUE INDEX idx_suscripcion_sync ON suscripcion (sync_id);
+
+-- TABLA COBRO
+CREATE TABLE cobro_v7 (
+                          id_cobro INTEGER PRIMARY KEY AUTOINCREMENT,
+                          id_suscripcion INTEGER NOT NULL,
+                          fecha_cobro INTEGER NOT NULL, -- Dias desde 1970-01-01
+                          metodo_pago INTEGER NOT NULL,
+                          descripcion TEXT,
+                          periodos_cubiertos INTEGER DEFAULT 1,
+                          sync_id TEXT DEFAULT (lower(hex(randomblob(16)))),
+                          version INTEGER NOT NULL DEFAULT (CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)),
+                          FOREIGN KEY (id_suscripcion) REFERENCES suscripcion(id_suscripcion) ON DELETE CASCADE
+);
+
+INSERT INTO cobro_v7 (id_cobro, id_suscripcion, fecha_cobro, metodo_pago, descripcion, periodos_cubiertos, sync_id, version)
+SELECT id_cobro, id_suscripcion, fecha_cobro, metodo_pago, descripcion, periodos_cubiertos, sync_id, version FROM cobro;
+
+DROP TABLE cobro;
+ALTER TABLE cobro_v7 RENAME TO cobro;
+CREATE INDEX idx_cobro_suscripcion ON cobro (id_suscripcion);
+CREATE INDEX idx_cobro_fecha ON cobro (fecha_cobro);
+CREATE UNIQUE INDEX idx_cobro_sync ON cobro (sync_id);
+
+-- TABLA PARTICIPA
+CREATE TABLE participa_v7 (
+                              id_participa INTEGER PRIMARY KEY AUTOINCREMENT,
+                              id_suscripcion INTEGER NOT NULL,
+                              id_usuario INTEGER NULL,
+                              nombre_invitado TEXT NULL,
+                              cantidadApagar INTEGER NOT NULL DEFAULT 0, -- Centimos
+                              fecha_pagado INTEGER NULL, -- Dias desde 1970-01-01
+                              metodo_pago INTEGER NOT NULL,
+                              descripcion TEXT,
+                              periodos_cubiertos INTEGER DEFAULT 1,
+                              sync_id TEXT DEFAULT (lower(hex(randomblob(16)))),
+                              version INTEGER NOT NULL DEFAULT (CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)),
+                              FOREIGN KEY (id_suscripcion) REFERENCES suscripcion(id_suscripcion) ON DELETE CASCADE,
+                              FOREIGN KEY (id_usuario) REFERENCES usuario(id_usuario) ON DELETE SET NULL
+);
+
+INSERT INTO participa_v7 (id_participa, id_suscripcion, id_usuario, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos, sync_id, version)
+SELECT id_participa, id_suscripcion, id_usuario, nombre_invitado, cantidadApagar, fecha_pagado, metodo_pago, descripcion, periodos_cubiertos, sync_id, version
+FROM participa;
+
+DROP TABLE participa;
+ALTER TABLE participa_v7 RENAME TO participa;
+CREATE INDEX idx_participa_suscripcion ON participa (id_suscripcion);
+CREATE INDEX idx_participa_usuario ON participa (id_usuario);
+CREATE UNIQUE INDEX idx_participa_sync ON participa (sync_id);
+
+-- TRIGGERS (los de V5 y V6 se eliminaron con las tablas)
+
+-- USUARIO
+CREATE TRIGGER trg_usuario_sync_ai AFTER INSERT ON usuario
+    WHEN EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro')
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('usuario', NEW.sync_id, NEW.version, 0);
+END;
+
+-- Si el UPDATE no trae version nueva (aplicacion) se sube; si la trae (sincronizacion) se respeta
+CREATE TRIGGER trg_usuario_sync_au AFTER UPDATE ON usuario WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE usuario SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_usuario = NEW.id_usuario AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'usuario', sync_id, version, 0 FROM usuario
+    WHERE id_usuario = NEW.id_usuario AND EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro');
+END;
+
+CREATE TRIGGER trg_usuario_sync_ad AFTER DELETE ON usuario WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('usuario', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
+
+-- SUSCRIPCION
+CREATE TRIGGER trg_suscripcion_sync_ai AFTER INSERT ON suscripcion
+    WHEN EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro')
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('suscripcion', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_au AFTER UPDATE ON suscripcion WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE suscripcion SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_suscripcion = NEW.id_suscripcion AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'suscripcion', sync_id, version, 0 FROM suscripcion
+    WHERE id_suscripcion = NEW.id_suscripcion AND EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro');
+END;
+
+CREATE TRIGGER trg_suscripcion_sync_ad AFTER DELETE ON suscripcion WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('suscripcion', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
+
+-- COBRO
+CREATE TRIGGER trg_cobro_sync_ai AFTER INSERT ON cobro
+    WHEN EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro')
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('cobro', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_cobro_sync_au AFTER UPDATE ON cobro WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE cobro SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_cobro = NEW.id_cobro AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'cobro', sync_id, version, 0 FROM cobro
+    WHERE id_cobro = NEW.id_cobro AND EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro');
+END;
+
+CREATE TRIGGER trg_cobro_sync_ad AFTER DELETE ON cobro WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('cobro', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
+
+-- PARTICIPA
+CREATE TRIGGER trg_participa_sync_ai AFTER INSERT ON participa
+    WHEN EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro')
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado) VALUES ('participa', NEW.sync_id, NEW.version, 0);
+END;
+
+CREATE TRIGGER trg_participa_sync_au AFTER UPDATE ON participa WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    UPDATE participa SET version = MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER))
+    WHERE id_participa = NEW.id_participa AND NEW.version = OLD.version;
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    SELECT 'participa', sync_id, version, 0 FROM participa
+    WHERE id_participa = NEW.id_participa AND EXISTS (SELECT 1 FROM sync_estado WHERE clave = 'registro');
+END;
+
+CREATE TRIGGER trg_participa_sync_ad AFTER DELETE ON participa WHEN OLD.sync_id IS NOT NULL
+BEGIN
+    INSERT INTO sync_cambio (tabla, sync_id, version, borrado)
+    VALUES ('participa', OLD.sync_id, MAX(OLD.version + 1, CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)), 1);
+END;
@@ -0,0 +1,111 @@
+package org.dam.fcojavier.substracker.service;
+
+import org.dam.fcojavier.substracker.model.CalendarioPagos;
+import org.dam.fcojavier.substracker.model.Participa;
+import org.dam.fcojavier.substracker.model.Suscripcion;
+import org.dam.fcojavier.substracker.model.enums.Categoria;
+import org.dam.fcojavier.substracker.model.enums.Ciclo;
+import org.dam.fcojavier.substracker.model.enums.MetodoPago;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas de los límites de periodos de {@link ProyeccionPagos}: fin de mes, 29 de febrero,
+ * horizontes que empiezan a mitad de periodo y coberturas de colaboradores.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+class ProyeccionPagosTest {
+
+    private static final LocalDate DIA_31 = LocalDate.of(2025, 1, 31);
+    private static final LocalDate BISIESTO = LocalDate.of(2024, 2, 29);
+
+    @Test
+    void baseDia31MensualNoDeriva() {
+        // 31 ene, 28 feb, 31 mar, 30 abr, 31 may...
+        assertEquals(1, ProyeccionPagos.primerPeriodoDesde(DIA_31, 1, LocalDate.of(2025, 2, 28)));
+        assertEquals(2, ProyeccionPagos.primerPeriodoDesde(DIA_31, 1, LocalDate.of(2025, 3, 1)));
+        assertEquals(3, ProyeccionPagos.primerPeriodoDesde(DIA_31, 1, LocalDate.of(2025, 4, 30)));
+        assertEquals(3, ProyeccionPagos.ultimoPeriodoHasta(DIA_31, 1, LocalDate.of(2025, 5, 30)));
+        assertEquals(4, ProyeccionPagos.ultimoPeriodoHasta(DIA_31, 1, LocalDate.of(2025, 5, 31)));
+
+        CalendarioPagos calendario = ProyeccionPagos.porDias(
+                List.of(suscripcion(DIA_31, Ciclo.MENSUAL, 1000)),
+                LocalDate.of(2025, 2, 1), LocalDate.of(2025, 5, 31));
+        assertEquals(List.of(LocalDate.of(2025, 2, 28), LocalDate.of(2025, 3, 31),
+                LocalDate.of(2025, 4, 30), LocalDate.of(2025, 5, 31)), diasConCobro(calendario));
+    }
+
+    @Test
+    void baseAnual29DeFebrero() {
+        assertEquals(1, ProyeccionPagos.primerPeriodoDesde(BISIESTO, 12, LocalDate.of(2025, 2, 28)));
+        assertEquals(2, ProyeccionPagos.primerPeriodoDesde(BISIESTO, 12, LocalDate.of(2025, 3, 1)));
+        assertEquals(0, ProyeccionPagos.ultimoPeriodoHasta(BISIESTO, 12, LocalDate.of(2025, 2, 27)));
+        assertEquals(4, ProyeccionPagos.ultimoPeriodoHasta(BISIESTO, 12, LocalDate.of(2028, 2, 29)));
+        // Antes de la base no hay ningún periodo
+        assertEquals(-1, ProyeccionPagos.ultimoPeriodoHasta(BISIESTO, 12, LocalDate.of(2024, 2, 28)));
+
+        CalendarioPagos calendario = ProyeccionPagos.porDias(
+                List.of(suscripcion(BISIESTO, Ciclo.ANUAL, 5000)),
+                LocalDate.of(2025, 1, 1), LocalDate.of(2028, 12, 31));
+        assertEquals(List.of(LocalDate.of(2025, 2, 28), LocalDate.of(2026, 2, 28),
+                LocalDate.of(2027, 2, 28), LocalDate.of(2028, 2, 29)), diasConCobro(calendario));
+    }
+
+    @Test
+    void horizonteQueEmpiezaAMitadDePeriodo() {
+        LocalDate base = LocalDate.of(2025, 1, 15);
+        // El cobro del 15 de marzo queda antes del 20: el primero es el de abril
+        assertEquals(3, ProyeccionPagos.primerPeriodoDesde(base, 1, LocalDate.of(2025, 3, 20)));
+        assertEquals(4, ProyeccionPagos.ultimoPeriodoHasta(base, 1, LocalDate.of(2025, 6, 10)));
+        // Trimestral: del 1 de febrero pasa al 10 de abril
+        assertEquals(1, ProyeccionPagos.primerPeriodoDesde(LocalDate.of(2025, 1, 10), 3, LocalDate.of(2025, 2, 1)));
+        // Renovación posterior al horizonte: el primero es la propia renovación
+        assertEquals(0, ProyeccionPagos.primerPeriodoDesde(LocalDate.of(2025, 5, 10), 1, LocalDate.of(2025, 3, 20)));
+
+        CalendarioPagos calendario = ProyeccionPagos.porMeses(
+                List.of(suscripcion(base, Ciclo.MENSUAL, 999)), LocalDate.of(2025, 3, 20), 4);
+        assertEquals(0, calendario.getCobros(0));
+        assertEquals(1, calendario.getCobros(1));
+        assertEquals(1, calendario.getCobros(2));
+        assertEquals(1, calendario.getCobros(3));
+        assertEquals(3 * 999, calendario.getTotalBrutoCentimos());
+    }
+
+    @Test
+    void coberturaDeColaboradorQueSolapaElHorizonte() {
+        Suscripcion s = suscripcion(LocalDate.of(2025, 1, 10), Ciclo.MENSUAL, 1200);
+        // Pagó cuatro meses desde el 10 de diciembre: cubre los cobros de enero a marzo
+        Participa p = new Participa(400, LocalDate.of(2024, 12, 10), MetodoPago.OTRO, 4, null, s, null);
+        s.setParticipantes(new ArrayList<>(List.of(p)));
+
+        CalendarioPagos calendario = ProyeccionPagos.porMeses(List.of(s), LocalDate.of(2025, 2, 1), 4);
+        assertEquals(400, calendario.getCubiertoCentimos(0));
+        assertEquals(400, calendario.getCubiertoCentimos(1));
+        assertEquals(0, calendario.getCubiertoCentimos(2));
+        assertEquals(0, calendario.getCubiertoCentimos(3));
+        assertEquals(800, calendario.getNetoCentimos(0));
+        assertEquals(1200, calendario.getNetoCentimos(3));
+        assertEquals(4 * 1200 - 2 * 400, calendario.getTotalNetoCentimos());
+    }
+
+    // Métodos auxiliares
+
+    private static Suscripcion suscripcion(LocalDate renovacion, Ciclo ciclo, long precioCentimos) {
+        return new Suscripcion(1, "Prueba", precioCentimos, ciclo, Categoria.OCIO, renovacion, renovacion, null);
+    }
+
+    private static List<LocalDate> diasConCobro(CalendarioPagos calendario) {
+        List<LocalDate> dias = new ArrayList<>();
+        for (int i = 0; i < calendario.getTamano(); i++) {
+            if (calendario.getCobros(i) > 0) dias.add(calendario.getFecha(i));
+        }
+        return dias;
+    }
+}
@@ -0,0 +1,51 @@
+package org.dam.fcojavier.substracker.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Pruebas de {@link Dinero#parsear(String)} con los formatos documentados, el redondeo y los
+ * importes que no caben en un {@code long}.
+ *
+ * @author Fco Javier García
+ * @version 1.0
+ */
+class DineroTest {
+
+    @Test
+    void formatosDocumentados() {
+        assertEquals(1250, Dinero.parsear("12,5"));
+        assertEquals(1250, Dinero.parsear("12.50"));
+        assertEquals(-999, Dinero.parsear("-9,99 €"));
+        assertEquals(123456, Dinero.parsear("1.234,56"));
+        assertEquals(123456, Dinero.parsear("1,234.56"));
+    }
+
+    @Test
+    void separadoresDeMilesYMoneda() {
+        assertEquals(1700, Dinero.parsear("17"));
+        assertEquals(123456789, Dinero.parsear("1.234.567,89"));
+        assertEquals(1200, Dinero.parsear("12,00 EUR"));
+        assertEquals(123456, Dinero.parsear("1 234,56 €"));
+    }
+
+    @Test
+    void redondeaAlCentimoMitadHaciaArriba() {
+        assertEquals(235, Dinero.parsear("2,345"));
+        assertEquals(234, Dinero.parsear("2,3449"));
+        assertEquals(1, Dinero.parsear("0,005"));
+        assertEquals(0, Dinero.parsear("0,004"));
+        assertEquals(-1, Dinero.parsear("-0,005"));
+    }
+
+    @Test
+    void fueraDeRangoONoNumerico() {
+        assertEquals(Long.MAX_VALUE, Dinero.parsear("92233720368547758,07"));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("92233720368547758,08"));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("-92233720368547758,09"));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear("doce"));
+        assertThrows(NumberFormatException.class, () -> Dinero.parsear(""));
+    }
+}